@@ -1,21 +1,22 @@
 CREATE TABLE IF NOT EXISTS User_Table(
   user_id INTEGER PRIMARY KEY AUTOINCREMENT,
   session_id TEXT,
-  highest_lifetime_balance FLOAT,
+  highest_lifetime_balance INTEGER,
   highest_transaction_id BIGINT,
   highest_category_id BIGINT,
   highest_category_rule_id BIGINT,
   highest_saving_goal_id BIGINT,
   highest_payment_request_id BIGINT,
   highest_user_message_id BIGINT,
-  highest_message_rule_id BIGINT
+  highest_message_rule_id BIGINT,
+  highest_import_job_id BIGINT DEFAULT 0
 );
 
 CREATE TABLE IF NOT EXISTS Transaction_Table(
   user_id INTEGER,
   transaction_id BIGINT,
-  date DATETIME,
-  amount FLOAT,
+  date INTEGER,
+  amount INTEGER,
   description TEXT,
   external_iban TEXT,
   type TEXT,
@@ -57,12 +58,14 @@ CREATE TABLE IF NOT EXISTS Category_Rule(
 CREATE TABLE IF NOT EXISTS Saving_Goal(
   user_id INTEGER,
   saving_goal_id BIGINT,
-  creation_date DATETIME,
-  deletion_date DATETIME,
+  creation_date INTEGER,
+  deletion_date INTEGER,
   name TEXT,
-  goal FLOAT,
-  save_per_month FLOAT,
-  min_balance_required FLOAT,
+  goal INTEGER,
+  save_per_month INTEGER,
+  min_balance_required INTEGER,
+  balance INTEGER DEFAULT 0,
+  reached BOOLEAN DEFAULT 0,
   FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
   PRIMARY KEY(user_id, saving_goal_id)
 );
@@ -71,10 +74,11 @@ CREATE TABLE IF NOT EXISTS Payment_Request(
   user_id INTEGER,
   payment_request_id BIGINT,
   description TEXT,
-  due_date DATETIME,
-  amount FLOAT,
+  due_date INTEGER,
+  amount INTEGER,
   number_of_requests BIGINT,
   filled BOOLEAN,
+  fill_count BIGINT DEFAULT 0,
   FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
   PRIMARY KEY(user_id, payment_request_id)
 );
@@ -93,7 +97,7 @@ CREATE TABLE IF NOT EXISTS User_Message(
   user_id INTEGER,
   user_message_id BIGINT,
   message TEXT,
-  date DATETIME,
+  date INTEGER,
   read BOOLEAN,
   type TEXT,
   FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
@@ -105,8 +109,126 @@ CREATE TABLE IF NOT EXISTS Message_Rule(
   message_rule_id BIGINT,
   category_id BIGINT,
   type TEXT,
-  value float,
+  value INTEGER,
   FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
   PRIMARY KEY(user_id, message_rule_id)
 );
 
+CREATE TABLE IF NOT EXISTS Balance(
+  user_id INTEGER PRIMARY KEY,
+  balance INTEGER,
+  date INTEGER,
+  FOREIGN KEY(user_id) REFERENCES User_Table(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS Balance_Rollup(
+  user_id INTEGER,
+  period TEXT,
+  bucket INTEGER,
+  open INTEGER,
+  close INTEGER,
+  high INTEGER,
+  low INTEGER,
+  volume INTEGER,
+  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
+  PRIMARY KEY(user_id, period, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS Balance_Checkpoint(
+  user_id INTEGER,
+  month_start INTEGER,
+  balance INTEGER,
+  date INTEGER,
+  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
+  PRIMARY KEY(user_id, month_start)
+);
+
+CREATE TABLE IF NOT EXISTS Saving_Goal_Checkpoint(
+  user_id INTEGER,
+  month_start INTEGER,
+  saving_goal_id BIGINT,
+  balance INTEGER,
+  released BOOLEAN,
+  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
+  PRIMARY KEY(user_id, month_start, saving_goal_id)
+);
+
+CREATE TABLE IF NOT EXISTS Balance_Checkpoint_Rollup(
+  user_id INTEGER,
+  month_start INTEGER,
+  period TEXT,
+  bucket INTEGER,
+  open INTEGER,
+  close INTEGER,
+  high INTEGER,
+  low INTEGER,
+  volume INTEGER,
+  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
+  PRIMARY KEY(user_id, month_start, period)
+);
+
+CREATE TABLE IF NOT EXISTS Import_Job(
+  user_id INTEGER,
+  import_job_id BIGINT,
+  format TEXT,
+  completed BOOLEAN,
+  lines_processed INTEGER,
+  transactions_imported INTEGER,
+  lines_rejected INTEGER,
+  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
+  PRIMARY KEY(user_id, import_job_id)
+);
+
+CREATE TABLE IF NOT EXISTS Transaction_Event(
+  event_id INTEGER PRIMARY KEY AUTOINCREMENT,
+  user_id INTEGER,
+  transaction_id BIGINT,
+  old_balance INTEGER,
+  old_date INTEGER,
+  new_balance INTEGER,
+  attempts INTEGER DEFAULT 0,
+  FOREIGN KEY(user_id) REFERENCES User_Table(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS Idempotent_Response(
+  user_id INTEGER,
+  endpoint TEXT,
+  idempotency_key TEXT,
+  status INTEGER,
+  body TEXT,
+  request_hash TEXT,
+  created INTEGER,
+  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
+  PRIMARY KEY(user_id, endpoint, idempotency_key)
+);
+
+CREATE TABLE IF NOT EXISTS Category_Spend_Window(
+  user_id INTEGER PRIMARY KEY,
+  head_day INTEGER,
+  evaluated_until_id BIGINT,
+  FOREIGN KEY(user_id) REFERENCES User_Table(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS Category_Spend(
+  user_id INTEGER,
+  category_id BIGINT,
+  day INTEGER,
+  amount INTEGER,
+  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),
+  PRIMARY KEY(user_id, category_id, day)
+);
+
+
+CREATE INDEX IF NOT EXISTS User_Table_session_id ON User_Table(session_id);
+
+CREATE INDEX IF NOT EXISTS Transaction_Table_user_id_date ON Transaction_Table(user_id, date, transaction_id, amount, type);
+
+CREATE INDEX IF NOT EXISTS Transaction_Category_user_id_category_id ON Transaction_Category(user_id, category_id);
+
+CREATE INDEX IF NOT EXISTS User_Message_unread ON User_Message(user_id) WHERE read = 0;
+
+CREATE INDEX IF NOT EXISTS Payment_Request_open ON Payment_Request(user_id, amount, due_date) WHERE filled = 0;
+
+CREATE INDEX IF NOT EXISTS Transaction_Event_user_id ON Transaction_Event(user_id, event_id);
+
+CREATE INDEX IF NOT EXISTS Idempotent_Response_created ON Idempotent_Response(created);
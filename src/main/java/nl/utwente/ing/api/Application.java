@@ -1,6 +1,9 @@
 package nl.utwente.ing.api;
 
+import nl.utwente.ing.model.Model;
 import nl.utwente.ing.model.persistentmodel.DatabaseConnection;
+import nl.utwente.ing.model.persistentmodel.PersistentModel;
+import nl.utwente.ing.model.persistentmodel.UnitOfWork;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -17,16 +20,41 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter
 @SpringBootApplication
 public class Application {
 
+    private static Model model;
+
     /**
      * Method used by the Spring framework to start the application.
+     * The size of the database connection pool and the maximum time to wait for a database connection can be
+     * configured using the ing.db.poolSize and ing.db.maxWaitMillis system properties.
+     * When the application stops, the background work of the PersistentModel is shut down before the database
+     * connections are closed.
      *
      * @param args The command line arguments.
      */
     public static void main(String[] args) {
-        DatabaseConnection.setUp("ing.db");
+        DatabaseConnection.setUp("ing.db",
+                Integer.getInteger("ing.db.poolSize", DatabaseConnection.DEFAULT_POOL_SIZE),
+                Long.getLong("ing.db.maxWaitMillis", DatabaseConnection.DEFAULT_MAX_WAIT_MILLIS));
+        PersistentModel persistentModel = new PersistentModel();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            persistentModel.shutdown();
+            DatabaseConnection.tearDown();
+        }));
+        model = UnitOfWork.wrap(persistentModel);
         SpringApplication.run(Application.class, args);
     }
 
+    /**
+     * Method used to provide the Model used by the REST controllers, in such a way that every call to it is executed
+     * as one unit of work.
+     *
+     * @return The Model used by the REST controllers.
+     */
+    @Bean
+    public Model model() {
+        return model;
+    }
+
     /**
      * Method used to enable Cross-Origin Resource Sharing.
      *
@@ -1,16 +1,28 @@
 package nl.utwente.ing.api;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.utwente.ing.exception.IdempotencyKeyReusedException;
 import nl.utwente.ing.exception.InvalidSessionIDException;
 import nl.utwente.ing.exception.ResourceNotFoundException;
+import nl.utwente.ing.exception.UnsuccessfulRequestException;
+import nl.utwente.ing.misc.date.IntervalHelper;
 import nl.utwente.ing.misc.date.IntervalPeriod;
 import nl.utwente.ing.model.Model;
 import nl.utwente.ing.model.bean.*;
-import nl.utwente.ing.model.persistentmodel.PersistentModel;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * The MainRestController class.
@@ -22,14 +34,22 @@ import java.util.Map;
 @RestController
 public class MainRestController {
 
+    private static final int MAX_IMPORT_CHUNK_SIZE = 10000;
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private Model model;
+    private ObjectMapper objectMapper;
 
     /**
      * The constructor of MainRestController.
-     * Initializes the model.
+     *
+     * @param model        The Model used to store data, which executes every call as one unit of work.
+     * @param objectMapper The ObjectMapper configured by the Spring framework, which converts the bodies of all
+     *                     requests and responses to and from json.
      */
-    public MainRestController() {
-        model = new PersistentModel();
+    public MainRestController(Model model, ObjectMapper objectMapper) {
+        this.model = model;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -51,6 +71,133 @@ public class MainRestController {
         }
     }
 
+    /**
+     * Method used to handle a request that creates resources, executing it at most once per idempotency key.
+     * If an idempotency key is specified and a request of the same user to the same endpoint with the same idempotency
+     * key has succeeded before, the original response is returned without executing the request again. If that earlier
+     * request had a different body, the idempotency key is rejected instead. Only successful requests are remembered;
+     * the changes made by an unsuccessful request are rolled back, so that it can be retried with the same idempotency
+     * key.
+     *
+     * @param pSessionID     The sessionID specified in the request parameters.
+     * @param hSessionID     The sessionID specified in the HTTP header.
+     * @param idempotencyKey The idempotency key specified in the HTTP header (empty String if none).
+     * @param endpoint       The endpoint to which the request is made.
+     * @param requestBody    The body of the request, as specified in the json HTTP body.
+     * @param request        The handling of the request, in case it has not been executed before.
+     * @return A ResponseEntity containing a HTTP status code and either a status message or the resources created by
+     * the request.
+     */
+    private ResponseEntity handleIdempotently(String pSessionID, String hSessionID, String idempotencyKey,
+                                              String endpoint, Object requestBody, Supplier<ResponseEntity> request) {
+        if (idempotencyKey.equals("")) {
+            return request.get();
+        }
+        ResponseEntity[] executedResponse = new ResponseEntity[1];
+        String requestHash = hash(this.toJson(requestBody));
+        try {
+            String sessionID = this.getSessionID(pSessionID, hSessionID);
+            IdempotentResponse response = model.executeIdempotently(sessionID, endpoint, idempotencyKey, requestHash,
+                    () -> {
+                        executedResponse[0] = request.get();
+                        if (!executedResponse[0].getStatusCode().is2xxSuccessful()) {
+                            throw new UnsuccessfulRequestException();
+                        }
+                        return new IdempotentResponse(executedResponse[0].getStatusCodeValue(),
+                                this.toJson(executedResponse[0].getBody()), requestHash, System.currentTimeMillis());
+                    });
+            if (executedResponse[0] != null) {
+                return executedResponse[0];
+            }
+            return ResponseEntity.status(response.getStatus()).contentType(MediaType.APPLICATION_JSON_UTF8)
+                    .body(response.getBody());
+        } catch (InvalidSessionIDException e) {
+            return ResponseEntity.status(401).body("Session ID is missing or invalid");
+        } catch (UnsuccessfulRequestException e) {
+            return executedResponse[0];
+        } catch (IdempotencyKeyReusedException e) {
+            return ResponseEntity.status(422).body("Idempotency key was already used for a different request");
+        }
+    }
+
+    /**
+     * Method used to compute the SHA-256 hash of the body of a request.
+     *
+     * @param body The body of the request, as json.
+     * @return The SHA-256 hash of body, as a hexadecimal String.
+     */
+    private static String hash(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not compute the hash of the request", e);
+        }
+    }
+
+    /**
+     * Method used to convert the body of a request or response to json using the ObjectMapper of the Spring framework,
+     * so that a stored response is replayed exactly as the original response was written.
+     *
+     * @param body The body of the request or response.
+     * @return The body of the request or response as json.
+     */
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not convert the body to json", e);
+        }
+    }
+
+    /**
+     * Method used to convert the interval size specified in a request to an IntervalPeriod.
+     *
+     * @param interval The interval size specified in the request ("year", "month", "week", "day" or "hour").
+     * @return The IntervalPeriod corresponding to interval, or null if interval is not a valid interval size.
+     */
+    private IntervalPeriod parseIntervalPeriod(String interval) {
+        if (interval.equals("year")) {
+            return IntervalPeriod.YEAR;
+        } else if (interval.equals("month")) {
+            return IntervalPeriod.MONTH;
+        } else if (interval.equals("week")) {
+            return IntervalPeriod.WEEK;
+        } else if (interval.equals("day")) {
+            return IntervalPeriod.DAY;
+        } else if (interval.equals("hour")) {
+            return IntervalPeriod.HOUR;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Method used to validate a Transaction specified in a request that will be created, normalizing its amount and
+     * description along the way.
+     *
+     * @param t The Transaction object as specified in the json request body.
+     * @return A status message explaining why t is invalid, or null if t is valid.
+     */
+    private String validateTransaction(Transaction t) {
+        if (t == null || t.getDate() == IntervalHelper.NO_DATE || t.getAmount() == 0 || t.getExternalIBAN() == null ||
+                t.getType() == null) {
+            return "Invalid input given";
+        }
+        if (!t.getType().equals("deposit") && !t.getType().equals("withdrawal")) {
+            return "Invalid input given (type should be 'deposit' or 'withdrawal')";
+        }
+        t.setAmount(Math.abs(t.getAmount()));
+        if (t.getDescription() == null) {
+            t.setDescription("");
+        }
+        return null;
+    }
+
     /**
      * Method used to generate and retrieve a new sessionID.
      *
@@ -105,10 +252,14 @@ public class MainRestController {
 
     /**
      * Method used to create a new Transaction for the user issuing the current request.
+     * The derived evaluations of the Transaction, such as matching PaymentRequests and emitting UserMessages, are done
+     * asynchronously after the Transaction has been created, unless sync is true.
      *
-     * @param pSessionID The sessionID specified in the request parameters.
-     * @param hSessionID The sessionID specified in the HTTP header.
-     * @param t          The Transaction object as specified in the json request body.
+     * @param pSessionID     The sessionID specified in the request parameters.
+     * @param hSessionID     The sessionID specified in the HTTP header.
+     * @param idempotencyKey The idempotency key specified in the HTTP header (empty String if none).
+     * @param sync           Whether the derived evaluations should be done before responding ("true" or "false").
+     * @param t              The Transaction object as specified in the json request body.
      * @return A ResponseEntity containing a HTTP status code and either a status message or
      * the Transaction created using this method.
      */
@@ -116,32 +267,192 @@ public class MainRestController {
             value = RestControllerConstants.URI_PREFIX + "/transactions")
     public ResponseEntity postTransaction(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
                                           @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID,
+                                          @RequestHeader(value = "Idempotency-Key", defaultValue = "") String idempotencyKey,
+                                          @RequestParam(value = "sync", defaultValue = "false") String sync,
                                           @RequestBody Transaction t) {
-        if (t == null || t.getDate() == null || t.getAmount() == 0 || t.getExternalIBAN() == null || t.getType() == null) {
+        return this.handleIdempotently(pSessionID, hSessionID, idempotencyKey, "POST /transactions", t, () -> {
+            String invalidInput = this.validateTransaction(t);
+            if (invalidInput != null) {
+                return ResponseEntity.status(405).body(invalidInput);
+            }
+            try {
+                String sessionID = this.getSessionID(pSessionID, hSessionID);
+                Transaction transaction;
+                if (t.getCategory() != null) {
+                    transaction = model.postTransaction(sessionID, t.getDate(), t.getAmount(), t.getDescription(),
+                            t.getExternalIBAN(), t.getType(), t.getCategory().getID());
+                } else {
+                    transaction = model.postTransaction(sessionID, t.getDate(), t.getAmount(), t.getDescription(),
+                            t.getExternalIBAN(), t.getType(), 0);
+                }
+                if (sync.equals("true")) {
+                    model.processTransactionEvents(sessionID);
+                }
+                return ResponseEntity.status(201).body(transaction);
+            } catch (InvalidSessionIDException e) {
+                return ResponseEntity.status(401).body("Session ID is missing or invalid");
+            } catch (ResourceNotFoundException e) {
+                return ResponseEntity.status(404).body("Resource not found");
+            }
+        });
+    }
+
+    /**
+     * Method used to create several new Transactions for the user issuing the current request at once.
+     * Every Transaction is validated separately, and only the valid ones are created. The response contains the
+     * outcome of every Transaction in the same order as in the request. Batches of more than MAX_BATCH_SIZE
+     * Transactions are rejected as a whole, since all of them are created in one unit of work; larger amounts of
+     * Transactions can be imported in chunks instead.
+     *
+     * @param pSessionID     The sessionID specified in the request parameters.
+     * @param hSessionID     The sessionID specified in the HTTP header.
+     * @param idempotencyKey The idempotency key specified in the HTTP header (empty String if none).
+     * @param ts             The array of Transaction objects as specified in the json request body.
+     * @return A ResponseEntity containing a HTTP status code and either a status message or
+     * a list containing, for every Transaction, either the created Transaction or a status message.
+     */
+    @RequestMapping(method = RequestMethod.POST,
+            value = RestControllerConstants.URI_PREFIX + "/transactions/batch")
+    public ResponseEntity postTransactions(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
+                                           @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID,
+                                           @RequestHeader(value = "Idempotency-Key", defaultValue = "") String idempotencyKey,
+                                           @RequestBody List<Transaction> ts) {
+        if (ts == null) {
             return ResponseEntity.status(405).body("Invalid input given");
+        } else if (ts.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.status(405)
+                    .body("Invalid input given (a batch contains at most " + MAX_BATCH_SIZE + " Transactions)");
         }
-        if (!t.getType().equals("deposit") && !t.getType().equals("withdrawal")) {
-            return ResponseEntity.status(405).body("Invalid input given (type should be 'deposit' or 'withdrawal')");
-        }
-        t.setAmount(Math.abs(t.getAmount()));
-        if (t.getDescription() == null) {
-            t.setDescription("");
+        return this.handleIdempotently(pSessionID, hSessionID, idempotencyKey, "POST /transactions/batch", ts, () -> {
+            BatchItemResult[] results = new BatchItemResult[ts.size()];
+            List<Transaction> validTransactions = new ArrayList<>();
+            List<Integer> validIndices = new ArrayList<>();
+            for (int i = 0; i < ts.size(); i++) {
+                String invalidInput = this.validateTransaction(ts.get(i));
+                if (invalidInput != null) {
+                    results[i] = new BatchItemResult(405, invalidInput);
+                } else {
+                    validTransactions.add(ts.get(i));
+                    validIndices.add(i);
+                }
+            }
+            try {
+                String sessionID = this.getSessionID(pSessionID, hSessionID);
+                ArrayList<Transaction> transactions = model.postTransactions(sessionID, validTransactions);
+                for (int i = 0; i < transactions.size(); i++) {
+                    if (transactions.get(i) != null) {
+                        results[validIndices.get(i)] = new BatchItemResult(201, transactions.get(i));
+                    } else {
+                        results[validIndices.get(i)] = new BatchItemResult(404, "Resource not found");
+                    }
+                }
+                return ResponseEntity.status(201).body(results);
+            } catch (InvalidSessionIDException e) {
+                return ResponseEntity.status(401).body("Session ID is missing or invalid");
+            }
+        });
+    }
+
+    /**
+     * Method used to import Transactions for the user issuing the current request from a file in the ndjson or csv
+     * format, streamed as the request body.
+     * The file is read one line at a time, and the Transactions read from every chunk of lines are created in a
+     * separate unit of work together with the progress of the import, so memory usage does not depend on the size of
+     * the file. An interrupted import can be resumed by sending the same file with the ID of its ImportJob, after which
+     * the lines that have already been processed are skipped.
+     *
+     * @param pSessionID  The sessionID specified in the request parameters.
+     * @param hSessionID  The sessionID specified in the HTTP header.
+     * @param format      The format of the file ("ndjson" or "csv"), defaulting to csv if the content type of the
+     *                    request says so and to ndjson otherwise.
+     * @param chunkSize   The amount of lines of which the Transactions are created in a single unit of work.
+     * @param importID    The ID of the ImportJob that will be resumed (empty String to start a new import).
+     * @param contentType The content type of the request.
+     * @param body        The InputStream from which the file will be read.
+     * @return A ResponseEntity containing a HTTP status code and either a status message or
+     * the ImportJob after the file has been imported.
+     */
+    @RequestMapping(method = RequestMethod.POST,
+            value = RestControllerConstants.URI_PREFIX + "/transactions/import")
+    public ResponseEntity importTransactions(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
+                                             @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID,
+                                             @RequestParam(value = "format", defaultValue = "") String format,
+                                             @RequestParam(value = "chunk_size", defaultValue = "1000") String chunkSize,
+                                             @RequestParam(value = "import_id", defaultValue = "") String importID,
+                                             @RequestHeader(value = "Content-Type", defaultValue = "") String contentType,
+                                             InputStream body) {
+        if (format.equals("")) {
+            format = contentType.contains("csv") ? TransactionImportReader.CSV : TransactionImportReader.NDJSON;
         }
+        ImportJob importJob = null;
         try {
             String sessionID = this.getSessionID(pSessionID, hSessionID);
-            Transaction transaction;
-            if (t.getCategory() != null) {
-                transaction = model.postTransaction(sessionID, t.getDate(), t.getAmount(), t.getDescription(),
-                        t.getExternalIBAN(), t.getType(), t.getCategory().getID());
+            int chunkSizeInt = Integer.parseInt(chunkSize);
+            if (chunkSizeInt < 1 || chunkSizeInt > MAX_IMPORT_CHUNK_SIZE ||
+                    !TransactionImportReader.isSupportedFormat(format)) {
+                return ResponseEntity.status(405).body("Invalid input given");
+            }
+            if (importID.equals("")) {
+                importJob = model.createImportJob(sessionID, format);
             } else {
-                transaction = model.postTransaction(sessionID, t.getDate(), t.getAmount(), t.getDescription(),
-                        t.getExternalIBAN(), t.getType(), 0);
+                importJob = model.getImportJob(sessionID, Long.parseLong(importID));
+                if (importJob.getCompleted()) {
+                    return ResponseEntity.status(200).body(importJob);
+                }
+            }
+
+            TransactionImportReader reader = new TransactionImportReader(body, importJob.getFormat());
+            reader.skip(importJob.getLinesProcessed());
+            List<Transaction> chunk = new ArrayList<>();
+            int lines = 0;
+            while (reader.next()) {
+                Transaction t = reader.getTransaction();
+                if (t != null && this.validateTransaction(t) == null) {
+                    chunk.add(t);
+                }
+                lines++;
+                if (lines == chunkSizeInt) {
+                    importJob = model.importTransactions(sessionID, importJob.getId(), chunk, lines, false);
+                    chunk.clear();
+                    lines = 0;
+                }
             }
-            return ResponseEntity.status(201).body(transaction);
+            importJob = model.importTransactions(sessionID, importJob.getId(), chunk, lines, true);
+            return ResponseEntity.status(201).body(importJob);
         } catch (InvalidSessionIDException e) {
             return ResponseEntity.status(401).body("Session ID is missing or invalid");
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(405).body("Invalid input given");
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(404).body("Resource not found");
+        } catch (IOException e) {
+            // The chunks imported so far have been committed, so the import can be resumed
+            return ResponseEntity.status(400).body(importJob);
+        }
+    }
+
+    /**
+     * Method used to retrieve the progress of a certain import of the user issuing the current request.
+     *
+     * @param pSessionID The sessionID specified in the request parameters.
+     * @param hSessionID The sessionID specified in the HTTP header.
+     * @param importID   The ID of the ImportJob that will be retrieved.
+     * @return A ResponseEntity containing a HTTP status code and either a status message or
+     * the ImportJob with importID belonging to the user issuing the current request.
+     */
+    @RequestMapping(method = RequestMethod.GET,
+            value = RestControllerConstants.URI_PREFIX + "/transactions/import/{importID}")
+    public ResponseEntity getImportJob(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
+                                       @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID,
+                                       @PathVariable String importID) {
+        try {
+            String sessionID = this.getSessionID(pSessionID, hSessionID);
+            ImportJob importJob = model.getImportJob(sessionID, Long.parseLong(importID));
+            return ResponseEntity.status(200).body(importJob);
+        } catch (InvalidSessionIDException e) {
+            return ResponseEntity.status(401).body("Session ID is missing or invalid");
+        } catch (NumberFormatException | ResourceNotFoundException e) {
+            return ResponseEntity.status(404).body("Resource not found");
         }
     }
 
@@ -308,9 +619,10 @@ public class MainRestController {
     /**
      * Method used to create a new Category for the user issuing the current request.
      *
-     * @param pSessionID The sessionID specified in the request parameters.
-     * @param hSessionID The sessionID specified in the HTTP header.
-     * @param c          The Category object as specified in the json HTTP body.
+     * @param pSessionID     The sessionID specified in the request parameters.
+     * @param hSessionID     The sessionID specified in the HTTP header.
+     * @param idempotencyKey The idempotency key specified in the HTTP header (empty String if none).
+     * @param c              The Category object as specified in the json HTTP body.
      * @return A ResponseEntity containing a HTTP status code and either a status message or
      * the Category created by using this method.
      */
@@ -318,17 +630,20 @@ public class MainRestController {
             value = RestControllerConstants.URI_PREFIX + "/categories")
     public ResponseEntity postCategory(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
                                        @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID,
+                                       @RequestHeader(value = "Idempotency-Key", defaultValue = "") String idempotencyKey,
                                        @RequestBody Category c) {
-        if (c == null || c.getName() == null) {
-            return ResponseEntity.status(405).body("Invalid input given");
-        }
-        try {
-            String sessionID = this.getSessionID(pSessionID, hSessionID);
-            Category category = model.postCategory(sessionID, c.getName());
-            return ResponseEntity.status(201).body(category);
-        } catch (InvalidSessionIDException e) {
-            return ResponseEntity.status(401).body("Session ID is missing or invalid");
-        }
+        return this.handleIdempotently(pSessionID, hSessionID, idempotencyKey, "POST /categories", c, () -> {
+            if (c == null || c.getName() == null) {
+                return ResponseEntity.status(405).body("Invalid input given");
+            }
+            try {
+                String sessionID = this.getSessionID(pSessionID, hSessionID);
+                Category category = model.postCategory(sessionID, c.getName());
+                return ResponseEntity.status(201).body(category);
+            } catch (InvalidSessionIDException e) {
+                return ResponseEntity.status(401).body("Session ID is missing or invalid");
+            }
+        });
     }
 
     /**
@@ -437,9 +752,10 @@ public class MainRestController {
     /**
      * Method used to create a new CategoryRule for the user issuing the current request.
      *
-     * @param pSessionID The sessionID specified in the request parameters.
-     * @param hSessionID The sessionID specified in the HTTP header.
-     * @param cr         The CategoryRule object as specified in the json HTTP body.
+     * @param pSessionID     The sessionID specified in the request parameters.
+     * @param hSessionID     The sessionID specified in the HTTP header.
+     * @param idempotencyKey The idempotency key specified in the HTTP header (empty String if none).
+     * @param cr             The CategoryRule object as specified in the json HTTP body.
      * @return A ResponseEntity containing a HTTP status code and either a status message or
      * the CategoryRule created by using this method.
      */
@@ -447,21 +763,25 @@ public class MainRestController {
             value = RestControllerConstants.URI_PREFIX + "/categoryRules")
     public ResponseEntity postCategoryRule(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
                                            @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID,
+                                           @RequestHeader(value = "Idempotency-Key", defaultValue = "") String idempotencyKey,
                                            @RequestBody CategoryRule cr) {
-        if (cr == null || cr.getDescription() == null || cr.getiBAN() == null || cr.getType() == null ||
-                cr.getCategory_id() <= 0) {
-            return ResponseEntity.status(405).body("Invalid input given");
-        }
-        if (!cr.getType().equals("") && !cr.getType().equals("deposit") && !cr.getType().equals("withdrawal")) {
-            return ResponseEntity.status(405).body("Invalid input given (type should be 'deposit' or 'withdrawal')");
-        }
-        try {
-            String sessionID = this.getSessionID(pSessionID, hSessionID);
-            CategoryRule categoryRule = model.postCategoryRule(sessionID, cr);
-            return ResponseEntity.status(201).body(categoryRule);
-        } catch (InvalidSessionIDException e) {
-            return ResponseEntity.status(401).body("Session ID is missing or invalid");
-        }
+        return this.handleIdempotently(pSessionID, hSessionID, idempotencyKey, "POST /categoryRules", cr, () -> {
+            if (cr == null || cr.getDescription() == null || cr.getiBAN() == null || cr.getType() == null ||
+                    cr.getCategory_id() <= 0) {
+                return ResponseEntity.status(405).body("Invalid input given");
+            }
+            if (!cr.getType().equals("") && !cr.getType().equals("deposit") && !cr.getType().equals("withdrawal")) {
+                return ResponseEntity.status(405)
+                        .body("Invalid input given (type should be 'deposit' or 'withdrawal')");
+            }
+            try {
+                String sessionID = this.getSessionID(pSessionID, hSessionID);
+                CategoryRule categoryRule = model.postCategoryRule(sessionID, cr);
+                return ResponseEntity.status(201).body(categoryRule);
+            } catch (InvalidSessionIDException e) {
+                return ResponseEntity.status(401).body("Session ID is missing or invalid");
+            }
+        });
     }
 
     /**
@@ -575,18 +895,8 @@ public class MainRestController {
             // Do nothing
         }
 
-        IntervalPeriod intervalPeriod;
-        if (interval.equals("year")) {
-            intervalPeriod = IntervalPeriod.YEAR;
-        } else if (interval.equals("month")) {
-            intervalPeriod = IntervalPeriod.MONTH;
-        } else if (interval.equals("week")) {
-            intervalPeriod = IntervalPeriod.WEEK;
-        } else if (interval.equals("day")) {
-            intervalPeriod = IntervalPeriod.DAY;
-        } else if (interval.equals("hour")) {
-            intervalPeriod = IntervalPeriod.HOUR;
-        } else {
+        IntervalPeriod intervalPeriod = this.parseIntervalPeriod(interval);
+        if (intervalPeriod == null) {
             return ResponseEntity.status(405).body("Invalid input given");
         }
 
@@ -600,6 +910,78 @@ public class MainRestController {
         }
     }
 
+    /**
+     * Method used to retrieve the balance history of the user issuing the current request for several interval sizes
+     * at once, for example to fill a dashboard with one request instead of one request per interval size.
+     * The n-th interval size is paired with the n-th amount of intervals. If fewer amounts than interval sizes are
+     * specified, the balance history of the remaining interval sizes is computed for 24 intervals.
+     *
+     * @param pSessionID The sessionID specified in the request parameters.
+     * @param hSessionID The sessionID specified in the HTTP header.
+     * @param interval   The interval sizes (for example "hour,day,week") for which the balance history should be
+     *                   computed.
+     * @param intervals  The amounts of intervals for which the balance history should be computed.
+     * @return A ResponseEntity containing a HTTP status code and either a status message or
+     * an ArrayList containing, for every specified interval size in the same order, an ArrayList of BalanceCandlestick
+     * of balance history based on the parameters specified by the user.
+     */
+    @RequestMapping(method = RequestMethod.GET,
+            value = RestControllerConstants.URI_PREFIX + "/balance/histories")
+    public ResponseEntity getBalanceHistories(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
+                                              @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID,
+                                              @RequestParam(value = "interval", defaultValue = "month")
+                                                      List<String> interval,
+                                              @RequestParam(value = "intervals", defaultValue = "24")
+                                                      List<String> intervals) {
+        IntervalPeriod[] intervalPeriods = new IntervalPeriod[interval.size()];
+        int[] amounts = new int[interval.size()];
+        for (int i = 0; i < interval.size(); i++) {
+            intervalPeriods[i] = this.parseIntervalPeriod(interval.get(i));
+            if (intervalPeriods[i] == null) {
+                return ResponseEntity.status(405).body("Invalid input given");
+            }
+
+            amounts[i] = 24;
+            if (i < intervals.size()) {
+                try {
+                    amounts[i] = Integer.parseInt(intervals.get(i));
+                } catch (NumberFormatException e) {
+                    // Do nothing
+                }
+            }
+        }
+
+        try {
+            String sessionID = this.getSessionID(pSessionID, hSessionID);
+            ArrayList<ArrayList<BalanceCandlestick>> balanceHistories =
+                    model.getBalanceHistories(sessionID, intervalPeriods, amounts);
+            return ResponseEntity.status(200).body(balanceHistories);
+        } catch (InvalidSessionIDException e) {
+            return ResponseEntity.status(401).body("Session ID is missing or invalid");
+        }
+    }
+
+    /**
+     * Method used to retrieve the current balance of the user issuing the current request.
+     *
+     * @param pSessionID The sessionID specified in the request parameters.
+     * @param hSessionID The sessionID specified in the HTTP header.
+     * @return A ResponseEntity containing a HTTP status code and either a status message or
+     * the current Balance of the user issuing the current request.
+     */
+    @RequestMapping(method = RequestMethod.GET,
+            value = RestControllerConstants.URI_PREFIX + "/balance")
+    public ResponseEntity getBalance(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
+                                     @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID) {
+        try {
+            String sessionID = this.getSessionID(pSessionID, hSessionID);
+            Balance balance = model.getBalance(sessionID);
+            return ResponseEntity.status(200).body(balance);
+        } catch (InvalidSessionIDException e) {
+            return ResponseEntity.status(401).body("Session ID is missing or invalid");
+        }
+    }
+
     /**
      * Method used to retrieve the SavingGoals belonging to the user issuing the current request.
      *
@@ -624,9 +1006,10 @@ public class MainRestController {
     /**
      * Method used to create a new SavingGoal for the user issuing the current request.
      *
-     * @param pSessionID The sessionID specified in the request parameters.
-     * @param hSessionID The sessionID specified in the HTTP header.
-     * @param sg         The SavingGoal object as specified in the json HTTP body.
+     * @param pSessionID     The sessionID specified in the request parameters.
+     * @param hSessionID     The sessionID specified in the HTTP header.
+     * @param idempotencyKey The idempotency key specified in the HTTP header (empty String if none).
+     * @param sg             The SavingGoal object as specified in the json HTTP body.
      * @return A ResponseEntity containing a HTTP status code and either a status message or
      * the SavingGoal created by using this method.
      */
@@ -634,17 +1017,20 @@ public class MainRestController {
             value = RestControllerConstants.URI_PREFIX + "/savingGoals")
     public ResponseEntity postSavingGoal(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
                                          @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID,
+                                         @RequestHeader(value = "Idempotency-Key", defaultValue = "") String idempotencyKey,
                                          @RequestBody SavingGoal sg) {
-        if (sg == null || sg.getName() == null || sg.getGoal() < 0 || sg.getSavePerMonth() < 0) {
-            return ResponseEntity.status(405).body("Invalid input given");
-        }
-        try {
-            String sessionID = this.getSessionID(pSessionID, hSessionID);
-            SavingGoal savingGoal = model.postSavingGoal(sessionID, sg);
-            return ResponseEntity.status(201).body(savingGoal);
-        } catch (InvalidSessionIDException e) {
-            return ResponseEntity.status(401).body("Session ID is missing or invalid");
-        }
+        return this.handleIdempotently(pSessionID, hSessionID, idempotencyKey, "POST /savingGoals", sg, () -> {
+            if (sg == null || sg.getName() == null || sg.getGoal() < 0 || sg.getSavePerMonth() < 0) {
+                return ResponseEntity.status(405).body("Invalid input given");
+            }
+            try {
+                String sessionID = this.getSessionID(pSessionID, hSessionID);
+                SavingGoal savingGoal = model.postSavingGoal(sessionID, sg);
+                return ResponseEntity.status(201).body(savingGoal);
+            } catch (InvalidSessionIDException e) {
+                return ResponseEntity.status(401).body("Session ID is missing or invalid");
+            }
+        });
     }
 
     /**
@@ -696,9 +1082,10 @@ public class MainRestController {
     /**
      * Method used to create a new PaymentRequest for the user issuing the current request.
      *
-     * @param pSessionID The sessionID specified in the request parameters.
-     * @param hSessionID The sessionID specified in the HTTP header.
-     * @param pr         The PaymentRequest object as specified in the json HTTP body.
+     * @param pSessionID     The sessionID specified in the request parameters.
+     * @param hSessionID     The sessionID specified in the HTTP header.
+     * @param idempotencyKey The idempotency key specified in the HTTP header (empty String if none).
+     * @param pr             The PaymentRequest object as specified in the json HTTP body.
      * @return A ResponseEntity containing a HTTP status code and either a status message or
      * the PaymentRequest created by using this method.
      */
@@ -706,18 +1093,21 @@ public class MainRestController {
             value = RestControllerConstants.URI_PREFIX + "/paymentRequests")
     public ResponseEntity postPaymentRequest(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
                                              @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID,
+                                             @RequestHeader(value = "Idempotency-Key", defaultValue = "") String idempotencyKey,
                                              @RequestBody PaymentRequest pr) {
-        if (pr == null || pr.getDescription() == null || pr.getDue_date() == null ||
-                pr.getAmount() < 0 || pr.getNumber_of_requests() < 0) {
-            return ResponseEntity.status(405).body("Invalid input given");
-        }
-        try {
-            String sessionID = this.getSessionID(pSessionID, hSessionID);
-            PaymentRequest paymentRequest = model.postPaymentRequest(sessionID, pr);
-            return ResponseEntity.status(201).body(paymentRequest);
-        } catch (InvalidSessionIDException e) {
-            return ResponseEntity.status(401).body("Session ID is missing or invalid");
-        }
+        return this.handleIdempotently(pSessionID, hSessionID, idempotencyKey, "POST /paymentRequests", pr, () -> {
+            if (pr == null || pr.getDescription() == null || pr.getDue_date() == IntervalHelper.NO_DATE ||
+                    pr.getAmount() < 0 || pr.getNumber_of_requests() < 0) {
+                return ResponseEntity.status(405).body("Invalid input given");
+            }
+            try {
+                String sessionID = this.getSessionID(pSessionID, hSessionID);
+                PaymentRequest paymentRequest = model.postPaymentRequest(sessionID, pr);
+                return ResponseEntity.status(201).body(paymentRequest);
+            } catch (InvalidSessionIDException e) {
+                return ResponseEntity.status(401).body("Session ID is missing or invalid");
+            }
+        });
     }
 
     /**
@@ -769,9 +1159,10 @@ public class MainRestController {
     /**
      * Method used to create a new MessageRule for the user issuing the current request.
      *
-     * @param pSessionID The sessionID specified in the request parameters.
-     * @param hSessionID The sessionID specified in the HTTP header.
-     * @param mr         The MessageRule object as specified in the json HTTP body.
+     * @param pSessionID     The sessionID specified in the request parameters.
+     * @param hSessionID     The sessionID specified in the HTTP header.
+     * @param idempotencyKey The idempotency key specified in the HTTP header (empty String if none).
+     * @param mr             The MessageRule object as specified in the json HTTP body.
      * @return A ResponseEntity containing a HTTP status code and either a status message or
      * the MessageRule created by using this method.
      */
@@ -779,18 +1170,21 @@ public class MainRestController {
             value = RestControllerConstants.URI_PREFIX + "/messageRules")
     public ResponseEntity postMessageRule(@RequestParam(value = "session_id", defaultValue = "") String pSessionID,
                                           @RequestHeader(value = "X-session-ID", defaultValue = "") String hSessionID,
+                                          @RequestHeader(value = "Idempotency-Key", defaultValue = "") String idempotencyKey,
                                           @RequestBody MessageRule mr) {
-        if (mr == null || mr.getCategory_id() <= 0 || mr.getType() == null || mr.getValue() < 0 ||
-                (!mr.getType().equals("info") && !mr.getType().equals("warning"))) {
-            return ResponseEntity.status(405).body("Invalid input given");
-        }
-        try {
-            String sessionID = this.getSessionID(pSessionID, hSessionID);
-            MessageRule messageRule = model.postMessageRule(sessionID, mr);
-            return ResponseEntity.status(201).body(messageRule);
-        } catch (InvalidSessionIDException e) {
-            return ResponseEntity.status(401).body("Session ID is missing or invalid");
-        }
+        return this.handleIdempotently(pSessionID, hSessionID, idempotencyKey, "POST /messageRules", mr, () -> {
+            if (mr == null || mr.getCategory_id() <= 0 || mr.getType() == null || mr.getValue() < 0 ||
+                    (!mr.getType().equals("info") && !mr.getType().equals("warning"))) {
+                return ResponseEntity.status(405).body("Invalid input given");
+            }
+            try {
+                String sessionID = this.getSessionID(pSessionID, hSessionID);
+                MessageRule messageRule = model.postMessageRule(sessionID, mr);
+                return ResponseEntity.status(201).body(messageRule);
+            } catch (InvalidSessionIDException e) {
+                return ResponseEntity.status(401).body("Session ID is missing or invalid");
+            }
+        });
     }
 
 }
@@ -0,0 +1,229 @@
+package nl.utwente.ing.api;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.money.MoneyHelper;
+import nl.utwente.ing.model.bean.Category;
+import nl.utwente.ing.model.bean.Transaction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The TransactionImportReader class.
+ * Used to read Transactions from an imported file one line at a time, so that files of any size can be imported while
+ * only a single line is kept in memory.
+ * <p>
+ * Two formats are supported. In the ndjson format, every line contains one Transaction as a json object, in the same
+ * form as in the request body of POST /transactions. In the csv format, the first line is a header naming the columns,
+ * after which every line contains one Transaction. The recognized columns are date, amount, description, externalIBAN,
+ * type and category (containing a categoryID); other columns are ignored. Blank lines are skipped in both formats and
+ * are not counted as lines.
+ *
+ * @author Daan Kooij
+ */
+public class TransactionImportReader {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private BufferedReader reader;
+    private String format;
+    private List<String> columns;
+    private Transaction transaction;
+
+    /**
+     * The constructor of TransactionImportReader.
+     * If the format is csv, the header is read right away.
+     *
+     * @param inputStream The InputStream from which the imported file will be read.
+     * @param format      The format of the imported file (NDJSON or CSV).
+     */
+    public TransactionImportReader(InputStream inputStream, String format) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        this.format = format;
+        if (format.equals(CSV)) {
+            this.columns = new ArrayList<>();
+            String header = this.readLine();
+            if (header != null) {
+                for (String column : splitCsvLine(header)) {
+                    columns.add(column.trim().toLowerCase());
+                }
+            }
+        }
+    }
+
+    /**
+     * Method used to check whether a certain String is a supported format.
+     *
+     * @param format The String that will be checked.
+     * @return Whether format is NDJSON or CSV.
+     */
+    public static boolean isSupportedFormat(String format) {
+        return format.equals(NDJSON) || format.equals(CSV);
+    }
+
+    /**
+     * Method used to skip a certain amount of lines, for example because they have been processed before.
+     *
+     * @param lines The amount of lines that will be skipped.
+     */
+    public void skip(long lines) throws IOException {
+        long skipped = 0;
+        while (skipped < lines && this.readLine() != null) {
+            skipped++;
+        }
+    }
+
+    /**
+     * Method used to read the next line of the imported file.
+     *
+     * @return Whether a next line was read, as opposed to the end of the imported file being reached.
+     */
+    public boolean next() throws IOException {
+        String line = this.readLine();
+        if (line == null) {
+            transaction = null;
+            return false;
+        }
+        transaction = format.equals(CSV) ? this.parseCsvLine(line) : parseNdjsonLine(line);
+        return true;
+    }
+
+    /**
+     * Method used to retrieve the Transaction read from the line read last.
+     * The Transaction has not been validated yet.
+     *
+     * @return The Transaction read from the line read last, or null if the line could not be parsed.
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Method used to read the next line of the imported file that is not blank.
+     *
+     * @return The next line that is not blank, or null if the end of the imported file has been reached.
+     */
+    private String readLine() throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.trim().isEmpty()) {
+            line = reader.readLine();
+        }
+        return line;
+    }
+
+    /**
+     * Method used to read a Transaction from a line in the ndjson format.
+     *
+     * @param line The line containing a Transaction as a json object.
+     * @return The Transaction contained in line, or null if line could not be parsed.
+     */
+    private static Transaction parseNdjsonLine(String line) {
+        try {
+            return OBJECT_MAPPER.readValue(line, Transaction.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Method used to read a Transaction from a line in the csv format, using the columns named in the header.
+     *
+     * @param line The line containing a Transaction as comma separated values.
+     * @return The Transaction contained in line, or null if line could not be parsed.
+     */
+    private Transaction parseCsvLine(String line) {
+        List<String> values = splitCsvLine(line);
+        Transaction parsed = new Transaction();
+        try {
+            for (int i = 0; i < columns.size() && i < values.size(); i++) {
+                String column = columns.get(i);
+                String value = values.get(i);
+                if (column.equals("date")) {
+                    parsed.setDate(parseDate(value.trim()));
+                } else if (column.equals("amount")) {
+                    parsed.setAmount(MoneyHelper.parseAmount(value));
+                } else if (column.equals("description")) {
+                    parsed.setDescription(value);
+                } else if (column.equals("externaliban")) {
+                    parsed.setExternalIBAN(value.trim());
+                } else if (column.equals("type")) {
+                    parsed.setType(value.trim());
+                } else if (column.equals("category") && !value.trim().isEmpty()) {
+                    Category category = new Category();
+                    category.setID(Long.parseLong(value.trim()));
+                    parsed.setCategory(category);
+                }
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
+        }
+        return parsed;
+    }
+
+    /**
+     * Method used to read a date from a value in the csv format, being either milliseconds since the beginning of UNIX
+     * time or a date in the format that the DPA uses.
+     *
+     * @param value The value containing a date.
+     * @return The date contained in value, or IntervalHelper.NO_DATE if value is not a valid date.
+     */
+    private static long parseDate(String value) {
+        try {
+            if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+                return Long.parseLong(value);
+            }
+            return IntervalHelper.parseDate(value);
+        } catch (DateTimeException | NumberFormatException e) {
+            return IntervalHelper.NO_DATE;
+        }
+    }
+
+    /**
+     * Method used to split a line in the csv format into its values.
+     * Values may be enclosed in double quotes, in which case they may contain commas, and double quotes within them
+     * are escaped by doubling them.
+     *
+     * @param line The line that will be split.
+     * @return The values in line, without enclosing double quotes.
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+}
@@ -0,0 +1,31 @@
+package nl.utwente.ing.exception;
+
+/**
+ * The DatabaseException class.
+ * Extends RuntimeException.
+ * DatabaseException is thrown whenever accessing the database fails, so that the unit of work in which this happens
+ * is rolled back instead of committing the work done so far.
+ *
+ * @author Daan Kooij
+ */
+public class DatabaseException extends RuntimeException {
+
+    /**
+     * The constructor of DatabaseException.
+     *
+     * @param message The message describing why accessing the database failed.
+     */
+    public DatabaseException(String message) {
+        super(message);
+    }
+
+    /**
+     * The constructor of DatabaseException.
+     *
+     * @param cause The SQLException that caused accessing the database to fail.
+     */
+    public DatabaseException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,20 @@
+package nl.utwente.ing.exception;
+
+/**
+ * The IdempotencyKeyReusedException class.
+ * Extends APIException.
+ * IdempotencyKeyReusedException is thrown whenever an idempotency key is used again for a request with a different
+ * body than the request for which it was first used.
+ *
+ * @author Daan Kooij
+ */
+public class IdempotencyKeyReusedException extends APIException {
+
+    /**
+     * The empty constructor of IdempotencyKeyReusedException.
+     */
+    public IdempotencyKeyReusedException() {
+
+    }
+
+}
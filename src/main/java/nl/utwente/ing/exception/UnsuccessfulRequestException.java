@@ -0,0 +1,20 @@
+package nl.utwente.ing.exception;
+
+/**
+ * The UnsuccessfulRequestException class.
+ * Extends APIException.
+ * UnsuccessfulRequestException is thrown whenever a request made with an idempotency key is not successful, so that
+ * the changes it made are rolled back and its response is not stored.
+ *
+ * @author Daan Kooij
+ */
+public class UnsuccessfulRequestException extends APIException {
+
+    /**
+     * The empty constructor of UnsuccessfulRequestException.
+     */
+    public UnsuccessfulRequestException() {
+
+    }
+
+}
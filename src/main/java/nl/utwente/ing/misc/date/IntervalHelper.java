@@ -1,126 +1,252 @@
 package nl.utwente.ing.misc.date;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
 
 /**
  * The IntervalHelper class.
- * Used to generate intervals and compare dates.
+ * Used to generate intervals and to convert dates.
+ * <p>
+ * Within the application, every date is represented as a primitive long holding the amount of milliseconds since the
+ * beginning of UNIX time (UTC), so that dates can be compared and sorted as plain numbers. Only at the edge of the API
+ * are dates converted from and to Strings in the format that the DPA uses.
+ * <p>
+ * Hours, days and weeks have a fixed length in UTC, so their intervals are computed with plain arithmetic. The starts of
+ * all months between FIRST_CACHED_YEAR and LAST_CACHED_YEAR are computed once and kept in a sorted array, so the month
+ * and year containing a date are found using binary search. Only dates outside of that range are converted to
+ * LocalDateTime objects, which means that bucketing dates does not allocate any objects in practice.
  *
  * @author Daan Kooij
  */
 public class IntervalHelper {
 
+    /**
+     * The value used to indicate the absence of a date.
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    private static final long WEEK_MILLIS = 7 * DAY_MILLIS;
+
+    // 1 January 1970 is a Thursday, so the week containing the beginning of UNIX time starts on 29 December 1969
+    private static final long FIRST_WEEK_START = -3 * DAY_MILLIS;
+
+    private static final int FIRST_CACHED_YEAR = 1900;
+    private static final int LAST_CACHED_YEAR = 2199;
+    private static final long[] MONTH_STARTS = computeMonthStarts();
+
+    private static final DateTimeFormatter DATE_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
     /**
      * Method used to generate a certain number of intervals with certain size.
-     * The generation of intervals is done by taking the current datetime and and putting the resulting edges of the
-     * intervals in an array in the form of LocalDateTime objects, in addition to having a LocalDateTime object for the
+     * Intervals are aligned to the calendar in UTC: hours start at the full hour, days at midnight, weeks on Monday,
+     * months on the first day of the month and years on the first of January. The last interval is the one containing
+     * the given date. The edges of the intervals are put in an array in the form of dates, in addition to having the
      * beginning of UNIX time at the start of the array.
      * <p>
-     * Example: suppose the current date is 13 May 2018 and you want to generate five intervals with sizes of one day
-     * each. Then you specify intervalPeriod to be IntervalPeriod.DAY and amount to be 5. The returned array will then
-     * be: [1 Jan 1970, 8 May 2018, 9 May 2018, 10 May 2018, 11 May 2018, 12 May 2018, 13 May 2018].
+     * Example: suppose the current date is 13 May 2018 12:00 and you want to generate five intervals with sizes of one
+     * day each. Then you specify intervalPeriod to be IntervalPeriod.DAY and amount to be 5. The returned array will
+     * then be: [1 Jan 1970, 9 May 2018, 10 May 2018, 11 May 2018, 12 May 2018, 13 May 2018, 14 May 2018].
      * <p>
      * Note that the size of the array is equal to the amount of intervals plus two.
      *
      * @param intervalPeriod The size of the intervals to be generated.
      * @param amount         The amount of intervals to be generated.
-     * @return An array containing LocalDateTime objects representing the requested intervals.
+     * @param until          The date contained in the last interval.
+     * @return An array containing dates representing the requested intervals.
      */
-    public static LocalDateTime[] getIntervals(IntervalPeriod intervalPeriod, int amount, LocalDateTime until) {
-        LocalDateTime[] intervals = new LocalDateTime[amount + 2];
-        intervals[amount + 1] = until;
-        intervals[0] = LocalDateTime.parse("1970-01-01T00:00:00.000");
+    public static long[] getIntervals(IntervalPeriod intervalPeriod, int amount, long until) {
+        long[] intervals = new long[amount + 2];
+        intervals[0] = 0;
 
-        if (intervalPeriod == IntervalPeriod.YEAR) {
-            for (int i = amount; i >= 1; i--) {
-                intervals[i] = intervals[i + 1].minusYears(1);
-            }
-        } else if (intervalPeriod == IntervalPeriod.MONTH) {
-            for (int i = amount; i >= 1; i--) {
-                intervals[i] = intervals[i + 1].minusMonths(1);
-            }
-        } else if (intervalPeriod == IntervalPeriod.WEEK) {
-            for (int i = amount; i >= 1; i--) {
-                intervals[i] = intervals[i + 1].minusWeeks(1);
-            }
+        long edge = getIntervalStart(intervalPeriod, until);
+        intervals[amount + 1] = addIntervals(intervalPeriod, edge, 1);
+        for (int i = amount; i >= 1; i--) {
+            intervals[i] = edge;
+            edge = addIntervals(intervalPeriod, edge, -1);
+        }
+
+        return intervals;
+    }
+
+    /**
+     * Method used to retrieve the index of the calendar-aligned interval of a certain size that contains a date,
+     * counting from the interval that contains the beginning of UNIX time, which has index zero.
+     * Two dates are in the same interval if and only if their indexes are equal.
+     *
+     * @param intervalPeriod The size of the interval.
+     * @param date           The date in milliseconds since the beginning of UNIX time.
+     * @return The index of the interval of size intervalPeriod containing date.
+     */
+    public static long getIntervalIndex(IntervalPeriod intervalPeriod, long date) {
+        if (intervalPeriod == IntervalPeriod.HOUR) {
+            return Math.floorDiv(date, HOUR_MILLIS);
         } else if (intervalPeriod == IntervalPeriod.DAY) {
-            for (int i = amount; i >= 1; i--) {
-                intervals[i] = intervals[i + 1].minusDays(1);
-            }
+            return Math.floorDiv(date, DAY_MILLIS);
+        } else if (intervalPeriod == IntervalPeriod.WEEK) {
+            return Math.floorDiv(date - FIRST_WEEK_START, WEEK_MILLIS);
+        }
+
+        long monthIndex;
+        int cachedMonth = getCachedMonth(date);
+        if (cachedMonth != -1) {
+            monthIndex = (FIRST_CACHED_YEAR - 1970) * 12 + cachedMonth;
         } else {
-            for (int i = amount; i >= 1; i--) {
-                intervals[i] = intervals[i + 1].minusHours(1);
-            }
+            LocalDateTime localDateTime = toLocalDateTime(date);
+            monthIndex = (localDateTime.getYear() - 1970) * 12L + (localDateTime.getMonthValue() - 1);
         }
+        return intervalPeriod == IntervalPeriod.MONTH ? monthIndex : Math.floorDiv(monthIndex, 12);
+    }
 
-        return intervals;
+    /**
+     * Method used to retrieve the start of the calendar-aligned interval of a certain size that contains a date.
+     *
+     * @param intervalPeriod The size of the interval.
+     * @param date           The date in milliseconds since the beginning of UNIX time.
+     * @return The start of the interval of size intervalPeriod containing date.
+     */
+    public static long getIntervalStart(IntervalPeriod intervalPeriod, long date) {
+        if (intervalPeriod == IntervalPeriod.HOUR) {
+            return date - Math.floorMod(date, HOUR_MILLIS);
+        } else if (intervalPeriod == IntervalPeriod.DAY) {
+            return date - Math.floorMod(date, DAY_MILLIS);
+        } else if (intervalPeriod == IntervalPeriod.WEEK) {
+            return date - Math.floorMod(date - FIRST_WEEK_START, WEEK_MILLIS);
+        }
+
+        int cachedMonth = getCachedMonth(date);
+        if (cachedMonth != -1) {
+            return intervalPeriod == IntervalPeriod.MONTH ?
+                    MONTH_STARTS[cachedMonth] : MONTH_STARTS[cachedMonth - cachedMonth % 12];
+        }
+        LocalDateTime start = toLocalDateTime(date).truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        if (intervalPeriod == IntervalPeriod.YEAR) {
+            start = start.withDayOfYear(1);
+        }
+        return toEpochMillis(start);
     }
 
     /**
-     * Method used to convert a LocalDateTime object to a String, in the format that the DPA uses.
+     * Method used to move a date a certain amount of intervals of a certain size forwards or backwards in time.
      *
-     * @param localDateTime The LocalDateTime object that should be converted to a String.
-     * @return A String object in the format that the DPA uses that reflects the converted LocalDateTime object.
+     * @param intervalPeriod The size of the intervals.
+     * @param date           The date in milliseconds since the beginning of UNIX time.
+     * @param amount         The amount of intervals to move date (negative to move backwards in time).
+     * @return The date moved amount intervals of size intervalPeriod.
      */
-    public static String dateToString(LocalDateTime localDateTime) {
-        return localDateTime.toString() + "Z";
+    public static long addIntervals(IntervalPeriod intervalPeriod, long date, int amount) {
+        if (intervalPeriod == IntervalPeriod.HOUR) {
+            return date + amount * HOUR_MILLIS;
+        } else if (intervalPeriod == IntervalPeriod.DAY) {
+            return date + amount * DAY_MILLIS;
+        } else if (intervalPeriod == IntervalPeriod.WEEK) {
+            return date + amount * WEEK_MILLIS;
+        }
+
+        long months = intervalPeriod == IntervalPeriod.YEAR ? amount * 12L : amount;
+        int cachedMonth = getCachedMonth(date);
+        if (cachedMonth != -1 && MONTH_STARTS[cachedMonth] == date &&
+                cachedMonth + months >= 0 && cachedMonth + months < MONTH_STARTS.length) {
+            // Moving the start of a month, which is the common case, is a lookup in the cached month starts
+            return MONTH_STARTS[(int) (cachedMonth + months)];
+        }
+        return toEpochMillis(toLocalDateTime(date).plusMonths(months));
     }
 
     /**
-     * Method used to check whether the date contained in a certain LocalDateTime object is smaller than the date
-     * contained in a certain String object.
+     * Method used to convert a String object containing a date in the format that the DPA uses to a date.
+     * Dates without an offset are interpreted as UTC.
      *
-     * @param date1 The LocalDateTime object for which it will be checked if the contained date is smaller than the
-     *              contained date in s.
-     * @param s     The String object for which it will be checked whether the contained date is bigger than or equal
-     *              to the contained date in date1.
-     * @return A boolean indicating whether the date contained in date1 is smaller than the date contained in s.
+     * @param s The String object containing a date, for example 2018-05-13T12:00:00.000Z.
+     * @return The date contained in s, in milliseconds since the beginning of UNIX time.
      */
-    public static boolean isSmallerThan(LocalDateTime date1, String s) {
-        LocalDateTime date2 = LocalDateTime.parse(s.split("Z")[0]);
-        return date1.compareTo(date2) < 0;
+    public static long parseDate(String s) {
+        TemporalAccessor date = DateTimeFormatter.ISO_DATE_TIME.parseBest(s, OffsetDateTime::from, LocalDateTime::from);
+        if (date instanceof OffsetDateTime) {
+            return ((OffsetDateTime) date).toInstant().toEpochMilli();
+        } else {
+            return toEpochMillis((LocalDateTime) date);
+        }
     }
 
     /**
-     * Method used to check whether the date contained in a certain String object is smaller than the date
-     * contained in a certain String object.
+     * Method used to convert a date to a String, in the format that the DPA uses.
      *
-     * @param s1 The String object for which it will be checked if the contained date is smaller than the
-     *           contained date in s.
-     * @param s2 The String object for which it will be checked whether the contained date is bigger than or equal
-     *           to the contained date in date1.
-     * @return A boolean indicating whether the date contained in s1 is smaller than the date contained in s2.
+     * @param date The date in milliseconds since the beginning of UNIX time.
+     * @return A String object in the format that the DPA uses that reflects date, for example 2018-05-13T12:00:00.000Z.
      */
-    public static boolean isSmallerThan(String s1, String s2) {
-        LocalDateTime date1 = LocalDateTime.parse(s1.split("Z")[0]);
-        LocalDateTime date2 = LocalDateTime.parse(s2.split("Z")[0]);
-        return date1.compareTo(date2) < 0;
+    public static String formatDate(long date) {
+        return DATE_FORMATTER.format(Instant.ofEpochMilli(date));
     }
 
     /**
-     * Method used to convert a date String object in the format that the DPA uses to a month identifier using the
-     * following formula: (currentYear - 1970) * 12 + (monthValue - 1).
+     * Method used to convert a date to a month identifier using the following formula:
+     * (currentYear - 1970) * 12 + (monthValue - 1).
      * This method helps in figuring out how many months have elapsed between events (such as Transactions).
      *
-     * @param dateString The String object representing a date in the format the DPA uses from which the month
-     *                   identifier should be retrieved.
-     * @return The month identifier of the String object representing a date in the format the DPA uses.
+     * @param date The date in milliseconds since the beginning of UNIX time.
+     * @return The month identifier of date.
+     */
+    public static int getMonthIdentifier(long date) {
+        return (int) getIntervalIndex(IntervalPeriod.MONTH, date);
+    }
+
+    /**
+     * Method used to convert a date to a LocalDateTime object (in UTC) containing that date.
+     *
+     * @param date The date in milliseconds since the beginning of UNIX time.
+     * @return The LocalDateTime object containing date.
+     */
+    public static LocalDateTime toLocalDateTime(long date) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(date), ZoneOffset.UTC);
+    }
+
+    /**
+     * Method used to convert a LocalDateTime object (in UTC) to a date.
+     *
+     * @param localDateTime The LocalDateTime object that will be converted.
+     * @return The date contained in localDateTime, in milliseconds since the beginning of UNIX time.
      */
-    public static int getMonthIdentifier(String dateString) {
-        LocalDateTime date = LocalDateTime.parse(dateString.split("Z")[0]);
-        return (date.getYear() - 1970) * 12 + (date.getMonthValue() - 1);
+    public static long toEpochMillis(LocalDateTime localDateTime) {
+        return localDateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
     }
 
     /**
-     * Method used to convert a String object containing a date to a LocalDateTime object containing that date.
+     * Method used to find the cached month that contains a date.
      *
-     * @param s The String object containing a date that will be converted to a LocalDateTime object containing that
-     *          date.
-     * @return The LocalDateTime object containing the date contained in the given String object.
+     * @param date The date in milliseconds since the beginning of UNIX time.
+     * @return The index in MONTH_STARTS of the start of the month containing date, or -1 if that month is not cached.
      */
-    public static LocalDateTime toLocalDateTime(String s) {
-        return LocalDateTime.parse(s.split("Z")[0]);
+    private static int getCachedMonth(long date) {
+        if (date < MONTH_STARTS[0] || date >= MONTH_STARTS[MONTH_STARTS.length - 1]) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(MONTH_STARTS, date);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Method used to compute the starts of all months from FIRST_CACHED_YEAR up to and including LAST_CACHED_YEAR,
+     * followed by the start of the year after LAST_CACHED_YEAR.
+     *
+     * @return A sorted array containing the starts of the months.
+     */
+    private static long[] computeMonthStarts() {
+        long[] monthStarts = new long[(LAST_CACHED_YEAR - FIRST_CACHED_YEAR + 1) * 12 + 1];
+        LocalDateTime monthStart = LocalDateTime.of(FIRST_CACHED_YEAR, 1, 1, 0, 0);
+        for (int i = 0; i < monthStarts.length; i++) {
+            monthStarts[i] = toEpochMillis(monthStart);
+            monthStart = monthStart.plusMonths(1);
+        }
+        return monthStarts;
     }
 
 }
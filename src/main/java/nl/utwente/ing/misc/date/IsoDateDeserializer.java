@@ -0,0 +1,56 @@
+package nl.utwente.ing.misc.date;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+
+/**
+ * The IsoDateDeserializer class.
+ * Used by the REST Controller to read a date in the format that the DPA uses into milliseconds since the beginning of
+ * UNIX time. Missing, null or malformed dates are read as IntervalHelper.NO_DATE, so that they can be rejected as
+ * invalid input by the REST Controller.
+ *
+ * @author Daan Kooij
+ */
+public class IsoDateDeserializer extends JsonDeserializer<Long> {
+
+    /**
+     * Method used to read a date in the format that the DPA uses.
+     *
+     * @param p    The JsonParser positioned at the date that will be read.
+     * @param ctxt The DeserializationContext of the current deserialization.
+     * @return The date in milliseconds since the beginning of UNIX time, or IntervalHelper.NO_DATE if the date is
+     * malformed.
+     */
+    @Override
+    public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return p.getLongValue();
+        }
+        String text = p.getValueAsString();
+        if (text == null || text.trim().isEmpty()) {
+            return IntervalHelper.NO_DATE;
+        }
+        try {
+            return IntervalHelper.parseDate(text.trim());
+        } catch (DateTimeException e) {
+            return IntervalHelper.NO_DATE;
+        }
+    }
+
+    /**
+     * Method used to retrieve the value that is used when a date is null.
+     *
+     * @param ctxt The DeserializationContext of the current deserialization.
+     * @return IntervalHelper.NO_DATE.
+     */
+    @Override
+    public Long getNullValue(DeserializationContext ctxt) {
+        return IntervalHelper.NO_DATE;
+    }
+
+}
@@ -0,0 +1,34 @@
+package nl.utwente.ing.misc.date;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * The IsoDateSerializer class.
+ * Used by the REST Controller to write a date, kept as milliseconds since the beginning of UNIX time, as a String in
+ * the format that the DPA uses. The absence of a date (IntervalHelper.NO_DATE) is written as null.
+ *
+ * @author Daan Kooij
+ */
+public class IsoDateSerializer extends JsonSerializer<Long> {
+
+    /**
+     * Method used to write a date as a String in the format that the DPA uses.
+     *
+     * @param date     The date that will be written.
+     * @param gen      The JsonGenerator used to write the date.
+     * @param provider The SerializerProvider of the current serialization.
+     */
+    @Override
+    public void serialize(Long date, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (date == null || date == IntervalHelper.NO_DATE) {
+            gen.writeNull();
+        } else {
+            gen.writeString(IntervalHelper.formatDate(date));
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package nl.utwente.ing.misc.money;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+
+/**
+ * The MoneyDeserializer class.
+ * Used by the REST Controller to read an amount of money into cents. Integers, decimal numbers and Strings containing
+ * a decimal number are all accepted, and are rounded half up to whole cents. A null amount is read as zero.
+ *
+ * @author Daan Kooij
+ */
+public class MoneyDeserializer extends JsonDeserializer<Long> {
+
+    /**
+     * Method used to read an amount of money into cents.
+     *
+     * @param p    The JsonParser positioned at the amount of money that will be read.
+     * @param ctxt The DeserializationContext of the current deserialization.
+     * @return The amount of money in cents.
+     */
+    @Override
+    public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.getCurrentToken();
+        try {
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return MoneyHelper.toCents(p.getDecimalValue());
+            } else if (token == JsonToken.VALUE_STRING) {
+                String text = p.getText();
+                return text.trim().isEmpty() ? 0 : MoneyHelper.parseAmount(text);
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw ctxt.weirdStringException(p.getText(), Long.class, "not a valid amount of money");
+        }
+        return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+    }
+
+    /**
+     * Method used to retrieve the value that is used when an amount of money is null.
+     *
+     * @param ctxt The DeserializationContext of the current deserialization.
+     * @return Zero cents.
+     */
+    @Override
+    public Long getNullValue(DeserializationContext ctxt) {
+        return 0L;
+    }
+
+}
@@ -0,0 +1,50 @@
+package nl.utwente.ing.misc.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The MoneyHelper class.
+ * Used to convert amounts of money.
+ * <p>
+ * Within the application, every amount of money is represented as a primitive long holding the amount in cents, so
+ * that balances can be computed without rounding errors and amounts can be compared for exact equality. Only at the
+ * edge of the API are amounts converted from and to decimal numbers.
+ *
+ * @author Daan Kooij
+ */
+public class MoneyHelper {
+
+    private static final int SCALE = 2;
+
+    /**
+     * Method used to convert a decimal amount of money to cents, rounding half up to whole cents.
+     *
+     * @param amount The decimal amount of money, for example 12.345.
+     * @return The amount of money in cents, for example 1235.
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Method used to convert a String object containing a decimal amount of money to cents.
+     *
+     * @param s The String object containing a decimal amount of money, for example "12.34".
+     * @return The amount of money in cents, for example 1234.
+     */
+    public static long parseAmount(String s) {
+        return toCents(new BigDecimal(s.trim()));
+    }
+
+    /**
+     * Method used to convert an amount of money in cents to a decimal amount of money.
+     *
+     * @param cents The amount of money in cents, for example 1234.
+     * @return The decimal amount of money, for example 12.34.
+     */
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+}
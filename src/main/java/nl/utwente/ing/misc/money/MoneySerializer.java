@@ -0,0 +1,29 @@
+package nl.utwente.ing.misc.money;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * The MoneySerializer class.
+ * Used by the REST Controller to write an amount of money, kept in cents, as a decimal number.
+ *
+ * @author Daan Kooij
+ */
+public class MoneySerializer extends JsonSerializer<Long> {
+
+    /**
+     * Method used to write an amount of money as a decimal number.
+     *
+     * @param cents    The amount of money in cents that will be written.
+     * @param gen      The JsonGenerator used to write the amount of money.
+     * @param provider The SerializerProvider of the current serialization.
+     */
+    @Override
+    public void serialize(Long cents, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeNumber(MoneyHelper.toDecimal(cents));
+    }
+
+}
@@ -0,0 +1,22 @@
+package nl.utwente.ing.model;
+
+import nl.utwente.ing.exception.UnsuccessfulRequestException;
+import nl.utwente.ing.model.bean.IdempotentResponse;
+
+/**
+ * The IdempotentRequest interface.
+ * Used to specify a request made with an idempotency key, which is executed at most once per idempotency key.
+ *
+ * @author Daan Kooij
+ */
+public interface IdempotentRequest {
+
+    /**
+     * Method used to execute the request.
+     * Called within the unit of work in which the response is stored, so calls to the Model join that unit of work.
+     *
+     * @return The response to the request.
+     */
+    IdempotentResponse execute() throws UnsuccessfulRequestException;
+
+}
@@ -1,11 +1,14 @@
 package nl.utwente.ing.model;
 
+import nl.utwente.ing.exception.IdempotencyKeyReusedException;
 import nl.utwente.ing.exception.InvalidSessionIDException;
 import nl.utwente.ing.exception.ResourceNotFoundException;
+import nl.utwente.ing.exception.UnsuccessfulRequestException;
 import nl.utwente.ing.misc.date.IntervalPeriod;
 import nl.utwente.ing.model.bean.*;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The Model interface.
@@ -48,9 +51,63 @@ public interface Model {
      *                     (0 if no Category).
      * @return The Transaction created by this method.
      */
-    Transaction postTransaction(String sessionID, String date, float amount, String description, String externalIBAN,
+    Transaction postTransaction(String sessionID, long date, long amount, String description, String externalIBAN,
                                 String type, long categoryID) throws InvalidSessionIDException, ResourceNotFoundException;
 
+    /**
+     * Method used to create several new Transactions for a certain user at once.
+     *
+     * @param sessionID    The sessionID of the user.
+     * @param transactions The to be created Transactions, of which the Category (if any) only needs to have its
+     *                     categoryID set.
+     * @return For every to be created Transaction in the same order, the Transaction created by this method, or null if
+     * the Category that should be assigned to it does not exist.
+     */
+    ArrayList<Transaction> postTransactions(String sessionID, List<Transaction> transactions)
+            throws InvalidSessionIDException;
+
+    /**
+     * Method used to process all pending TransactionEvents of a certain user right away, so that the UserMessages
+     * resulting from the Transactions posted so far can be retrieved.
+     *
+     * @param sessionID The sessionID of the user.
+     */
+    void processTransactionEvents(String sessionID) throws InvalidSessionIDException;
+
+    /**
+     * Method used to create a new ImportJob for a certain user, with no lines processed yet.
+     *
+     * @param sessionID The sessionID of the user.
+     * @param format    The format of the file that will be imported ("ndjson" or "csv").
+     * @return The ImportJob created by this method.
+     */
+    ImportJob createImportJob(String sessionID, String format) throws InvalidSessionIDException;
+
+    /**
+     * Method used to retrieve a certain ImportJob of a certain user.
+     *
+     * @param sessionID   The sessionID of the user.
+     * @param importJobID The ID of the ImportJob that will be retrieved.
+     * @return The ImportJob with importJobID belonging to the user with sessionID.
+     */
+    ImportJob getImportJob(String sessionID, long importJobID)
+            throws InvalidSessionIDException, ResourceNotFoundException;
+
+    /**
+     * Method used to create the Transactions read from a chunk of lines of an imported file, and to record the
+     * progress of the ImportJob importing the file, at once.
+     *
+     * @param sessionID    The sessionID of the user.
+     * @param importJobID  The ID of the ImportJob importing the file.
+     * @param transactions The valid Transactions read from the chunk of lines.
+     * @param lines        The amount of lines in the chunk, including the lines from which no valid Transaction was
+     *                     read.
+     * @param completed    Whether the chunk ends at the end of the imported file.
+     * @return The ImportJob with importJobID, after its progress has been recorded.
+     */
+    ImportJob importTransactions(String sessionID, long importJobID, List<Transaction> transactions, int lines,
+                                 boolean completed) throws InvalidSessionIDException, ResourceNotFoundException;
+
     /**
      * Method used to retrieve a certain Transaction of a certain user.
      *
@@ -66,7 +123,8 @@ public interface Model {
      *
      * @param sessionID     The sessionID of the user.
      * @param transactionID The transactionID of the Transaction that will be updated.
-     * @param date          The new date of the to be updated Transaction.
+     * @param date          The new date of the to be updated Transaction
+     *                      (IntervalHelper.NO_DATE to keep the current date).
      * @param amount        The new amount of the to be updated Transaction.
      * @param description   The new description of the to be updated Transaction.
      * @param externalIBAN  The new external IBAN of the to be updated Transaction.
@@ -75,7 +133,7 @@ public interface Model {
      *                      (0 if no Category).
      * @return The Transaction updated by this method.
      */
-    Transaction putTransaction(String sessionID, long transactionID, String date, float amount, String description,
+    Transaction putTransaction(String sessionID, long transactionID, long date, long amount, String description,
                                String externalIBAN, String type, long categoryID)
             throws InvalidSessionIDException, ResourceNotFoundException;
 
@@ -206,6 +264,29 @@ public interface Model {
     ArrayList<BalanceCandlestick> getBalanceHistory(String sessionID, IntervalPeriod intervalPeriod, int amount)
             throws InvalidSessionIDException;
 
+    /**
+     * Method used to retrieve balance history information of a certain user for several IntervalPeriods at once, in
+     * the form of one list of BalanceCandlesticks per IntervalPeriod.
+     *
+     * @param sessionID       The sessionID of the user.
+     * @param intervalPeriods The IntervalPeriods specifying the spans of intervals.
+     * @param amounts         The amounts of intervals for which BalanceCandlesticks should be generated, where the n-th
+     *                        amount belongs to the n-th IntervalPeriod.
+     * @return For every IntervalPeriod in the same order, the balance history information of the user in the form of a
+     * list of BalanceCandlesticks.
+     */
+    ArrayList<ArrayList<BalanceCandlestick>> getBalanceHistories(String sessionID, IntervalPeriod[] intervalPeriods,
+                                                                 int[] amounts)
+            throws InvalidSessionIDException;
+
+    /**
+     * Method used to retrieve the current balance of a certain user.
+     *
+     * @param sessionID The sessionID of the user.
+     * @return The current Balance of the user.
+     */
+    Balance getBalance(String sessionID) throws InvalidSessionIDException;
+
     /**
      * Method used to retrieve the SavingGoals belonging to a certain user.
      *
@@ -275,4 +356,22 @@ public interface Model {
      */
     MessageRule postMessageRule(String sessionID, MessageRule messageRule) throws InvalidSessionIDException;
 
+    /**
+     * Method used to execute a request of a certain user made with a certain idempotency key at most once.
+     * If a request of the user to the same endpoint with the same idempotency key has been executed before, its
+     * original response is returned without executing the request again, provided that the body of the earlier
+     * request has the same hash. Otherwise, the request is executed and its response is stored in the same unit of
+     * work.
+     *
+     * @param sessionID      The sessionID of the user.
+     * @param endpoint       The endpoint to which the request is made.
+     * @param idempotencyKey The idempotency key of the request.
+     * @param requestHash    The hash of the body of the request.
+     * @param request        The request that will be executed if it has not been executed before.
+     * @return The response to the request.
+     */
+    IdempotentResponse executeIdempotently(String sessionID, String endpoint, String idempotencyKey,
+                                           String requestHash, IdempotentRequest request)
+            throws InvalidSessionIDException, UnsuccessfulRequestException, IdempotencyKeyReusedException;
+
 }
@@ -0,0 +1,51 @@
+package nl.utwente.ing.model.bean;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.date.IsoDateSerializer;
+import nl.utwente.ing.misc.money.MoneySerializer;
+
+/**
+ * The Balance class.
+ * Used to store information about the current balance of a user.
+ *
+ * @author Daan Kooij
+ */
+public class Balance {
+
+    private long balance;
+    private long date = IntervalHelper.NO_DATE;
+
+    /**
+     * A constructor of Balance.
+     *
+     * @param balance The balance of the to be created Balance, in cents.
+     * @param date    The date of the most recent Transaction included in the to be created Balance
+     *                (IntervalHelper.NO_DATE if there are no Transactions).
+     */
+    public Balance(long balance, long date) {
+        this.balance = balance;
+        this.date = date;
+    }
+
+    /**
+     * Method used to retrieve the balance of Balance, in cents.
+     *
+     * @return The balance of Balance.
+     */
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getBalance() {
+        return balance;
+    }
+
+    /**
+     * Method used to retrieve the date of the most recent Transaction included in Balance.
+     *
+     * @return The date of the most recent Transaction included in Balance.
+     */
+    @JsonSerialize(using = IsoDateSerializer.class)
+    public long getDate() {
+        return date;
+    }
+
+}
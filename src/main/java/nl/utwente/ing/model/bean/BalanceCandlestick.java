@@ -1,5 +1,8 @@
 package nl.utwente.ing.model.bean;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import nl.utwente.ing.misc.money.MoneySerializer;
+
 /**
  * The Balance Candlestick class.
  * Used to store balance information about the balance information of a certain interval.
@@ -8,7 +11,7 @@ package nl.utwente.ing.model.bean;
  */
 public class BalanceCandlestick {
 
-    private float open, close, high, low, volume;
+    private long open, close, high, low, volume;
     private long timestamp;
 
     /**
@@ -19,7 +22,7 @@ public class BalanceCandlestick {
      *
      * @param open The opening balance of this BalanceCandlestick.
      */
-    public BalanceCandlestick(float open, long timestamp) {
+    public BalanceCandlestick(long open, long timestamp) {
         this.open = open;
         this.close = open;
         this.high = open;
@@ -29,47 +32,71 @@ public class BalanceCandlestick {
     }
 
     /**
-     * Method used to retrieve the opening balance of BalanceCandlestick.
+     * A constructor of BalanceCandlestick, used to restore a BalanceCandlestick of which all values are known.
+     *
+     * @param open      The opening balance of this BalanceCandlestick.
+     * @param close     The closing balance of this BalanceCandlestick.
+     * @param high      The highest balance of this BalanceCandlestick.
+     * @param low       The lowest balance of this BalanceCandlestick.
+     * @param volume    The volume of all the mutations of this BalanceCandlestick combined.
+     * @param timestamp The unix (seconds) timestamp indicating the beginning of the period of this BalanceCandlestick.
+     */
+    public BalanceCandlestick(long open, long close, long high, long low, long volume, long timestamp) {
+        this.open = open;
+        this.close = close;
+        this.high = high;
+        this.low = low;
+        this.volume = volume;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Method used to retrieve the opening balance of BalanceCandlestick, in cents.
      *
      * @return The opening balance of BalanceCandlestick.
      */
-    public float getOpen() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getOpen() {
         return open;
     }
 
     /**
-     * Method used to retrieve the closing balance of BalanceCandlestick.
+     * Method used to retrieve the closing balance of BalanceCandlestick, in cents.
      *
      * @return The closing balance of BalanceCandlestick.
      */
-    public float getClose() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getClose() {
         return close;
     }
 
     /**
-     * Method used to retrieve the highest balance in the lifetime of BalanceCandlestick.
+     * Method used to retrieve the highest balance in the lifetime of BalanceCandlestick, in cents.
      *
      * @return The highest balance in the lifetime of BalanceCandlestick.
      */
-    public float getHigh() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getHigh() {
         return high;
     }
 
     /**
-     * Method used to retrieve the lowest balance in the lifetime of BalanceCandlestick.
+     * Method used to retrieve the lowest balance in the lifetime of BalanceCandlestick, in cents.
      *
      * @return The lowest balance in the lifetime of BalanceCandlestick.
      */
-    public float getLow() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getLow() {
         return low;
     }
 
     /**
-     * Method used to retrieve the volume of all the mutations done on BalanceCandlestick combined.
+     * Method used to retrieve the volume of all the mutations done on BalanceCandlestick combined, in cents.
      *
      * @return The volume of all the mutations done on BalanceCandlestick combined.
      */
-    public float getVolume() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getVolume() {
         return volume;
     }
 
@@ -90,7 +117,7 @@ public class BalanceCandlestick {
      *
      * @param amount The value with which the balance of BalanceCandlestick should be mutated.
      */
-    public void mutation(float amount) {
+    public void mutation(long amount) {
         close += amount;
         if (close > high) {
             high = close;
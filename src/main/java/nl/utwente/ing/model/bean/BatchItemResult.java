@@ -0,0 +1,68 @@
+package nl.utwente.ing.model.bean;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The BatchItemResult class.
+ * Used to store the outcome of a single item of a batch request, being either the created object or a status message
+ * explaining why the item was rejected.
+ *
+ * @author Daan Kooij
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    private int status;
+    private String message;
+    private Object result;
+
+    /**
+     * A constructor of BatchItemResult, used for an item that has been processed successfully.
+     *
+     * @param status The HTTP status code belonging to the item.
+     * @param result The object created for the item.
+     */
+    public BatchItemResult(int status, Object result) {
+        this.status = status;
+        this.result = result;
+    }
+
+    /**
+     * A constructor of BatchItemResult, used for an item that has been rejected.
+     *
+     * @param status  The HTTP status code belonging to the item.
+     * @param message The status message explaining why the item has been rejected.
+     */
+    public BatchItemResult(int status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    /**
+     * Method used to retrieve the HTTP status code of BatchItemResult.
+     *
+     * @return The HTTP status code of BatchItemResult.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Method used to retrieve the status message of BatchItemResult.
+     *
+     * @return The status message of BatchItemResult, or null if the item has been processed successfully.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Method used to retrieve the object created for the item of BatchItemResult.
+     *
+     * @return The object created for the item of BatchItemResult, or null if the item has been rejected.
+     */
+    public Object getResult() {
+        return result;
+    }
+
+}
@@ -0,0 +1,69 @@
+package nl.utwente.ing.model.bean;
+
+/**
+ * The IdempotentResponse class.
+ * Used to store the response to a request made with an idempotency key, so that retries of that request can be
+ * answered with the original response instead of being executed again.
+ *
+ * @author Daan Kooij
+ */
+public class IdempotentResponse {
+
+    private int status;
+    private String body;
+    private String requestHash;
+    private long created;
+
+    /**
+     * The constructor of IdempotentResponse.
+     *
+     * @param status      The HTTP status code of the response.
+     * @param body        The body of the response, as json.
+     * @param requestHash The hash of the body of the request to which the response was given.
+     * @param created     The moment (in milliseconds since the epoch) at which the response was stored.
+     */
+    public IdempotentResponse(int status, String body, String requestHash, long created) {
+        this.status = status;
+        this.body = body;
+        this.requestHash = requestHash;
+        this.created = created;
+    }
+
+    /**
+     * Method used to retrieve the HTTP status code of IdempotentResponse.
+     *
+     * @return The HTTP status code of IdempotentResponse.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Method used to retrieve the body of IdempotentResponse.
+     *
+     * @return The body of IdempotentResponse, as json.
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Method used to retrieve the hash of the body of the request to which IdempotentResponse was given.
+     *
+     * @return The hash of the body of the request to which IdempotentResponse was given, or null if the response was
+     * stored before request hashes were kept.
+     */
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    /**
+     * Method used to retrieve the moment at which IdempotentResponse was stored.
+     *
+     * @return The moment (in milliseconds since the epoch) at which IdempotentResponse was stored.
+     */
+    public long getCreated() {
+        return created;
+    }
+
+}
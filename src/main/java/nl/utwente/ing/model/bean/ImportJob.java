@@ -0,0 +1,130 @@
+package nl.utwente.ing.model.bean;
+
+/**
+ * The ImportJob class.
+ * Used to store information about the progress of a streaming import of Transactions. Since the lines of an import are
+ * processed in order, an interrupted import can be resumed by sending the same file again, after which the lines that
+ * have already been processed are skipped.
+ *
+ * @author Daan Kooij
+ */
+public class ImportJob {
+
+    private long id;
+    private String format;
+    private boolean completed;
+    private long linesProcessed;
+    private long transactionsImported;
+    private long linesRejected;
+
+    /**
+     * A constructor of ImportJob.
+     *
+     * @param id                   The ID of the to be created ImportJob.
+     * @param format               The format of the imported file ("ndjson" or "csv").
+     * @param completed            Whether the end of the imported file has been reached.
+     * @param linesProcessed       The amount of lines of the imported file that have been processed.
+     * @param transactionsImported The amount of Transactions that have been created from the processed lines.
+     * @param linesRejected        The amount of processed lines from which no Transaction could be created.
+     */
+    public ImportJob(long id, String format, boolean completed, long linesProcessed, long transactionsImported,
+                     long linesRejected) {
+        this.id = id;
+        this.format = format;
+        this.completed = completed;
+        this.linesProcessed = linesProcessed;
+        this.transactionsImported = transactionsImported;
+        this.linesRejected = linesRejected;
+    }
+
+    /**
+     * Method used to retrieve the ID of ImportJob.
+     *
+     * @return The ID of ImportJob.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Method used to retrieve the format of the file imported by ImportJob.
+     *
+     * @return The format of the file imported by ImportJob ("ndjson" or "csv").
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Method used to retrieve whether the end of the file imported by ImportJob has been reached.
+     *
+     * @return Whether the end of the file imported by ImportJob has been reached.
+     */
+    public boolean getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Method used to update whether the end of the file imported by ImportJob has been reached.
+     *
+     * @param completed Whether the end of the file imported by ImportJob has been reached.
+     */
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    /**
+     * Method used to retrieve the amount of lines of the imported file that have been processed by ImportJob.
+     *
+     * @return The amount of lines of the imported file that have been processed by ImportJob.
+     */
+    public long getLinesProcessed() {
+        return linesProcessed;
+    }
+
+    /**
+     * Method used to update the amount of lines of the imported file that have been processed by ImportJob.
+     *
+     * @param linesProcessed The amount of lines of the imported file that have been processed by ImportJob.
+     */
+    public void setLinesProcessed(long linesProcessed) {
+        this.linesProcessed = linesProcessed;
+    }
+
+    /**
+     * Method used to retrieve the amount of Transactions that have been created by ImportJob.
+     *
+     * @return The amount of Transactions that have been created by ImportJob.
+     */
+    public long getTransactionsImported() {
+        return transactionsImported;
+    }
+
+    /**
+     * Method used to update the amount of Transactions that have been created by ImportJob.
+     *
+     * @param transactionsImported The amount of Transactions that have been created by ImportJob.
+     */
+    public void setTransactionsImported(long transactionsImported) {
+        this.transactionsImported = transactionsImported;
+    }
+
+    /**
+     * Method used to retrieve the amount of processed lines from which ImportJob could not create a Transaction.
+     *
+     * @return The amount of processed lines from which ImportJob could not create a Transaction.
+     */
+    public long getLinesRejected() {
+        return linesRejected;
+    }
+
+    /**
+     * Method used to update the amount of processed lines from which ImportJob could not create a Transaction.
+     *
+     * @param linesRejected The amount of processed lines from which ImportJob could not create a Transaction.
+     */
+    public void setLinesRejected(long linesRejected) {
+        this.linesRejected = linesRejected;
+    }
+
+}
@@ -1,5 +1,10 @@
 package nl.utwente.ing.model.bean;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import nl.utwente.ing.misc.money.MoneyDeserializer;
+import nl.utwente.ing.misc.money.MoneySerializer;
+
 /**
  * The MessageRule class.
  * Used to store information about a MessageRule.
@@ -11,7 +16,7 @@ public class MessageRule {
     private long id;
     private long category_id;
     private String type;
-    private float value;
+    private long value;
 
     /**
      * An empty constructor of MessageRule.
@@ -29,7 +34,7 @@ public class MessageRule {
      * @param type        The type of the to be created MessageRule.
      * @param value       The value of the to be created MessageRule.
      */
-    public MessageRule(long id, long category_id, String type, float value) {
+    public MessageRule(long id, long category_id, String type, long value) {
         this.id = id;
         this.category_id = category_id;
         this.type = type;
@@ -92,20 +97,22 @@ public class MessageRule {
     }
 
     /**
-     * Method used to retrieve the value of MessageRule.
+     * Method used to retrieve the value of MessageRule, in cents.
      *
      * @return The value of MessageRule.
      */
-    public float getValue() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getValue() {
         return value;
     }
 
     /**
-     * Method used to update the value of MessageRule.
+     * Method used to update the value of MessageRule, in cents.
      *
      * @param value The new value of MessageRule.
      */
-    public void setValue(float value) {
+    @JsonDeserialize(using = MoneyDeserializer.class)
+    public void setValue(long value) {
         this.value = value;
     }
 
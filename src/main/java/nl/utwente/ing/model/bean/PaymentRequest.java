@@ -1,5 +1,13 @@
 package nl.utwente.ing.model.bean;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.date.IsoDateDeserializer;
+import nl.utwente.ing.misc.date.IsoDateSerializer;
+import nl.utwente.ing.misc.money.MoneyDeserializer;
+import nl.utwente.ing.misc.money.MoneySerializer;
+
 import java.util.List;
 
 /**
@@ -12,8 +20,8 @@ public class PaymentRequest {
 
     private long id;
     private String description;
-    private String due_date;
-    private float amount;
+    private long due_date = IntervalHelper.NO_DATE;
+    private long amount;
     private long number_of_requests;
     private boolean filled;
     private List<Transaction> transactions;
@@ -36,8 +44,8 @@ public class PaymentRequest {
      * @param number_of_requests The number of requests of the to be created PaymentRequest.
      * @param filled             The boolean indicating whether the to be created PaymentRequest is already filled.
      */
-    public PaymentRequest(long id, String description, String due_date,
-                          float amount, long number_of_requests, boolean filled) {
+    public PaymentRequest(long id, String description, long due_date,
+                          long amount, long number_of_requests, boolean filled) {
         this.id = id;
         this.description = description;
         this.due_date = due_date;
@@ -83,38 +91,44 @@ public class PaymentRequest {
     }
 
     /**
-     * Method used to retrieve the due date of PaymentRequest.
+     * Method used to retrieve the due date of PaymentRequest, in milliseconds since the beginning of UNIX time.
+     * Written as a String in the format that the DPA uses by the REST Controller.
      *
      * @return The due date of PaymentRequest.
      */
-    public String getDue_date() {
+    @JsonSerialize(using = IsoDateSerializer.class)
+    public long getDue_date() {
         return due_date;
     }
 
     /**
-     * Method used to update the due date of PaymentRequest.
+     * Method used to update the due date of PaymentRequest, in milliseconds since the beginning of UNIX time.
+     * Read from a String in the format that the DPA uses by the REST Controller.
      *
      * @param due_date The new due date of PaymentRequest.
      */
-    public void setDue_date(String due_date) {
+    @JsonDeserialize(using = IsoDateDeserializer.class)
+    public void setDue_date(long due_date) {
         this.due_date = due_date;
     }
 
     /**
-     * Method used to retrieve the amount of PaymentRequest.
+     * Method used to retrieve the amount of PaymentRequest, in cents.
      *
      * @return The amount of PaymentRequest.
      */
-    public float getAmount() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getAmount() {
         return amount;
     }
 
     /**
-     * Method used to update the amount of PaymentRequest.
+     * Method used to update the amount of PaymentRequest, in cents.
      *
      * @param amount The new amount of PaymentRequest.
      */
-    public void setAmount(float amount) {
+    @JsonDeserialize(using = MoneyDeserializer.class)
+    public void setAmount(long amount) {
         this.amount = amount;
     }
 
@@ -1,7 +1,11 @@
 package nl.utwente.ing.model.bean;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.money.MoneyDeserializer;
+import nl.utwente.ing.misc.money.MoneySerializer;
 
 /**
  * The SavingGoal class.
@@ -12,13 +16,13 @@ import nl.utwente.ing.misc.date.IntervalHelper;
 public class SavingGoal {
 
     private long id;
-    private String creationDate;
-    private String deletionDate;
+    private long creationDate = IntervalHelper.NO_DATE;
+    private long deletionDate = IntervalHelper.NO_DATE;
     private String name;
-    private float goal;
-    private float savePerMonth;
-    private float minBalanceRequired;
-    private float balance;
+    private long goal;
+    private long savePerMonth;
+    private long minBalanceRequired;
+    private long balance;
 
     /**
      * An empty constructor of SavingGoal.
@@ -28,8 +32,20 @@ public class SavingGoal {
 
     }
 
-    public SavingGoal(long id, String creationDate, String deletionDate, String name, float goal,
-                      float savePerMonth, float minBalanceRequired) {
+    /**
+     * A constructor of SavingGoal.
+     *
+     * @param id                 The ID of the to be created SavingGoal.
+     * @param creationDate       The creation date of the to be created SavingGoal.
+     * @param deletionDate       The deletion date of the to be created SavingGoal (IntervalHelper.NO_DATE if none).
+     * @param name               The name of the to be created SavingGoal.
+     * @param goal               The goal of the to be created SavingGoal, in cents.
+     * @param savePerMonth       The amount that should be saved per month of the to be created SavingGoal, in cents.
+     * @param minBalanceRequired The minimum balance to put aside money of the to be created SavingGoal, in cents.
+     * @param balance            The amount set apart for the to be created SavingGoal so far, in cents.
+     */
+    public SavingGoal(long id, long creationDate, long deletionDate, String name, long goal,
+                      long savePerMonth, long minBalanceRequired, long balance) {
         this.id = id;
         this.creationDate = creationDate;
         this.deletionDate = deletionDate;
@@ -37,6 +53,7 @@ public class SavingGoal {
         this.goal = goal;
         this.savePerMonth = savePerMonth;
         this.minBalanceRequired = minBalanceRequired;
+        this.balance = balance;
     }
 
     /**
@@ -64,7 +81,7 @@ public class SavingGoal {
      * @return The CreationDate of SavingGoal.
      */
     @JsonIgnore
-    public String getCreationDate() {
+    public long getCreationDate() {
         return creationDate;
     }
 
@@ -73,7 +90,7 @@ public class SavingGoal {
      *
      * @param creationDate The new CreationDate of SavingGoal.
      */
-    public void setCreationDate(String creationDate) {
+    public void setCreationDate(long creationDate) {
         this.creationDate = creationDate;
     }
 
@@ -84,7 +101,7 @@ public class SavingGoal {
      * @return The DeletionDate of SavingGoal.
      */
     @JsonIgnore
-    public String getDeletionDate() {
+    public long getDeletionDate() {
         return deletionDate;
     }
 
@@ -93,7 +110,7 @@ public class SavingGoal {
      *
      * @param deletionDate The new DeletionDate of SavingGoal.
      */
-    public void setDeletionDate(String deletionDate) {
+    public void setDeletionDate(long deletionDate) {
         this.deletionDate = deletionDate;
     }
 
@@ -116,80 +133,75 @@ public class SavingGoal {
     }
 
     /**
-     * Method used to retrieve the Goal of SavingGoal.
+     * Method used to retrieve the Goal of SavingGoal, in cents.
      *
      * @return The Goal of SavingGoal.
      */
-    public float getGoal() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getGoal() {
         return goal;
     }
 
     /**
-     * Method used to update the Goal of SavingGoal.
+     * Method used to update the Goal of SavingGoal, in cents.
      *
      * @param goal The new Goal of SavingGoal.
      */
-    public void setGoal(float goal) {
+    @JsonDeserialize(using = MoneyDeserializer.class)
+    public void setGoal(long goal) {
         this.goal = goal;
     }
 
     /**
-     * Method used to retrieve the amount that should be saved per month of SavingGoal.
+     * Method used to retrieve the amount that should be saved per month of SavingGoal, in cents.
      *
      * @return The amount that should be saved per month of SavingGoal.
      */
-    public float getSavePerMonth() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getSavePerMonth() {
         return savePerMonth;
     }
 
     /**
-     * Method used to update the amount that should be saved per month of SavingGoal.
+     * Method used to update the amount that should be saved per month of SavingGoal, in cents.
      *
      * @param savePerMonth The new amount that should be saved per month of SavingGoal.
      */
-    public void setSavePerMonth(float savePerMonth) {
+    @JsonDeserialize(using = MoneyDeserializer.class)
+    public void setSavePerMonth(long savePerMonth) {
         this.savePerMonth = savePerMonth;
     }
 
     /**
-     * Method used to retrieve the minimum balance to put aside money of SavingGoal.
+     * Method used to retrieve the minimum balance to put aside money of SavingGoal, in cents.
      *
      * @return The minimum balance to put aside money of SavingGoal.
      */
-    public float getMinBalanceRequired() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getMinBalanceRequired() {
         return minBalanceRequired;
     }
 
     /**
-     * Method used to update the minimum balance to put aside money of SavingGoal.
+     * Method used to update the minimum balance to put aside money of SavingGoal, in cents.
      *
      * @param minBalanceRequired The new minimum balance to put aside money of SavingGoal.
      */
-    public void setMinBalanceRequired(float minBalanceRequired) {
+    @JsonDeserialize(using = MoneyDeserializer.class)
+    public void setMinBalanceRequired(long minBalanceRequired) {
         this.minBalanceRequired = minBalanceRequired;
     }
 
     /**
-     * Method used to retrieve the Balance of SavingGoal.
+     * Method used to retrieve the Balance of SavingGoal, in cents.
      *
      * @return The Balance of SavingGoal.
      */
-    public float getBalance() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getBalance() {
         return balance;
     }
 
-    /**
-     * Method used to put aside one month worth of savings as long as the goal is not met.
-     *
-     * @return The amount put aside by this method call.
-     */
-    public float setApart() {
-        float leftToSave = goal - balance;
-        float saved = Math.min(leftToSave, savePerMonth);
-        balance += saved;
-        return saved;
-    }
-
     /**
      * Method used to retrieve the month identifier of the creation date of SavingGoal.
      * Ignored by the REST Controller.
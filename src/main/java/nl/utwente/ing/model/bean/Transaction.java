@@ -1,7 +1,13 @@
 package nl.utwente.ing.model.bean;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.date.IsoDateDeserializer;
+import nl.utwente.ing.misc.date.IsoDateSerializer;
+import nl.utwente.ing.misc.money.MoneyDeserializer;
+import nl.utwente.ing.misc.money.MoneySerializer;
 
 /**
  * The Transaction class.
@@ -12,8 +18,8 @@ import nl.utwente.ing.misc.date.IntervalHelper;
 public class Transaction {
 
     private long id;
-    private String date;
-    private float amount;
+    private long date = IntervalHelper.NO_DATE;
+    private long amount;
     private String description;
     private String externalIBAN;
     private String type;
@@ -37,7 +43,7 @@ public class Transaction {
      * @param externalIBAN The externalIBAN of the to be created Transaction.
      * @param type         The type of the to be created Transaction.
      */
-    public Transaction(long id, String date, float amount, String description, String externalIBAN, String type) {
+    public Transaction(long id, long date, long amount, String description, String externalIBAN, String type) {
         this.id = id;
         this.date = date;
         this.amount = amount;
@@ -65,38 +71,44 @@ public class Transaction {
     }
 
     /**
-     * Method used to retrieve the date of Transaction.
+     * Method used to retrieve the date of Transaction, in milliseconds since the beginning of UNIX time.
+     * Written as a String in the format that the DPA uses by the REST Controller.
      *
      * @return The date of Transaction.
      */
-    public String getDate() {
+    @JsonSerialize(using = IsoDateSerializer.class)
+    public long getDate() {
         return date;
     }
 
     /**
-     * Method used to update the date of Transaction.
+     * Method used to update the date of Transaction, in milliseconds since the beginning of UNIX time.
+     * Read from a String in the format that the DPA uses by the REST Controller.
      *
      * @param date The new date of Transaction.
      */
-    public void setDate(String date) {
+    @JsonDeserialize(using = IsoDateDeserializer.class)
+    public void setDate(long date) {
         this.date = date;
     }
 
     /**
-     * Method used to retrieve the amount of Transaction.
+     * Method used to retrieve the amount of Transaction, in cents.
      *
      * @return The amount of Transaction.
      */
-    public float getAmount() {
+    @JsonSerialize(using = MoneySerializer.class)
+    public long getAmount() {
         return amount;
     }
 
     /**
-     * Method used to update the amount of Transaction.
+     * Method used to update the amount of Transaction, in cents.
      *
      * @param amount The new amount of Transaction.
      */
-    public void setAmount(float amount) {
+    @JsonDeserialize(using = MoneyDeserializer.class)
+    public void setAmount(long amount) {
         this.amount = amount;
     }
 
@@ -1,5 +1,11 @@
 package nl.utwente.ing.model.bean;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.date.IsoDateDeserializer;
+import nl.utwente.ing.misc.date.IsoDateSerializer;
+
 /**
  * The UserMessage class.
  * Used to store information about a UserMessage.
@@ -10,7 +16,7 @@ public class UserMessage {
 
     private long id;
     private String message;
-    private String date;
+    private long date = IntervalHelper.NO_DATE;
     private boolean read;
     private String type;
 
@@ -31,7 +37,7 @@ public class UserMessage {
      * @param read    The boolean indicating whether the to be created UserMessage is read.
      * @param type    The type of the to be created UserMessage.
      */
-    public UserMessage(long id, String message, String date, boolean read, String type) {
+    public UserMessage(long id, String message, long date, boolean read, String type) {
         this.id = id;
         this.message = message;
         this.date = date;
@@ -76,20 +82,24 @@ public class UserMessage {
     }
 
     /**
-     * Method used to retrieve the date of UserMessage.
+     * Method used to retrieve the date of UserMessage, in milliseconds since the beginning of UNIX time.
+     * Written as a String in the format that the DPA uses by the REST Controller.
      *
      * @return The date of UserMessage.
      */
-    public String getDate() {
+    @JsonSerialize(using = IsoDateSerializer.class)
+    public long getDate() {
         return date;
     }
 
     /**
-     * Method used to update the date of UserMessage.
+     * Method used to update the date of UserMessage, in milliseconds since the beginning of UNIX time.
+     * Read from a String in the format that the DPA uses by the REST Controller.
      *
      * @param date The new date of UserMessage.
      */
-    public void setDate(String date) {
+    @JsonDeserialize(using = IsoDateDeserializer.class)
+    public void setDate(long date) {
         this.date = date;
     }
 
@@ -0,0 +1,105 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.misc.date.IntervalPeriod;
+import nl.utwente.ing.model.bean.BalanceCandlestick;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The BalanceCheckpoint class.
+ * Used to store the state of the balance of a user at the start of a month, being the state after all Transactions
+ * before that month have been replayed, so that replaying the Transactions of the user can start at that month.
+ * <p>
+ * Besides the balance itself, a BalanceCheckpoint contains the amount set apart for every SavingGoal, which SavingGoals
+ * have already been released, and for every IntervalPeriod of which the interval containing the start of the month
+ * started earlier, the BalanceCandlestick of that interval so far.
+ *
+ * @author Daan Kooij
+ */
+public class BalanceCheckpoint {
+
+    private long monthStart;
+    private long balance;
+    private long date;
+    private Map<Long, Long> savingGoalBalances;
+    private Set<Long> releasedSavingGoals;
+    private Map<IntervalPeriod, BalanceCandlestick> rollups;
+
+    /**
+     * The constructor of BalanceCheckpoint.
+     *
+     * @param monthStart The start of the month at which the BalanceCheckpoint is taken.
+     * @param balance    The balance of the user at the start of the month, in cents.
+     * @param date       The date of the last Transaction before the start of the month.
+     */
+    public BalanceCheckpoint(long monthStart, long balance, long date) {
+        this.monthStart = monthStart;
+        this.balance = balance;
+        this.date = date;
+        this.savingGoalBalances = new HashMap<>();
+        this.releasedSavingGoals = new HashSet<>();
+        this.rollups = new EnumMap<>(IntervalPeriod.class);
+    }
+
+    /**
+     * Method used to retrieve the start of the month at which BalanceCheckpoint is taken.
+     *
+     * @return The start of the month at which BalanceCheckpoint is taken.
+     */
+    public long getMonthStart() {
+        return monthStart;
+    }
+
+    /**
+     * Method used to retrieve the balance of the user at the start of the month, in cents.
+     *
+     * @return The balance of the user at the start of the month.
+     */
+    public long getBalance() {
+        return balance;
+    }
+
+    /**
+     * Method used to retrieve the date of the last Transaction before the start of the month.
+     *
+     * @return The date of the last Transaction before the start of the month.
+     */
+    public long getDate() {
+        return date;
+    }
+
+    /**
+     * Method used to retrieve the amounts set apart for the SavingGoals of the user at the start of the month.
+     *
+     * @return A Map from the IDs of SavingGoals to the amounts set apart for them, in cents.
+     */
+    public Map<Long, Long> getSavingGoalBalances() {
+        return savingGoalBalances;
+    }
+
+    /**
+     * Method used to retrieve the IDs of the SavingGoals of which the money was already returned to the balance of
+     * the user at the start of the month.
+     *
+     * @return A Set containing the IDs of the released SavingGoals.
+     */
+    public Set<Long> getReleasedSavingGoals() {
+        return releasedSavingGoals;
+    }
+
+    /**
+     * Method used to retrieve the BalanceCandlesticks so far of the intervals that contain the start of the month but
+     * started earlier.
+     *
+     * @return A Map from IntervalPeriods to the BalanceCandlestick so far of their interval containing the start of the
+     * month.
+     */
+    public Map<IntervalPeriod, BalanceCandlestick> getRollups() {
+        return rollups;
+    }
+
+}
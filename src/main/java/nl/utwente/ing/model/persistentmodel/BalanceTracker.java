@@ -0,0 +1,638 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.date.IntervalPeriod;
+import nl.utwente.ing.model.bean.Balance;
+import nl.utwente.ing.model.bean.BalanceCandlestick;
+import nl.utwente.ing.model.bean.SavingGoal;
+import nl.utwente.ing.model.bean.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The BalanceTracker class.
+ * Used to keep the current balance of every user, including the money set apart for SavingGoals, persisted in the
+ * database, together with a BalanceCandlestick rollup for every interval of every IntervalPeriod in which the balance
+ * changed. This way, both the current balance and the balance history can be retrieved without replaying the complete
+ * history of the user.
+ * <p>
+ * When a Transaction is added that is not older than the most recent Transaction of the user, the persisted balance and
+ * rollups are brought up to date incrementally. A backdated Transaction of a user without SavingGoals is patched into
+ * the rollups of its intervals, shifting all later rollups by its amount. Any other change that could influence the
+ * money set apart for SavingGoals, such as a backdated Transaction of a user with SavingGoals or an updated or deleted
+ * Transaction, removes the persisted balance, after which it is recomputed right away within the same unit of work.
+ * This way, every user with Transactions has a persisted balance once a write has completed, so the balance, the
+ * balance history and the SavingGoals can be read without ever writing to the database. Users that have Transactions
+ * but no persisted balance, for example because they were created by an earlier version, are brought up to date by
+ * recomputeMissingBalances.
+ * <p>
+ * While replaying Transactions, a BalanceCheckpoint is persisted at the start of every month in which a Transaction is
+ * replayed. A change at a certain date only removes the BalanceCheckpoints taken after that date, so a recomputation
+ * starts replaying at the most recent remaining BalanceCheckpoint instead of at the first Transaction of the user, and
+ * only the rollups from that BalanceCheckpoint onwards are rebuilt. If a user without SavingGoals has enough
+ * Transactions to replay, the replay is done in parallel by a ParallelLedgerReplay.
+ * Since all changes happen within the unit of work of the calling Model method, a rolled back unit of work also rolls
+ * back the persisted balance.
+ *
+ * @author Daan Kooij
+ */
+public class BalanceTracker {
+
+    private CustomORM customORM;
+    private LedgerCache ledgerCache;
+    private SavingGoalEvaluator savingGoalEvaluator;
+    private ParallelLedgerReplay parallelReplay;
+
+    /**
+     * The constructor of BalanceTracker.
+     *
+     * @param customORM           The CustomORM used to read and persist balances.
+     * @param ledgerCache         The LedgerCache used to replay the Transactions of users.
+     * @param savingGoalEvaluator The SavingGoalEvaluator that is notified when a SavingGoal reaches its goal.
+     * @param parallelReplay      The ParallelLedgerReplay used to replay many Transactions of users without
+     *                            SavingGoals.
+     */
+    public BalanceTracker(CustomORM customORM, LedgerCache ledgerCache, SavingGoalEvaluator savingGoalEvaluator,
+                          ParallelLedgerReplay parallelReplay) {
+        this.customORM = customORM;
+        this.ledgerCache = ledgerCache;
+        this.savingGoalEvaluator = savingGoalEvaluator;
+        this.parallelReplay = parallelReplay;
+    }
+
+    /**
+     * Method used to recompute the balances of all users that have Transactions but no persisted balance, each in its
+     * own unit of work, so that their balances can be read without recomputing them.
+     */
+    public void recomputeMissingBalances() {
+        List<Integer> userIDs = new ArrayList<>();
+        UnitOfWork.run(() -> userIDs.addAll(customORM.getUsersWithoutBalance()));
+        for (int userID : userIDs) {
+            UnitOfWork.run(() -> this.getBalance(userID));
+        }
+    }
+
+    /**
+     * Method used to retrieve the current balance of a certain user.
+     * If no up-to-date balance is persisted for the user, it is recomputed from all Transactions of the user first.
+     * Should only be used within units of work that hold the write lock of the database.
+     *
+     * @param userID The ID of the user whose current balance will be retrieved.
+     * @return The current Balance of the user.
+     */
+    public Balance getBalance(int userID) {
+        Balance balance = customORM.getBalance(userID);
+        if (balance == null) {
+            balance = this.recompute(userID);
+        }
+        return balance;
+    }
+
+    /**
+     * Method used to read the current balance of a certain user without recomputing it, so that it can be used within
+     * units of work that only read from the database.
+     * A user without a persisted balance has no Transactions, and thus a balance of zero.
+     *
+     * @param userID The ID of the user whose current balance will be read.
+     * @return The current Balance of the user.
+     */
+    public Balance readBalance(int userID) {
+        Balance balance = customORM.getBalance(userID);
+        return balance != null ? balance : new Balance(0, IntervalHelper.NO_DATE);
+    }
+
+    /**
+     * Method used to retrieve the current balance of a certain user only if it is persisted and up to date, so that
+     * retrieving it never requires replaying Transactions.
+     *
+     * @param userID The ID of the user whose current balance will be retrieved.
+     * @return The current Balance of the user, or null if no up-to-date balance is persisted for the user.
+     */
+    public Balance getPersistedBalance(int userID) {
+        return customORM.getBalance(userID);
+    }
+
+    /**
+     * Method used to retrieve balance history information of a certain user in the form of a list of
+     * BalanceCandlesticks, read from the persisted rollups.
+     *
+     * @param userID         The ID of the user whose balance history will be retrieved.
+     * @param intervalPeriod The IntervalPeriod specifying the span of intervals.
+     * @param amount         The amount of intervals for which BalanceCandlesticks should be generated.
+     * @return The balance history information of the user in the form of a list of BalanceCandlesticks.
+     */
+    public ArrayList<BalanceCandlestick> getBalanceHistory(int userID, IntervalPeriod intervalPeriod, int amount) {
+        return this.getBalanceHistories(userID, new IntervalPeriod[]{intervalPeriod}, new int[]{amount}).get(0);
+    }
+
+    /**
+     * Method used to retrieve balance history information of a certain user for several IntervalPeriods at once, in
+     * the form of one list of BalanceCandlesticks per IntervalPeriod, read from the persisted rollups.
+     * Since the rollups of all IntervalPeriods are kept up to date together, the balance of the user is only read
+     * once, after which every list is read with a single range query.
+     *
+     * @param userID          The ID of the user whose balance history will be retrieved.
+     * @param intervalPeriods The IntervalPeriods specifying the spans of intervals.
+     * @param amounts         The amounts of intervals for which BalanceCandlesticks should be generated, where the n-th
+     *                        amount belongs to the n-th IntervalPeriod.
+     * @return For every IntervalPeriod in the same order, the balance history information of the user in the form of a
+     * list of BalanceCandlesticks.
+     */
+    public ArrayList<ArrayList<BalanceCandlestick>> getBalanceHistories(int userID, IntervalPeriod[] intervalPeriods,
+                                                                        int[] amounts) {
+        Balance balance = this.readBalance(userID);
+        long until = balance.getDate() != IntervalHelper.NO_DATE ? balance.getDate() : 0;
+
+        ArrayList<ArrayList<BalanceCandlestick>> balanceHistories = new ArrayList<>();
+        for (int i = 0; i < intervalPeriods.length; i++) {
+            balanceHistories.add(this.readBalanceHistory(userID, intervalPeriods[i], amounts[i], until));
+        }
+        return balanceHistories;
+    }
+
+    /**
+     * Method used to bring the persisted balance of a certain user up to date after a Transaction has been added.
+     *
+     * @param userID      The ID of the user to who the added Transaction belongs.
+     * @param transaction The Transaction that has been added.
+     */
+    public void transactionAdded(int userID, Transaction transaction) {
+        Balance balance = customORM.getBalance(userID);
+        if (balance == null) {
+            this.recomputeFrom(userID, transaction.getDate());
+            return;
+        }
+
+        ArrayList<SavingGoal> savingGoals = customORM.getSavingGoals(userID);
+        boolean mostRecent = balance.getDate() == IntervalHelper.NO_DATE || balance.getDate() <= transaction.getDate();
+        if (mostRecent && !this.hasDeletionSince(savingGoals, balance.getDate())) {
+            // The Transaction is the most recent one, so it can simply be replayed on top of the persisted state
+            CandlestickRollup rollup = new CandlestickRollup(customORM, userID, true);
+            Ledger ledger = new Ledger(userID, balance, savingGoals, rollup);
+            ledger.apply(transaction.getDate(), signedAmount(transaction));
+            rollup.flush();
+            this.persist(userID, ledger);
+        } else if (!mostRecent && savingGoals.isEmpty()) {
+            // Without SavingGoals, a backdated Transaction only changes the balance by its own amount
+            long amount = signedAmount(transaction);
+            customORM.updateBalance(userID, new Balance(balance.getBalance() + amount, balance.getDate()));
+            customORM.deleteBalanceCheckpointsAfter(userID, transaction.getDate());
+            for (IntervalPeriod intervalPeriod : IntervalPeriod.values()) {
+                this.patchRollup(userID, intervalPeriod, transaction.getDate(), amount);
+            }
+        } else {
+            this.recomputeFrom(userID, transaction.getDate());
+        }
+    }
+
+    /**
+     * Method used to bring the persisted balance of a certain user up to date after several Transactions have been
+     * added at once.
+     * If none of the Transactions is older than the most recent Transaction of the user, they are replayed on top of
+     * the persisted state in a single pass. Otherwise, the persisted balance is recomputed from the earliest added
+     * Transaction onwards, since recomputing it once is cheaper than patching the rollups for every Transaction.
+     *
+     * @param userID       The ID of the user to who the added Transactions belong.
+     * @param transactions The Transactions that have been added, sorted on date and ID.
+     * @return The balance of the user after every added Transaction, in the same order, or null if the Transactions
+     * were not replayed on top of the persisted state.
+     */
+    public long[] transactionsAdded(int userID, List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return new long[0];
+        }
+        long earliestDate = transactions.get(0).getDate();
+        Balance balance = customORM.getBalance(userID);
+        if (balance == null) {
+            this.recomputeFrom(userID, earliestDate);
+            return null;
+        }
+
+        ArrayList<SavingGoal> savingGoals = customORM.getSavingGoals(userID);
+        boolean mostRecent = balance.getDate() == IntervalHelper.NO_DATE || balance.getDate() <= earliestDate;
+        if (mostRecent && !this.hasDeletionSince(savingGoals, balance.getDate())) {
+            CandlestickRollup rollup = new CandlestickRollup(customORM, userID, true);
+            Ledger ledger = new Ledger(userID, balance, savingGoals, rollup);
+            long[] balances = new long[transactions.size()];
+            for (int i = 0; i < balances.length; i++) {
+                ledger.apply(transactions.get(i).getDate(), signedAmount(transactions.get(i)));
+                balances[i] = ledger.balance;
+            }
+            rollup.flush();
+            this.persist(userID, ledger);
+            return balances;
+        } else {
+            this.recomputeFrom(userID, earliestDate);
+            return null;
+        }
+    }
+
+    /**
+     * Method used to bring the persisted balance of a certain user up to date after a Transaction has been deleted.
+     *
+     * @param userID The ID of the user to who the deleted Transaction belongs.
+     * @param date   The date of the deleted Transaction, being the earliest date at which the balance of the user is
+     *               affected by the deletion.
+     */
+    public void transactionChanged(int userID, long date) {
+        this.recomputeFrom(userID, date);
+    }
+
+    /**
+     * Method used to bring the persisted balance of a certain user up to date after the date, amount or type of a
+     * Transaction has been updated.
+     * For a user without SavingGoals, the update only changes the balance by the difference between the new and the old
+     * amount, as long as the date of the most recent Transaction of the user stays the same. In that case the persisted
+     * balance and the rollups are patched, and otherwise the persisted balance is recomputed from the earliest of the
+     * old and the new date onwards.
+     *
+     * @param userID             The ID of the user to who the updated Transaction belongs.
+     * @param transaction        The Transaction as it was before the update.
+     * @param updatedTransaction The Transaction as it is after the update.
+     */
+    public void transactionUpdated(int userID, Transaction transaction, Transaction updatedTransaction) {
+        long changedDate = Math.min(transaction.getDate(), updatedTransaction.getDate());
+        Balance balance = customORM.getBalance(userID);
+        if (balance == null) {
+            this.recomputeFrom(userID, changedDate);
+            return;
+        }
+
+        boolean sameMostRecentDate = transaction.getDate() == updatedTransaction.getDate() ||
+                (transaction.getDate() < balance.getDate() && updatedTransaction.getDate() <= balance.getDate());
+        if (sameMostRecentDate && customORM.getSavingGoals(userID).isEmpty()) {
+            long oldAmount = signedAmount(transaction);
+            long newAmount = signedAmount(updatedTransaction);
+            customORM.updateBalance(userID, new Balance(balance.getBalance() - oldAmount + newAmount,
+                    balance.getDate()));
+            customORM.deleteBalanceCheckpointsAfter(userID, changedDate);
+            for (IntervalPeriod intervalPeriod : IntervalPeriod.values()) {
+                // The earliest interval is patched first, so that later intervals are rebuilt on top of it
+                if (transaction.getDate() <= updatedTransaction.getDate()) {
+                    this.patchRollup(userID, intervalPeriod, transaction.getDate(), -oldAmount);
+                    this.patchRollup(userID, intervalPeriod, updatedTransaction.getDate(), newAmount);
+                } else {
+                    this.patchRollup(userID, intervalPeriod, updatedTransaction.getDate(), newAmount);
+                    this.patchRollup(userID, intervalPeriod, transaction.getDate(), -oldAmount);
+                }
+            }
+        } else {
+            this.recomputeFrom(userID, changedDate);
+        }
+    }
+
+    /**
+     * Method used to bring the persisted balance of a certain user up to date after a SavingGoal has been deleted.
+     * The money set apart for the SavingGoal is returned to the balance of the user.
+     * Since a SavingGoal is deleted at the date of the most recent Transaction of the user, no BalanceCheckpoint is
+     * affected by this.
+     *
+     * @param userID       The ID of the user to who the deleted SavingGoal belongs.
+     * @param savingGoal   The SavingGoal that has been deleted, as it was persisted before its deletion.
+     * @param deletionDate The date at which the SavingGoal has been deleted.
+     */
+    public void savingGoalDeleted(int userID, SavingGoal savingGoal, long deletionDate) {
+        Balance balance = customORM.getBalance(userID);
+        if (balance != null) {
+            long setApart = savingGoal.getBalance();
+            if (setApart != 0) {
+                CandlestickRollup rollup = new CandlestickRollup(customORM, userID, true);
+                rollup.mutation(deletionDate, balance.getBalance(), setApart);
+                rollup.flush();
+                customORM.updateBalance(userID, new Balance(balance.getBalance() + setApart, balance.getDate()));
+            }
+        }
+    }
+
+    /**
+     * Method used to recompute the current balance of a certain user by replaying the Transactions of the user, and
+     * to persist the result.
+     * Replaying starts at the most recent persisted BalanceCheckpoint of the user, or at the first Transaction of the
+     * user if there is none. The rollups from that point onwards are rebuilt along the way. The Transactions of a user
+     * without SavingGoals are replayed in parallel if there are enough of them.
+     *
+     * @param userID The ID of the user whose current balance will be recomputed.
+     * @return The current Balance of the user.
+     */
+    private Balance recompute(int userID) {
+        ArrayList<SavingGoal> savingGoals = customORM.getSavingGoals(userID);
+        BalanceCheckpoint checkpoint = customORM.getLatestBalanceCheckpoint(userID);
+        CandlestickRollup rollup = new CandlestickRollup(customORM, userID, false);
+
+        Ledger ledger;
+        long from;
+        if (checkpoint != null) {
+            long monthStart = checkpoint.getMonthStart();
+            for (IntervalPeriod intervalPeriod : IntervalPeriod.values()) {
+                customORM.deleteBalanceRollupsFrom(userID, intervalPeriod,
+                        IntervalHelper.getIntervalStart(intervalPeriod, monthStart));
+            }
+            rollup.restore(checkpoint.getRollups());
+            ledger = new Ledger(userID, checkpoint, savingGoals, rollup);
+            from = monthStart;
+        } else {
+            customORM.deleteBalanceRollups(userID);
+            ledger = new Ledger(userID, savingGoals, rollup);
+            from = Long.MIN_VALUE;
+        }
+
+        LedgerColumns columns = ledgerCache.getColumns(userID, from);
+        if (savingGoals.isEmpty() && parallelReplay.isWorthwhile(columns.size())) {
+            Balance balance = parallelReplay.replay(userID, columns, ledger.balance, ledger.date,
+                    checkpoint != null ? checkpoint.getRollups() : Collections.emptyMap());
+            customORM.updateBalance(userID, balance);
+            return balance;
+        }
+
+        for (int i = 0; i < columns.size(); i++) {
+            ledger.apply(columns.getDate(i), columns.getSignedAmount(i));
+        }
+        ledger.releaseDeletedSavingGoals(Long.MAX_VALUE);
+        rollup.flush();
+        this.persist(userID, ledger);
+        return ledger.getBalance();
+    }
+
+    /**
+     * Method used to read the balance history of a certain user for a certain IntervalPeriod from the persisted
+     * rollups, filling intervals in which the balance did not change with the close of the interval before.
+     *
+     * @param userID         The ID of the user whose balance history will be read.
+     * @param intervalPeriod The IntervalPeriod specifying the span of intervals.
+     * @param amount         The amount of intervals for which BalanceCandlesticks should be generated.
+     * @param until          The date contained in the last interval.
+     * @return The balance history information of the user in the form of a list of BalanceCandlesticks.
+     */
+    private ArrayList<BalanceCandlestick> readBalanceHistory(int userID, IntervalPeriod intervalPeriod, int amount,
+                                                             long until) {
+        ArrayList<BalanceCandlestick> candlesticks = new ArrayList<>();
+        if (amount <= 0) {
+            return candlesticks;
+        }
+
+        long[] intervals = IntervalHelper.getIntervals(intervalPeriod, amount, until);
+        ArrayList<BalanceCandlestick> rollups =
+                customORM.getBalanceRollups(userID, intervalPeriod, intervals[1], intervals[amount + 1]);
+        long close = customORM.getBalanceBeforeRollup(userID, intervalPeriod, intervals[1]);
+        int index = 0;
+        for (int i = 1; i <= amount; i++) {
+            long startUnixTime = intervals[i] / 1000; // Convert start of interval to UNIX time
+            if (index < rollups.size() && rollups.get(index).getTimestamp() == startUnixTime) {
+                BalanceCandlestick candlestick = rollups.get(index);
+                candlesticks.add(candlestick);
+                close = candlestick.getClose();
+                index++;
+            } else {
+                // The balance did not change during this interval
+                candlesticks.add(new BalanceCandlestick(close, startUnixTime));
+            }
+        }
+        return candlesticks;
+    }
+
+    /**
+     * Method used to remove the persisted balance of a certain user and its BalanceCheckpoints after a certain date,
+     * and to recompute the balance from the most recent remaining BalanceCheckpoint right away.
+     *
+     * @param userID The ID of the user whose persisted balance will be removed.
+     * @param date   The earliest date at which the balance of the user changed.
+     */
+    private void recomputeFrom(int userID, long date) {
+        customORM.invalidateBalance(userID);
+        customORM.deleteBalanceCheckpointsAfter(userID, date);
+        this.recompute(userID);
+    }
+
+    /**
+     * Method used to patch a backdated Transaction of a user without SavingGoals into the rollups of a certain
+     * IntervalPeriod. The rollup of the interval containing the Transaction is rebuilt from the Transactions in that
+     * interval, and all rollups of later intervals are shifted by the amount of the Transaction.
+     * A Transaction is patched out of the rollups again by patching it with the negated amount after it has been
+     * removed from the ledger.
+     *
+     * @param userID         The ID of the user to who the backdated Transaction belongs.
+     * @param intervalPeriod The IntervalPeriod of the rollups that will be patched.
+     * @param date           The date of the backdated Transaction.
+     * @param amount         The amount by which the backdated Transaction changes the balance of the user.
+     */
+    private void patchRollup(int userID, IntervalPeriod intervalPeriod, long date, long amount) {
+        long bucket = IntervalHelper.getIntervalStart(intervalPeriod, date);
+        long nextBucket = IntervalHelper.addIntervals(intervalPeriod, bucket, 1);
+
+        BalanceCandlestick candlestick = new BalanceCandlestick(
+                customORM.getBalanceBeforeRollup(userID, intervalPeriod, bucket), bucket / 1000);
+        ledgerCache.streamTransactions(userID, bucket, nextBucket, row -> candlestick.mutation(row.getSignedAmount()));
+        customORM.updateBalanceRollup(userID, intervalPeriod, candlestick);
+        customORM.shiftBalanceRollups(userID, intervalPeriod, bucket, amount);
+    }
+
+    /**
+     * Method used to persist the state of a Ledger as the current balance of a certain user.
+     * Only the SavingGoals of which the amount set apart differs from the persisted one are updated. If any SavingGoal
+     * that is not deleted reaches its goal this way, the SavingGoalEvaluator is notified.
+     *
+     * @param userID The ID of the user whose current balance will be persisted.
+     * @param ledger The Ledger containing the current balance of the user.
+     */
+    private void persist(int userID, Ledger ledger) {
+        customORM.updateBalance(userID, ledger.getBalance());
+        boolean reached = false;
+        for (int i = 0; i < ledger.savingGoals.size(); i++) {
+            SavingGoal savingGoal = ledger.savingGoals.getSavingGoal(i);
+            long setApart = ledger.savingGoals.getSetApart(i);
+            if (savingGoal.getBalance() != setApart) {
+                customORM.updateSavingGoalBalance(userID, savingGoal.getId(), setApart);
+                reached |= savingGoal.getDeletionDate() == IntervalHelper.NO_DATE && setApart >= savingGoal.getGoal();
+            }
+        }
+        if (reached) {
+            savingGoalEvaluator.savingGoalReached(userID);
+        }
+    }
+
+    /**
+     * Method used to check whether a SavingGoal has been deleted at or after a certain date.
+     * The money set apart for such a SavingGoal is already returned to the persisted balance, while a replay would
+     * only return it after the Transactions up to its deletion date, so Transactions cannot simply be replayed on top
+     * of the persisted balance.
+     *
+     * @param savingGoals All SavingGoals of the user, including deleted ones.
+     * @param date        The date of the most recent Transaction included in the persisted balance.
+     * @return Whether any SavingGoal has been deleted at or after date.
+     */
+    private boolean hasDeletionSince(List<SavingGoal> savingGoals, long date) {
+        for (SavingGoal savingGoal : savingGoals) {
+            if (savingGoal.getDeletionDate() != IntervalHelper.NO_DATE && savingGoal.getDeletionDate() >= date) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method used to retrieve the amount by which a Transaction changes the balance of a user.
+     *
+     * @param transaction The Transaction of which the signed amount will be retrieved.
+     * @return The amount of transaction if it is a deposit, or the negated amount otherwise.
+     */
+    private static long signedAmount(Transaction transaction) {
+        return transaction.getType().equals("deposit") ? transaction.getAmount() : -transaction.getAmount();
+    }
+
+    /**
+     * The Ledger class.
+     * Used to replay Transactions on a balance, using a SavingGoalEngine to set apart money for SavingGoals for every
+     * month that elapses between two consecutive Transactions, and returning it when a SavingGoal is deleted.
+     * Every mutation of the balance is passed to a CandlestickRollup, and a BalanceCheckpoint is persisted at the start
+     * of every month in which a Transaction is replayed.
+     */
+    private class Ledger {
+
+        private int userID;
+        private long balance;
+        private long date;
+        private SavingGoalEngine savingGoals;
+        private CandlestickRollup rollup;
+
+        /**
+         * A constructor of Ledger, used to replay Transactions from the very beginning.
+         *
+         * @param userID      The ID of the user whose Transactions will be replayed.
+         * @param savingGoals All SavingGoals of the user, including deleted ones.
+         * @param rollup      The CandlestickRollup to which every mutation of the balance is passed.
+         */
+        private Ledger(int userID, List<SavingGoal> savingGoals, CandlestickRollup rollup) {
+            this.userID = userID;
+            this.balance = 0;
+            this.date = IntervalHelper.NO_DATE;
+            this.savingGoals = new SavingGoalEngine(savingGoals);
+            this.rollup = rollup;
+        }
+
+        /**
+         * A constructor of Ledger, used to replay Transactions on top of a persisted balance.
+         * The money set apart for deleted SavingGoals has already been returned to the persisted balance.
+         *
+         * @param userID      The ID of the user whose Transactions will be replayed.
+         * @param balance     The persisted Balance of the user.
+         * @param savingGoals All SavingGoals of the user, including deleted ones, with their persisted balances.
+         * @param rollup      The CandlestickRollup to which every mutation of the balance is passed.
+         */
+        private Ledger(int userID, Balance balance, List<SavingGoal> savingGoals, CandlestickRollup rollup) {
+            this(userID, savingGoals, rollup);
+            this.balance = balance.getBalance();
+            this.date = balance.getDate();
+            for (int i = 0; i < savingGoals.size(); i++) {
+                SavingGoal savingGoal = savingGoals.get(i);
+                this.savingGoals.restore(i, savingGoal.getBalance(),
+                        savingGoal.getDeletionDate() != IntervalHelper.NO_DATE);
+            }
+        }
+
+        /**
+         * A constructor of Ledger, used to replay Transactions from a persisted BalanceCheckpoint onwards.
+         *
+         * @param userID      The ID of the user whose Transactions will be replayed.
+         * @param checkpoint  The BalanceCheckpoint from which Transactions will be replayed.
+         * @param savingGoals All SavingGoals of the user, including deleted ones.
+         * @param rollup      The CandlestickRollup to which every mutation of the balance is passed.
+         */
+        private Ledger(int userID, BalanceCheckpoint checkpoint, List<SavingGoal> savingGoals,
+                       CandlestickRollup rollup) {
+            this(userID, savingGoals, rollup);
+            this.balance = checkpoint.getBalance();
+            this.date = checkpoint.getDate();
+            for (int i = 0; i < savingGoals.size(); i++) {
+                long savingGoalID = savingGoals.get(i).getId();
+                this.savingGoals.restore(i, checkpoint.getSavingGoalBalances().getOrDefault(savingGoalID, 0L),
+                        checkpoint.getReleasedSavingGoals().contains(savingGoalID));
+            }
+        }
+
+        /**
+         * Method used to replay a Transaction that is not older than any Transaction replayed before.
+         *
+         * @param transactionDate The date of the Transaction that will be replayed.
+         * @param amount          The amount by which the Transaction changes the balance, in cents.
+         */
+        private void apply(long transactionDate, long amount) {
+            int monthIdentifier = IntervalHelper.getMonthIdentifier(transactionDate);
+            if (date != IntervalHelper.NO_DATE && IntervalHelper.getMonthIdentifier(date) < monthIdentifier) {
+                this.checkpoint(IntervalHelper.getIntervalStart(IntervalPeriod.MONTH, transactionDate));
+            }
+
+            this.releaseDeletedSavingGoals(transactionDate);
+
+            if (date != IntervalHelper.NO_DATE) {
+                // Set apart money for every month elapsed since the last Transaction
+                long saved = savingGoals.accrue(balance, IntervalHelper.getMonthIdentifier(date), monthIdentifier);
+                if (saved != 0) {
+                    this.mutation(transactionDate, -saved);
+                }
+            }
+
+            this.mutation(transactionDate, amount);
+            date = transactionDate;
+        }
+
+        /**
+         * Method used to persist a BalanceCheckpoint at the start of a certain month, being the state after all
+         * Transactions before that month have been replayed.
+         *
+         * @param monthStart The start of the month at which the BalanceCheckpoint will be taken.
+         */
+        private void checkpoint(long monthStart) {
+            this.releaseDeletedSavingGoals(monthStart);
+
+            BalanceCheckpoint checkpoint = new BalanceCheckpoint(monthStart, balance, date);
+            for (int i = 0; i < savingGoals.size(); i++) {
+                long savingGoalID = savingGoals.getSavingGoal(i).getId();
+                checkpoint.getSavingGoalBalances().put(savingGoalID, savingGoals.getSetApart(i));
+                if (savingGoals.isReleased(i)) {
+                    checkpoint.getReleasedSavingGoals().add(savingGoalID);
+                }
+            }
+            checkpoint.getRollups().putAll(rollup.snapshot(monthStart));
+            customORM.createBalanceCheckpoint(userID, checkpoint);
+        }
+
+        /**
+         * Method used to return the money set apart for SavingGoals that were deleted before a certain date, in order
+         * of deletion date so that mutations are passed in chronological order.
+         *
+         * @param until The date before which SavingGoals should have been deleted to be released.
+         */
+        private void releaseDeletedSavingGoals(long until) {
+            for (int i = savingGoals.nextRelease(until); i != -1; i = savingGoals.nextRelease(until)) {
+                long setApart = savingGoals.release(i);
+                if (setApart != 0) {
+                    this.mutation(savingGoals.getSavingGoal(i).getDeletionDate(), setApart);
+                }
+            }
+        }
+
+        /**
+         * Method used to mutate the balance, passing the mutation to the CandlestickRollup.
+         *
+         * @param date   The date at which the mutation happens.
+         * @param amount The amount by which the balance is mutated, in cents.
+         */
+        private void mutation(long date, long amount) {
+            rollup.mutation(date, balance, amount);
+            balance += amount;
+        }
+
+        /**
+         * Method used to retrieve the balance after all Transactions replayed so far.
+         *
+         * @return The Balance after all Transactions replayed so far.
+         */
+        private Balance getBalance() {
+            return new Balance(balance, date);
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.date.IntervalPeriod;
+import nl.utwente.ing.model.bean.BalanceCandlestick;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The CandlestickRollup class.
+ * Used to collect the mutations of the balance of a certain user into one BalanceCandlestick per interval for every
+ * IntervalPeriod, and to persist these BalanceCandlesticks as the rollups from which the balance history is read.
+ * <p>
+ * Mutations should be passed in the order in which they happened. Only the BalanceCandlestick of the most recent
+ * interval of every IntervalPeriod is kept in memory, the BalanceCandlesticks of earlier intervals are persisted as soon
+ * as a mutation in a later interval is passed.
+ *
+ * @author Daan Kooij
+ */
+public class CandlestickRollup {
+
+    private CustomORM customORM;
+    private int userID;
+    private boolean continuePersisted;
+    private Map<IntervalPeriod, BalanceCandlestick> candlesticks;
+
+    /**
+     * The constructor of CandlestickRollup.
+     *
+     * @param customORM         The CustomORM used to read and persist BalanceCandlesticks.
+     * @param userID            The ID of the user whose balance mutations will be collected.
+     * @param continuePersisted Whether mutations should be added to the already persisted BalanceCandlesticks of their
+     *                          interval, instead of starting a new BalanceCandlestick for every interval.
+     */
+    public CandlestickRollup(CustomORM customORM, int userID, boolean continuePersisted) {
+        this.customORM = customORM;
+        this.userID = userID;
+        this.continuePersisted = continuePersisted;
+        this.candlesticks = new EnumMap<>(IntervalPeriod.class);
+    }
+
+    /**
+     * Method used to add a mutation of the balance of the user to the BalanceCandlesticks of its intervals.
+     *
+     * @param date    The date at which the mutation happened.
+     * @param balance The balance of the user just before the mutation, in cents.
+     * @param amount  The amount by which the balance of the user is mutated, in cents.
+     */
+    public void mutation(long date, long balance, long amount) {
+        for (IntervalPeriod intervalPeriod : IntervalPeriod.values()) {
+            long bucket = IntervalHelper.getIntervalStart(intervalPeriod, date);
+            BalanceCandlestick candlestick = candlesticks.get(intervalPeriod);
+            if (candlestick == null || candlestick.getTimestamp() * 1000 != bucket) {
+                if (candlestick != null) {
+                    customORM.updateBalanceRollup(userID, intervalPeriod, candlestick);
+                }
+                candlestick = null;
+                if (continuePersisted) {
+                    ArrayList<BalanceCandlestick> persisted =
+                            customORM.getBalanceRollups(userID, intervalPeriod, bucket, bucket + 1);
+                    if (persisted.size() > 0) {
+                        candlestick = persisted.get(0);
+                    }
+                }
+                if (candlestick == null) {
+                    candlestick = new BalanceCandlestick(balance, bucket / 1000);
+                }
+                candlesticks.put(intervalPeriod, candlestick);
+            }
+            candlestick.mutation(amount);
+        }
+    }
+
+    /**
+     * Method used to retrieve the BalanceCandlesticks so far of the intervals that contain a certain date but started
+     * earlier, being the part of these intervals before that date.
+     * Should only be called when all mutations before the date, and none after it, have been passed.
+     *
+     * @param date The date at which the BalanceCandlesticks so far will be retrieved.
+     * @return A Map from IntervalPeriods to the BalanceCandlestick so far of their interval containing date, for every
+     * IntervalPeriod of which this interval started before date and already contains mutations.
+     */
+    public Map<IntervalPeriod, BalanceCandlestick> snapshot(long date) {
+        Map<IntervalPeriod, BalanceCandlestick> snapshot = new EnumMap<>(IntervalPeriod.class);
+        for (IntervalPeriod intervalPeriod : IntervalPeriod.values()) {
+            long bucket = IntervalHelper.getIntervalStart(intervalPeriod, date);
+            if (bucket == date) {
+                continue;
+            }
+            BalanceCandlestick candlestick = candlesticks.get(intervalPeriod);
+            if (candlestick != null && candlestick.getTimestamp() * 1000 == bucket) {
+                snapshot.put(intervalPeriod, new BalanceCandlestick(candlestick.getOpen(), candlestick.getClose(),
+                        candlestick.getHigh(), candlestick.getLow(), candlestick.getVolume(), bucket / 1000));
+            } else if (continuePersisted) {
+                ArrayList<BalanceCandlestick> persisted =
+                        customORM.getBalanceRollups(userID, intervalPeriod, bucket, bucket + 1);
+                if (persisted.size() > 0) {
+                    snapshot.put(intervalPeriod, persisted.get(0));
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Method used to continue collecting mutations from BalanceCandlesticks retrieved earlier using snapshot.
+     *
+     * @param snapshot A Map from IntervalPeriods to the BalanceCandlestick so far of their most recent interval.
+     */
+    public void restore(Map<IntervalPeriod, BalanceCandlestick> snapshot) {
+        candlesticks.putAll(snapshot);
+    }
+
+    /**
+     * Method used to persist the BalanceCandlesticks that are still kept in memory.
+     */
+    public void flush() {
+        for (Map.Entry<IntervalPeriod, BalanceCandlestick> entry : candlesticks.entrySet()) {
+            customORM.updateBalanceRollup(userID, entry.getKey(), entry.getValue());
+        }
+        candlesticks.clear();
+    }
+
+}
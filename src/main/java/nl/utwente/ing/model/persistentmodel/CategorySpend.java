@@ -0,0 +1,218 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CategorySpend class.
+ * Used to keep the amounts withdrawn per Category of a user within a rolling window of WINDOW_DAYS days, so that the
+ * amount spent in a Category within the window before a certain day can be retrieved without replaying any
+ * Transactions.
+ * <p>
+ * For every Category, the withdrawals are summed per day in a ring buffer of WINDOW_DAYS buckets, together with the
+ * total of all buckets. Moving the window forward only clears the buckets of the days that fall out of it, so adding a
+ * withdrawal and retrieving the amount spent within the window both take constant time. CategorySpend contains exactly
+ * the withdrawals of the Transactions of the user up to a certain ID, being the Transactions whose derived evaluations
+ * have been done.
+ *
+ * @author Daan Kooij
+ */
+public class CategorySpend {
+
+    public static final int WINDOW_DAYS = 30;
+
+    private static final long NO_DAY = Long.MIN_VALUE;
+
+    private long headDay;
+    private long evaluatedUntilID;
+    private final Map<Long, Ring> rings;
+    private final List<long[]> changedBuckets;
+
+    /**
+     * The Ring class.
+     * Used to store the amounts withdrawn per day in one Category within the window ending at a certain day.
+     */
+    private static class Ring {
+
+        private final long[] amounts = new long[WINDOW_DAYS];
+        private long head;
+        private long total;
+
+        /**
+         * The constructor of Ring.
+         *
+         * @param head The last day of the window of Ring.
+         */
+        private Ring(long head) {
+            this.head = head;
+        }
+
+        /**
+         * Method used to move the window of Ring forward, clearing the buckets of the days that fall out of it.
+         *
+         * @param day The new last day of the window, which should not be before the current one.
+         */
+        private void advance(long day) {
+            if (day - head >= WINDOW_DAYS) {
+                Arrays.fill(amounts, 0);
+                total = 0;
+            } else {
+                for (long d = head + 1; d <= day; d++) {
+                    int index = indexOf(d);
+                    total -= amounts[index];
+                    amounts[index] = 0;
+                }
+            }
+            head = day;
+        }
+
+        /**
+         * Method used to check whether a certain day falls within the window of Ring.
+         *
+         * @param day The day that will be checked.
+         * @return Whether day is one of the WINDOW_DAYS days up to and including the last day of the window.
+         */
+        private boolean contains(long day) {
+            return day <= head && day > head - WINDOW_DAYS;
+        }
+
+    }
+
+    /**
+     * Method used to retrieve the index of the bucket of a certain day in the ring buffers.
+     *
+     * @param day The index of the day.
+     * @return The index of the bucket of the day.
+     */
+    private static int indexOf(long day) {
+        return (int) Math.floorMod(day, (long) WINDOW_DAYS);
+    }
+
+    /**
+     * The constructor of CategorySpend.
+     *
+     * @param headDay          The index of the most recent day of which withdrawals are contained, or NO_DAY if there
+     *                         is none.
+     * @param evaluatedUntilID The ID of the most recent Transaction whose withdrawal is contained.
+     */
+    CategorySpend(long headDay, long evaluatedUntilID) {
+        this.headDay = headDay;
+        this.evaluatedUntilID = evaluatedUntilID;
+        this.rings = new HashMap<>();
+        this.changedBuckets = new ArrayList<>();
+    }
+
+    /**
+     * The constructor of CategorySpend, creating a CategorySpend that does not contain any withdrawals.
+     *
+     * @param evaluatedUntilID The ID of the most recent Transaction whose withdrawal would be contained.
+     */
+    CategorySpend(long evaluatedUntilID) {
+        this(NO_DAY, evaluatedUntilID);
+    }
+
+    /**
+     * Method used to retrieve the amount withdrawn in a certain Category within the window ending at a certain day.
+     *
+     * @param categoryID The ID of the Category.
+     * @param day        The index of the last day of the window, as given by IntervalHelper.getIntervalIndex.
+     * @return The amount withdrawn in the Category within the WINDOW_DAYS days up to and including day, in cents.
+     */
+    public long getSpent(long categoryID, long day) {
+        Ring ring = rings.get(categoryID);
+        if (ring == null) {
+            return 0;
+        } else if (day >= ring.head) {
+            ring.advance(day);
+            return ring.total;
+        }
+        long spent = 0;
+        for (long d = day - WINDOW_DAYS + 1; d <= day; d++) {
+            if (ring.contains(d)) {
+                spent += ring.amounts[indexOf(d)];
+            }
+        }
+        return spent;
+    }
+
+    /**
+     * Method used to add a withdrawal in a certain Category.
+     * Withdrawals on days that already fell out of the window are ignored.
+     *
+     * @param categoryID The ID of the Category in which the withdrawal is made.
+     * @param day        The index of the day of the withdrawal, as given by IntervalHelper.getIntervalIndex.
+     * @param amount     The amount of the withdrawal, in cents.
+     */
+    public void add(long categoryID, long day, long amount) {
+        headDay = Math.max(headDay, day);
+        Ring ring = rings.computeIfAbsent(categoryID, id -> new Ring(headDay));
+        if (day > ring.head) {
+            ring.advance(day);
+        }
+        if (ring.contains(day)) {
+            ring.amounts[indexOf(day)] += amount;
+            ring.total += amount;
+            changedBuckets.add(new long[]{categoryID, day});
+        }
+    }
+
+    /**
+     * Method used to retrieve the index of the most recent day of which withdrawals are contained.
+     *
+     * @return The index of the most recent day of which withdrawals are contained, or Long.MIN_VALUE if there is none.
+     */
+    public long getHeadDay() {
+        return headDay;
+    }
+
+    /**
+     * Method used to retrieve the index of the most recent day that fell out of the window.
+     *
+     * @return The index of the most recent day that fell out of the window, or Long.MIN_VALUE if there is none.
+     */
+    public long getExpiredUntilDay() {
+        return headDay == NO_DAY ? NO_DAY : headDay - WINDOW_DAYS;
+    }
+
+    /**
+     * Method used to retrieve the ID of the most recent Transaction whose withdrawal is contained.
+     *
+     * @return The ID of the most recent Transaction whose withdrawal is contained.
+     */
+    public long getEvaluatedUntilID() {
+        return evaluatedUntilID;
+    }
+
+    /**
+     * Method used to indicate that the withdrawals of the Transactions up to a certain ID are contained.
+     *
+     * @param evaluatedUntilID The ID of the most recent Transaction whose withdrawal is contained.
+     */
+    void setEvaluatedUntilID(long evaluatedUntilID) {
+        this.evaluatedUntilID = Math.max(this.evaluatedUntilID, evaluatedUntilID);
+    }
+
+    /**
+     * Method used to retrieve the buckets that changed since the last time they were retrieved, for example to persist
+     * them, as {categoryID, day, amount}.
+     * Buckets of days that fell out of the window in the meantime are left out.
+     *
+     * @return The buckets that changed since the last time they were retrieved.
+     */
+    List<long[]> takeChangedBuckets() {
+        List<long[]> buckets = new ArrayList<>();
+        for (long[] changedBucket : changedBuckets) {
+            Ring ring = rings.get(changedBucket[0]);
+            if (ring.contains(changedBucket[1]) && headDay - changedBucket[1] < WINDOW_DAYS) {
+                buckets.add(new long[]{changedBucket[0], changedBucket[1],
+                        ring.amounts[indexOf(changedBucket[1])]});
+            }
+        }
+        changedBuckets.clear();
+        return buckets;
+    }
+
+}
@@ -0,0 +1,166 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.date.IntervalPeriod;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The CategorySpendTracker class.
+ * Used to maintain the CategorySpend of every user incrementally, so that evaluating the category limit MessageRules of
+ * a user does not require replaying the Transactions within the window of those limits.
+ * <p>
+ * The CategorySpend of a user is advanced in the order in which Transactions are evaluated, and persisted in the same
+ * unit of work as the evaluation, so it survives restarts. The CategorySpend of recently active users is also kept in
+ * a bounded cache in memory that evicts its least recently used entry once it is full. When an evaluated Transaction
+ * within the window of a CategorySpend changes, the CategorySpend is removed, after which it is rebuilt from the ledger
+ * of the user the next time it is needed.
+ * <p>
+ * The CategorySpendTracker should only be used within units of work that hold the write lock of the database. If the
+ * unit of work in which a CategorySpend was loaded or changed is rolled back, it is removed from the cache again.
+ *
+ * @author Daan Kooij
+ */
+public class CategorySpendTracker {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final CustomORM customORM;
+    private final LedgerCache ledgerCache;
+    private final Map<Integer, CategorySpend> categorySpends;
+
+    /**
+     * The constructor of CategorySpendTracker, using the default capacity.
+     *
+     * @param customORM   The CustomORM used to persist and retrieve CategorySpends.
+     * @param ledgerCache The LedgerCache used to rebuild CategorySpends that are not persisted.
+     */
+    public CategorySpendTracker(CustomORM customORM, LedgerCache ledgerCache) {
+        this(customORM, ledgerCache, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * The constructor of CategorySpendTracker.
+     *
+     * @param customORM   The CustomORM used to persist and retrieve CategorySpends.
+     * @param ledgerCache The LedgerCache used to rebuild CategorySpends that are not persisted.
+     * @param capacity    The maximum amount of CategorySpends that will be kept in memory.
+     */
+    public CategorySpendTracker(CustomORM customORM, LedgerCache ledgerCache, int capacity) {
+        this.customORM = customORM;
+        this.ledgerCache = ledgerCache;
+        this.categorySpends = new LinkedHashMap<Integer, CategorySpend>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CategorySpend> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Method used to retrieve the CategorySpend of a certain user before evaluating some of its Transactions.
+     * If the CategorySpend is not cached it is retrieved from the database, and if it is not persisted either it is
+     * rebuilt from the Transactions of the user that were posted before the evaluated Transactions.
+     *
+     * @param userID  The ID of the user whose CategorySpend will be retrieved.
+     * @param oldDate The date of the most recent Transaction of the user posted before the evaluated Transactions, or
+     *                IntervalHelper.NO_DATE if there is none.
+     * @param firstID The ID of the first evaluated Transaction.
+     * @return The CategorySpend of the user, containing the withdrawals of the Transactions before firstID.
+     */
+    public synchronized CategorySpend getCategorySpend(int userID, long oldDate, long firstID) {
+        CategorySpend categorySpend = categorySpends.get(userID);
+        if (categorySpend == null) {
+            categorySpend = customORM.getCategorySpend(userID);
+        }
+        if (categorySpend == null || categorySpend.getEvaluatedUntilID() >= firstID) {
+            categorySpend = this.rebuild(userID, oldDate, firstID);
+        }
+        categorySpends.put(userID, categorySpend);
+        DatabaseConnection.registerRollbackAction(() -> this.remove(userID));
+        return categorySpend;
+    }
+
+    /**
+     * Method used to persist the CategorySpend of a certain user after evaluating some of its Transactions.
+     *
+     * @param userID           The ID of the user to who CategorySpend belongs.
+     * @param categorySpend    The CategorySpend of the user.
+     * @param evaluatedUntilID The ID of the most recent evaluated Transaction.
+     */
+    public void save(int userID, CategorySpend categorySpend, long evaluatedUntilID) {
+        categorySpend.setEvaluatedUntilID(evaluatedUntilID);
+        customORM.updateCategorySpend(userID, categorySpend);
+    }
+
+    /**
+     * Method used to notify CategorySpendTracker that the date, amount, type or Category of a certain Transaction
+     * changed, or that it was deleted.
+     * The CategorySpend of the user is only removed if the Transaction was already evaluated and falls within its
+     * window, since the withdrawals of other Transactions are not contained in it yet or no longer matter.
+     *
+     * @param userID        The ID of the user to who the Transaction belongs.
+     * @param transactionID The ID of the Transaction that changed.
+     * @param date          The latest of the old and new date of the Transaction.
+     */
+    public synchronized void transactionChanged(int userID, long transactionID, long date) {
+        CategorySpend categorySpend = categorySpends.get(userID);
+        if (categorySpend == null) {
+            categorySpend = customORM.getCategorySpend(userID);
+            if (categorySpend != null) {
+                categorySpends.put(userID, categorySpend);
+            }
+        }
+        if (categorySpend != null && transactionID <= categorySpend.getEvaluatedUntilID()
+                && IntervalHelper.getIntervalIndex(IntervalPeriod.DAY, date) > categorySpend.getExpiredUntilDay()) {
+            this.invalidate(userID);
+        }
+    }
+
+    /**
+     * Method used to remove the CategorySpend of a certain user, for example after Categories were assigned to or
+     * removed from many of its Transactions.
+     *
+     * @param userID The ID of the user whose CategorySpend will be removed.
+     */
+    public synchronized void invalidate(int userID) {
+        categorySpends.remove(userID);
+        customORM.deleteCategorySpend(userID);
+    }
+
+    /**
+     * Method used to rebuild the CategorySpend of a certain user from its ledger.
+     *
+     * @param userID  The ID of the user whose CategorySpend will be rebuilt.
+     * @param oldDate The date of the most recent Transaction of the user posted before firstID, or
+     *                IntervalHelper.NO_DATE if there is none.
+     * @param firstID The ID of the first Transaction whose withdrawal will not be contained.
+     * @return The rebuilt CategorySpend, of which all buckets are marked as changed.
+     */
+    private CategorySpend rebuild(int userID, long oldDate, long firstID) {
+        customORM.deleteCategorySpend(userID);
+        CategorySpend categorySpend = new CategorySpend(firstID - 1);
+        if (oldDate != IntervalHelper.NO_DATE) {
+            long windowStart = IntervalHelper.addIntervals(IntervalPeriod.DAY,
+                    IntervalHelper.getIntervalStart(IntervalPeriod.DAY, oldDate), 1 - CategorySpend.WINDOW_DAYS);
+            ledgerCache.streamTransactions(userID, windowStart, Long.MAX_VALUE, row -> {
+                if (!row.isDeposit() && row.getCategoryID() != 0 && row.getTransactionID() < firstID) {
+                    categorySpend.add(row.getCategoryID(),
+                            IntervalHelper.getIntervalIndex(IntervalPeriod.DAY, row.getDate()), row.getAmount());
+                }
+            });
+        }
+        return categorySpend;
+    }
+
+    /**
+     * Method used to remove the CategorySpend of a certain user from the cache, without removing it from the database.
+     *
+     * @param userID The ID of the user whose CategorySpend will be removed from the cache.
+     */
+    private synchronized void remove(int userID) {
+        categorySpends.remove(userID);
+    }
+
+}
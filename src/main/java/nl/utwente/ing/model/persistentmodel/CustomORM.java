@@ -1,30 +1,38 @@
 package nl.utwente.ing.model.persistentmodel;
 
+import nl.utwente.ing.exception.DatabaseException;
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.date.IntervalPeriod;
 import nl.utwente.ing.model.bean.*;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * The CustomORM class.
  * Serves as a connection between the PersistentModel class and the SQL database.
  * Contains methods that translate Java statements to SQL queries and updates.
+ * All queries and updates are executed on the database connection that is bound to the current thread, using the
+ * compiled statements kept in the StatementCache of that connection. Whenever a query or update fails, a
+ * DatabaseException is thrown, so that the unit of work in which this happens is rolled back.
  *
  * @author Daan Kooij
  */
 public class CustomORM {
 
-    private Connection connection;
-
-    private static final String INCREASE_HIGHEST_TRANSACTION_ID =
+    private static final String RESERVE_IDS =
             "UPDATE User_Table\n" +
-                    "SET highest_transaction_id = highest_transaction_id + 1\n" +
+                    "SET %1$s = %1$s + ?\n" +
                     "WHERE user_id = ?;";
-    private static final String GET_HIGHEST_TRANSACTION_ID =
-            "SELECT highest_transaction_id\n" +
+    private static final String GET_HIGHEST_RESERVED_ID =
+            "SELECT %s\n" +
                     "FROM User_Table\n" +
                     "WHERE user_id = ?;";
     private static final String CREATE_TRANSACTION =
@@ -35,29 +43,9 @@ public class CustomORM {
                     "FROM Transaction_Table\n" +
                     "WHERE user_id = ?\n" +
                     "AND transaction_id = ?;";
-    private static final String UPDATE_TRANSACTION_DATE =
-            "UPDATE Transaction_Table\n" +
-                    "SET date = ?\n" +
-                    "WHERE user_id = ?\n" +
-                    "AND transaction_id = ?;";
-    private static final String UPDATE_TRANSACTION_AMOUNT =
-            "UPDATE Transaction_Table\n" +
-                    "SET amount = ?\n" +
-                    "WHERE user_id = ?\n" +
-                    "AND transaction_id = ?;";
-    private static final String UPDATE_TRANSACTION_DESCRIPTION =
-            "UPDATE Transaction_Table\n" +
-                    "SET description = ?\n" +
-                    "WHERE user_id = ?\n" +
-                    "AND transaction_id = ?;";
-    private static final String UPDATE_TRANSACTION_EXTERNAL_IBAN =
-            "UPDATE Transaction_Table\n" +
-                    "SET external_iban = ?\n" +
-                    "WHERE user_id = ?\n" +
-                    "AND transaction_id = ?;";
-    private static final String UPDATE_TRANSACTION_TYPE =
+    private static final String UPDATE_TRANSACTION =
             "UPDATE Transaction_Table\n" +
-                    "SET type = ?\n" +
+                    "SET %s\n" +
                     "WHERE user_id = ?\n" +
                     "AND transaction_id = ?;";
     private static final String DELETE_TRANSACTION =
@@ -81,14 +69,6 @@ public class CustomORM {
                     "AND c.name = ?\n" +
                     "LIMIT ?\n" +
                     "OFFSET ?;";
-    private static final String INCREASE_HIGHEST_CATEGORY_ID =
-            "UPDATE User_Table\n" +
-                    "SET highest_category_id = highest_category_id + 1\n" +
-                    "WHERE user_id = ?;";
-    private static final String GET_HIGHEST_CATEGORY_ID =
-            "SELECT highest_category_id\n" +
-                    "FROM User_Table\n" +
-                    "WHERE user_id = ?;";
     private static final String CREATE_CATEGORY =
             "INSERT INTO Category_Table (user_id, category_id, name)\n" +
                     "VALUES (?, ?, ?);";
@@ -112,14 +92,6 @@ public class CustomORM {
                     "WHERE user_id = ?\n" +
                     "LIMIT ?\n" +
                     "OFFSET ?;";
-    private static final String INCREASE_HIGHEST_CATEGORY_RULE_ID =
-            "UPDATE User_Table\n" +
-                    "SET highest_category_rule_id = highest_category_rule_id + 1\n" +
-                    "WHERE user_id = ?;";
-    private static final String GET_HIGHEST_CATEGORY_RULE_ID =
-            "SELECT highest_category_rule_id\n" +
-                    "FROM User_Table\n" +
-                    "WHERE user_id = ?;";
     private static final String CREATE_CATEGORY_RULE =
             "INSERT INTO Category_Rule (user_id, category_rule_id, description, " +
                     "external_iban, type, category_id, apply_on_history)\n" +
@@ -149,31 +121,33 @@ public class CustomORM {
                     "AND description LIKE ?\n" +
                     "AND external_iban LIKE ?\n" +
                     "AND type LIKE ?;";
-    private static final String GET_TRANSACTIONS_ASCENDING =
-            "SELECT transaction_id, date, amount, description, external_iban, type\n" +
+    private static final String STREAM_LEDGER =
+            "SELECT t.transaction_id, t.date, t.amount, t.type = 'deposit', tc.category_id\n" +
+                    "FROM Transaction_Table t\n" +
+                    "LEFT JOIN Transaction_Category tc\n" +
+                    "ON t.user_id = tc.user_id\n" +
+                    "AND t.transaction_id = tc.transaction_id\n" +
+                    "WHERE t.user_id = ?\n" +
+                    "ORDER BY t.date ASC, t.transaction_id ASC;";
+    private static final String GET_FIRST_DATE =
+            "SELECT date\n" +
                     "FROM Transaction_Table\n" +
                     "WHERE user_id = ?\n" +
-                    "ORDER BY date ASC;";
+                    "ORDER BY date ASC\n" +
+                    "LIMIT 1";
     private static final String GET_CURRENT_DATE =
             "SELECT date\n" +
                     "FROM Transaction_Table\n" +
                     "WHERE user_id = ?\n" +
                     "ORDER BY date DESC\n" +
                     "LIMIT 1";
-    private static final String INCREASE_HIGHEST_SAVING_GOAL_ID =
-            "UPDATE User_Table\n" +
-                    "SET highest_saving_goal_id = highest_saving_goal_id + 1\n" +
-                    "WHERE user_id = ?;";
-    private static final String GET_HIGHEST_SAVING_GOAL_ID =
-            "SELECT highest_saving_goal_id\n" +
-                    "FROM User_Table\n" +
-                    "WHERE user_id = ?;";
     private static final String CREATE_SAVING_GOAL =
             "INSERT INTO Saving_Goal (user_id, saving_goal_id, creation_date, name, goal, " +
                     "save_per_month, min_balance_required)\n" +
                     "VALUES (?, ?, ?, ?, ?, ?, ?);";
     private static final String GET_SAVING_GOAL =
-            "SELECT saving_goal_id, creation_date, deletion_date, name, goal, save_per_month, min_balance_required\n" +
+            "SELECT saving_goal_id, creation_date, deletion_date, name, goal, save_per_month, min_balance_required, " +
+                    "balance\n" +
                     "FROM Saving_Goal\n" +
                     "WHERE user_id = ?\n" +
                     "AND saving_goal_id = ?;";
@@ -183,17 +157,84 @@ public class CustomORM {
                     "WHERE user_id = ?\n" +
                     "AND saving_goal_id = ?;";
     private static final String GET_SAVING_GOALS =
-            "SELECT saving_goal_id, creation_date, deletion_date, name, goal, save_per_month, min_balance_required\n" +
+            "SELECT saving_goal_id, creation_date, deletion_date, name, goal, save_per_month, min_balance_required, " +
+                    "balance\n" +
                     "FROM Saving_Goal\n" +
                     "WHERE user_id = ?;";
-    private static final String INCREASE_HIGHEST_PAYMENT_REQUEST_ID =
-            "UPDATE User_Table\n" +
-                    "SET highest_payment_request_id = highest_payment_request_id + 1\n" +
-                    "WHERE user_id = ?;";
-    private static final String GET_HIGHEST_PAYMENT_REQUEST_ID =
-            "SELECT highest_payment_request_id\n" +
-                    "FROM User_Table\n" +
-                    "WHERE user_id = ?;";
+    private static final String UPDATE_SAVING_GOAL_BALANCE =
+            "UPDATE Saving_Goal\n" +
+                    "SET balance = ?\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND saving_goal_id = ?;";
+    private static final String GET_UNNOTIFIED_REACHED_SAVING_GOALS =
+            "SELECT saving_goal_id, creation_date, deletion_date, name, goal, save_per_month, min_balance_required, " +
+                    "balance\n" +
+                    "FROM Saving_Goal\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND deletion_date IS NULL\n" +
+                    "AND reached = 0\n" +
+                    "AND balance >= goal;";
+    private static final String GET_USERS_WITH_UNNOTIFIED_REACHED_SAVING_GOALS =
+            "SELECT DISTINCT user_id\n" +
+                    "FROM Saving_Goal\n" +
+                    "WHERE deletion_date IS NULL\n" +
+                    "AND reached = 0\n" +
+                    "AND balance >= goal;";
+    private static final String MARK_SAVING_GOAL_REACHED =
+            "UPDATE Saving_Goal\n" +
+                    "SET reached = 1\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND saving_goal_id = ?;";
+    private static final String CREATE_IMPORT_JOB =
+            "INSERT INTO Import_Job (user_id, import_job_id, format, completed, lines_processed, " +
+                    "transactions_imported, lines_rejected)\n" +
+                    "VALUES (?, ?, ?, 0, 0, 0, 0);";
+    private static final String GET_IMPORT_JOB =
+            "SELECT import_job_id, format, completed, lines_processed, transactions_imported, lines_rejected\n" +
+                    "FROM Import_Job\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND import_job_id = ?;";
+    private static final String UPDATE_IMPORT_JOB =
+            "UPDATE Import_Job\n" +
+                    "SET completed = ?, lines_processed = ?, transactions_imported = ?, lines_rejected = ?\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND import_job_id = ?;";
+    private static final String CREATE_TRANSACTION_EVENT =
+            "INSERT INTO Transaction_Event (user_id, transaction_id, old_balance, old_date, new_balance)\n" +
+                    "VALUES (?, ?, ?, ?, ?);";
+    private static final String GET_TRANSACTION_EVENTS =
+            "SELECT event_id, transaction_id, old_balance, old_date, new_balance, attempts\n" +
+                    "FROM Transaction_Event\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND attempts < ?\n" +
+                    "ORDER BY event_id ASC;";
+    private static final String DELETE_TRANSACTION_EVENT =
+            "DELETE FROM Transaction_Event\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND event_id = ?;";
+    private static final String INCREASE_TRANSACTION_EVENT_ATTEMPTS =
+            "UPDATE Transaction_Event\n" +
+                    "SET attempts = attempts + 1\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND event_id = ?;";
+    private static final String GET_USERS_WITH_TRANSACTION_EVENTS =
+            "SELECT DISTINCT user_id\n" +
+                    "FROM Transaction_Event\n" +
+                    "WHERE attempts < ?;";
+    private static final String GET_IDEMPOTENT_RESPONSE =
+            "SELECT status, body, request_hash, created\n" +
+                    "FROM Idempotent_Response\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND endpoint = ?\n" +
+                    "AND idempotency_key = ?\n" +
+                    "AND created > ?;";
+    private static final String CREATE_IDEMPOTENT_RESPONSE =
+            "INSERT OR REPLACE INTO Idempotent_Response (user_id, endpoint, idempotency_key, status, body, " +
+                    "request_hash, created)\n" +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?);";
+    private static final String DELETE_IDEMPOTENT_RESPONSES_BEFORE =
+            "DELETE FROM Idempotent_Response\n" +
+                    "WHERE created <= ?;";
     private static final String CREATE_PAYMENT_REQUEST =
             "INSERT INTO Payment_Request (user_id, payment_request_id, description, due_date, " +
                     "amount, number_of_requests, filled)\n" +
@@ -207,6 +248,21 @@ public class CustomORM {
             "SELECT payment_request_id, description, due_date, amount, number_of_requests, filled\n" +
                     "FROM Payment_Request\n" +
                     "WHERE user_id = ?;";
+    private static final String GET_MATCHING_PAYMENT_REQUEST =
+            "SELECT payment_request_id, description, due_date, amount, number_of_requests, filled\n" +
+                    "FROM Payment_Request\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND amount = ?\n" +
+                    "AND filled = 0\n" +
+                    "AND due_date > ?\n" +
+                    "ORDER BY payment_request_id ASC\n" +
+                    "LIMIT 1;";
+    private static final String GET_OVERDUE_PAYMENT_REQUESTS =
+            "SELECT payment_request_id, description, due_date, amount, number_of_requests, filled\n" +
+                    "FROM Payment_Request\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND filled = 0\n" +
+                    "AND due_date < ?;";
     private static final String SET_PAYMENT_REQUEST_FILLED =
             "UPDATE Payment_Request\n" +
                     "SET filled = 1\n" +
@@ -224,14 +280,39 @@ public class CustomORM {
     private static final String LINK_TRANSACTION_TO_PAYMENT_REQUEST =
             "INSERT INTO Payment_Request_Transaction (user_id, transaction_id, payment_request_id)\n" +
                     "VALUES (?, ?, ?);";
-    private static final String INCREASE_HIGHEST_USER_MESSAGE_ID =
-            "UPDATE User_Table\n" +
-                    "SET highest_user_message_id = highest_user_message_id + 1\n" +
-                    "WHERE user_id = ?;\n";
-    private static final String GET_HIGHEST_USER_MESSAGE_ID =
-            "SELECT highest_user_message_id\n" +
-                    "FROM User_Table\n" +
-                    "WHERE user_id = ?;";
+    private static final String INCREMENT_PAYMENT_REQUEST_FILL_COUNT =
+            "UPDATE Payment_Request\n" +
+                    "SET fill_count = fill_count + 1\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND payment_request_id = ?;";
+    private static final String GET_PAYMENT_REQUEST_FILL_COUNT =
+            "SELECT fill_count\n" +
+                    "FROM Payment_Request\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND payment_request_id = ?;";
+    private static final String GET_PAYMENT_REQUEST_BY_TRANSACTION =
+            "SELECT pr.payment_request_id, pr.description, pr.due_date, pr.amount, pr.number_of_requests, " +
+                    "pr.filled\n" +
+                    "FROM Payment_Request pr, Payment_Request_Transaction prt\n" +
+                    "WHERE pr.payment_request_id = prt.payment_request_id\n" +
+                    "AND pr.user_id = prt.user_id\n" +
+                    "AND prt.user_id = ?\n" +
+                    "AND prt.transaction_id = ?;";
+    private static final String UNLINK_TRANSACTION_FROM_PAYMENT_REQUEST =
+            "DELETE FROM Payment_Request_Transaction\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND transaction_id = ?\n" +
+                    "AND payment_request_id = ?;";
+    private static final String DECREMENT_PAYMENT_REQUEST_FILL_COUNT =
+            "UPDATE Payment_Request\n" +
+                    "SET fill_count = fill_count - 1\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND payment_request_id = ?;";
+    private static final String SET_PAYMENT_REQUEST_UNFILLED =
+            "UPDATE Payment_Request\n" +
+                    "SET filled = 0\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND payment_request_id = ?;";
     private static final String GET_USER_MESSAGE =
             "SELECT user_message_id, message, date, read, type\n" +
                     "FROM User_Message\n" +
@@ -266,13 +347,117 @@ public class CustomORM {
                     "    ELSE highest_lifetime_balance \n" +
                     "  END\n" +
                     "WHERE user_id = ?;";
-    private static final String INCREASE_HIGHEST_MESSAGE_RULE_ID =
-            "UPDATE User_Table\n" +
-                    "SET highest_message_rule_id = highest_message_rule_id + 1\n" +
+    private static final String GET_BALANCE =
+            "SELECT balance, date\n" +
+                    "FROM Balance\n" +
                     "WHERE user_id = ?;";
-    private static final String GET_HIGHEST_MESSAGE_RULE_ID =
-            "SELECT highest_message_rule_id\n" +
-                    "FROM User_Table\n" +
+    private static final String UPDATE_BALANCE =
+            "INSERT OR REPLACE INTO Balance (user_id, balance, date)\n" +
+                    "VALUES (?, ?, ?);";
+    private static final String INVALIDATE_BALANCE =
+            "DELETE FROM Balance\n" +
+                    "WHERE user_id = ?;";
+    private static final String GET_USERS_WITHOUT_BALANCE =
+            "SELECT u.user_id\n" +
+                    "FROM User_Table u\n" +
+                    "WHERE NOT EXISTS (SELECT 1 FROM Balance b WHERE b.user_id = u.user_id)\n" +
+                    "AND EXISTS (SELECT 1 FROM Transaction_Table t WHERE t.user_id = u.user_id);";
+    private static final String GET_BALANCE_ROLLUPS =
+            "SELECT bucket, open, close, high, low, volume\n" +
+                    "FROM Balance_Rollup\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND period = ?\n" +
+                    "AND bucket >= ?\n" +
+                    "AND bucket < ?\n" +
+                    "ORDER BY bucket ASC;";
+    private static final String GET_BALANCE_BEFORE_ROLLUP =
+            "SELECT close\n" +
+                    "FROM Balance_Rollup\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND period = ?\n" +
+                    "AND bucket < ?\n" +
+                    "ORDER BY bucket DESC\n" +
+                    "LIMIT 1;";
+    private static final String UPDATE_BALANCE_ROLLUP =
+            "INSERT OR REPLACE INTO Balance_Rollup (user_id, period, bucket, open, close, high, low, volume)\n" +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
+    private static final String SHIFT_BALANCE_ROLLUPS =
+            "UPDATE Balance_Rollup\n" +
+                    "SET open = open + ?, close = close + ?, high = high + ?, low = low + ?\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND period = ?\n" +
+                    "AND bucket > ?;";
+    private static final String DELETE_BALANCE_ROLLUPS =
+            "DELETE FROM Balance_Rollup\n" +
+                    "WHERE user_id = ?;";
+    private static final String DELETE_BALANCE_ROLLUPS_FROM =
+            "DELETE FROM Balance_Rollup\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND period = ?\n" +
+                    "AND bucket >= ?;";
+    private static final String GET_LATEST_BALANCE_CHECKPOINT =
+            "SELECT month_start, balance, date\n" +
+                    "FROM Balance_Checkpoint\n" +
+                    "WHERE user_id = ?\n" +
+                    "ORDER BY month_start DESC\n" +
+                    "LIMIT 1;";
+    private static final String GET_SAVING_GOAL_CHECKPOINTS =
+            "SELECT saving_goal_id, balance, released\n" +
+                    "FROM Saving_Goal_Checkpoint\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND month_start = ?;";
+    private static final String GET_BALANCE_CHECKPOINT_ROLLUPS =
+            "SELECT period, bucket, open, close, high, low, volume\n" +
+                    "FROM Balance_Checkpoint_Rollup\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND month_start = ?;";
+    private static final String CREATE_BALANCE_CHECKPOINT =
+            "INSERT OR REPLACE INTO Balance_Checkpoint (user_id, month_start, balance, date)\n" +
+                    "VALUES (?, ?, ?, ?);";
+    private static final String CREATE_SAVING_GOAL_CHECKPOINT =
+            "INSERT OR REPLACE INTO Saving_Goal_Checkpoint\n" +
+                    "(user_id, month_start, saving_goal_id, balance, released)\n" +
+                    "VALUES (?, ?, ?, ?, ?);";
+    private static final String CREATE_BALANCE_CHECKPOINT_ROLLUP =
+            "INSERT OR REPLACE INTO Balance_Checkpoint_Rollup\n" +
+                    "(user_id, month_start, period, bucket, open, close, high, low, volume)\n" +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);";
+    private static final String DELETE_BALANCE_CHECKPOINTS_AFTER =
+            "DELETE FROM Balance_Checkpoint\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND month_start > ?;";
+    private static final String DELETE_SAVING_GOAL_CHECKPOINTS_AFTER =
+            "DELETE FROM Saving_Goal_Checkpoint\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND month_start > ?;";
+    private static final String DELETE_BALANCE_CHECKPOINT_ROLLUPS_AFTER =
+            "DELETE FROM Balance_Checkpoint_Rollup\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND month_start > ?;";
+    private static final String GET_CATEGORY_SPEND_WINDOW =
+            "SELECT head_day, evaluated_until_id\n" +
+                    "FROM Category_Spend_Window\n" +
+                    "WHERE user_id = ?;";
+    private static final String GET_CATEGORY_SPEND_BUCKETS =
+            "SELECT category_id, day, amount\n" +
+                    "FROM Category_Spend\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND day > ?;";
+    private static final String UPDATE_CATEGORY_SPEND_WINDOW =
+            "INSERT OR REPLACE INTO Category_Spend_Window (user_id, head_day, evaluated_until_id)\n" +
+                    "VALUES (?, ?, ?);";
+    private static final String UPDATE_CATEGORY_SPEND_BUCKET =
+            "INSERT OR REPLACE INTO Category_Spend (user_id, category_id, day, amount)\n" +
+                    "VALUES (?, ?, ?, ?);";
+    private static final String DELETE_CATEGORY_SPEND_BUCKETS_UNTIL =
+            "DELETE FROM Category_Spend\n" +
+                    "WHERE user_id = ?\n" +
+                    "AND day <= ?;";
+    private static final String DELETE_CATEGORY_SPEND_WINDOW =
+            "DELETE FROM Category_Spend_Window\n" +
+                    "WHERE user_id = ?;";
+    private static final String DELETE_CATEGORY_SPEND_BUCKETS =
+            "DELETE FROM Category_Spend\n" +
                     "WHERE user_id = ?;";
     private static final String CREATE_MESSAGE_RULE =
             "INSERT INTO Message_Rule (user_id, message_rule_id, category_id, type, value)\n" +
@@ -312,55 +497,99 @@ public class CustomORM {
     private static final String CREATE_NEW_USER =
             "INSERT INTO User_Table (session_id, highest_lifetime_balance, highest_transaction_id, " +
                     "highest_category_id, highest_category_rule_id, highest_saving_goal_id, " +
-                    "highest_payment_request_id, highest_user_message_id, highest_message_rule_id)\n" +
-                    "VALUES (?, 0, 0, 0, 0, 0, 0, 0, 0);";
+                    "highest_payment_request_id, highest_user_message_id, highest_message_rule_id, " +
+                    "highest_import_job_id)\n" +
+                    "VALUES (?, 0, 0, 0, 0, 0, 0, 0, 0, 0);";
     private static final String GET_USER_ID =
             "SELECT user_id\n" +
                     "FROM User_Table\n" +
                     "WHERE session_id = ?;";
 
     /**
-     * The constructor of CustomORM.
-     * Sets the connection field to the connection parameter.
+     * Method used to retrieve a PreparedStatement for a certain SQL statement from the StatementCache of the database
+     * connection that is bound to the current thread.
+     * The returned PreparedStatement is owned by the StatementCache, so it should not be closed by the caller, but
+     * every ResultSet obtained from it should be closed once it has been read.
      *
-     * @param connection The database connection.
+     * @param sql The SQL statement for which a PreparedStatement will be retrieved.
+     * @return The PreparedStatement for sql.
      */
-    public CustomORM(Connection connection) {
-        this.connection = connection;
+    private PreparedStatement prepareStatement(String sql) throws SQLException {
+        return DatabaseConnection.getStatementCache().prepare(sql);
     }
 
     /**
-     * Method used to increase the highestTransactionID field of a certain user by one in the database.
+     * Method used to set a parameter of a PreparedStatement to a balance that may be unknown, using NULL for an
+     * unknown balance.
      *
-     * @param userID The id of the user whose highestTransactionID field should be increased.
+     * @param statement      The PreparedStatement of which the parameter will be set.
+     * @param parameterIndex The index of the parameter.
+     * @param balance        The balance in cents, or TransactionEvent.UNKNOWN_BALANCE if it is not known.
      */
-    public void increaseHighestTransactionID(int userID) {
-        try {
-            PreparedStatement statement = connection.prepareStatement(INCREASE_HIGHEST_TRANSACTION_ID);
-            statement.setInt(1, userID);
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    private void setNullableBalance(PreparedStatement statement, int parameterIndex, long balance)
+            throws SQLException {
+        if (balance != TransactionEvent.UNKNOWN_BALANCE) {
+            statement.setLong(parameterIndex, balance);
+        } else {
+            statement.setNull(parameterIndex, Types.INTEGER);
         }
     }
 
     /**
-     * Method used to retrieve the highestTransactionID field of a certain user from the database.
+     * Method used to retrieve a balance from a column of a ResultSet that may contain NULL.
+     *
+     * @param resultSet   The ResultSet from which the balance will be retrieved.
+     * @param columnIndex The index of the column containing the balance.
+     * @return The balance in the column in cents, or TransactionEvent.UNKNOWN_BALANCE if the column contains NULL.
+     */
+    private long getNullableBalance(ResultSet resultSet, int columnIndex) throws SQLException {
+        long balance = resultSet.getLong(columnIndex);
+        return resultSet.wasNull() ? TransactionEvent.UNKNOWN_BALANCE : balance;
+    }
+
+    /**
+     * Method used to retrieve a date from a column of a ResultSet that may contain NULL.
+     *
+     * @param resultSet   The ResultSet from which the date will be retrieved.
+     * @param columnIndex The index of the column containing the date.
+     * @return The date in the column, or IntervalHelper.NO_DATE if the column contains NULL.
+     */
+    private long getNullableDate(ResultSet resultSet, int columnIndex) throws SQLException {
+        long date = resultSet.getLong(columnIndex);
+        return resultSet.wasNull() ? IntervalHelper.NO_DATE : date;
+    }
+
+    /**
+     * Method used to reserve a block of IDs of a certain type for a certain user in the database, by increasing the
+     * highest reserved ID of that type by the size of the block.
      *
-     * @param userID The id of the user whose highestTransactionID field should be retrieved.
-     * @return The value of the highestTransactionID field of the user with userID.
+     * @param userID The id of the user for which IDs will be reserved.
+     * @param idType The type of the IDs that will be reserved.
+     * @param amount The amount of IDs that will be reserved.
+     * @return The highest ID of the reserved block.
      */
-    public long getHighestTransactionID(int userID) {
-        long highestTransactionID = -1;
+    public long reserveIDs(int userID, IDType idType, int amount) {
+        long highestReservedID = -1;
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_HIGHEST_TRANSACTION_ID);
+            PreparedStatement statement = this.prepareStatement(String.format(RESERVE_IDS, idType.getColumn()));
+            statement.setInt(1, amount);
+            statement.setInt(2, userID);
+            statement.executeUpdate();
+
+            statement = this.prepareStatement(String.format(GET_HIGHEST_RESERVED_ID, idType.getColumn()));
             statement.setInt(1, userID);
-            ResultSet rs = statement.executeQuery();
-            highestTransactionID = rs.getLong(1);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    highestReservedID = rs.getLong(1);
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
-        return highestTransactionID;
+        if (highestReservedID == -1) {
+            throw new DatabaseException("Could not reserve IDs for user " + userID);
+        }
+        return highestReservedID;
     }
 
     /**
@@ -374,20 +603,46 @@ public class CustomORM {
      * @param externalIBAN  The externalIBAN of the to be inserted Transaction.
      * @param type          The type of the to be inserted Transaction.
      */
-    public void createTransaction(int userID, long transactionID, String date, float amount, String description,
+    public void createTransaction(int userID, long transactionID, long date, long amount, String description,
                                   String externalIBAN, String type) {
         try {
-            PreparedStatement statement = connection.prepareStatement(CREATE_TRANSACTION);
+            PreparedStatement statement = this.prepareStatement(CREATE_TRANSACTION);
             statement.setInt(1, userID);
             statement.setLong(2, transactionID);
-            statement.setString(3, date);
-            statement.setFloat(4, amount);
+            statement.setLong(3, date);
+            statement.setLong(4, amount);
             statement.setString(5, description);
             statement.setString(6, externalIBAN);
             statement.setString(7, type);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to insert several Transactions into the database at once, sending them to the database as a single
+     * batch of inserts.
+     *
+     * @param userID       The id of the user to which the new Transactions will belong.
+     * @param transactions The to be inserted Transactions, of which the IDs have already been assigned.
+     */
+    public void createTransactions(int userID, List<Transaction> transactions) {
+        try {
+            PreparedStatement statement = this.prepareStatement(CREATE_TRANSACTION);
+            for (Transaction transaction : transactions) {
+                statement.setInt(1, userID);
+                statement.setLong(2, transaction.getID());
+                statement.setLong(3, transaction.getDate());
+                statement.setLong(4, transaction.getAmount());
+                statement.setString(5, transaction.getDescription());
+                statement.setString(6, transaction.getExternalIBAN());
+                statement.setString(7, transaction.getType());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
         }
     }
 
@@ -401,116 +656,71 @@ public class CustomORM {
     public Transaction getTransaction(int userID, long transactionID) {
         Transaction transaction = null;
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_TRANSACTION);
+            PreparedStatement statement = this.prepareStatement(GET_TRANSACTION);
             statement.setInt(1, userID);
             statement.setLong(2, transactionID);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                String date = resultSet.getString(2);
-                float amount = resultSet.getFloat(3);
-                String description = resultSet.getString(4);
-                String externalIBAN = resultSet.getString(5);
-                String type = resultSet.getString(6);
-                transaction = new Transaction(transactionID, date, amount, description, externalIBAN, type);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    long date = resultSet.getLong(2);
+                    long amount = resultSet.getLong(3);
+                    String description = resultSet.getString(4);
+                    String externalIBAN = resultSet.getString(5);
+                    String type = resultSet.getString(6);
+                    transaction = new Transaction(transactionID, date, amount, description, externalIBAN, type);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return transaction;
     }
 
     /**
-     * Method used to change the date of a Transaction in the database.
+     * Method used to change a Transaction in the database using a single statement, only setting the columns of which
+     * the value has changed.
      *
-     * @param date          The new date of the Transaction.
-     * @param userID        The id of the user whose Transaction with transactionID will be updated.
-     * @param transactionID The id of the to be updated Transaction.
+     * @param userID             The id of the user whose Transaction will be updated.
+     * @param transaction        The Transaction as it is currently stored in the database.
+     * @param updatedTransaction The Transaction as it should be stored in the database, with the same id.
      */
-    public void updateTransactionDate(String date, int userID, long transactionID) {
-        try {
-            PreparedStatement statement = connection.prepareStatement(UPDATE_TRANSACTION_DATE);
-            statement.setString(1, date);
-            statement.setInt(2, userID);
-            statement.setLong(3, transactionID);
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    public void updateTransaction(int userID, Transaction transaction, Transaction updatedTransaction) {
+        List<String> assignments = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        if (transaction.getDate() != updatedTransaction.getDate()) {
+            assignments.add("date = ?");
+            values.add(updatedTransaction.getDate());
         }
-    }
-
-    /**
-     * Method used to change the amount of a Transaction in the database.
-     *
-     * @param amount        The new amount of the Transaction.
-     * @param userID        The id of the user whose Transaction with transactionID will be updated.
-     * @param transactionID The id of the to be updated Transaction.
-     */
-    public void updateTransactionAmount(float amount, int userID, long transactionID) {
-        try {
-            PreparedStatement statement = connection.prepareStatement(UPDATE_TRANSACTION_AMOUNT);
-            statement.setFloat(1, amount);
-            statement.setInt(2, userID);
-            statement.setLong(3, transactionID);
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+        if (transaction.getAmount() != updatedTransaction.getAmount()) {
+            assignments.add("amount = ?");
+            values.add(updatedTransaction.getAmount());
         }
-    }
-
-    /**
-     * Method used to change the description of a Transaction in the database.
-     *
-     * @param description   The new description of the Transaction.
-     * @param userID        The id of the user whose Transaction with transactionID will be updated.
-     * @param transactionID The id of the to be updated Transaction.
-     */
-    public void updateTransactionDescription(String description, int userID, long transactionID) {
-        try {
-            PreparedStatement statement = connection.prepareStatement(UPDATE_TRANSACTION_DESCRIPTION);
-            statement.setString(1, description);
-            statement.setInt(2, userID);
-            statement.setLong(3, transactionID);
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+        if (!Objects.equals(transaction.getDescription(), updatedTransaction.getDescription())) {
+            assignments.add("description = ?");
+            values.add(updatedTransaction.getDescription());
         }
-    }
-
-    /**
-     * Method used to change the externalIBAN of a Transaction in the database.
-     *
-     * @param externalIBAN  The new externalIBAN of the Transaction.
-     * @param userID        The id of the user whose Transaction with transactionID will be updated.
-     * @param transactionID The id of the to be updated Transaction.
-     */
-    public void updateTransactionExternalIBAN(String externalIBAN, int userID, long transactionID) {
-        try {
-            PreparedStatement statement = connection.prepareStatement(UPDATE_TRANSACTION_EXTERNAL_IBAN);
-            statement.setString(1, externalIBAN);
-            statement.setInt(2, userID);
-            statement.setLong(3, transactionID);
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+        if (!Objects.equals(transaction.getExternalIBAN(), updatedTransaction.getExternalIBAN())) {
+            assignments.add("external_iban = ?");
+            values.add(updatedTransaction.getExternalIBAN());
+        }
+        if (!Objects.equals(transaction.getType(), updatedTransaction.getType())) {
+            assignments.add("type = ?");
+            values.add(updatedTransaction.getType());
+        }
+        if (assignments.isEmpty()) {
+            return;
         }
-    }
 
-    /**
-     * Method used to change the type of a Transaction in the database.
-     *
-     * @param type          The new type of the Transaction.
-     * @param userID        The id of the user whose Transaction with transactionID will be updated.
-     * @param transactionID The id of the to be updated Transaction.
-     */
-    public void updateTransactionType(String type, int userID, long transactionID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(UPDATE_TRANSACTION_TYPE);
-            statement.setString(1, type);
-            statement.setInt(2, userID);
-            statement.setLong(3, transactionID);
+            PreparedStatement statement = this.prepareStatement(
+                    String.format(UPDATE_TRANSACTION, String.join(", ", assignments)));
+            for (int i = 0; i < values.size(); i++) {
+                statement.setObject(i + 1, values.get(i));
+            }
+            statement.setInt(values.size() + 1, userID);
+            statement.setLong(values.size() + 2, transaction.getID());
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -522,12 +732,12 @@ public class CustomORM {
      */
     public void deleteTransaction(int userID, long transactionID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(DELETE_TRANSACTION);
+            PreparedStatement statement = this.prepareStatement(DELETE_TRANSACTION);
             statement.setInt(1, userID);
             statement.setLong(2, transactionID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -542,22 +752,23 @@ public class CustomORM {
     public ArrayList<Transaction> getTransactions(int userID, int limit, int offset) {
         ArrayList<Transaction> transactions = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_TRANSACTIONS);
+            PreparedStatement statement = this.prepareStatement(GET_TRANSACTIONS);
             statement.setInt(1, userID);
             statement.setInt(2, limit);
             statement.setInt(3, offset);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                long transactionID = resultSet.getLong(1);
-                String date = resultSet.getString(2);
-                float amount = resultSet.getFloat(3);
-                String description = resultSet.getString(4);
-                String externalIBAN = resultSet.getString(5);
-                String type = resultSet.getString(6);
-                transactions.add(new Transaction(transactionID, date, amount, description, externalIBAN, type));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long transactionID = resultSet.getLong(1);
+                    long date = resultSet.getLong(2);
+                    long amount = resultSet.getLong(3);
+                    String description = resultSet.getString(4);
+                    String externalIBAN = resultSet.getString(5);
+                    String type = resultSet.getString(6);
+                    transactions.add(new Transaction(transactionID, date, amount, description, externalIBAN, type));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return transactions;
     }
@@ -575,61 +786,28 @@ public class CustomORM {
     public ArrayList<Transaction> getTransactionsByCategory(int userID, String categoryName, int limit, int offset) {
         ArrayList<Transaction> transactions = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_TRANSACTIONS_BY_CATEGORY);
+            PreparedStatement statement = this.prepareStatement(GET_TRANSACTIONS_BY_CATEGORY);
             statement.setInt(1, userID);
             statement.setString(2, categoryName);
             statement.setInt(3, limit);
             statement.setInt(4, offset);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                long transactionID = resultSet.getLong(1);
-                String date = resultSet.getString(2);
-                float amount = resultSet.getFloat(3);
-                String description = resultSet.getString(4);
-                String externalIBAN = resultSet.getString(5);
-                String type = resultSet.getString(6);
-                transactions.add(new Transaction(transactionID, date, amount, description, externalIBAN, type));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long transactionID = resultSet.getLong(1);
+                    long date = resultSet.getLong(2);
+                    long amount = resultSet.getLong(3);
+                    String description = resultSet.getString(4);
+                    String externalIBAN = resultSet.getString(5);
+                    String type = resultSet.getString(6);
+                    transactions.add(new Transaction(transactionID, date, amount, description, externalIBAN, type));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return transactions;
     }
 
-    /**
-     * Method used to increase the highestCategoryID field of a certain user by one in the database.
-     *
-     * @param userID The id of the user whose highestCategoryID field should be increased.
-     */
-    public void increaseHighestCategoryID(int userID) {
-        try {
-            PreparedStatement statement = connection.prepareStatement(INCREASE_HIGHEST_CATEGORY_ID);
-            statement.setInt(1, userID);
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Method used to retrieve the highestCategoryID field of a certain user from the database.
-     *
-     * @param userID The id of the user whose highestCategoryID field should be retrieved.
-     * @return The value of the highestCategoryID field of the user with userID.
-     */
-    public long getHighestCategoryID(int userID) {
-        long highestCategoryID = -1;
-        try {
-            PreparedStatement statement = connection.prepareStatement(GET_HIGHEST_CATEGORY_ID);
-            statement.setInt(1, userID);
-            ResultSet rs = statement.executeQuery();
-            highestCategoryID = rs.getLong(1);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return highestCategoryID;
-    }
-
     /**
      * Method used to insert a new Category into the database.
      *
@@ -639,13 +817,13 @@ public class CustomORM {
      */
     public void createCategory(int userID, long categoryID, String name) {
         try {
-            PreparedStatement statement = connection.prepareStatement(CREATE_CATEGORY);
+            PreparedStatement statement = this.prepareStatement(CREATE_CATEGORY);
             statement.setInt(1, userID);
             statement.setLong(2, categoryID);
             statement.setString(3, name);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -659,16 +837,17 @@ public class CustomORM {
     public Category getCategory(int userID, long categoryID) {
         Category category = null;
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_CATEGORY);
+            PreparedStatement statement = this.prepareStatement(GET_CATEGORY);
             statement.setInt(1, userID);
             statement.setLong(2, categoryID);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                String name = resultSet.getString(2);
-                category = new Category(categoryID, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    String name = resultSet.getString(2);
+                    category = new Category(categoryID, name);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return category;
     }
@@ -682,13 +861,13 @@ public class CustomORM {
      */
     public void updateCategoryName(String name, int userID, long categoryID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(UPDATE_CATEGORY_NAME);
+            PreparedStatement statement = this.prepareStatement(UPDATE_CATEGORY_NAME);
             statement.setString(1, name);
             statement.setInt(2, userID);
             statement.setLong(3, categoryID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -700,12 +879,12 @@ public class CustomORM {
      */
     public void deleteCategory(int userID, long categoryID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(DELETE_CATEGORY);
+            PreparedStatement statement = this.prepareStatement(DELETE_CATEGORY);
             statement.setInt(1, userID);
             statement.setLong(2, categoryID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -720,56 +899,23 @@ public class CustomORM {
     public ArrayList<Category> getCategories(int userID, int limit, int offset) {
         ArrayList<Category> categories = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_CATEGORIES);
+            PreparedStatement statement = this.prepareStatement(GET_CATEGORIES);
             statement.setInt(1, userID);
             statement.setInt(2, limit);
             statement.setInt(3, offset);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                long categoryID = resultSet.getLong(1);
-                String name = resultSet.getString(2);
-                categories.add(new Category(categoryID, name));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long categoryID = resultSet.getLong(1);
+                    String name = resultSet.getString(2);
+                    categories.add(new Category(categoryID, name));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return categories;
     }
 
-    /**
-     * Method used to increase the highestCategoryRuleID field of a certain user by one in the database.
-     *
-     * @param userID The id of the user whose highestCategoryRuleID field should be increased.
-     */
-    public void increaseHighestCategoryRuleID(int userID) {
-        try {
-            PreparedStatement statement = connection.prepareStatement(INCREASE_HIGHEST_CATEGORY_RULE_ID);
-            statement.setInt(1, userID);
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Method used to retrieve the highestCategoryRuleID field of a certain user from the database.
-     *
-     * @param userID The id of the user whose highestCategoryRuleID field should be retrieved.
-     * @return The value of the highestCategoryRuleID field of the user with userID.
-     */
-    public long getHighestCategoryRuleID(int userID) {
-        long highestTransactionID = -1;
-        try {
-            PreparedStatement statement = connection.prepareStatement(GET_HIGHEST_CATEGORY_RULE_ID);
-            statement.setInt(1, userID);
-            ResultSet rs = statement.executeQuery();
-            highestTransactionID = rs.getLong(1);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return highestTransactionID;
-    }
-
     /**
      * Method used to insert a CategoryRule into the database.
      *
@@ -778,7 +924,7 @@ public class CustomORM {
      */
     public void createCategoryRule(int userID, CategoryRule categoryRule) {
         try {
-            PreparedStatement statement = connection.prepareStatement(CREATE_CATEGORY_RULE);
+            PreparedStatement statement = this.prepareStatement(CREATE_CATEGORY_RULE);
             statement.setInt(1, userID);
             statement.setLong(2, categoryRule.getId());
             statement.setString(3, categoryRule.getDescription());
@@ -788,7 +934,7 @@ public class CustomORM {
             statement.setBoolean(7, categoryRule.getApplyOnHistory());
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -802,20 +948,21 @@ public class CustomORM {
     public CategoryRule getCategoryRule(int userID, long categoryRuleID) {
         CategoryRule categoryRule = null;
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_CATEGORY_RULE);
+            PreparedStatement statement = this.prepareStatement(GET_CATEGORY_RULE);
             statement.setInt(1, userID);
             statement.setLong(2, categoryRuleID);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                String description = resultSet.getString(2);
-                String externalIBAN = resultSet.getString(3);
-                String type = resultSet.getString(4);
-                long categoryID = resultSet.getLong(5);
-                boolean applyOnHistory = resultSet.getBoolean(6);
-                categoryRule = new CategoryRule(categoryRuleID, description, externalIBAN, type, categoryID, applyOnHistory);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    String description = resultSet.getString(2);
+                    String externalIBAN = resultSet.getString(3);
+                    String type = resultSet.getString(4);
+                    long categoryID = resultSet.getLong(5);
+                    boolean applyOnHistory = resultSet.getBoolean(6);
+                    categoryRule = new CategoryRule(categoryRuleID, description, externalIBAN, type, categoryID, applyOnHistory);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return categoryRule;
     }
@@ -828,7 +975,7 @@ public class CustomORM {
      */
     public void updateCategoryRule(int userID, CategoryRule categoryRule) {
         try {
-            PreparedStatement statement = connection.prepareStatement(UPDATE_CATEGORY_RULE);
+            PreparedStatement statement = this.prepareStatement(UPDATE_CATEGORY_RULE);
             statement.setString(1, categoryRule.getDescription());
             statement.setString(2, categoryRule.getiBAN());
             statement.setString(3, categoryRule.getType());
@@ -837,7 +984,7 @@ public class CustomORM {
             statement.setLong(6, categoryRule.getId());
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -849,12 +996,12 @@ public class CustomORM {
      */
     public void deleteCategoryRule(int userID, long categoryRuleID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(DELETE_CATEGORY_RULE);
+            PreparedStatement statement = this.prepareStatement(DELETE_CATEGORY_RULE);
             statement.setInt(1, userID);
             statement.setLong(2, categoryRuleID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -867,22 +1014,22 @@ public class CustomORM {
     public ArrayList<CategoryRule> getCategoryRules(int userID) {
         ArrayList<CategoryRule> categoryRules = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_CATEGORY_RULES);
+            PreparedStatement statement = this.prepareStatement(GET_CATEGORY_RULES);
             statement.setInt(1, userID);
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                long categoryRuleID = resultSet.getLong(1);
-                String description = resultSet.getString(2);
-                String externalIBAN = resultSet.getString(3);
-                String type = resultSet.getString(4);
-                long categoryID = resultSet.getLong(5);
-                boolean applyOnHistory = resultSet.getBoolean(6);
-                categoryRules.add(new CategoryRule(categoryRuleID, description, externalIBAN, type,
-                        categoryID, applyOnHistory));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long categoryRuleID = resultSet.getLong(1);
+                    String description = resultSet.getString(2);
+                    String externalIBAN = resultSet.getString(3);
+                    String type = resultSet.getString(4);
+                    long categoryID = resultSet.getLong(5);
+                    boolean applyOnHistory = resultSet.getBoolean(6);
+                    categoryRules.add(new CategoryRule(categoryRuleID, description, externalIBAN, type,
+                            categoryID, applyOnHistory));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return categoryRules;
     }
@@ -900,105 +1047,93 @@ public class CustomORM {
     public ArrayList<Long> getMatchingTransactionIDs(int userID, CategoryRule categoryRule) {
         ArrayList<Long> matchingTransactionIDs = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_MATCHING_TRANSACTION_IDS);
+            PreparedStatement statement = this.prepareStatement(GET_MATCHING_TRANSACTION_IDS);
             statement.setInt(1, userID);
             statement.setString(2, "%" + categoryRule.getDescription() + "%");
             statement.setString(3, "%" + categoryRule.getiBAN() + "%");
             statement.setString(4, "%" + categoryRule.getType() + "%");
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                matchingTransactionIDs.add(resultSet.getLong(1));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    matchingTransactionIDs.add(resultSet.getLong(1));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return matchingTransactionIDs;
     }
 
     /**
-     * Method used to retrieve all Transaction objects belonging to a certain user in ascending order from the database.
+     * Method used to stream all Transactions belonging to a certain user in ascending order from the database to a
+     * LedgerVisitor, reading only the columns needed to replay the ledger of the user and the ID of the Category
+     * assigned to every Transaction.
      *
-     * @param userID The id of the user to who the to be retrieved Transaction objects belong.
-     * @return An ArrayList of Transaction objects.
+     * @param userID  The id of the user to who the to be streamed Transactions belong.
+     * @param visitor The LedgerVisitor that will visit every streamed Transaction.
      */
-    public ArrayList<Transaction> getTransactionsAscending(int userID) {
-        ArrayList<Transaction> transactions = new ArrayList<>();
+    public void streamLedger(int userID, LedgerVisitor visitor) {
+        LedgerRow row = new LedgerRow();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_TRANSACTIONS_ASCENDING);
-            statement.setInt(1, userID);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                long transactionID = resultSet.getLong(1);
-                String date = resultSet.getString(2);
-                float amount = resultSet.getFloat(3);
-                String description = resultSet.getString(4);
-                String externalIBAN = resultSet.getString(5);
-                String type = resultSet.getString(6);
-                transactions.add(new Transaction(transactionID, date, amount, description, externalIBAN, type));
+            PreparedStatement statement = this.prepareStatement(STREAM_LEDGER);
+            statement.setInt(1, userID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    row.set(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3),
+                            resultSet.getBoolean(4), resultSet.getLong(5));
+                    visitor.visit(row);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
-        return transactions;
     }
 
     /**
-     * Method used to retrieve the highest date belonging to a Transaction of a certain user from the database.
+     * Method used to retrieve the lowest date belonging to a Transaction of a certain user from the database.
      *
      * @param userID The ID of the user to who the to be retrieved Transaction date belongs.
-     * @return A String object containing the highest Transaction date if the user has any Transactions, otherwise a
-     * String object containing the start of UNIX time.
+     * @return The lowest Transaction date if the user has any Transactions, otherwise IntervalHelper.NO_DATE.
      */
-    public String getCurrentDate(int userID) {
-        String date = "1970-01-01T00:00:00.000Z";
+    public long getFirstDate(int userID) {
+        long date = IntervalHelper.NO_DATE;
 
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_CURRENT_DATE);
+            PreparedStatement statement = this.prepareStatement(GET_FIRST_DATE);
             statement.setInt(1, userID);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                date = resultSet.getString(1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    date = resultSet.getLong(1);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
 
         return date;
     }
 
     /**
-     * Method used to increase the highestSavingGoalID field of a certain user by one in the database.
+     * Method used to retrieve the highest date belonging to a Transaction of a certain user from the database.
      *
-     * @param userID The ID of the user whose highestSavingGoalID field should be increased.
+     * @param userID The ID of the user to who the to be retrieved Transaction date belongs.
+     * @return The highest Transaction date if the user has any Transactions, otherwise the start of UNIX time.
      */
-    public void increaseHighestSavingGoalID(int userID) {
-        try {
-            PreparedStatement statement = connection.prepareStatement(INCREASE_HIGHEST_SAVING_GOAL_ID);
-            statement.setInt(1, userID);
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
+    public long getCurrentDate(int userID) {
+        long date = 0;
 
-    /**
-     * Method used to retrieve the highestSavingGoalID field of a certain user from the database.
-     *
-     * @param userID The ID of the user whose highestSavingGoalID field should be retrieved.
-     * @return The value of the highestSavingGoalID field of the user with userID.
-     */
-    public long getHighestSavingGoalID(int userID) {
-        long highestSavingGoalID = -1;
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_HIGHEST_SAVING_GOAL_ID);
+            PreparedStatement statement = this.prepareStatement(GET_CURRENT_DATE);
             statement.setInt(1, userID);
-            ResultSet rs = statement.executeQuery();
-            highestSavingGoalID = rs.getLong(1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    date = resultSet.getLong(1);
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
-        return highestSavingGoalID;
+
+        return date;
     }
 
     /**
@@ -1009,17 +1144,17 @@ public class CustomORM {
      */
     public void createSavingGoal(int userID, SavingGoal savingGoal) {
         try {
-            PreparedStatement statement = connection.prepareStatement(CREATE_SAVING_GOAL);
+            PreparedStatement statement = this.prepareStatement(CREATE_SAVING_GOAL);
             statement.setInt(1, userID);
             statement.setLong(2, savingGoal.getId());
-            statement.setString(3, savingGoal.getCreationDate());
+            statement.setLong(3, savingGoal.getCreationDate());
             statement.setString(4, savingGoal.getName());
-            statement.setFloat(5, savingGoal.getGoal());
-            statement.setFloat(6, savingGoal.getSavePerMonth());
-            statement.setFloat(7, savingGoal.getMinBalanceRequired());
+            statement.setLong(5, savingGoal.getGoal());
+            statement.setLong(6, savingGoal.getSavePerMonth());
+            statement.setLong(7, savingGoal.getMinBalanceRequired());
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -1033,23 +1168,25 @@ public class CustomORM {
     public SavingGoal getSavingGoal(int userID, long savingGoalID) {
         SavingGoal savingGoal = null;
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_SAVING_GOAL);
+            PreparedStatement statement = this.prepareStatement(GET_SAVING_GOAL);
             statement.setInt(1, userID);
             statement.setLong(2, savingGoalID);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                savingGoalID = resultSet.getLong(1);
-                String creationDate = resultSet.getString(2);
-                String deletionDate = resultSet.getString(3);
-                String name = resultSet.getString(4);
-                float goal = resultSet.getFloat(5);
-                float savePerMonth = resultSet.getFloat(6);
-                float minBalanceRequired = resultSet.getFloat(7);
-                savingGoal = new SavingGoal(savingGoalID, creationDate, deletionDate,
-                        name, goal, savePerMonth, minBalanceRequired);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    savingGoalID = resultSet.getLong(1);
+                    long creationDate = resultSet.getLong(2);
+                    long deletionDate = this.getNullableDate(resultSet, 3);
+                    String name = resultSet.getString(4);
+                    long goal = resultSet.getLong(5);
+                    long savePerMonth = resultSet.getLong(6);
+                    long minBalanceRequired = resultSet.getLong(7);
+                    long balance = resultSet.getLong(8);
+                    savingGoal = new SavingGoal(savingGoalID, creationDate, deletionDate,
+                            name, goal, savePerMonth, minBalanceRequired, balance);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return savingGoal;
     }
@@ -1060,15 +1197,15 @@ public class CustomORM {
      * @param userID       The ID of the user whose SavingGoal with savingGoalID will be deleted.
      * @param savingGoalID The ID of the to be deleted SavingGoal.
      */
-    public void deleteSavingGoal(String deletionDate, int userID, long savingGoalID) {
+    public void deleteSavingGoal(long deletionDate, int userID, long savingGoalID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(DELETE_SAVING_GOAL);
-            statement.setString(1, deletionDate);
+            PreparedStatement statement = this.prepareStatement(DELETE_SAVING_GOAL);
+            statement.setLong(1, deletionDate);
             statement.setInt(2, userID);
             statement.setLong(3, savingGoalID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -1081,139 +1218,502 @@ public class CustomORM {
     public ArrayList<SavingGoal> getSavingGoals(int userID) {
         ArrayList<SavingGoal> savingGoals = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_SAVING_GOALS);
+            PreparedStatement statement = this.prepareStatement(GET_SAVING_GOALS);
             statement.setInt(1, userID);
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                long savingGoalID = resultSet.getLong(1);
-                String creationDate = resultSet.getString(2);
-                String deletionDate = resultSet.getString(3);
-                String name = resultSet.getString(4);
-                float goal = resultSet.getFloat(5);
-                float savePerMonth = resultSet.getFloat(6);
-                float minBalanceRequired = resultSet.getFloat(7);
-                savingGoals.add(new SavingGoal(savingGoalID, creationDate, deletionDate,
-                        name, goal, savePerMonth, minBalanceRequired));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long savingGoalID = resultSet.getLong(1);
+                    long creationDate = resultSet.getLong(2);
+                    long deletionDate = this.getNullableDate(resultSet, 3);
+                    String name = resultSet.getString(4);
+                    long goal = resultSet.getLong(5);
+                    long savePerMonth = resultSet.getLong(6);
+                    long minBalanceRequired = resultSet.getLong(7);
+                    long balance = resultSet.getLong(8);
+                    savingGoals.add(new SavingGoal(savingGoalID, creationDate, deletionDate,
+                            name, goal, savePerMonth, minBalanceRequired, balance));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return savingGoals;
     }
 
     /**
-     * Method used to increase the highestPaymentRequestID field of a certain user by one in the database.
+     * Method used to update the amount set apart for a certain SavingGoal of a certain user.
      *
-     * @param userID The ID of the user whose highestPaymentRequestID field should be increased.
+     * @param userID       The ID of the user to who the SavingGoal belongs.
+     * @param savingGoalID The ID of the SavingGoal whose balance will be updated.
+     * @param balance      The new amount set apart for the SavingGoal, in cents.
      */
-    public void increaseHighestPaymentRequestID(int userID) {
+    public void updateSavingGoalBalance(int userID, long savingGoalID, long balance) {
         try {
-            PreparedStatement statement = connection.prepareStatement(INCREASE_HIGHEST_PAYMENT_REQUEST_ID);
-            statement.setInt(1, userID);
+            PreparedStatement statement = this.prepareStatement(UPDATE_SAVING_GOAL_BALANCE);
+            statement.setLong(1, balance);
+            statement.setInt(2, userID);
+            statement.setLong(3, savingGoalID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
     /**
-     * Method used to retrieve the highestPaymentRequestID field of a certain user from the database.
+     * Method used to retrieve the SavingGoals of a certain user that are not deleted and of which the goal has been
+     * met, but for which this has not yet been marked using markSavingGoalReached.
      *
-     * @param userID The ID of the user whose highestPaymentRequestID field should be retrieved.
-     * @return The value of the highestPaymentRequestID field of the user with userID.
+     * @param userID The ID of the user to who the to be retrieved SavingGoal objects belong.
+     * @return An ArrayList of SavingGoal objects.
      */
-    public long getHighestPaymentRequestID(int userID) {
-        long highestPaymentRequestID = -1;
+    public ArrayList<SavingGoal> getUnnotifiedReachedSavingGoals(int userID) {
+        ArrayList<SavingGoal> savingGoals = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_HIGHEST_PAYMENT_REQUEST_ID);
+            PreparedStatement statement = this.prepareStatement(GET_UNNOTIFIED_REACHED_SAVING_GOALS);
             statement.setInt(1, userID);
-            ResultSet rs = statement.executeQuery();
-            highestPaymentRequestID = rs.getLong(1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long savingGoalID = resultSet.getLong(1);
+                    long creationDate = resultSet.getLong(2);
+                    long deletionDate = this.getNullableDate(resultSet, 3);
+                    String name = resultSet.getString(4);
+                    long goal = resultSet.getLong(5);
+                    long savePerMonth = resultSet.getLong(6);
+                    long minBalanceRequired = resultSet.getLong(7);
+                    long balance = resultSet.getLong(8);
+                    savingGoals.add(new SavingGoal(savingGoalID, creationDate, deletionDate,
+                            name, goal, savePerMonth, minBalanceRequired, balance));
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
-        return highestPaymentRequestID;
+        return savingGoals;
     }
 
     /**
-     * Method used to insert a PaymentRequest into the database.
+     * Method used to retrieve the IDs of all users that have a SavingGoal that is not deleted and of which the goal has
+     * been met, but for which this has not yet been marked using markSavingGoalReached.
      *
-     * @param userID         The ID of the user to which this new PaymentRequest will belong.
-     * @param paymentRequest The PaymentRequest object to be inserted into the database.
+     * @return An ArrayList containing the IDs of the users.
      */
-    public void createPaymentRequest(int userID, PaymentRequest paymentRequest) {
+    public ArrayList<Integer> getUsersWithUnnotifiedReachedSavingGoals() {
+        ArrayList<Integer> userIDs = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(CREATE_PAYMENT_REQUEST);
-            statement.setInt(1, userID);
-            statement.setLong(2, paymentRequest.getID());
-            statement.setString(3, paymentRequest.getDescription());
-            statement.setString(4, paymentRequest.getDue_date());
-            statement.setFloat(5, paymentRequest.getAmount());
-            statement.setLong(6, paymentRequest.getNumber_of_requests());
-            statement.setBoolean(7, paymentRequest.getFilled());
-            statement.executeUpdate();
+            PreparedStatement statement = this.prepareStatement(GET_USERS_WITH_UNNOTIFIED_REACHED_SAVING_GOALS);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    userIDs.add(resultSet.getInt(1));
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
+        return userIDs;
     }
 
     /**
-     * Method used to retrieve a PaymentRequest from the database.
+     * Method used to mark that the user has been notified that the goal of a certain SavingGoal has been met.
      *
-     * @param userID           The id of the user from which a PaymentRequest should be retrieved.
-     * @param paymentRequestID The id of the to be retrieved PaymentRequest.
-     * @return A PaymentRequest object containing data retrieved from the database.
+     * @param userID       The ID of the user to who the SavingGoal belongs.
+     * @param savingGoalID The ID of the SavingGoal that will be marked.
      */
-    public PaymentRequest getPaymentRequest(int userID, long paymentRequestID) {
-        PaymentRequest paymentRequest = null;
+    public void markSavingGoalReached(int userID, long savingGoalID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_PAYMENT_REQUEST);
+            PreparedStatement statement = this.prepareStatement(MARK_SAVING_GOAL_REACHED);
             statement.setInt(1, userID);
-            statement.setLong(2, paymentRequestID);
-            ResultSet resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                paymentRequestID = resultSet.getLong(1);
-                String description = resultSet.getString(2);
-                String dueDate = resultSet.getString(3);
-                float amount = resultSet.getFloat(4);
-                long numberOfRequests = resultSet.getLong(5);
-                boolean filled = resultSet.getBoolean(6);
-                paymentRequest = new PaymentRequest(paymentRequestID, description, dueDate,
-                        amount, numberOfRequests, filled);
-            }
+            statement.setLong(2, savingGoalID);
+            statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
-        return paymentRequest;
     }
 
     /**
-     * Method used to retrieve a batch of PaymentRequest objects belonging to a certain user from the database.
+     * Method used to insert a new ImportJob into the database, with no lines processed yet.
      *
-     * @param userID The ID of the user to who the to be retrieved PaymentRequest objects belong.
+     * @param userID      The ID of the user to which this new ImportJob will belong.
+     * @param importJobID The ID of the to be inserted ImportJob.
+     * @param format      The format of the file imported by the to be inserted ImportJob.
+     */
+    public void createImportJob(int userID, long importJobID, String format) {
+        try {
+            PreparedStatement statement = this.prepareStatement(CREATE_IMPORT_JOB);
+            statement.setInt(1, userID);
+            statement.setLong(2, importJobID);
+            statement.setString(3, format);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to retrieve an ImportJob from the database.
+     *
+     * @param userID      The ID of the user from which an ImportJob should be retrieved.
+     * @param importJobID The ID of the to be retrieved ImportJob.
+     * @return An ImportJob object containing data retrieved from the database, or null if it does not exist.
+     */
+    public ImportJob getImportJob(int userID, long importJobID) {
+        ImportJob importJob = null;
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_IMPORT_JOB);
+            statement.setInt(1, userID);
+            statement.setLong(2, importJobID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    importJob = new ImportJob(resultSet.getLong(1), resultSet.getString(2), resultSet.getBoolean(3),
+                            resultSet.getLong(4), resultSet.getLong(5), resultSet.getLong(6));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+        return importJob;
+    }
+
+    /**
+     * Method used to update the progress of an ImportJob in the database.
+     *
+     * @param userID    The ID of the user to who the ImportJob belongs.
+     * @param importJob The ImportJob of which the progress will be updated.
+     */
+    public void updateImportJob(int userID, ImportJob importJob) {
+        try {
+            PreparedStatement statement = this.prepareStatement(UPDATE_IMPORT_JOB);
+            statement.setBoolean(1, importJob.getCompleted());
+            statement.setLong(2, importJob.getLinesProcessed());
+            statement.setLong(3, importJob.getTransactionsImported());
+            statement.setLong(4, importJob.getLinesRejected());
+            statement.setInt(5, userID);
+            statement.setLong(6, importJob.getId());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to insert a TransactionEvent into the outbox in the database.
+     * The ID of the TransactionEvent is assigned by the database.
+     *
+     * @param userID The ID of the user to who the TransactionEvent belongs.
+     * @param event  The TransactionEvent that will be inserted.
+     */
+    public void createTransactionEvent(int userID, TransactionEvent event) {
+        try {
+            PreparedStatement statement = this.prepareStatement(CREATE_TRANSACTION_EVENT);
+            statement.setInt(1, userID);
+            statement.setLong(2, event.getTransactionID());
+            this.setNullableBalance(statement, 3, event.getOldBalance());
+            statement.setLong(4, event.getOldDate());
+            this.setNullableBalance(statement, 5, event.getNewBalance());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to retrieve the pending TransactionEvents of a certain user from the outbox in the database.
+     *
+     * @param userID      The ID of the user whose pending TransactionEvents will be retrieved.
+     * @param maxAttempts The amount of failed attempts after which TransactionEvents are no longer pending.
+     * @return An ArrayList of the pending TransactionEvents of the user, in the order in which they were inserted.
+     */
+    public ArrayList<TransactionEvent> getTransactionEvents(int userID, int maxAttempts) {
+        ArrayList<TransactionEvent> events = new ArrayList<>();
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_TRANSACTION_EVENTS);
+            statement.setInt(1, userID);
+            statement.setInt(2, maxAttempts);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    events.add(new TransactionEvent(resultSet.getLong(1), resultSet.getLong(2),
+                            this.getNullableBalance(resultSet, 3), resultSet.getLong(4),
+                            this.getNullableBalance(resultSet, 5), resultSet.getInt(6)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+        return events;
+    }
+
+    /**
+     * Method used to remove a handled TransactionEvent from the outbox in the database.
+     *
+     * @param userID  The ID of the user to who the TransactionEvent belongs.
+     * @param eventID The ID of the TransactionEvent that will be removed.
+     */
+    public void deleteTransactionEvent(int userID, long eventID) {
+        try {
+            PreparedStatement statement = this.prepareStatement(DELETE_TRANSACTION_EVENT);
+            statement.setInt(1, userID);
+            statement.setLong(2, eventID);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to record a failed attempt to handle a certain TransactionEvent in the outbox in the database.
+     *
+     * @param userID  The ID of the user to who the TransactionEvent belongs.
+     * @param eventID The ID of the TransactionEvent of which a failed attempt will be recorded.
+     */
+    public void increaseTransactionEventAttempts(int userID, long eventID) {
+        try {
+            PreparedStatement statement = this.prepareStatement(INCREASE_TRANSACTION_EVENT_ATTEMPTS);
+            statement.setInt(1, userID);
+            statement.setLong(2, eventID);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to retrieve the IDs of all users that have pending TransactionEvents in the outbox in the database.
+     *
+     * @param maxAttempts The amount of failed attempts after which TransactionEvents are no longer pending.
+     * @return An ArrayList of the IDs of all users that have pending TransactionEvents.
+     */
+    public ArrayList<Integer> getUsersWithTransactionEvents(int maxAttempts) {
+        ArrayList<Integer> userIDs = new ArrayList<>();
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_USERS_WITH_TRANSACTION_EVENTS);
+            statement.setInt(1, maxAttempts);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    userIDs.add(resultSet.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+        return userIDs;
+    }
+
+    /**
+     * Method used to retrieve the stored response to a request of a certain user with a certain idempotency key from
+     * the database.
+     *
+     * @param userID         The ID of the user that made the request.
+     * @param endpoint       The endpoint to which the request was made.
+     * @param idempotencyKey The idempotency key of the request.
+     * @param notBefore      The moment (in milliseconds since the epoch) at or before which stored responses are
+     *                       expired.
+     * @return The stored response to the request, or null if there is no such response that has not expired.
+     */
+    public IdempotentResponse getIdempotentResponse(int userID, String endpoint, String idempotencyKey,
+                                                    long notBefore) {
+        IdempotentResponse response = null;
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_IDEMPOTENT_RESPONSE);
+            statement.setInt(1, userID);
+            statement.setString(2, endpoint);
+            statement.setString(3, idempotencyKey);
+            statement.setLong(4, notBefore);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    response = new IdempotentResponse(resultSet.getInt(1), resultSet.getString(2),
+                            resultSet.getString(3), resultSet.getLong(4));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+        return response;
+    }
+
+    /**
+     * Method used to store the response to a request of a certain user with a certain idempotency key in the
+     * database, replacing an expired response with the same idempotency key if there is one.
+     *
+     * @param userID         The ID of the user that made the request.
+     * @param endpoint       The endpoint to which the request was made.
+     * @param idempotencyKey The idempotency key of the request.
+     * @param response       The response to the request.
+     */
+    public void createIdempotentResponse(int userID, String endpoint, String idempotencyKey,
+                                         IdempotentResponse response) {
+        try {
+            PreparedStatement statement = this.prepareStatement(CREATE_IDEMPOTENT_RESPONSE);
+            statement.setInt(1, userID);
+            statement.setString(2, endpoint);
+            statement.setString(3, idempotencyKey);
+            statement.setInt(4, response.getStatus());
+            statement.setString(5, response.getBody());
+            statement.setString(6, response.getRequestHash());
+            statement.setLong(7, response.getCreated());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to remove all stored responses to requests with an idempotency key that have expired from the
+     * database.
+     *
+     * @param notBefore The moment (in milliseconds since the epoch) at or before which stored responses are expired.
+     */
+    public void deleteIdempotentResponsesBefore(long notBefore) {
+        try {
+            PreparedStatement statement = this.prepareStatement(DELETE_IDEMPOTENT_RESPONSES_BEFORE);
+            statement.setLong(1, notBefore);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to insert a PaymentRequest into the database.
+     *
+     * @param userID         The ID of the user to which this new PaymentRequest will belong.
+     * @param paymentRequest The PaymentRequest object to be inserted into the database.
+     */
+    public void createPaymentRequest(int userID, PaymentRequest paymentRequest) {
+        try {
+            PreparedStatement statement = this.prepareStatement(CREATE_PAYMENT_REQUEST);
+            statement.setInt(1, userID);
+            statement.setLong(2, paymentRequest.getID());
+            statement.setString(3, paymentRequest.getDescription());
+            statement.setLong(4, paymentRequest.getDue_date());
+            statement.setLong(5, paymentRequest.getAmount());
+            statement.setLong(6, paymentRequest.getNumber_of_requests());
+            statement.setBoolean(7, paymentRequest.getFilled());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to retrieve a PaymentRequest from the database.
+     *
+     * @param userID           The id of the user from which a PaymentRequest should be retrieved.
+     * @param paymentRequestID The id of the to be retrieved PaymentRequest.
+     * @return A PaymentRequest object containing data retrieved from the database.
+     */
+    public PaymentRequest getPaymentRequest(int userID, long paymentRequestID) {
+        PaymentRequest paymentRequest = null;
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_PAYMENT_REQUEST);
+            statement.setInt(1, userID);
+            statement.setLong(2, paymentRequestID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    paymentRequestID = resultSet.getLong(1);
+                    String description = resultSet.getString(2);
+                    long dueDate = resultSet.getLong(3);
+                    long amount = resultSet.getLong(4);
+                    long numberOfRequests = resultSet.getLong(5);
+                    boolean filled = resultSet.getBoolean(6);
+                    paymentRequest = new PaymentRequest(paymentRequestID, description, dueDate,
+                            amount, numberOfRequests, filled);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+        return paymentRequest;
+    }
+
+    /**
+     * Method used to retrieve a batch of PaymentRequest objects belonging to a certain user from the database.
+     *
+     * @param userID The ID of the user to who the to be retrieved PaymentRequest objects belong.
      * @return An ArrayList of PaymentRequest objects.
      */
     public ArrayList<PaymentRequest> getPaymentRequests(int userID) {
         ArrayList<PaymentRequest> paymentRequests = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_PAYMENT_REQUESTS);
+            PreparedStatement statement = this.prepareStatement(GET_PAYMENT_REQUESTS);
             statement.setInt(1, userID);
-            ResultSet resultSet = statement.executeQuery();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long paymentRequestID = resultSet.getLong(1);
+                    String description = resultSet.getString(2);
+                    long dueDate = resultSet.getLong(3);
+                    long amount = resultSet.getLong(4);
+                    long numberOfRequests = resultSet.getLong(5);
+                    boolean filled = resultSet.getBoolean(6);
+                    paymentRequests.add(new PaymentRequest(paymentRequestID, description, dueDate,
+                            amount, numberOfRequests, filled));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+        return paymentRequests;
+    }
 
-            while (resultSet.next()) {
-                long paymentRequestID = resultSet.getLong(1);
-                String description = resultSet.getString(2);
-                String dueDate = resultSet.getString(3);
-                float amount = resultSet.getFloat(4);
-                long numberOfRequests = resultSet.getLong(5);
-                boolean filled = resultSet.getBoolean(6);
-                paymentRequests.add(new PaymentRequest(paymentRequestID, description, dueDate,
-                        amount, numberOfRequests, filled));
+    /**
+     * Method used to retrieve the first unfilled PaymentRequest of a certain user that is answered by a deposit of a
+     * certain amount on a certain date, meaning that its amount is exactly equal and its due date has not passed yet.
+     *
+     * @param userID The ID of the user to who the to be retrieved PaymentRequest belongs.
+     * @param amount The amount of the deposit, in cents.
+     * @param date   The date of the deposit.
+     * @return The PaymentRequest answered by the deposit, or null if there is no such PaymentRequest.
+     */
+    public PaymentRequest getMatchingPaymentRequest(int userID, long amount, long date) {
+        PaymentRequest paymentRequest = null;
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_MATCHING_PAYMENT_REQUEST);
+            statement.setInt(1, userID);
+            statement.setLong(2, amount);
+            statement.setLong(3, date);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    long paymentRequestID = resultSet.getLong(1);
+                    String description = resultSet.getString(2);
+                    long dueDate = resultSet.getLong(3);
+                    long numberOfRequests = resultSet.getLong(5);
+                    boolean filled = resultSet.getBoolean(6);
+                    paymentRequest = new PaymentRequest(paymentRequestID, description, dueDate,
+                            amount, numberOfRequests, filled);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
+        }
+        return paymentRequest;
+    }
+
+    /**
+     * Method used to retrieve the unfilled PaymentRequests of a certain user of which the due date is before a certain
+     * date.
+     *
+     * @param userID The ID of the user to who the to be retrieved PaymentRequests belong.
+     * @param date   The date before which the due date of the retrieved PaymentRequests is (exclusive).
+     * @return An ArrayList of the unfilled PaymentRequests of the user that are overdue on date.
+     */
+    public ArrayList<PaymentRequest> getOverduePaymentRequests(int userID, long date) {
+        ArrayList<PaymentRequest> paymentRequests = new ArrayList<>();
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_OVERDUE_PAYMENT_REQUESTS);
+            statement.setInt(1, userID);
+            statement.setLong(2, date);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long paymentRequestID = resultSet.getLong(1);
+                    String description = resultSet.getString(2);
+                    long dueDate = resultSet.getLong(3);
+                    long amount = resultSet.getLong(4);
+                    long numberOfRequests = resultSet.getLong(5);
+                    boolean filled = resultSet.getBoolean(6);
+                    paymentRequests.add(new PaymentRequest(paymentRequestID, description, dueDate,
+                            amount, numberOfRequests, filled));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
         }
         return paymentRequests;
     }
@@ -1226,12 +1726,12 @@ public class CustomORM {
      */
     public void setPaymentRequestFilled(int userID, long paymentRequestID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(SET_PAYMENT_REQUEST_FILLED);
+            PreparedStatement statement = this.prepareStatement(SET_PAYMENT_REQUEST_FILLED);
             statement.setInt(1, userID);
             statement.setLong(2, paymentRequestID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -1246,76 +1746,134 @@ public class CustomORM {
     public ArrayList<Transaction> getTransactionsByPaymentRequest(int userID, long paymentRequestID) {
         ArrayList<Transaction> transactions = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_TRANSACTIONS_BY_PAYMENT_REQUEST);
+            PreparedStatement statement = this.prepareStatement(GET_TRANSACTIONS_BY_PAYMENT_REQUEST);
             statement.setInt(1, userID);
             statement.setLong(2, paymentRequestID);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                long transactionID = resultSet.getLong(1);
-                String date = resultSet.getString(2);
-                float amount = resultSet.getFloat(3);
-                String description = resultSet.getString(4);
-                String externalIBAN = resultSet.getString(5);
-                String type = resultSet.getString(6);
-                transactions.add(new Transaction(transactionID, date, amount, description, externalIBAN, type));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long transactionID = resultSet.getLong(1);
+                    long date = resultSet.getLong(2);
+                    long amount = resultSet.getLong(3);
+                    String description = resultSet.getString(4);
+                    String externalIBAN = resultSet.getString(5);
+                    String type = resultSet.getString(6);
+                    transactions.add(new Transaction(transactionID, date, amount, description, externalIBAN, type));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return transactions;
     }
 
     /**
-     * Method used to link a Transaction to a PaymentRequest in the database.
+     * Method used to link a Transaction to a PaymentRequest in the database, incrementing the amount of Transactions
+     * that answered the PaymentRequest.
      *
      * @param userID           The ID of the user to who the to be linked Transaction and PaymentRequest objects belong.
      * @param transactionID    The ID of the Transaction that will be linked to a PaymentRequest.
      * @param paymentRequestID The ID of the PaymentRequest that will be linked to a Transaction.
+     * @return The amount of Transactions that answered the PaymentRequest, including the linked Transaction.
      */
-    public void linkTransactionToPaymentRequest(int userID, long transactionID, long paymentRequestID) {
+    public long linkTransactionToPaymentRequest(int userID, long transactionID, long paymentRequestID) {
+        long fillCount = 0;
         try {
-            PreparedStatement statement = connection.prepareStatement(LINK_TRANSACTION_TO_PAYMENT_REQUEST);
+            PreparedStatement statement = this.prepareStatement(LINK_TRANSACTION_TO_PAYMENT_REQUEST);
             statement.setInt(1, userID);
             statement.setLong(2, transactionID);
             statement.setLong(3, paymentRequestID);
             statement.executeUpdate();
+
+            statement = this.prepareStatement(INCREMENT_PAYMENT_REQUEST_FILL_COUNT);
+            statement.setInt(1, userID);
+            statement.setLong(2, paymentRequestID);
+            statement.executeUpdate();
+
+            statement = this.prepareStatement(GET_PAYMENT_REQUEST_FILL_COUNT);
+            statement.setInt(1, userID);
+            statement.setLong(2, paymentRequestID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    fillCount = resultSet.getLong(1);
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
+        return fillCount;
     }
 
     /**
-     * Method used to increase the highestUserMessageID field of a certain user by one in the database.
+     * Method used to retrieve the PaymentRequest to which a certain Transaction is linked from the database.
      *
-     * @param userID The ID of the user whose highestUserMessageID field should be increased.
+     * @param userID        The ID of the user to who the Transaction belongs.
+     * @param transactionID The ID of the Transaction of which the linked PaymentRequest will be retrieved.
+     * @return The PaymentRequest to which the Transaction is linked, or null if it is not linked to a PaymentRequest.
      */
-    public void increaseHighestUserMessageID(int userID) {
+    public PaymentRequest getPaymentRequestByTransaction(int userID, long transactionID) {
+        PaymentRequest paymentRequest = null;
         try {
-            PreparedStatement statement = connection.prepareStatement(INCREASE_HIGHEST_USER_MESSAGE_ID);
+            PreparedStatement statement = this.prepareStatement(GET_PAYMENT_REQUEST_BY_TRANSACTION);
             statement.setInt(1, userID);
-            statement.executeUpdate();
+            statement.setLong(2, transactionID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    long paymentRequestID = resultSet.getLong(1);
+                    String description = resultSet.getString(2);
+                    long dueDate = resultSet.getLong(3);
+                    long amount = resultSet.getLong(4);
+                    long numberOfRequests = resultSet.getLong(5);
+                    boolean filled = resultSet.getBoolean(6);
+                    paymentRequest = new PaymentRequest(paymentRequestID, description, dueDate,
+                            amount, numberOfRequests, filled);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+        return paymentRequest;
+    }
+
+    /**
+     * Method used to remove the link between a Transaction and a PaymentRequest from the database, decrementing the
+     * amount of Transactions that answered the PaymentRequest.
+     *
+     * @param userID           The ID of the user to who the linked Transaction and PaymentRequest objects belong.
+     * @param transactionID    The ID of the Transaction that will be unlinked from the PaymentRequest.
+     * @param paymentRequestID The ID of the PaymentRequest from which the Transaction will be unlinked.
+     */
+    public void unlinkTransactionFromPaymentRequest(int userID, long transactionID, long paymentRequestID) {
+        try {
+            PreparedStatement statement = this.prepareStatement(UNLINK_TRANSACTION_FROM_PAYMENT_REQUEST);
+            statement.setInt(1, userID);
+            statement.setLong(2, transactionID);
+            statement.setLong(3, paymentRequestID);
+            if (statement.executeUpdate() > 0) {
+                statement = this.prepareStatement(DECREMENT_PAYMENT_REQUEST_FILL_COUNT);
+                statement.setInt(1, userID);
+                statement.setLong(2, paymentRequestID);
+                statement.executeUpdate();
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
     /**
-     * Method used to retrieve the highestUserMessageID field of a certain user from the database.
+     * Method used to indicate that a certain PaymentRequest of a certain user is no longer filled.
      *
-     * @param userID The ID of the user whose highestUserMessageID field should be retrieved.
-     * @return The value of the highestUserMessageID field of the user with userID.
+     * @param userID           The ID of the user to which the certain PaymentRequest belongs.
+     * @param paymentRequestID The ID of the PaymentRequest for which it should be indicated that it is not filled.
      */
-    public long getHighestUserMessageID(int userID) {
-        long highestUserMessageID = -1;
+    public void setPaymentRequestUnfilled(int userID, long paymentRequestID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_HIGHEST_USER_MESSAGE_ID);
+            PreparedStatement statement = this.prepareStatement(SET_PAYMENT_REQUEST_UNFILLED);
             statement.setInt(1, userID);
-            ResultSet rs = statement.executeQuery();
-            highestUserMessageID = rs.getLong(1);
+            statement.setLong(2, paymentRequestID);
+            statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
-        return highestUserMessageID;
     }
 
     /**
@@ -1326,15 +1884,15 @@ public class CustomORM {
      */
     public void createUserMessage(int userID, UserMessage userMessage) {
         try {
-            PreparedStatement statement = connection.prepareStatement(CREATE_USER_MESSAGE);
+            PreparedStatement statement = this.prepareStatement(CREATE_USER_MESSAGE);
             statement.setInt(1, userID);
             statement.setLong(2, userMessage.getID());
             statement.setString(3, userMessage.getMessage());
-            statement.setString(4, userMessage.getDate());
+            statement.setLong(4, userMessage.getDate());
             statement.setString(5, userMessage.getType());
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -1348,21 +1906,21 @@ public class CustomORM {
     public UserMessage getUserMessage(int userID, long userMessageID) {
         UserMessage userMessage = null;
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_USER_MESSAGE);
+            PreparedStatement statement = this.prepareStatement(GET_USER_MESSAGE);
             statement.setInt(1, userID);
             statement.setLong(2, userMessageID);
-            ResultSet resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                userMessageID = resultSet.getLong(1);
-                String message = resultSet.getString(2);
-                String date = resultSet.getString(3);
-                boolean read = resultSet.getBoolean(4);
-                String type = resultSet.getString(5);
-                userMessage = new UserMessage(userMessageID, message, date, read, type);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    userMessageID = resultSet.getLong(1);
+                    String message = resultSet.getString(2);
+                    long date = resultSet.getLong(3);
+                    boolean read = resultSet.getBoolean(4);
+                    String type = resultSet.getString(5);
+                    userMessage = new UserMessage(userMessageID, message, date, read, type);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return userMessage;
     }
@@ -1376,20 +1934,20 @@ public class CustomORM {
     public ArrayList<UserMessage> getUnreadUserMessages(int userID) {
         ArrayList<UserMessage> userMessages = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_UNREAD_USER_MESSAGES);
+            PreparedStatement statement = this.prepareStatement(GET_UNREAD_USER_MESSAGES);
             statement.setInt(1, userID);
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                long userMessageID = resultSet.getLong(1);
-                String message = resultSet.getString(2);
-                String date = resultSet.getString(3);
-                boolean read = resultSet.getBoolean(4);
-                String type = resultSet.getString(5);
-                userMessages.add(new UserMessage(userMessageID, message, date, read, type));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long userMessageID = resultSet.getLong(1);
+                    String message = resultSet.getString(2);
+                    long date = resultSet.getLong(3);
+                    boolean read = resultSet.getBoolean(4);
+                    String type = resultSet.getString(5);
+                    userMessages.add(new UserMessage(userMessageID, message, date, read, type));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return userMessages;
     }
@@ -1403,20 +1961,20 @@ public class CustomORM {
     public ArrayList<UserMessage> getAllUserMessages(int userID) {
         ArrayList<UserMessage> userMessages = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_ALL_USER_MESSAGES);
+            PreparedStatement statement = this.prepareStatement(GET_ALL_USER_MESSAGES);
             statement.setInt(1, userID);
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                long userMessageID = resultSet.getLong(1);
-                String message = resultSet.getString(2);
-                String date = resultSet.getString(3);
-                boolean read = resultSet.getBoolean(4);
-                String type = resultSet.getString(5);
-                userMessages.add(new UserMessage(userMessageID, message, date, read, type));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long userMessageID = resultSet.getLong(1);
+                    String message = resultSet.getString(2);
+                    long date = resultSet.getLong(3);
+                    boolean read = resultSet.getBoolean(4);
+                    String type = resultSet.getString(5);
+                    userMessages.add(new UserMessage(userMessageID, message, date, read, type));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return userMessages;
     }
@@ -1429,12 +1987,12 @@ public class CustomORM {
      */
     public void setUserMessageRead(int userID, long userMessageID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(SET_USER_MESSAGE_READ);
+            PreparedStatement statement = this.prepareStatement(SET_USER_MESSAGE_READ);
             statement.setInt(1, userID);
             statement.setLong(2, userMessageID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -1444,18 +2002,19 @@ public class CustomORM {
      * @param userID The ID of the user whose highest lifetime balance will be retrieved.
      * @return The highest lifetime balance of the user.
      */
-    public float getHighestLifetimeBalance(int userID) {
-        float highestLifetimeBalance = 0;
+    public long getHighestLifetimeBalance(int userID) {
+        long highestLifetimeBalance = 0;
 
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_HIGHEST_LIFETIME_BALANCE);
+            PreparedStatement statement = this.prepareStatement(GET_HIGHEST_LIFETIME_BALANCE);
             statement.setInt(1, userID);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                highestLifetimeBalance = resultSet.getFloat(1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    highestLifetimeBalance = resultSet.getLong(1);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
 
         return highestLifetimeBalance;
@@ -1469,50 +2028,469 @@ public class CustomORM {
      * @param userID         The ID of the user whose highest lifetime balance may be updated.
      * @param currentBalance The currentBalance of the user.
      */
-    public void updateHighestLifetimeBalance(int userID, float currentBalance) {
+    public void updateHighestLifetimeBalance(int userID, long currentBalance) {
         try {
-            PreparedStatement statement = connection.prepareStatement(UPDATE_HIGHEST_LIFETIME_BALANCE);
-            statement.setFloat(1, currentBalance);
-            statement.setFloat(2, currentBalance);
+            PreparedStatement statement = this.prepareStatement(UPDATE_HIGHEST_LIFETIME_BALANCE);
+            statement.setLong(1, currentBalance);
+            statement.setLong(2, currentBalance);
             statement.setInt(3, userID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to retrieve the persisted current balance of a certain user.
+     *
+     * @param userID The ID of the user whose current balance will be retrieved.
+     * @return The persisted Balance of the user, or null if no up-to-date balance is persisted for the user.
+     */
+    public Balance getBalance(int userID) {
+        Balance balance = null;
+
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_BALANCE);
+            statement.setInt(1, userID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    long amount = resultSet.getLong(1);
+                    long date = this.getNullableDate(resultSet, 2);
+                    balance = new Balance(amount, date);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+
+        return balance;
+    }
+
+    /**
+     * Method used to persist the current balance of a certain user.
+     *
+     * @param userID  The ID of the user whose current balance will be persisted.
+     * @param balance The current Balance of the user.
+     */
+    public void updateBalance(int userID, Balance balance) {
+        try {
+            PreparedStatement statement = this.prepareStatement(UPDATE_BALANCE);
+            statement.setInt(1, userID);
+            statement.setLong(2, balance.getBalance());
+            if (balance.getDate() != IntervalHelper.NO_DATE) {
+                statement.setLong(3, balance.getDate());
+            } else {
+                statement.setNull(3, Types.INTEGER);
+            }
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
         }
     }
 
     /**
-     * Method used to increase the highestMessageRuleID field of a certain user by one in the database.
+     * Method used to remove the persisted current balance of a certain user, so that it can be recomputed from the
+     * Transactions of the user.
      *
-     * @param userID The ID of the user whose highestMessageRuleID field should be increased.
+     * @param userID The ID of the user whose persisted current balance will be removed.
      */
-    public void increaseHighestMessageRuleID(int userID) {
+    public void invalidateBalance(int userID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(INCREASE_HIGHEST_MESSAGE_RULE_ID);
+            PreparedStatement statement = this.prepareStatement(INVALIDATE_BALANCE);
             statement.setInt(1, userID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to retrieve the IDs of all users that have Transactions but no persisted current balance.
+     *
+     * @return An ArrayList of the IDs of all users that have Transactions but no persisted current balance.
+     */
+    public ArrayList<Integer> getUsersWithoutBalance() {
+        ArrayList<Integer> userIDs = new ArrayList<>();
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_USERS_WITHOUT_BALANCE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    userIDs.add(resultSet.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
         }
+        return userIDs;
     }
 
     /**
-     * Method used to retrieve the highestMessageRuleID field of a certain user from the database.
+     * Method used to retrieve the persisted BalanceCandlesticks of a certain user for a certain IntervalPeriod, of which
+     * the interval starts in a certain range.
+     * Intervals in which the balance of the user did not change have no persisted BalanceCandlestick.
      *
-     * @param userID The ID of the user whose highestMessageRuleID field should be retrieved.
-     * @return The value of the highestMessageRuleID field of the user with userID.
+     * @param userID         The ID of the user whose BalanceCandlesticks will be retrieved.
+     * @param intervalPeriod The IntervalPeriod of the BalanceCandlesticks.
+     * @param from           The date from which the intervals of retrieved BalanceCandlesticks start (inclusive).
+     * @param to             The date until which the intervals of retrieved BalanceCandlesticks start (exclusive).
+     * @return An ArrayList of BalanceCandlesticks in ascending order of interval.
      */
-    public long getHighestMessageRuleID(int userID) {
-        long highestMessageRuleID = -1;
+    public ArrayList<BalanceCandlestick> getBalanceRollups(int userID, IntervalPeriod intervalPeriod,
+                                                           long from, long to) {
+        ArrayList<BalanceCandlestick> candlesticks = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_HIGHEST_MESSAGE_RULE_ID);
+            PreparedStatement statement = this.prepareStatement(GET_BALANCE_ROLLUPS);
             statement.setInt(1, userID);
-            ResultSet rs = statement.executeQuery();
-            highestMessageRuleID = rs.getLong(1);
+            statement.setString(2, intervalPeriod.name());
+            statement.setLong(3, from);
+            statement.setLong(4, to);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long bucket = resultSet.getLong(1);
+                    long open = resultSet.getLong(2);
+                    long close = resultSet.getLong(3);
+                    long high = resultSet.getLong(4);
+                    long low = resultSet.getLong(5);
+                    long volume = resultSet.getLong(6);
+                    candlesticks.add(new BalanceCandlestick(open, close, high, low, volume, bucket / 1000));
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
+        }
+        return candlesticks;
+    }
+
+    /**
+     * Method used to retrieve the balance of a certain user at the start of a certain interval, being the closing
+     * balance of the last persisted BalanceCandlestick before that interval.
+     *
+     * @param userID         The ID of the user whose balance will be retrieved.
+     * @param intervalPeriod The IntervalPeriod of the BalanceCandlesticks.
+     * @param bucket         The start of the interval.
+     * @return The balance of the user at the start of the interval, or 0 if there is no BalanceCandlestick before it.
+     */
+    public long getBalanceBeforeRollup(int userID, IntervalPeriod intervalPeriod, long bucket) {
+        long balance = 0;
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_BALANCE_BEFORE_ROLLUP);
+            statement.setInt(1, userID);
+            statement.setString(2, intervalPeriod.name());
+            statement.setLong(3, bucket);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    balance = resultSet.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+        return balance;
+    }
+
+    /**
+     * Method used to persist a BalanceCandlestick of a certain user for a certain IntervalPeriod.
+     *
+     * @param userID         The ID of the user to who the BalanceCandlestick belongs.
+     * @param intervalPeriod The IntervalPeriod of the BalanceCandlestick.
+     * @param candlestick    The BalanceCandlestick that will be persisted.
+     */
+    public void updateBalanceRollup(int userID, IntervalPeriod intervalPeriod, BalanceCandlestick candlestick) {
+        try {
+            PreparedStatement statement = this.prepareStatement(UPDATE_BALANCE_ROLLUP);
+            statement.setInt(1, userID);
+            statement.setString(2, intervalPeriod.name());
+            statement.setLong(3, candlestick.getTimestamp() * 1000);
+            statement.setLong(4, candlestick.getOpen());
+            statement.setLong(5, candlestick.getClose());
+            statement.setLong(6, candlestick.getHigh());
+            statement.setLong(7, candlestick.getLow());
+            statement.setLong(8, candlestick.getVolume());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to shift all balances of the persisted BalanceCandlesticks of a certain user for a certain
+     * IntervalPeriod after a certain interval by a certain amount.
+     *
+     * @param userID         The ID of the user whose BalanceCandlesticks will be shifted.
+     * @param intervalPeriod The IntervalPeriod of the BalanceCandlesticks.
+     * @param bucket         The start of the interval after which BalanceCandlesticks will be shifted.
+     * @param amount         The amount by which the balances will be shifted, in cents.
+     */
+    public void shiftBalanceRollups(int userID, IntervalPeriod intervalPeriod, long bucket, long amount) {
+        try {
+            PreparedStatement statement = this.prepareStatement(SHIFT_BALANCE_ROLLUPS);
+            statement.setLong(1, amount);
+            statement.setLong(2, amount);
+            statement.setLong(3, amount);
+            statement.setLong(4, amount);
+            statement.setInt(5, userID);
+            statement.setString(6, intervalPeriod.name());
+            statement.setLong(7, bucket);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to remove all persisted BalanceCandlesticks of a certain user.
+     *
+     * @param userID The ID of the user whose BalanceCandlesticks will be removed.
+     */
+    public void deleteBalanceRollups(int userID) {
+        try {
+            PreparedStatement statement = this.prepareStatement(DELETE_BALANCE_ROLLUPS);
+            statement.setInt(1, userID);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to remove the persisted BalanceCandlesticks of a certain user for a certain IntervalPeriod of which
+     * the interval starts at or after a certain date.
+     *
+     * @param userID         The ID of the user whose BalanceCandlesticks will be removed.
+     * @param intervalPeriod The IntervalPeriod of the BalanceCandlesticks.
+     * @param bucket         The date from which the intervals of removed BalanceCandlesticks start (inclusive).
+     */
+    public void deleteBalanceRollupsFrom(int userID, IntervalPeriod intervalPeriod, long bucket) {
+        try {
+            PreparedStatement statement = this.prepareStatement(DELETE_BALANCE_ROLLUPS_FROM);
+            statement.setInt(1, userID);
+            statement.setString(2, intervalPeriod.name());
+            statement.setLong(3, bucket);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to retrieve the most recent persisted BalanceCheckpoint of a certain user.
+     *
+     * @param userID The ID of the user whose most recent BalanceCheckpoint will be retrieved.
+     * @return The most recent BalanceCheckpoint of the user, or null if no BalanceCheckpoint is persisted for the user.
+     */
+    public BalanceCheckpoint getLatestBalanceCheckpoint(int userID) {
+        BalanceCheckpoint checkpoint = null;
+
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_LATEST_BALANCE_CHECKPOINT);
+            statement.setInt(1, userID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    long monthStart = resultSet.getLong(1);
+                    long balance = resultSet.getLong(2);
+                    long date = resultSet.getLong(3);
+                    checkpoint = new BalanceCheckpoint(monthStart, balance, date);
+                }
+            }
+
+            if (checkpoint != null) {
+                statement = this.prepareStatement(GET_SAVING_GOAL_CHECKPOINTS);
+                statement.setInt(1, userID);
+                statement.setLong(2, checkpoint.getMonthStart());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        long savingGoalID = resultSet.getLong(1);
+                        checkpoint.getSavingGoalBalances().put(savingGoalID, resultSet.getLong(2));
+                        if (resultSet.getBoolean(3)) {
+                            checkpoint.getReleasedSavingGoals().add(savingGoalID);
+                        }
+                    }
+                }
+
+                statement = this.prepareStatement(GET_BALANCE_CHECKPOINT_ROLLUPS);
+                statement.setInt(1, userID);
+                statement.setLong(2, checkpoint.getMonthStart());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        IntervalPeriod intervalPeriod = IntervalPeriod.valueOf(resultSet.getString(1));
+                        long bucket = resultSet.getLong(2);
+                        long open = resultSet.getLong(3);
+                        long close = resultSet.getLong(4);
+                        long high = resultSet.getLong(5);
+                        long low = resultSet.getLong(6);
+                        long volume = resultSet.getLong(7);
+                        checkpoint.getRollups().put(intervalPeriod,
+                                new BalanceCandlestick(open, close, high, low, volume, bucket / 1000));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+
+        return checkpoint;
+    }
+
+    /**
+     * Method used to persist a BalanceCheckpoint of a certain user.
+     *
+     * @param userID     The ID of the user to who the BalanceCheckpoint belongs.
+     * @param checkpoint The BalanceCheckpoint that will be persisted.
+     */
+    public void createBalanceCheckpoint(int userID, BalanceCheckpoint checkpoint) {
+        try {
+            PreparedStatement statement = this.prepareStatement(CREATE_BALANCE_CHECKPOINT);
+            statement.setInt(1, userID);
+            statement.setLong(2, checkpoint.getMonthStart());
+            statement.setLong(3, checkpoint.getBalance());
+            statement.setLong(4, checkpoint.getDate());
+            statement.executeUpdate();
+
+            statement = this.prepareStatement(CREATE_SAVING_GOAL_CHECKPOINT);
+            for (Map.Entry<Long, Long> entry : checkpoint.getSavingGoalBalances().entrySet()) {
+                statement.setInt(1, userID);
+                statement.setLong(2, checkpoint.getMonthStart());
+                statement.setLong(3, entry.getKey());
+                statement.setLong(4, entry.getValue());
+                statement.setBoolean(5, checkpoint.getReleasedSavingGoals().contains(entry.getKey()));
+                statement.executeUpdate();
+            }
+
+            statement = this.prepareStatement(CREATE_BALANCE_CHECKPOINT_ROLLUP);
+            for (Map.Entry<IntervalPeriod, BalanceCandlestick> entry : checkpoint.getRollups().entrySet()) {
+                BalanceCandlestick candlestick = entry.getValue();
+                statement.setInt(1, userID);
+                statement.setLong(2, checkpoint.getMonthStart());
+                statement.setString(3, entry.getKey().name());
+                statement.setLong(4, candlestick.getTimestamp() * 1000);
+                statement.setLong(5, candlestick.getOpen());
+                statement.setLong(6, candlestick.getClose());
+                statement.setLong(7, candlestick.getHigh());
+                statement.setLong(8, candlestick.getLow());
+                statement.setLong(9, candlestick.getVolume());
+                statement.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to remove the persisted BalanceCheckpoints of a certain user that are taken after a certain date,
+     * since these no longer reflect the Transactions of the user when something changed at that date.
+     *
+     * @param userID The ID of the user whose BalanceCheckpoints will be removed.
+     * @param date   The date after which removed BalanceCheckpoints are taken (exclusive).
+     */
+    public void deleteBalanceCheckpointsAfter(int userID, long date) {
+        try {
+            PreparedStatement statement = this.prepareStatement(DELETE_BALANCE_CHECKPOINTS_AFTER);
+            statement.setInt(1, userID);
+            statement.setLong(2, date);
+            statement.executeUpdate();
+
+            statement = this.prepareStatement(DELETE_SAVING_GOAL_CHECKPOINTS_AFTER);
+            statement.setInt(1, userID);
+            statement.setLong(2, date);
+            statement.executeUpdate();
+
+            statement = this.prepareStatement(DELETE_BALANCE_CHECKPOINT_ROLLUPS_AFTER);
+            statement.setInt(1, userID);
+            statement.setLong(2, date);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to retrieve the persisted CategorySpend of a certain user.
+     *
+     * @param userID The ID of the user whose CategorySpend will be retrieved.
+     * @return The CategorySpend of the user, or null if no CategorySpend is persisted for the user.
+     */
+    public CategorySpend getCategorySpend(int userID) {
+        CategorySpend categorySpend = null;
+
+        try {
+            PreparedStatement statement = this.prepareStatement(GET_CATEGORY_SPEND_WINDOW);
+            statement.setInt(1, userID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    categorySpend = new CategorySpend(resultSet.getLong(1), resultSet.getLong(2));
+                }
+            }
+
+            if (categorySpend != null) {
+                statement = this.prepareStatement(GET_CATEGORY_SPEND_BUCKETS);
+                statement.setInt(1, userID);
+                statement.setLong(2, categorySpend.getExpiredUntilDay());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        categorySpend.add(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3));
+                    }
+                }
+                categorySpend.takeChangedBuckets();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+
+        return categorySpend;
+    }
+
+    /**
+     * Method used to persist the window of the CategorySpend of a certain user, together with the buckets of
+     * CategorySpend that changed since it was last persisted.
+     * Buckets of days that fell out of the window are removed.
+     *
+     * @param userID        The ID of the user to who CategorySpend belongs.
+     * @param categorySpend The CategorySpend that will be persisted.
+     */
+    public void updateCategorySpend(int userID, CategorySpend categorySpend) {
+        try {
+            PreparedStatement statement = this.prepareStatement(UPDATE_CATEGORY_SPEND_BUCKET);
+            for (long[] bucket : categorySpend.takeChangedBuckets()) {
+                statement.setInt(1, userID);
+                statement.setLong(2, bucket[0]);
+                statement.setLong(3, bucket[1]);
+                statement.setLong(4, bucket[2]);
+                statement.executeUpdate();
+            }
+
+            statement = this.prepareStatement(DELETE_CATEGORY_SPEND_BUCKETS_UNTIL);
+            statement.setInt(1, userID);
+            statement.setLong(2, categorySpend.getExpiredUntilDay());
+            statement.executeUpdate();
+
+            statement = this.prepareStatement(UPDATE_CATEGORY_SPEND_WINDOW);
+            statement.setInt(1, userID);
+            statement.setLong(2, categorySpend.getHeadDay());
+            statement.setLong(3, categorySpend.getEvaluatedUntilID());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to remove the persisted CategorySpend of a certain user, since it no longer reflects the
+     * Transactions of the user when an evaluated Transaction within its window changed.
+     *
+     * @param userID The ID of the user whose CategorySpend will be removed.
+     */
+    public void deleteCategorySpend(int userID) {
+        try {
+            PreparedStatement statement = this.prepareStatement(DELETE_CATEGORY_SPEND_WINDOW);
+            statement.setInt(1, userID);
+            statement.executeUpdate();
+
+            statement = this.prepareStatement(DELETE_CATEGORY_SPEND_BUCKETS);
+            statement.setInt(1, userID);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
         }
-        return highestMessageRuleID;
     }
 
     /**
@@ -1523,15 +2501,15 @@ public class CustomORM {
      */
     public void createMessageRule(int userID, MessageRule messageRule) {
         try {
-            PreparedStatement statement = connection.prepareStatement(CREATE_MESSAGE_RULE);
+            PreparedStatement statement = this.prepareStatement(CREATE_MESSAGE_RULE);
             statement.setInt(1, userID);
             statement.setLong(2, messageRule.getID());
             statement.setLong(3, messageRule.getCategory_id());
             statement.setString(4, messageRule.getType());
-            statement.setFloat(5, messageRule.getValue());
+            statement.setLong(5, messageRule.getValue());
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -1544,19 +2522,19 @@ public class CustomORM {
     public ArrayList<MessageRule> getMessageRules(int userID) {
         ArrayList<MessageRule> messageRules = new ArrayList<>();
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_MESSAGE_RULES);
+            PreparedStatement statement = this.prepareStatement(GET_MESSAGE_RULES);
             statement.setInt(1, userID);
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                long messageRuleID = resultSet.getLong(1);
-                long categoryID = resultSet.getLong(2);
-                String type = resultSet.getString(3);
-                float value = resultSet.getFloat(4);
-                messageRules.add(new MessageRule(messageRuleID, categoryID, type, value));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long messageRuleID = resultSet.getLong(1);
+                    long categoryID = resultSet.getLong(2);
+                    String type = resultSet.getString(3);
+                    long value = resultSet.getLong(4);
+                    messageRules.add(new MessageRule(messageRuleID, categoryID, type, value));
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return messageRules;
     }
@@ -1570,20 +2548,20 @@ public class CustomORM {
     public MessageRule getMessageRule(int userID, long messageRuleID) {
         MessageRule messageRule = null;
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_MESSAGE_RULE);
+            PreparedStatement statement = this.prepareStatement(GET_MESSAGE_RULE);
             statement.setInt(1, userID);
             statement.setLong(2, messageRuleID);
-            ResultSet resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                messageRuleID = resultSet.getLong(1);
-                long categoryID = resultSet.getLong(2);
-                String type = resultSet.getString(3);
-                float value = resultSet.getFloat(4);
-                messageRule = new MessageRule(messageRuleID, categoryID, type, value);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    messageRuleID = resultSet.getLong(1);
+                    long categoryID = resultSet.getLong(2);
+                    String type = resultSet.getString(3);
+                    long value = resultSet.getLong(4);
+                    messageRule = new MessageRule(messageRuleID, categoryID, type, value);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return messageRule;
     }
@@ -1597,13 +2575,36 @@ public class CustomORM {
      */
     public void linkTransactionToCategory(int userID, long transactionID, long categoryID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(LINK_TRANSACTION_TO_CATEGORY);
+            PreparedStatement statement = this.prepareStatement(LINK_TRANSACTION_TO_CATEGORY);
             statement.setInt(1, userID);
             statement.setLong(2, transactionID);
             statement.setLong(3, categoryID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Method used to link several Transactions to Categories in the database at once, sending the links to the
+     * database as a single batch of inserts.
+     *
+     * @param userID                The id of the user to who the to be linked Transaction and Category objects belong.
+     * @param transactionCategories A map from the ids of the Transactions that will be linked to the ids of the
+     *                              Categories to which they will be linked.
+     */
+    public void linkTransactionsToCategories(int userID, Map<Long, Long> transactionCategories) {
+        try {
+            PreparedStatement statement = this.prepareStatement(LINK_TRANSACTION_TO_CATEGORY);
+            for (Map.Entry<Long, Long> transactionCategory : transactionCategories.entrySet()) {
+                statement.setInt(1, userID);
+                statement.setLong(2, transactionCategory.getKey());
+                statement.setLong(3, transactionCategory.getValue());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
         }
     }
 
@@ -1616,13 +2617,13 @@ public class CustomORM {
      */
     public void unlinkTransactionFromCategory(int userID, long transactionID, long categoryID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(UNLINK_TRANSACTION_FROM_CATEGORY);
+            PreparedStatement statement = this.prepareStatement(UNLINK_TRANSACTION_FROM_CATEGORY);
             statement.setInt(1, userID);
             statement.setLong(2, transactionID);
             statement.setLong(3, categoryID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -1634,12 +2635,12 @@ public class CustomORM {
      */
     public void unlinkTransactionFromAllCategories(int userID, long transactionID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(UNLINK_TRANSACTION_FROM_ALL_CATEGORIES);
+            PreparedStatement statement = this.prepareStatement(UNLINK_TRANSACTION_FROM_ALL_CATEGORIES);
             statement.setInt(1, userID);
             statement.setLong(2, transactionID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -1651,12 +2652,12 @@ public class CustomORM {
      */
     public void unlinkCategoryFromAllTransactions(int userID, long categoryID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(UNLINK_CATEGORY_FROM_ALL_TRANSACTIONS);
+            PreparedStatement statement = this.prepareStatement(UNLINK_CATEGORY_FROM_ALL_TRANSACTIONS);
             statement.setInt(1, userID);
             statement.setLong(2, categoryID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -1670,15 +2671,16 @@ public class CustomORM {
     public long getCategoryIDByTransactionID(int userID, long transactionID) {
         long categoryID = -1;
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_CATEGORY_ID_BY_TRANSACTION_ID);
+            PreparedStatement statement = this.prepareStatement(GET_CATEGORY_ID_BY_TRANSACTION_ID);
             statement.setInt(1, userID);
             statement.setLong(2, transactionID);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                categoryID = resultSet.getLong(1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    categoryID = resultSet.getLong(1);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return categoryID;
     }
@@ -1690,11 +2692,11 @@ public class CustomORM {
      */
     public void createNewUser(String sessionID) {
         try {
-            PreparedStatement statement = connection.prepareStatement(CREATE_NEW_USER);
+            PreparedStatement statement = this.prepareStatement(CREATE_NEW_USER);
             statement.setString(1, sessionID);
             statement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
     }
 
@@ -1707,14 +2709,15 @@ public class CustomORM {
     public int getUserID(String sessionID) {
         int userID = -1;
         try {
-            PreparedStatement statement = connection.prepareStatement(GET_USER_ID);
+            PreparedStatement statement = this.prepareStatement(GET_USER_ID);
             statement.setString(1, sessionID);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                userID = resultSet.getInt(1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    userID = resultSet.getInt(1);
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException(e);
         }
         return userID;
     }
@@ -4,32 +4,86 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The DatabaseConnection class.
- * Consists of methods that allow the application to set up a connection to the database and use this connection.
+ * Consists of methods that allow the application to set up a pool of connections to the database and use these
+ * connections.
+ * <p>
+ * Every thread that wants to access the database borrows its own connection from the pool using the bindConnection
+ * method, after which the connection is confined to that thread until it is returned using the releaseConnection
+ * method. The database is opened in WAL journal mode, so that readers can run in parallel with the single writer.
+ * Every connection in the pool has its own StatementCache.
+ * Actions that undo in-memory state belonging to the current database transaction can be registered using the
+ * registerRollbackAction method, and are run when that transaction is rolled back. Likewise, actions that should only
+ * happen once the changes of the current database transaction are visible to other connections can be registered using
+ * the registerCommitAction method, and are run after that transaction has been committed.
  *
  * @author Daan Kooij
  */
 public class DatabaseConnection {
 
-    private static Connection connection;
+    public static final int DEFAULT_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors());
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 10000;
+
+    private static final int BUSY_TIMEOUT_MILLIS = 10000;
+
+    private static final ThreadLocal<Connection> boundConnection = new ThreadLocal<>();
+    private static final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private static final ThreadLocal<List<Runnable>> rollbackActions = ThreadLocal.withInitial(ArrayList::new);
+    private static final ThreadLocal<List<Runnable>> commitActions = ThreadLocal.withInitial(ArrayList::new);
+    private static final ThreadLocal<Boolean> transactionOpen = ThreadLocal.withInitial(() -> false);
+
+    private static BlockingQueue<Connection> idleConnections;
+    private static int poolSize;
+    private static long maxWaitMillis;
+    private static volatile boolean tornDown;
 
     /**
-     * Method used to set up the connection to the SQLite database.
-     * Furthermore, this method calls the createTables method, which initializes the tables of the database if necessary.
-     * After using this method, the connection is stored in the connection field.
+     * Method used to set up the connection pool to the SQLite database, using the default pool size and the default
+     * maximum time to wait for a connection.
      *
      * @param databaseName The filename of the SQLite database that will be connected to.
      */
     public static void setUp(String databaseName) {
+        setUp(databaseName, DEFAULT_POOL_SIZE, DEFAULT_MAX_WAIT_MILLIS);
+    }
+
+    /**
+     * Method used to set up the connection pool to the SQLite database.
+     * Furthermore, this method calls DatabaseMigrations.migrate, which brings the schema of the database up to date.
+     * After using this method, connections can be borrowed from the pool using the bindConnection method.
+     *
+     * @param databaseName  The filename of the SQLite database that will be connected to.
+     * @param poolSize      The amount of connections that will be kept open to the database.
+     * @param maxWaitMillis The maximum amount of milliseconds a thread waits for a connection to become available.
+     */
+    public static void setUp(String databaseName, int poolSize, long maxWaitMillis) {
         try {
             String driver = "org.sqlite.JDBC";
             Class.forName(driver);
             String databaseURL = "jdbc:sqlite:" + databaseName;
-            connection = DriverManager.getConnection(databaseURL);
-            createTables();
-            System.out.println("Setting up database connection complete");
+            DatabaseConnection.poolSize = poolSize;
+            DatabaseConnection.maxWaitMillis = maxWaitMillis;
+            DatabaseConnection.tornDown = false;
+            idleConnections = new ArrayBlockingQueue<>(poolSize);
+            for (int i = 0; i < poolSize; i++) {
+                idleConnections.add(openConnection(databaseURL));
+            }
+            bindConnection();
+            try {
+                DatabaseMigrations.migrate(getDatabaseConnection());
+            } finally {
+                releaseConnection();
+            }
+            System.out.println("Setting up database connection pool complete (" + poolSize + " connections)");
         } catch (Exception e) {
             e.printStackTrace();
             System.err.println("Error connecting to database");
@@ -37,146 +91,252 @@ public class DatabaseConnection {
     }
 
     /**
-     * Method used to create tables in the database if they do not yet exist.
-     * If this method is called when the database is empty, the appropriate tables will be created in the database.
-     * If this method is called when the database already contains the tables that this method tries to create,
-     * nothing will change.
+     * Method used to open a new connection to the database and configure it for use in the connection pool.
+     *
+     * @param databaseURL The JDBC URL of the SQLite database that will be connected to.
+     * @return The newly opened Connection.
      */
-    private static void createTables() {
+    private static Connection openConnection(String databaseURL) throws SQLException {
+        Connection connection = DriverManager.getConnection(databaseURL);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = WAL;");
+            statement.execute("PRAGMA synchronous = NORMAL;");
+            statement.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS + ";");
+        }
+        statementCaches.put(connection, new StatementCache(connection));
+        return connection;
+    }
+
+    /**
+     * Method used to borrow a connection from the pool and bind it to the current thread.
+     * If no connection becomes available within the maximum waiting time, an SQLException is thrown.
+     */
+    public static void bindConnection() throws SQLException {
+        if (boundConnection.get() != null) {
+            throw new IllegalStateException("A database connection is already bound to this thread");
+        }
+        Connection connection;
         try {
-            connection.setAutoCommit(false);
-            Statement statement = connection.createStatement();
-            statement.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS User_Table(\n" +
-                            "  user_id INTEGER PRIMARY KEY AUTOINCREMENT,\n" +
-                            "  session_id TEXT,\n" +
-                            "  highest_lifetime_balance FLOAT,\n" +
-                            "  highest_transaction_id BIGINT,\n" +
-                            "  highest_category_id BIGINT,\n" +
-                            "  highest_category_rule_id BIGINT,\n" +
-                            "  highest_saving_goal_id BIGINT,\n" +
-                            "  highest_payment_request_id BIGINT,\n" +
-                            "  highest_user_message_id BIGINT,\n" +
-                            "  highest_message_rule_id BIGINT\n" +
-                            ");"
-            );
-            statement.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS Transaction_Table(\n" +
-                            "  user_id INTEGER,\n" +
-                            "  transaction_id BIGINT,\n" +
-                            "  date DATETIME,\n" +
-                            "  amount FLOAT,\n" +
-                            "  description TEXT,\n" +
-                            "  external_iban TEXT,\n" +
-                            "  type TEXT,\n" +
-                            "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
-                            "  PRIMARY KEY(user_id, transaction_id)\n" +
-                            ");"
-            );
-            statement.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS Category_Table(\n" +
-                            "  user_id INTEGER,\n" +
-                            "  category_id BIGINT,\n" +
-                            "  name TEXT,\n" +
-                            "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
-                            "  PRIMARY KEY(user_id, category_id)\n" +
-                            ");"
-            );
-            statement.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS Transaction_Category(\n" +
-                            "  user_id INTEGER,\n" +
-                            "  transaction_id BIGINT,\n" +
-                            "  category_id BIGINT,\n" +
-                            "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
-                            "  FOREIGN KEY(transaction_id) REFERENCES Transaction_Table(transaction_id),\n" +
-                            "  FOREIGN KEY(category_id) REFERENCES Category_Table(category_id),\n" +
-                            "  PRIMARY KEY(user_id, transaction_id, category_id)\n" +
-                            ");"
-            );
-            statement.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS Category_Rule(\n" +
-                            "  user_id INTEGER,\n" +
-                            "  category_rule_id BIGINT,\n" +
-                            "  description TEXT,\n" +
-                            "  external_iban TEXT,\n" +
-                            "  type TEXT,\n" +
-                            "  category_id BIGINT,\n" +
-                            "  apply_on_history BOOLEAN,\n" +
-                            "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
-                            "  FOREIGN KEY(category_id) REFERENCES Category_Table(category_id),\n" +
-                            "  PRIMARY KEY(user_id, category_rule_id)\n" +
-                            ");"
-            );
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS Saving_Goal(\n" +
-                    "  user_id INTEGER,\n" +
-                    "  saving_goal_id BIGINT,\n" +
-                    "  creation_date DATETIME,\n" +
-                    "  deletion_date DATETIME,\n" +
-                    "  name TEXT,\n" +
-                    "  goal FLOAT,\n" +
-                    "  save_per_month FLOAT,\n" +
-                    "  min_balance_required FLOAT,\n" +
-                    "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
-                    "  PRIMARY KEY(user_id, saving_goal_id)\n" +
-                    ");"
-            );
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS Payment_Request(\n" +
-                    "  user_id INTEGER,\n" +
-                    "  payment_request_id BIGINT,\n" +
-                    "  description TEXT,\n" +
-                    "  due_date DATETIME,\n" +
-                    "  amount FLOAT,\n" +
-                    "  number_of_requests BIGINT,\n" +
-                    "  filled BOOLEAN,\n" +
-                    "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
-                    "  PRIMARY KEY(user_id, payment_request_id)\n" +
-                    ");"
-            );
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS Payment_Request_Transaction(\n" +
-                    "  user_id INTEGER,\n" +
-                    "  payment_request_id BIGINT,\n" +
-                    "  transaction_id BIGINT,\n" +
-                    "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
-                    "  FOREIGN KEY(payment_request_id) REFERENCES Payment_Request(payment_request_id),\n" +
-                    "  FOREIGN KEY(transaction_id) REFERENCES Transaction_Table(transaction_id),\n" +
-                    "  PRIMARY KEY(user_id, payment_request_id, transaction_id)\n" +
-                    ");"
-            );
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS User_Message(\n" +
-                    "  user_id INTEGER,\n" +
-                    "  user_message_id BIGINT,\n" +
-                    "  message TEXT,\n" +
-                    "  date DATETIME,\n" +
-                    "  read BOOLEAN,\n" +
-                    "  type TEXT,\n" +
-                    "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
-                    "  PRIMARY KEY(user_id, user_message_id)\n" +
-                    ");"
-            );
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS Message_Rule(\n" +
-                    "  user_id INTEGER,\n" +
-                    "  message_rule_id BIGINT,\n" +
-                    "  category_id BIGINT,\n" +
-                    "  type TEXT,\n" +
-                    "  value float,\n" +
-                    "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
-                    "  PRIMARY KEY(user_id, message_rule_id)\n" +
-                    ");"
-            );
-            statement.close();
-            connection.setAutoCommit(true);
-        } catch (SQLException e) {
-            System.err.println("Error creating tables");
+            connection = idleConnections.poll(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        if (connection == null) {
+            throw new SQLException("Timed out after " + maxWaitMillis + " ms waiting for a database connection");
         }
+        boundConnection.set(connection);
+    }
+
+    /**
+     * Method used to unbind the connection from the current thread and return it to the pool.
+     * Should be called exactly once for every successful call of the bindConnection method.
+     */
+    public static void releaseConnection() {
+        Connection connection = boundConnection.get();
+        if (connection != null) {
+            boundConnection.remove();
+            if (transactionOpen.get()) {
+                // Never hand out a connection that is still in the middle of a transaction
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("ROLLBACK;");
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+                runRollbackActions();
+            }
+            transactionOpen.remove();
+            rollbackActions.remove();
+            commitActions.remove();
+            if (tornDown) {
+                close(connection);
+            } else {
+                idleConnections.offer(connection);
+            }
+        }
+    }
+
+    /**
+     * Method used to indicate whether a database transaction has been started on the connection bound to the current
+     * thread that has not been committed or rolled back yet.
+     * Transactions are started with BEGIN statements instead of through JDBC, so the auto-commit mode of the connection
+     * does not reflect whether a transaction is open.
+     *
+     * @param open A boolean indicating whether a database transaction is open on the bound connection.
+     */
+    public static void setTransactionOpen(boolean open) {
+        transactionOpen.set(open);
+    }
+
+    /**
+     * Method used to register an action that will be run if the database transaction that is currently running on the
+     * connection bound to the current thread is rolled back.
+     * Registered actions are forgotten once the transaction is committed or the connection is released.
+     *
+     * @param action The action that will be run if the current database transaction is rolled back.
+     */
+    public static void registerRollbackAction(Runnable action) {
+        rollbackActions.get().add(action);
+    }
+
+    /**
+     * Method used to run and forget all actions registered for the database transaction of the current thread, after
+     * that transaction has been rolled back. Actions registered to be run after a commit are forgotten as well.
+     */
+    public static void runRollbackActions() {
+        List<Runnable> actions = rollbackActions.get();
+        for (Runnable action : actions) {
+            action.run();
+        }
+        actions.clear();
+        commitActions.get().clear();
+    }
+
+    /**
+     * Method used to retrieve the amount of actions registered for the database transaction of the current thread, so
+     * that the actions registered from then on can be told apart.
+     *
+     * @return An array containing the amount of actions registered to be run after a rollback and after a commit.
+     */
+    public static int[] markActions() {
+        return new int[]{rollbackActions.get().size(), commitActions.get().size()};
+    }
+
+    /**
+     * Method used to run and forget the actions registered for the database transaction of the current thread since a
+     * certain mark, after the changes made since that mark have been rolled back to a savepoint. Actions registered to
+     * be run after a commit since that mark are forgotten as well.
+     *
+     * @param mark The mark returned by markActions when the savepoint was created.
+     */
+    public static void runRollbackActionsSince(int[] mark) {
+        List<Runnable> actions = rollbackActions.get().subList(mark[0], rollbackActions.get().size());
+        for (Runnable action : actions) {
+            action.run();
+        }
+        actions.clear();
+        commitActions.get().subList(mark[1], commitActions.get().size()).clear();
+    }
+
+    /**
+     * Method used to forget all actions registered for the database transaction of the current thread, after that
+     * transaction has been committed.
+     */
+    public static void clearRollbackActions() {
+        rollbackActions.get().clear();
     }
 
     /**
-     * Method used to retrieve the connection to the database.
+     * Method used to register an action that will be run after the database transaction that is currently running on
+     * the connection bound to the current thread has been committed.
+     * Registered actions are forgotten if the transaction is rolled back or the connection is released.
      *
-     * @return The Connection to the database.
+     * @param action The action that will be run after the current database transaction has been committed.
+     */
+    public static void registerCommitAction(Runnable action) {
+        commitActions.get().add(action);
+    }
+
+    /**
+     * Method used to run and forget all actions registered for the database transaction of the current thread, after
+     * that transaction has been committed.
+     */
+    public static void runCommitActions() {
+        List<Runnable> actions = commitActions.get();
+        try {
+            for (Runnable action : actions) {
+                action.run();
+            }
+        } finally {
+            actions.clear();
+        }
+    }
+
+    /**
+     * Method used to check whether a connection is bound to the current thread.
+     *
+     * @return A boolean indicating whether a connection is bound to the current thread.
+     */
+    public static boolean isConnectionBound() {
+        return boundConnection.get() != null;
+    }
+
+    /**
+     * Method used to retrieve the connection to the database that is bound to the current thread.
+     *
+     * @return The Connection to the database that is bound to the current thread.
      */
     public static Connection getDatabaseConnection() {
+        Connection connection = boundConnection.get();
+        if (connection == null) {
+            throw new IllegalStateException("No database connection is bound to this thread");
+        }
         return connection;
     }
 
+    /**
+     * Method used to retrieve the StatementCache of the database connection that is bound to the current thread.
+     *
+     * @return The StatementCache of the database connection that is bound to the current thread.
+     */
+    public static StatementCache getStatementCache() {
+        return statementCaches.get(getDatabaseConnection());
+    }
+
+    /**
+     * Method used to close all cached statements and all connections in the pool.
+     * Connections that are borrowed at the moment this method is called are closed when they are released.
+     */
+    public static void tearDown() {
+        tornDown = true;
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Method used to close a connection together with its StatementCache.
+     *
+     * @param connection The connection that will be closed.
+     */
+    private static void close(Connection connection) {
+        StatementCache statementCache = statementCaches.remove(connection);
+        if (statementCache != null) {
+            statementCache.close();
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Method used to retrieve the amount of connections in the pool.
+     *
+     * @return The amount of connections in the pool.
+     */
+    public static int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Method used to retrieve the amount of connections in the pool that are currently not borrowed by any thread.
+     *
+     * @return The amount of idle connections in the pool.
+     */
+    public static int getIdleConnectionCount() {
+        return idleConnections.size();
+    }
+
+    /**
+     * Method used to retrieve the maximum amount of milliseconds a thread waits for a connection to become available.
+     *
+     * @return The maximum amount of milliseconds a thread waits for a connection to become available.
+     */
+    public static long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
 }
@@ -0,0 +1,672 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The DatabaseMigrations class.
+ * Consists of the numbered migrations that make up the schema of the database, and a method that applies the
+ * migrations that have not yet been applied to the database.
+ * The version of the schema is recorded in the user_version field of the database, which equals the number of
+ * migrations that have been applied. New migrations should only ever be appended to the MIGRATIONS list.
+ *
+ * @author Daan Kooij
+ */
+public class DatabaseMigrations {
+
+    private static final List<Migration> MIGRATIONS = Arrays.asList(
+            DatabaseMigrations::createTables,          // Version 1
+            DatabaseMigrations::createIndexes,         // Version 2
+            DatabaseMigrations::convertDatesToEpochMillis, // Version 3
+            DatabaseMigrations::convertAmountsToCents,     // Version 4
+            DatabaseMigrations::createBalanceTable,        // Version 5
+            DatabaseMigrations::createBalanceRollupTable,  // Version 6
+            DatabaseMigrations::createBalanceCheckpointTables, // Version 7
+            DatabaseMigrations::addSavingGoalReachedColumn,    // Version 8
+            DatabaseMigrations::createImportJobTable,          // Version 9
+            DatabaseMigrations::createTransactionEventTable,    // Version 10
+            DatabaseMigrations::createIdempotentResponseTable,  // Version 11
+            DatabaseMigrations::createCategorySpendTables,      // Version 12
+            DatabaseMigrations::addPaymentRequestFillCountColumn, // Version 13
+            DatabaseMigrations::addTransactionEventAttemptsColumn, // Version 14
+            DatabaseMigrations::addIdempotentResponseRequestHashColumn // Version 15
+    );
+
+    /**
+     * The Migration interface.
+     * Used to specify one step in the evolution of the schema of the database.
+     */
+    private interface Migration {
+
+        /**
+         * Method used to apply the migration to the database.
+         *
+         * @param statement The Statement that will be used to apply the migration.
+         */
+        void apply(Statement statement) throws SQLException;
+
+    }
+
+    /**
+     * Method used to apply all migrations that have not yet been applied to the database.
+     * Every migration is applied in its own database transaction, together with the update of the schema version.
+     *
+     * @param connection The connection to the database that will be migrated.
+     */
+    public static void migrate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            int version = getSchemaVersion(statement);
+            while (version < MIGRATIONS.size()) {
+                statement.execute("BEGIN IMMEDIATE;");
+                try {
+                    // Another process may have migrated the database while this process was waiting for the lock
+                    version = getSchemaVersion(statement);
+                    if (version < MIGRATIONS.size()) {
+                        MIGRATIONS.get(version).apply(statement);
+                        version++;
+                        statement.execute("PRAGMA user_version = " + version + ";");
+                    }
+                    statement.execute("COMMIT;");
+                } catch (SQLException e) {
+                    statement.execute("ROLLBACK;");
+                    throw e;
+                }
+                System.out.println("Migrated database schema to version " + version);
+            }
+        }
+    }
+
+    /**
+     * Method used to retrieve the version of the schema of the database.
+     *
+     * @param statement The Statement that will be used to retrieve the schema version.
+     * @return The number of migrations that have been applied to the database.
+     */
+    private static int getSchemaVersion(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("PRAGMA user_version;")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Migration 1: create the tables of the database if they do not yet exist.
+     * Databases created before migrations were introduced already contain these tables, in which case nothing changes.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void createTables(Statement statement) throws SQLException {
+        statement.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS User_Table(\n" +
+                        "  user_id INTEGER PRIMARY KEY AUTOINCREMENT,\n" +
+                        "  session_id TEXT,\n" +
+                        "  highest_lifetime_balance FLOAT,\n" +
+                        "  highest_transaction_id BIGINT,\n" +
+                        "  highest_category_id BIGINT,\n" +
+                        "  highest_category_rule_id BIGINT,\n" +
+                        "  highest_saving_goal_id BIGINT,\n" +
+                        "  highest_payment_request_id BIGINT,\n" +
+                        "  highest_user_message_id BIGINT,\n" +
+                        "  highest_message_rule_id BIGINT\n" +
+                        ");"
+        );
+        statement.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS Transaction_Table(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  transaction_id BIGINT,\n" +
+                        "  date DATETIME,\n" +
+                        "  amount FLOAT,\n" +
+                        "  description TEXT,\n" +
+                        "  external_iban TEXT,\n" +
+                        "  type TEXT,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  PRIMARY KEY(user_id, transaction_id)\n" +
+                        ");"
+        );
+        statement.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS Category_Table(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  category_id BIGINT,\n" +
+                        "  name TEXT,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  PRIMARY KEY(user_id, category_id)\n" +
+                        ");"
+        );
+        statement.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS Transaction_Category(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  transaction_id BIGINT,\n" +
+                        "  category_id BIGINT,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  FOREIGN KEY(transaction_id) REFERENCES Transaction_Table(transaction_id),\n" +
+                        "  FOREIGN KEY(category_id) REFERENCES Category_Table(category_id),\n" +
+                        "  PRIMARY KEY(user_id, transaction_id, category_id)\n" +
+                        ");"
+        );
+        statement.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS Category_Rule(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  category_rule_id BIGINT,\n" +
+                        "  description TEXT,\n" +
+                        "  external_iban TEXT,\n" +
+                        "  type TEXT,\n" +
+                        "  category_id BIGINT,\n" +
+                        "  apply_on_history BOOLEAN,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  FOREIGN KEY(category_id) REFERENCES Category_Table(category_id),\n" +
+                        "  PRIMARY KEY(user_id, category_rule_id)\n" +
+                        ");"
+        );
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Saving_Goal(\n" +
+                "  user_id INTEGER,\n" +
+                "  saving_goal_id BIGINT,\n" +
+                "  creation_date DATETIME,\n" +
+                "  deletion_date DATETIME,\n" +
+                "  name TEXT,\n" +
+                "  goal FLOAT,\n" +
+                "  save_per_month FLOAT,\n" +
+                "  min_balance_required FLOAT,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, saving_goal_id)\n" +
+                ");"
+        );
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Payment_Request(\n" +
+                "  user_id INTEGER,\n" +
+                "  payment_request_id BIGINT,\n" +
+                "  description TEXT,\n" +
+                "  due_date DATETIME,\n" +
+                "  amount FLOAT,\n" +
+                "  number_of_requests BIGINT,\n" +
+                "  filled BOOLEAN,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, payment_request_id)\n" +
+                ");"
+        );
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Payment_Request_Transaction(\n" +
+                "  user_id INTEGER,\n" +
+                "  payment_request_id BIGINT,\n" +
+                "  transaction_id BIGINT,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  FOREIGN KEY(payment_request_id) REFERENCES Payment_Request(payment_request_id),\n" +
+                "  FOREIGN KEY(transaction_id) REFERENCES Transaction_Table(transaction_id),\n" +
+                "  PRIMARY KEY(user_id, payment_request_id, transaction_id)\n" +
+                ");"
+        );
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS User_Message(\n" +
+                "  user_id INTEGER,\n" +
+                "  user_message_id BIGINT,\n" +
+                "  message TEXT,\n" +
+                "  date DATETIME,\n" +
+                "  read BOOLEAN,\n" +
+                "  type TEXT,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, user_message_id)\n" +
+                ");"
+        );
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Message_Rule(\n" +
+                "  user_id INTEGER,\n" +
+                "  message_rule_id BIGINT,\n" +
+                "  category_id BIGINT,\n" +
+                "  type TEXT,\n" +
+                "  value float,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, message_rule_id)\n" +
+                ");"
+        );
+    }
+
+    /**
+     * Migration 2: create the indexes used by the most frequent queries.
+     * The index on Transaction_Table covers the columns needed to replay the balance history of a user in order of date.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void createIndexes(Statement statement) throws SQLException {
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS User_Table_session_id ON User_Table(session_id);");
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS Transaction_Table_user_id_date " +
+                "ON Transaction_Table(user_id, date, transaction_id, amount, type);");
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS Transaction_Category_user_id_category_id " +
+                "ON Transaction_Category(user_id, category_id);");
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS User_Message_unread " +
+                "ON User_Message(user_id) WHERE read = 0;");
+    }
+
+    /**
+     * Migration 3: store all dates as INTEGER milliseconds since the beginning of UNIX time instead of DATETIME text.
+     * SQLite cannot change the type of a column, so every table containing dates is rebuilt, converting the existing
+     * dates on the way. The indexes on the rebuilt tables are created again afterwards.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void convertDatesToEpochMillis(Statement statement) throws SQLException {
+        rebuildTable(statement, "Transaction_Table",
+                "CREATE TABLE Transaction_Table_new(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  transaction_id BIGINT,\n" +
+                        "  date INTEGER,\n" +
+                        "  amount FLOAT,\n" +
+                        "  description TEXT,\n" +
+                        "  external_iban TEXT,\n" +
+                        "  type TEXT,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  PRIMARY KEY(user_id, transaction_id)\n" +
+                        ");",
+                "user_id, transaction_id, " + toEpochMillis("date") + ", amount, description, external_iban, type");
+        rebuildTable(statement, "Saving_Goal",
+                "CREATE TABLE Saving_Goal_new(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  saving_goal_id BIGINT,\n" +
+                        "  creation_date INTEGER,\n" +
+                        "  deletion_date INTEGER,\n" +
+                        "  name TEXT,\n" +
+                        "  goal FLOAT,\n" +
+                        "  save_per_month FLOAT,\n" +
+                        "  min_balance_required FLOAT,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  PRIMARY KEY(user_id, saving_goal_id)\n" +
+                        ");",
+                "user_id, saving_goal_id, " + toEpochMillis("creation_date") + ", " +
+                        toEpochMillis("deletion_date") + ", name, goal, save_per_month, min_balance_required");
+        rebuildTable(statement, "Payment_Request",
+                "CREATE TABLE Payment_Request_new(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  payment_request_id BIGINT,\n" +
+                        "  description TEXT,\n" +
+                        "  due_date INTEGER,\n" +
+                        "  amount FLOAT,\n" +
+                        "  number_of_requests BIGINT,\n" +
+                        "  filled BOOLEAN,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  PRIMARY KEY(user_id, payment_request_id)\n" +
+                        ");",
+                "user_id, payment_request_id, description, " + toEpochMillis("due_date") +
+                        ", amount, number_of_requests, filled");
+        rebuildTable(statement, "User_Message",
+                "CREATE TABLE User_Message_new(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  user_message_id BIGINT,\n" +
+                        "  message TEXT,\n" +
+                        "  date INTEGER,\n" +
+                        "  read BOOLEAN,\n" +
+                        "  type TEXT,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  PRIMARY KEY(user_id, user_message_id)\n" +
+                        ");",
+                "user_id, user_message_id, message, " + toEpochMillis("date") + ", read, type");
+
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS Transaction_Table_user_id_date " +
+                "ON Transaction_Table(user_id, date, transaction_id, amount, type);");
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS User_Message_unread " +
+                "ON User_Message(user_id) WHERE read = 0;");
+    }
+
+    /**
+     * Migration 4: store all amounts of money as INTEGER cents instead of FLOAT, so that no rounding errors accumulate.
+     * Like in migration 3, every table containing amounts is rebuilt, rounding the existing amounts to whole cents.
+     * Additionally, an index is created that allows a deposit to be matched to an open Payment Request directly.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void convertAmountsToCents(Statement statement) throws SQLException {
+        rebuildTable(statement, "User_Table",
+                "CREATE TABLE User_Table_new(\n" +
+                        "  user_id INTEGER PRIMARY KEY AUTOINCREMENT,\n" +
+                        "  session_id TEXT,\n" +
+                        "  highest_lifetime_balance INTEGER,\n" +
+                        "  highest_transaction_id BIGINT,\n" +
+                        "  highest_category_id BIGINT,\n" +
+                        "  highest_category_rule_id BIGINT,\n" +
+                        "  highest_saving_goal_id BIGINT,\n" +
+                        "  highest_payment_request_id BIGINT,\n" +
+                        "  highest_user_message_id BIGINT,\n" +
+                        "  highest_message_rule_id BIGINT\n" +
+                        ");",
+                "user_id, session_id, " + toCents("highest_lifetime_balance") + ", highest_transaction_id, " +
+                        "highest_category_id, highest_category_rule_id, highest_saving_goal_id, " +
+                        "highest_payment_request_id, highest_user_message_id, highest_message_rule_id");
+        rebuildTable(statement, "Transaction_Table",
+                "CREATE TABLE Transaction_Table_new(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  transaction_id BIGINT,\n" +
+                        "  date INTEGER,\n" +
+                        "  amount INTEGER,\n" +
+                        "  description TEXT,\n" +
+                        "  external_iban TEXT,\n" +
+                        "  type TEXT,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  PRIMARY KEY(user_id, transaction_id)\n" +
+                        ");",
+                "user_id, transaction_id, date, " + toCents("amount") + ", description, external_iban, type");
+        rebuildTable(statement, "Saving_Goal",
+                "CREATE TABLE Saving_Goal_new(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  saving_goal_id BIGINT,\n" +
+                        "  creation_date INTEGER,\n" +
+                        "  deletion_date INTEGER,\n" +
+                        "  name TEXT,\n" +
+                        "  goal INTEGER,\n" +
+                        "  save_per_month INTEGER,\n" +
+                        "  min_balance_required INTEGER,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  PRIMARY KEY(user_id, saving_goal_id)\n" +
+                        ");",
+                "user_id, saving_goal_id, creation_date, deletion_date, name, " + toCents("goal") + ", " +
+                        toCents("save_per_month") + ", " + toCents("min_balance_required"));
+        rebuildTable(statement, "Payment_Request",
+                "CREATE TABLE Payment_Request_new(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  payment_request_id BIGINT,\n" +
+                        "  description TEXT,\n" +
+                        "  due_date INTEGER,\n" +
+                        "  amount INTEGER,\n" +
+                        "  number_of_requests BIGINT,\n" +
+                        "  filled BOOLEAN,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  PRIMARY KEY(user_id, payment_request_id)\n" +
+                        ");",
+                "user_id, payment_request_id, description, due_date, " + toCents("amount") +
+                        ", number_of_requests, filled");
+        rebuildTable(statement, "Message_Rule",
+                "CREATE TABLE Message_Rule_new(\n" +
+                        "  user_id INTEGER,\n" +
+                        "  message_rule_id BIGINT,\n" +
+                        "  category_id BIGINT,\n" +
+                        "  type TEXT,\n" +
+                        "  value INTEGER,\n" +
+                        "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                        "  PRIMARY KEY(user_id, message_rule_id)\n" +
+                        ");",
+                "user_id, message_rule_id, category_id, type, " + toCents("value"));
+
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS User_Table_session_id ON User_Table(session_id);");
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS Transaction_Table_user_id_date " +
+                "ON Transaction_Table(user_id, date, transaction_id, amount, type);");
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS Payment_Request_user_id_amount " +
+                "ON Payment_Request(user_id, amount);");
+    }
+
+    /**
+     * Migration 5: create the table in which the current balance of every user is persisted, and add the column in which
+     * the money set apart for every SavingGoal is persisted.
+     * The table starts out empty, so the balance of every existing user is recomputed the first time it is needed.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void createBalanceTable(Statement statement) throws SQLException {
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Balance(\n" +
+                "  user_id INTEGER PRIMARY KEY,\n" +
+                "  balance INTEGER,\n" +
+                "  date INTEGER,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id)\n" +
+                ");"
+        );
+        statement.executeUpdate("ALTER TABLE Saving_Goal ADD COLUMN balance INTEGER DEFAULT 0;");
+    }
+
+    /**
+     * Migration 6: create the table in which the BalanceCandlestick rollups of every user are persisted.
+     * The persisted balances are removed, so that the balance and the rollups of every existing user are recomputed
+     * together the first time they are needed.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void createBalanceRollupTable(Statement statement) throws SQLException {
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Balance_Rollup(\n" +
+                "  user_id INTEGER,\n" +
+                "  period TEXT,\n" +
+                "  bucket INTEGER,\n" +
+                "  open INTEGER,\n" +
+                "  close INTEGER,\n" +
+                "  high INTEGER,\n" +
+                "  low INTEGER,\n" +
+                "  volume INTEGER,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, period, bucket)\n" +
+                ");"
+        );
+        statement.executeUpdate("DELETE FROM Balance;");
+    }
+
+    /**
+     * Migration 7: create the tables in which the monthly BalanceCheckpoints of every user are persisted.
+     * The tables start out empty, so the BalanceCheckpoints of every existing user are taken the next time its balance
+     * is recomputed.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void createBalanceCheckpointTables(Statement statement) throws SQLException {
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Balance_Checkpoint(\n" +
+                "  user_id INTEGER,\n" +
+                "  month_start INTEGER,\n" +
+                "  balance INTEGER,\n" +
+                "  date INTEGER,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, month_start)\n" +
+                ");"
+        );
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Saving_Goal_Checkpoint(\n" +
+                "  user_id INTEGER,\n" +
+                "  month_start INTEGER,\n" +
+                "  saving_goal_id BIGINT,\n" +
+                "  balance INTEGER,\n" +
+                "  released BOOLEAN,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, month_start, saving_goal_id)\n" +
+                ");"
+        );
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Balance_Checkpoint_Rollup(\n" +
+                "  user_id INTEGER,\n" +
+                "  month_start INTEGER,\n" +
+                "  period TEXT,\n" +
+                "  bucket INTEGER,\n" +
+                "  open INTEGER,\n" +
+                "  close INTEGER,\n" +
+                "  high INTEGER,\n" +
+                "  low INTEGER,\n" +
+                "  volume INTEGER,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, month_start, period)\n" +
+                ");"
+        );
+    }
+
+    /**
+     * Migration 8: add the column that marks whether the user has been notified that the goal of a SavingGoal has been
+     * met. SavingGoals for which a UserMessage saying so has already been emitted are marked right away, so that the
+     * message is not emitted again.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void addSavingGoalReachedColumn(Statement statement) throws SQLException {
+        statement.executeUpdate("ALTER TABLE Saving_Goal ADD COLUMN reached BOOLEAN DEFAULT 0;");
+        statement.executeUpdate("UPDATE Saving_Goal\n" +
+                "SET reached = 1\n" +
+                "WHERE EXISTS (\n" +
+                "  SELECT 1\n" +
+                "  FROM User_Message m\n" +
+                "  WHERE m.user_id = Saving_Goal.user_id\n" +
+                "  AND m.message = 'Saving goal reached: ' || Saving_Goal.name || " +
+                "' (ID = ' || Saving_Goal.saving_goal_id || ').'\n" +
+                ");"
+        );
+    }
+
+    /**
+     * Migration 9: create the table in which the progress of the streaming imports of every user is persisted, and add
+     * the column of User_Table in which the highest reserved ImportJob ID of every user is kept.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void createImportJobTable(Statement statement) throws SQLException {
+        statement.executeUpdate("ALTER TABLE User_Table ADD COLUMN highest_import_job_id BIGINT DEFAULT 0;");
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Import_Job(\n" +
+                "  user_id INTEGER,\n" +
+                "  import_job_id BIGINT,\n" +
+                "  format TEXT,\n" +
+                "  completed BOOLEAN,\n" +
+                "  lines_processed INTEGER,\n" +
+                "  transactions_imported INTEGER,\n" +
+                "  lines_rejected INTEGER,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, import_job_id)\n" +
+                ");"
+        );
+    }
+
+    /**
+     * Migration 10: create the outbox table in which the TransactionEvents of posted Transactions are persisted until
+     * their derived evaluations have been done, together with an index to retrieve them per user in order.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void createTransactionEventTable(Statement statement) throws SQLException {
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Transaction_Event(\n" +
+                "  event_id INTEGER PRIMARY KEY AUTOINCREMENT,\n" +
+                "  user_id INTEGER,\n" +
+                "  transaction_id BIGINT,\n" +
+                "  old_balance INTEGER,\n" +
+                "  old_date INTEGER,\n" +
+                "  new_balance INTEGER,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id)\n" +
+                ");"
+        );
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS Transaction_Event_user_id " +
+                "ON Transaction_Event(user_id, event_id);");
+    }
+
+    /**
+     * Migration 11: create the table in which the responses to requests made with an idempotency key are stored,
+     * together with an index to remove expired responses.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void createIdempotentResponseTable(Statement statement) throws SQLException {
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Idempotent_Response(\n" +
+                "  user_id INTEGER,\n" +
+                "  endpoint TEXT,\n" +
+                "  idempotency_key TEXT,\n" +
+                "  status INTEGER,\n" +
+                "  body TEXT,\n" +
+                "  created INTEGER,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, endpoint, idempotency_key)\n" +
+                ");"
+        );
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS Idempotent_Response_created " +
+                "ON Idempotent_Response(created);");
+    }
+
+    /**
+     * Migration 12: create the tables in which the CategorySpend of every user is persisted, being the window of the
+     * CategorySpend and the amounts withdrawn per Category per day within it.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void createCategorySpendTables(Statement statement) throws SQLException {
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Category_Spend_Window(\n" +
+                "  user_id INTEGER PRIMARY KEY,\n" +
+                "  head_day INTEGER,\n" +
+                "  evaluated_until_id BIGINT,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id)\n" +
+                ");"
+        );
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS Category_Spend(\n" +
+                "  user_id INTEGER,\n" +
+                "  category_id BIGINT,\n" +
+                "  day INTEGER,\n" +
+                "  amount INTEGER,\n" +
+                "  FOREIGN KEY(user_id) REFERENCES User_Table(user_id),\n" +
+                "  PRIMARY KEY(user_id, category_id, day)\n" +
+                ");"
+        );
+    }
+
+    /**
+     * Migration 13: add the column in which the amount of Transactions that answered every PaymentRequest is kept,
+     * filled in from the Transactions linked to it, and replace the index on the amount of PaymentRequests by a partial
+     * index on the PaymentRequests that are not filled yet.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void addPaymentRequestFillCountColumn(Statement statement) throws SQLException {
+        statement.executeUpdate("ALTER TABLE Payment_Request ADD COLUMN fill_count BIGINT DEFAULT 0;");
+        statement.executeUpdate("UPDATE Payment_Request\n" +
+                "SET fill_count = (\n" +
+                "  SELECT COUNT(*)\n" +
+                "  FROM Payment_Request_Transaction prt, Transaction_Table t\n" +
+                "  WHERE prt.user_id = Payment_Request.user_id\n" +
+                "  AND prt.payment_request_id = Payment_Request.payment_request_id\n" +
+                "  AND t.user_id = prt.user_id\n" +
+                "  AND t.transaction_id = prt.transaction_id\n" +
+                ");"
+        );
+        statement.executeUpdate("DROP INDEX IF EXISTS Payment_Request_user_id_amount;");
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS Payment_Request_open " +
+                "ON Payment_Request(user_id, amount, due_date) WHERE filled = 0;");
+    }
+
+    /**
+     * Migration 14: add the column of Transaction_Event in which the amount of failed attempts to handle every
+     * TransactionEvent is kept, so that TransactionEvents that keep failing are set aside instead of retried forever.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void addTransactionEventAttemptsColumn(Statement statement) throws SQLException {
+        statement.executeUpdate("ALTER TABLE Transaction_Event ADD COLUMN attempts INTEGER DEFAULT 0;");
+    }
+
+    /**
+     * Migration 15: add the column of Idempotent_Response in which the hash of the body of every request is kept, so
+     * that an idempotency key that is used again for a different request can be detected.
+     *
+     * @param statement The Statement that will be used to apply the migration.
+     */
+    private static void addIdempotentResponseRequestHashColumn(Statement statement) throws SQLException {
+        statement.executeUpdate("ALTER TABLE Idempotent_Response ADD COLUMN request_hash TEXT;");
+    }
+
+    /**
+     * Method used to rebuild a table with a new definition, by copying its rows into a new table that then replaces it.
+     *
+     * @param statement       The Statement that will be used to rebuild the table.
+     * @param table           The name of the table that will be rebuilt.
+     * @param createNewTable  The CREATE TABLE statement of the new table, which is named table + "_new".
+     * @param selectedColumns The expressions selected from the old table to fill the columns of the new table.
+     */
+    private static void rebuildTable(Statement statement, String table, String createNewTable,
+                                     String selectedColumns) throws SQLException {
+        statement.executeUpdate(createNewTable);
+        statement.executeUpdate("INSERT INTO " + table + "_new SELECT " + selectedColumns + " FROM " + table + ";");
+        statement.executeUpdate("DROP TABLE " + table + ";");
+        statement.executeUpdate("ALTER TABLE " + table + "_new RENAME TO " + table + ";");
+    }
+
+    /**
+     * Method used to create the SQL expression that converts a DATETIME text column, such as 2018-05-13T12:00:00.000Z,
+     * to milliseconds since the beginning of UNIX time. Values that are not text (such as NULL) are left untouched.
+     *
+     * @param column The name of the column containing DATETIME text.
+     * @return The SQL expression converting column to milliseconds since the beginning of UNIX time.
+     */
+    private static String toEpochMillis(String column) {
+        return "CASE WHEN typeof(" + column + ") = 'text' " +
+                "THEN CAST(strftime('%s', " + column + ") AS INTEGER) * 1000 + " +
+                "CAST(substr(strftime('%f', " + column + "), 4) AS INTEGER) " +
+                "ELSE " + column + " END";
+    }
+
+    /**
+     * Method used to create the SQL expression that converts an amount of money stored as FLOAT to INTEGER cents.
+     * Values that are NULL are left untouched.
+     *
+     * @param column The name of the column containing an amount of money as FLOAT.
+     * @return The SQL expression converting column to INTEGER cents.
+     */
+    private static String toCents(String column) {
+        return "CAST(ROUND(" + column + " * 100) AS INTEGER)";
+    }
+
+}
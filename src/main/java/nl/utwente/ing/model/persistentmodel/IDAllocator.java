@@ -0,0 +1,111 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The IDAllocator class.
+ * Used to hand out new IDs per user and IDType, in such a way that the database only has to be accessed once for every
+ * block of IDs instead of once for every ID.
+ * <p>
+ * The highest_*_id columns of User_Table hold the highest ID that has been reserved so far. Whenever the block of a
+ * user and IDType is exhausted, a new block is reserved by increasing this column by the block size, after which the
+ * IDs of the block are handed out from memory. Because the database never lags behind the IDs that are handed out, no
+ * ID is ever handed out twice, also not after a restart; the unused IDs of a block are simply skipped.
+ * If the database transaction in which a block was reserved is rolled back, the reservation is undone as well, so the
+ * block is discarded.
+ *
+ * @author Daan Kooij
+ */
+public class IDAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 32;
+
+    private CustomORM customORM;
+    private int blockSize;
+    private Map<Long, Block> blocks;
+
+    /**
+     * The Block class.
+     * Used to keep track of the IDs in a reserved block that have not been handed out yet.
+     */
+    private static class Block {
+
+        private long nextID;
+        private long highestID;
+
+        /**
+         * The constructor of Block.
+         *
+         * @param nextID    The first ID of the block that has not been handed out yet.
+         * @param highestID The highest ID of the block.
+         */
+        private Block(long nextID, long highestID) {
+            this.nextID = nextID;
+            this.highestID = highestID;
+        }
+
+    }
+
+    /**
+     * The constructor of IDAllocator.
+     *
+     * @param customORM The CustomORM that will be used to reserve blocks of IDs.
+     * @param blockSize The amount of IDs that will be reserved at once.
+     */
+    public IDAllocator(CustomORM customORM, int blockSize) {
+        this.customORM = customORM;
+        this.blockSize = blockSize;
+        this.blocks = new HashMap<>();
+    }
+
+    /**
+     * Method used to hand out a new ID of a certain type for a certain user.
+     * Should be called from within a database transaction that holds the write lock of the database.
+     *
+     * @param userID The ID of the user for which a new ID will be handed out.
+     * @param idType The type of the ID that will be handed out.
+     * @return The new ID.
+     */
+    public long nextID(int userID, IDType idType) {
+        return this.nextIDs(userID, idType, 1);
+    }
+
+    /**
+     * Method used to hand out a contiguous range of new IDs of a certain type for a certain user at once.
+     * If the remainder of the current block is too small to hold the range, the remainder is skipped and a new block
+     * of at least the size of the range is reserved.
+     * Should be called from within a database transaction that holds the write lock of the database.
+     *
+     * @param userID The ID of the user for which the new IDs will be handed out.
+     * @param idType The type of the IDs that will be handed out.
+     * @param amount The amount of IDs that will be handed out.
+     * @return The first ID of the range, the other IDs following it consecutively.
+     */
+    public synchronized long nextIDs(int userID, IDType idType, int amount) {
+        long key = ((long) userID << 8) | idType.ordinal();
+        Block block = blocks.get(key);
+        if (block == null || block.highestID - block.nextID + 1 < amount) {
+            int reservedAmount = Math.max(blockSize, amount);
+            long highestID = customORM.reserveIDs(userID, idType, reservedAmount);
+            Block reservedBlock = new Block(highestID - reservedAmount + 1, highestID);
+            blocks.put(key, reservedBlock);
+            DatabaseConnection.registerRollbackAction(() -> this.discardBlock(key, reservedBlock));
+            block = reservedBlock;
+        }
+        long firstID = block.nextID;
+        block.nextID += amount;
+        return firstID;
+    }
+
+    /**
+     * Method used to discard a block of IDs whose reservation has been rolled back.
+     *
+     * @param key   The key of the user and IDType to which the block belongs.
+     * @param block The block that will be discarded.
+     */
+    private synchronized void discardBlock(long key, Block block) {
+        blocks.remove(key, block);
+    }
+
+}
@@ -0,0 +1,41 @@
+package nl.utwente.ing.model.persistentmodel;
+
+/**
+ * The IDType enum.
+ * Used to specify the types of IDs that are handed out per user, together with the column of User_Table in which the
+ * highest reserved ID of every type is kept.
+ *
+ * @author Daan Kooij
+ */
+public enum IDType {
+
+    TRANSACTION("highest_transaction_id"),
+    CATEGORY("highest_category_id"),
+    CATEGORY_RULE("highest_category_rule_id"),
+    SAVING_GOAL("highest_saving_goal_id"),
+    PAYMENT_REQUEST("highest_payment_request_id"),
+    USER_MESSAGE("highest_user_message_id"),
+    MESSAGE_RULE("highest_message_rule_id"),
+    IMPORT_JOB("highest_import_job_id");
+
+    private String column;
+
+    /**
+     * The constructor of IDType.
+     *
+     * @param column The column of User_Table in which the highest reserved ID of this type is kept.
+     */
+    IDType(String column) {
+        this.column = column;
+    }
+
+    /**
+     * Method used to retrieve the column of User_Table in which the highest reserved ID of this type is kept.
+     *
+     * @return The column of User_Table in which the highest reserved ID of this type is kept.
+     */
+    public String getColumn() {
+        return column;
+    }
+
+}
@@ -0,0 +1,131 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.model.bean.IdempotentResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The IdempotencyStore class.
+ * Used to remember the responses to requests made with an idempotency key for a limited amount of time, so that
+ * retries of such a request are answered with the original response instead of being executed again.
+ * <p>
+ * The responses are persisted in the database, in the same unit of work as the changes made by the request, so a
+ * request is either executed and remembered or neither. Recently stored or retrieved responses are also kept in a
+ * bounded cache in memory that evicts its least recently used entry once it is full, so that most retries are answered
+ * without accessing the database. Responses expire after a fixed time to live, after which the idempotency key can be
+ * used again. Expired responses are removed from the database at most once per purge interval.
+ *
+ * @author Daan Kooij
+ */
+public class IdempotencyStore {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 24 * 60 * 60 * 1000;
+    public static final long PURGE_INTERVAL_MILLIS = 60 * 1000;
+
+    private final CustomORM customORM;
+    private final long timeToLiveMillis;
+    private final Map<String, IdempotentResponse> responses;
+    private final AtomicLong lastPurge = new AtomicLong();
+
+    /**
+     * The constructor of IdempotencyStore, using the default capacity and default time to live.
+     *
+     * @param customORM The CustomORM used to persist and retrieve responses.
+     */
+    public IdempotencyStore(CustomORM customORM) {
+        this(customORM, DEFAULT_CAPACITY, DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    /**
+     * The constructor of IdempotencyStore.
+     *
+     * @param customORM        The CustomORM used to persist and retrieve responses.
+     * @param capacity         The maximum amount of responses that will be kept in memory.
+     * @param timeToLiveMillis The amount of milliseconds a response is remembered.
+     */
+    public IdempotencyStore(CustomORM customORM, int capacity, long timeToLiveMillis) {
+        this.customORM = customORM;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.responses = new LinkedHashMap<String, IdempotentResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotentResponse> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Method used to retrieve the response to an earlier request of a certain user with a certain idempotency key.
+     * The cache is consulted first, so that the database is only accessed for responses it does not know.
+     *
+     * @param userID         The ID of the user that made the request.
+     * @param endpoint       The endpoint to which the request was made.
+     * @param idempotencyKey The idempotency key of the request.
+     * @return The response to the earlier request, or null if there is no such request that has not expired yet.
+     */
+    public IdempotentResponse get(int userID, String endpoint, String idempotencyKey) {
+        String key = createKey(userID, endpoint, idempotencyKey);
+        long notBefore = System.currentTimeMillis() - timeToLiveMillis;
+        synchronized (this) {
+            IdempotentResponse response = responses.get(key);
+            if (response != null && response.getCreated() > notBefore) {
+                return response;
+            } else if (response != null) {
+                responses.remove(key);
+            }
+        }
+
+        IdempotentResponse response = customORM.getIdempotentResponse(userID, endpoint, idempotencyKey, notBefore);
+        if (response != null) {
+            this.cache(key, response);
+        }
+        return response;
+    }
+
+    /**
+     * Method used to store the response to a request of a certain user with a certain idempotency key in the current
+     * unit of work.
+     * The response is added to the cache once the current unit of work has been committed.
+     *
+     * @param userID         The ID of the user that made the request.
+     * @param endpoint       The endpoint to which the request was made.
+     * @param idempotencyKey The idempotency key of the request.
+     * @param response       The response to the request.
+     */
+    public void put(int userID, String endpoint, String idempotencyKey, IdempotentResponse response) {
+        long now = System.currentTimeMillis();
+        long previousPurge = lastPurge.get();
+        if (now - previousPurge >= PURGE_INTERVAL_MILLIS && lastPurge.compareAndSet(previousPurge, now)) {
+            customORM.deleteIdempotentResponsesBefore(now - timeToLiveMillis);
+        }
+        customORM.createIdempotentResponse(userID, endpoint, idempotencyKey, response);
+        DatabaseConnection.registerCommitAction(() ->
+                this.cache(createKey(userID, endpoint, idempotencyKey), response));
+    }
+
+    /**
+     * Method used to add a response to the cache.
+     *
+     * @param key      The key under which the response will be cached.
+     * @param response The response that will be cached.
+     */
+    private synchronized void cache(String key, IdempotentResponse response) {
+        responses.put(key, response);
+    }
+
+    /**
+     * Method used to create the key under which the response to a request is cached.
+     *
+     * @param userID         The ID of the user that made the request.
+     * @param endpoint       The endpoint to which the request was made.
+     * @param idempotencyKey The idempotency key of the request.
+     * @return The key under which the response to the request is cached.
+     */
+    private static String createKey(int userID, String endpoint, String idempotencyKey) {
+        return userID + "\n" + endpoint + "\n" + idempotencyKey;
+    }
+
+}
@@ -0,0 +1,442 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.model.bean.Transaction;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The LedgerCache class.
+ * Used to keep the ledgers of recently active users in memory in a columnar form, so that replaying the Transactions of
+ * such a user is a loop over primitive arrays that does not access the database and does not allocate any objects.
+ * <p>
+ * For every cached user, the IDs, dates, amounts, types and Category IDs of all Transactions are kept in parallel
+ * arrays, sorted on date and ID. The cache is bounded by the total amount of cached Transactions, evicting the ledgers
+ * of the least recently used users once it is full. Ledgers of users that have more Transactions than fit in the cache
+ * are not cached at all.
+ * <p>
+ * The LedgerCache should only be used within units of work that hold the write lock of the database, which are
+ * executed one at a time, and should be notified of every change to the Transactions of a user or the Categories
+ * assigned to them. If the unit of work in which a ledger was loaded or changed is rolled back, the ledger is removed
+ * from the cache again.
+ *
+ * @author Daan Kooij
+ */
+public class LedgerCache {
+
+    public static final int DEFAULT_CAPACITY = 1000000;
+
+    static final byte WITHDRAWAL = 0;
+    static final byte DEPOSIT = 1;
+
+    private final CustomORM customORM;
+    private final int capacity;
+    private final Map<Integer, ColumnarLedger> ledgers;
+    private int cachedRows;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * The ColumnarLedger class.
+     * Used to store the Transactions of one user as parallel arrays, sorted on date and ID.
+     */
+    private static class ColumnarLedger {
+
+        private long[] transactionIDs = new long[16];
+        private long[] dates = new long[16];
+        private long[] amounts = new long[16];
+        private byte[] types = new byte[16];
+        private long[] categoryIDs = new long[16];
+        private int size;
+
+        /**
+         * Method used to add a Transaction after all Transactions in ColumnarLedger.
+         *
+         * @param transactionID The ID of the added Transaction.
+         * @param date          The date of the added Transaction.
+         * @param amount        The amount of the added Transaction, in cents.
+         * @param type          The type of the added Transaction (DEPOSIT or WITHDRAWAL).
+         * @param categoryID    The ID of the Category assigned to the added Transaction (0 if no Category).
+         */
+        private void append(long transactionID, long date, long amount, byte type, long categoryID) {
+            this.insert(size, transactionID, date, amount, type, categoryID);
+        }
+
+        /**
+         * Method used to insert a Transaction at a certain index in ColumnarLedger, moving the Transactions from that
+         * index onwards one position up.
+         *
+         * @param index         The index at which the Transaction will be inserted.
+         * @param transactionID The ID of the inserted Transaction.
+         * @param date          The date of the inserted Transaction.
+         * @param amount        The amount of the inserted Transaction, in cents.
+         * @param type          The type of the inserted Transaction (DEPOSIT or WITHDRAWAL).
+         * @param categoryID    The ID of the Category assigned to the inserted Transaction (0 if no Category).
+         */
+        private void insert(int index, long transactionID, long date, long amount, byte type, long categoryID) {
+            if (size == dates.length) {
+                int newLength = size + (size >> 1);
+                transactionIDs = Arrays.copyOf(transactionIDs, newLength);
+                dates = Arrays.copyOf(dates, newLength);
+                amounts = Arrays.copyOf(amounts, newLength);
+                types = Arrays.copyOf(types, newLength);
+                categoryIDs = Arrays.copyOf(categoryIDs, newLength);
+            }
+            int moved = size - index;
+            System.arraycopy(transactionIDs, index, transactionIDs, index + 1, moved);
+            System.arraycopy(dates, index, dates, index + 1, moved);
+            System.arraycopy(amounts, index, amounts, index + 1, moved);
+            System.arraycopy(types, index, types, index + 1, moved);
+            System.arraycopy(categoryIDs, index, categoryIDs, index + 1, moved);
+            transactionIDs[index] = transactionID;
+            dates[index] = date;
+            amounts[index] = amount;
+            types[index] = type;
+            categoryIDs[index] = categoryID;
+            size++;
+        }
+
+        /**
+         * Method used to remove the Transaction at a certain index from ColumnarLedger, moving the Transactions after
+         * that index one position down.
+         *
+         * @param index The index of the Transaction that will be removed.
+         */
+        private void remove(int index) {
+            int moved = size - index - 1;
+            System.arraycopy(transactionIDs, index + 1, transactionIDs, index, moved);
+            System.arraycopy(dates, index + 1, dates, index, moved);
+            System.arraycopy(amounts, index + 1, amounts, index, moved);
+            System.arraycopy(types, index + 1, types, index, moved);
+            System.arraycopy(categoryIDs, index + 1, categoryIDs, index, moved);
+            size--;
+        }
+
+        /**
+         * Method used to find the index of a certain Transaction in ColumnarLedger.
+         * Recent Transactions are the most likely to be looked up, so ColumnarLedger is searched from the end.
+         *
+         * @param transactionID The ID of the Transaction to search for.
+         * @return The index of the Transaction, or -1 if it is not in ColumnarLedger.
+         */
+        private int find(long transactionID) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (transactionIDs[i] == transactionID) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Method used to find the index at which a Transaction should be inserted to keep ColumnarLedger sorted on
+         * date and ID.
+         *
+         * @param transactionID The ID of the Transaction.
+         * @param date          The date of the Transaction.
+         * @return The index of the first Transaction in ColumnarLedger that comes after the Transaction.
+         */
+        private int insertionIndex(long transactionID, long date) {
+            int index = this.indexOf(date);
+            while (index < size && dates[index] == date && transactionIDs[index] < transactionID) {
+                index++;
+            }
+            return index;
+        }
+
+        /**
+         * Method used to find the index of the first Transaction in ColumnarLedger with a date not before a certain
+         * date.
+         *
+         * @param date The date to search for.
+         * @return The index of the first Transaction with a date not before date, or the size of ColumnarLedger if
+         * there is none.
+         */
+        private int indexOf(long date) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (dates[middle] < date) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+    }
+
+    /**
+     * The constructor of LedgerCache, using the default capacity.
+     *
+     * @param customORM The CustomORM used to load the ledgers of users that are not cached.
+     */
+    public LedgerCache(CustomORM customORM) {
+        this(customORM, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * The constructor of LedgerCache.
+     *
+     * @param customORM The CustomORM used to load the ledgers of users that are not cached.
+     * @param capacity  The maximum amount of Transactions, of all users combined, that will be kept in the cache.
+     */
+    public LedgerCache(CustomORM customORM, int capacity) {
+        this.customORM = customORM;
+        this.capacity = capacity;
+        this.ledgers = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Method used to stream the Transactions of a certain user with a date in a certain range in ascending order of
+     * date and ID to a LedgerVisitor.
+     * If the ledger of the user is not cached, it is loaded from the database first.
+     *
+     * @param userID  The ID of the user to who the to be streamed Transactions belong.
+     * @param from    The date from which Transactions are streamed (inclusive).
+     * @param to      The date until which Transactions are streamed (exclusive).
+     * @param visitor The LedgerVisitor that will visit every streamed Transaction.
+     */
+    public void streamTransactions(int userID, long from, long to, LedgerVisitor visitor) {
+        ColumnarLedger ledger = this.getLedger(userID);
+        LedgerRow row = new LedgerRow();
+        for (int i = ledger.indexOf(from); i < ledger.size && ledger.dates[i] < to; i++) {
+            row.set(ledger.transactionIDs[i], ledger.dates[i], ledger.amounts[i], ledger.types[i] == DEPOSIT,
+                    ledger.categoryIDs[i]);
+            visitor.visit(row);
+        }
+    }
+
+    /**
+     * Method used to retrieve a view on the Transactions of a certain user with a date not before a certain date, in
+     * ascending order of date and ID, for replays that need random access to the Transactions.
+     * If the ledger of the user is not cached, it is loaded from the database first.
+     *
+     * @param userID The ID of the user to who the Transactions belong.
+     * @param from   The date from which Transactions are included in the view (inclusive).
+     * @return LedgerColumns containing the Transactions of the user from date from onwards.
+     */
+    public LedgerColumns getColumns(int userID, long from) {
+        ColumnarLedger ledger = this.getLedger(userID);
+        return new LedgerColumns(ledger.dates, ledger.amounts, ledger.types, ledger.indexOf(from), ledger.size);
+    }
+
+    /**
+     * Method used to indicate that a Transaction has been added for a certain user.
+     * The Transaction is inserted at its position in the cached ledger of the user, which is simply appending it
+     * unless the Transaction is backdated.
+     *
+     * @param userID        The ID of the user to who the added Transaction belongs.
+     * @param transactionID The ID of the added Transaction.
+     * @param date          The date of the added Transaction.
+     * @param amount        The amount of the added Transaction, in cents.
+     * @param deposit       Whether the added Transaction is a deposit (as opposed to a withdrawal).
+     */
+    public synchronized void transactionAdded(int userID, long transactionID, long date, long amount,
+                                              boolean deposit) {
+        ColumnarLedger ledger = ledgers.get(userID);
+        if (ledger != null) {
+            ledger.insert(ledger.insertionIndex(transactionID, date), transactionID, date, amount,
+                    deposit ? DEPOSIT : WITHDRAWAL, 0);
+            cachedRows++;
+            this.registerRollback(userID);
+            this.evict();
+        }
+    }
+
+    /**
+     * Method used to indicate that several Transactions have been added for a certain user at once.
+     * The Transactions are inserted at their positions in the cached ledger of the user together with their
+     * Categories.
+     *
+     * @param userID       The ID of the user to who the added Transactions belong.
+     * @param transactions The added Transactions, sorted on date and ID.
+     * @param categoryIDs  A map from the IDs of the added Transactions to which a Category has been assigned to the IDs
+     *                     of these Categories.
+     */
+    public synchronized void transactionsAdded(int userID, List<Transaction> transactions,
+                                               Map<Long, Long> categoryIDs) {
+        ColumnarLedger ledger = ledgers.get(userID);
+        if (ledger != null && !transactions.isEmpty()) {
+            this.registerRollback(userID);
+            for (Transaction transaction : transactions) {
+                ledger.insert(ledger.insertionIndex(transaction.getID(), transaction.getDate()), transaction.getID(),
+                        transaction.getDate(), transaction.getAmount(),
+                        transaction.getType().equals("deposit") ? DEPOSIT : WITHDRAWAL,
+                        categoryIDs.getOrDefault(transaction.getID(), 0L));
+                cachedRows++;
+            }
+            this.evict();
+        }
+    }
+
+    /**
+     * Method used to indicate that a Category has been assigned to a certain Transaction of a certain user.
+     *
+     * @param userID        The ID of the user to who the Transaction belongs.
+     * @param transactionID The ID of the Transaction to which the Category has been assigned.
+     * @param categoryID    The ID of the assigned Category.
+     */
+    public synchronized void categoryAssigned(int userID, long transactionID, long categoryID) {
+        ColumnarLedger ledger = ledgers.get(userID);
+        if (ledger != null) {
+            int index = ledger.find(transactionID);
+            if (index != -1) {
+                ledger.categoryIDs[index] = categoryID;
+                this.registerRollback(userID);
+            }
+        }
+    }
+
+    /**
+     * Method used to indicate that the date, amount or type of a certain Transaction of a certain user has been
+     * updated.
+     * The Transaction is moved to its new position in the cached ledger of the user, keeping its Category.
+     *
+     * @param userID      The ID of the user to who the updated Transaction belongs.
+     * @param transaction The updated Transaction.
+     */
+    public synchronized void transactionUpdated(int userID, Transaction transaction) {
+        ColumnarLedger ledger = ledgers.get(userID);
+        if (ledger != null) {
+            int index = ledger.find(transaction.getID());
+            if (index == -1) {
+                this.invalidate(userID);
+                return;
+            }
+            long categoryID = ledger.categoryIDs[index];
+            ledger.remove(index);
+            ledger.insert(ledger.insertionIndex(transaction.getID(), transaction.getDate()), transaction.getID(),
+                    transaction.getDate(), transaction.getAmount(),
+                    transaction.getType().equals("deposit") ? DEPOSIT : WITHDRAWAL, categoryID);
+            this.registerRollback(userID);
+        }
+    }
+
+    /**
+     * Method used to indicate that a certain Transaction of a certain user has been deleted.
+     * The Transaction is removed from the cached ledger of the user.
+     *
+     * @param userID        The ID of the user to who the deleted Transaction belonged.
+     * @param transactionID The ID of the deleted Transaction.
+     */
+    public synchronized void transactionDeleted(int userID, long transactionID) {
+        ColumnarLedger ledger = ledgers.get(userID);
+        if (ledger != null) {
+            int index = ledger.find(transactionID);
+            if (index == -1) {
+                this.invalidate(userID);
+                return;
+            }
+            ledger.remove(index);
+            cachedRows--;
+            this.registerRollback(userID);
+        }
+    }
+
+    /**
+     * Method used to remove the ledger of a certain user from the cache, for example after the Categories of many of
+     * its Transactions have been changed at once.
+     *
+     * @param userID The ID of the user whose ledger will be removed from the cache.
+     */
+    public synchronized void invalidate(int userID) {
+        ColumnarLedger ledger = ledgers.remove(userID);
+        if (ledger != null) {
+            cachedRows -= ledger.size;
+        }
+    }
+
+    /**
+     * Method used to retrieve the amount of Transactions currently kept in the cache.
+     *
+     * @return The amount of Transactions of all users combined currently kept in the cache.
+     */
+    public synchronized int size() {
+        return cachedRows;
+    }
+
+    /**
+     * Method used to retrieve the amount of replays that were answered by the cache.
+     *
+     * @return The amount of cache hits.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Method used to retrieve the amount of replays for which the ledger had to be loaded from the database.
+     *
+     * @return The amount of cache misses.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Method used to retrieve the amount of ledgers that were evicted because the cache was full.
+     *
+     * @return The amount of cache evictions.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Method used to retrieve the cached ledger of a certain user, loading it from the database if it is not cached.
+     *
+     * @param userID The ID of the user whose ledger will be retrieved.
+     * @return The ledger of the user.
+     */
+    private synchronized ColumnarLedger getLedger(int userID) {
+        ColumnarLedger ledger = ledgers.get(userID);
+        if (ledger != null) {
+            hits.incrementAndGet();
+            return ledger;
+        }
+        misses.incrementAndGet();
+
+        ColumnarLedger loadedLedger = new ColumnarLedger();
+        customORM.streamLedger(userID, row -> loadedLedger.append(row.getTransactionID(), row.getDate(),
+                row.getAmount(), row.isDeposit() ? DEPOSIT : WITHDRAWAL, row.getCategoryID()));
+        if (loadedLedger.size <= capacity) {
+            ledgers.put(userID, loadedLedger);
+            cachedRows += loadedLedger.size;
+            this.registerRollback(userID);
+            this.evict();
+        }
+        return loadedLedger;
+    }
+
+    /**
+     * Method used to remove the ledger of a certain user from the cache if the current unit of work is rolled back,
+     * since the ledger may contain changes made in that unit of work.
+     *
+     * @param userID The ID of the user whose ledger will be removed from the cache on rollback.
+     */
+    private void registerRollback(int userID) {
+        DatabaseConnection.registerRollbackAction(() -> this.invalidate(userID));
+    }
+
+    /**
+     * Method used to evict the ledgers of the least recently used users until the cache is no longer over capacity.
+     */
+    private void evict() {
+        Iterator<ColumnarLedger> iterator = ledgers.values().iterator();
+        while (cachedRows > capacity && iterator.hasNext()) {
+            cachedRows -= iterator.next().size;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package nl.utwente.ing.model.persistentmodel;
+
+/**
+ * The LedgerColumns class.
+ * Used to provide random access to the dates and amounts of a range of Transactions of a user, in ascending order of
+ * date and ID, without copying them out of the columns in which the LedgerCache keeps them.
+ * <p>
+ * LedgerColumns is a view on the ledger of the user as it was when the view was retrieved, so it should only be used
+ * within the unit of work in which it was retrieved. It is never modified, so it can safely be read by several threads
+ * at once.
+ *
+ * @author Daan Kooij
+ */
+public class LedgerColumns {
+
+    private final long[] dates;
+    private final long[] amounts;
+    private final byte[] types;
+    private final int from;
+    private final int to;
+
+    /**
+     * The constructor of LedgerColumns.
+     *
+     * @param dates   The dates of the Transactions of the user.
+     * @param amounts The amounts of the Transactions of the user, in cents.
+     * @param types   The types of the Transactions of the user.
+     * @param from    The index of the first Transaction in the view (inclusive).
+     * @param to      The index of the last Transaction in the view (exclusive).
+     */
+    LedgerColumns(long[] dates, long[] amounts, byte[] types, int from, int to) {
+        this.dates = dates;
+        this.amounts = amounts;
+        this.types = types;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Method used to retrieve the amount of Transactions in LedgerColumns.
+     *
+     * @return The amount of Transactions in LedgerColumns.
+     */
+    public int size() {
+        return to - from;
+    }
+
+    /**
+     * Method used to retrieve the date of a certain Transaction in LedgerColumns.
+     *
+     * @param index The index of the Transaction within LedgerColumns.
+     * @return The date of the Transaction at index.
+     */
+    public long getDate(int index) {
+        return dates[from + index];
+    }
+
+    /**
+     * Method used to retrieve the amount by which a certain Transaction in LedgerColumns changes the balance of the
+     * user.
+     *
+     * @param index The index of the Transaction within LedgerColumns.
+     * @return The amount of the Transaction at index if it is a deposit, or the negated amount otherwise, in cents.
+     */
+    public long getSignedAmount(int index) {
+        return types[from + index] == LedgerCache.DEPOSIT ? amounts[from + index] : -amounts[from + index];
+    }
+
+}
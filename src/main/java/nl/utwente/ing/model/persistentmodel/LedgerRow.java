@@ -0,0 +1,92 @@
+package nl.utwente.ing.model.persistentmodel;
+
+/**
+ * The LedgerRow class.
+ * Used to hold the columns of one Transaction while the Transactions of a user are streamed to a LedgerVisitor. Only
+ * the columns needed to replay the ledger of a user are held, being the ID, date, amount and type of the Transaction
+ * and the ID of the Category assigned to it. The same LedgerRow is reused for every streamed Transaction, so a
+ * LedgerVisitor should copy any value it wants to keep after its visit method returns.
+ *
+ * @author Daan Kooij
+ */
+public class LedgerRow {
+
+    private long transactionID;
+    private long date;
+    private long amount;
+    private boolean deposit;
+    private long categoryID;
+
+    /**
+     * Method used to fill LedgerRow with the columns of the next streamed Transaction.
+     *
+     * @param transactionID The ID of the streamed Transaction.
+     * @param date          The date of the streamed Transaction.
+     * @param amount        The amount of the streamed Transaction, in cents.
+     * @param deposit       Whether the streamed Transaction is a deposit (as opposed to a withdrawal).
+     * @param categoryID    The ID of the Category assigned to the streamed Transaction (0 if no Category).
+     */
+    void set(long transactionID, long date, long amount, boolean deposit, long categoryID) {
+        this.transactionID = transactionID;
+        this.date = date;
+        this.amount = amount;
+        this.deposit = deposit;
+        this.categoryID = categoryID;
+    }
+
+    /**
+     * Method used to retrieve the ID of the Transaction currently held by LedgerRow.
+     *
+     * @return The ID of the Transaction currently held by LedgerRow.
+     */
+    public long getTransactionID() {
+        return transactionID;
+    }
+
+    /**
+     * Method used to retrieve the date of the Transaction currently held by LedgerRow.
+     *
+     * @return The date of the Transaction currently held by LedgerRow.
+     */
+    public long getDate() {
+        return date;
+    }
+
+    /**
+     * Method used to retrieve the amount of the Transaction currently held by LedgerRow, in cents.
+     *
+     * @return The amount of the Transaction currently held by LedgerRow.
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Method used to retrieve whether the Transaction currently held by LedgerRow is a deposit.
+     *
+     * @return Whether the Transaction currently held by LedgerRow is a deposit.
+     */
+    public boolean isDeposit() {
+        return deposit;
+    }
+
+    /**
+     * Method used to retrieve the amount by which the Transaction currently held by LedgerRow changes the balance of
+     * the user, in cents.
+     *
+     * @return The amount of the Transaction if it is a deposit, or the negated amount otherwise.
+     */
+    public long getSignedAmount() {
+        return deposit ? amount : -amount;
+    }
+
+    /**
+     * Method used to retrieve the ID of the Category assigned to the Transaction currently held by LedgerRow.
+     *
+     * @return The ID of the Category assigned to the Transaction, or 0 if it has no Category.
+     */
+    public long getCategoryID() {
+        return categoryID;
+    }
+
+}
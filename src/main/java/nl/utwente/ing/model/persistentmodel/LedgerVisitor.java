@@ -0,0 +1,20 @@
+package nl.utwente.ing.model.persistentmodel;
+
+/**
+ * The LedgerVisitor interface.
+ * Used to process the Transactions of a user one by one while they are streamed by CustomORM or LedgerCache, so that
+ * they never have to be materialized as Transaction objects.
+ * A LedgerVisitor may read and write other tables, but should not read Transactions itself while it is being visited.
+ *
+ * @author Daan Kooij
+ */
+public interface LedgerVisitor {
+
+    /**
+     * Method used to process the next streamed Transaction.
+     *
+     * @param row The LedgerRow holding the columns of the streamed Transaction, which is reused for the next one.
+     */
+    void visit(LedgerRow row);
+
+}
@@ -0,0 +1,399 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.misc.date.IntervalPeriod;
+import nl.utwente.ing.model.bean.Balance;
+import nl.utwente.ing.model.bean.BalanceCandlestick;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * The ParallelLedgerReplay class.
+ * Used to replay the Transactions of a user without SavingGoals on multiple threads of a ForkJoinPool, producing
+ * exactly the same rollups, BalanceCheckpoints and balance as replaying them one by one would.
+ * <p>
+ * Without SavingGoals, the balance after a Transaction is simply the prefix sum of the amounts of all Transactions up
+ * to and including it. The Transactions are therefore split into chunks, and the net amount of every chunk is computed
+ * in parallel. An exclusive prefix sum over these net amounts gives the balance at the start of every chunk, after
+ * which the BalanceCandlesticks of every chunk, together with the state at every month start within the chunk, are
+ * computed in parallel as well. Finally, the chunks are stitched together in order on the calling thread: the
+ * BalanceCandlesticks of an interval that spans several chunks are combined by taking the open of the first part, the
+ * close of the last part, the highest high, the lowest low and the sum of the volumes. Only the calling thread
+ * accesses the database.
+ * <p>
+ * To bound memory usage, the Transactions are processed in waves of a limited amount of chunks, and the
+ * BalanceCandlesticks of a wave are persisted before the next wave is computed.
+ *
+ * @author Daan Kooij
+ */
+public class ParallelLedgerReplay {
+
+    public static final int DEFAULT_THRESHOLD = 250000;
+    public static final int DEFAULT_CHUNK_SIZE = 16384;
+
+    private static final IntervalPeriod[] INTERVAL_PERIODS = IntervalPeriod.values();
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final CustomORM customORM;
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final int chunkSize;
+
+    /**
+     * The Chunk class.
+     * Used to store the result of replaying one chunk of Transactions, starting from the balance at the start of the
+     * chunk.
+     */
+    private static class Chunk {
+
+        private final Map<IntervalPeriod, List<BalanceCandlestick>> candlesticks = new EnumMap<>(IntervalPeriod.class);
+        private final List<MonthStart> monthStarts = new ArrayList<>();
+
+        /**
+         * The constructor of Chunk.
+         */
+        private Chunk() {
+            for (IntervalPeriod intervalPeriod : INTERVAL_PERIODS) {
+                candlesticks.put(intervalPeriod, new ArrayList<>());
+            }
+        }
+
+    }
+
+    /**
+     * The MonthStart class.
+     * Used to store the state at the start of a month within a chunk, from which a BalanceCheckpoint is created once
+     * the BalanceCandlesticks of the earlier chunks are known.
+     */
+    private static class MonthStart {
+
+        private final long monthStart;
+        private final long balance;
+        private final long date;
+        private final Map<IntervalPeriod, BalanceCandlestick> partialCandlesticks = new EnumMap<>(IntervalPeriod.class);
+        private final Set<IntervalPeriod> startedInChunk = EnumSet.noneOf(IntervalPeriod.class);
+
+        /**
+         * The constructor of MonthStart.
+         *
+         * @param monthStart The start of the month.
+         * @param balance    The balance at the start of the month, in cents.
+         * @param date       The date of the last Transaction before the start of the month.
+         */
+        private MonthStart(long monthStart, long balance, long date) {
+            this.monthStart = monthStart;
+            this.balance = balance;
+            this.date = date;
+        }
+
+    }
+
+    /**
+     * The ChunkAction class.
+     * Used to perform an operation for every chunk in a range of chunks, splitting the range in halves until every
+     * half consists of one chunk.
+     */
+    private static class ChunkAction extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final IntConsumer operation;
+
+        /**
+         * The constructor of ChunkAction.
+         *
+         * @param from      The index of the first chunk in the range (inclusive).
+         * @param to        The index of the last chunk in the range (exclusive).
+         * @param operation The operation that will be performed for the index of every chunk in the range.
+         */
+        private ChunkAction(int from, int to, IntConsumer operation) {
+            this.from = from;
+            this.to = to;
+            this.operation = operation;
+        }
+
+        /**
+         * Method used to perform the operation for every chunk in the range.
+         */
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                operation.accept(from);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkAction(from, middle, operation), new ChunkAction(middle, to, operation));
+            }
+        }
+
+    }
+
+    /**
+     * The constructor of ParallelLedgerReplay.
+     *
+     * @param customORM The CustomORM used to persist rollups and BalanceCheckpoints.
+     * @param pool      The ForkJoinPool on which the chunks are replayed.
+     * @param threshold The minimum amount of Transactions to replay for which replaying in parallel is worthwhile.
+     * @param chunkSize The amount of Transactions in one chunk.
+     */
+    public ParallelLedgerReplay(CustomORM customORM, ForkJoinPool pool, int threshold, int chunkSize) {
+        this.customORM = customORM;
+        this.pool = pool;
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Method used to check whether replaying a certain amount of Transactions in parallel is worthwhile.
+     *
+     * @param size The amount of Transactions to replay.
+     * @return Whether size reaches the threshold of ParallelLedgerReplay.
+     */
+    public boolean isWorthwhile(int size) {
+        return size >= threshold;
+    }
+
+    /**
+     * Method used to replay the Transactions of a user without SavingGoals on top of a certain state, persisting the
+     * rollups of all intervals that contain mutations and a BalanceCheckpoint at the start of every month in which a
+     * Transaction is replayed.
+     * The persisted rollups from the intervals of the first replayed Transaction onwards should have been removed.
+     *
+     * @param userID       The ID of the user whose Transactions will be replayed.
+     * @param columns      The Transactions that will be replayed.
+     * @param balance      The balance of the user before the replayed Transactions, in cents.
+     * @param date         The date of the last Transaction before the replayed Transactions (NO_DATE if none).
+     * @param candlesticks The BalanceCandlesticks so far of the intervals in which the replayed Transactions start.
+     * @return The Balance after all replayed Transactions.
+     */
+    public Balance replay(int userID, LedgerColumns columns, long balance, long date,
+                          Map<IntervalPeriod, BalanceCandlestick> candlesticks) {
+        Map<IntervalPeriod, BalanceCandlestick> carried = new EnumMap<>(IntervalPeriod.class);
+        carried.putAll(candlesticks);
+
+        long waveSize = (long) chunkSize * pool.getParallelism() * CHUNKS_PER_THREAD;
+        for (int waveStart = 0; waveStart < columns.size(); waveStart += waveSize) {
+            int waveEnd = (int) Math.min(columns.size(), waveStart + waveSize);
+            balance = this.replayWave(userID, columns, waveStart, waveEnd, balance, date, carried);
+            date = columns.getDate(waveEnd - 1);
+        }
+
+        for (Map.Entry<IntervalPeriod, BalanceCandlestick> entry : carried.entrySet()) {
+            customORM.updateBalanceRollup(userID, entry.getKey(), entry.getValue());
+        }
+        return new Balance(balance, date);
+    }
+
+    /**
+     * Method used to replay one wave of Transactions and to persist its results.
+     *
+     * @param userID    The ID of the user whose Transactions will be replayed.
+     * @param columns   The Transactions that will be replayed.
+     * @param waveStart The index of the first Transaction in the wave (inclusive).
+     * @param waveEnd   The index of the last Transaction in the wave (exclusive).
+     * @param balance   The balance of the user before the wave, in cents.
+     * @param date      The date of the last Transaction before the wave (NO_DATE if none).
+     * @param carried   The BalanceCandlesticks of the most recent interval of every IntervalPeriod before the wave,
+     *                  which are not yet persisted. Updated to the ones after the wave.
+     * @return The balance of the user after the wave, in cents.
+     */
+    private long replayWave(int userID, LedgerColumns columns, int waveStart, int waveEnd, long balance, long date,
+                            Map<IntervalPeriod, BalanceCandlestick> carried) {
+        int chunks = (waveEnd - waveStart + chunkSize - 1) / chunkSize;
+
+        // Compute the net amount of every chunk, and turn these into the balance at the start of every chunk
+        long[] chunkBalances = new long[chunks];
+        pool.invoke(new ChunkAction(0, chunks, chunk -> {
+            long netAmount = 0;
+            for (int i = chunkStart(waveStart, chunk); i < chunkEnd(waveStart, waveEnd, chunk); i++) {
+                netAmount += columns.getSignedAmount(i);
+            }
+            chunkBalances[chunk] = netAmount;
+        }));
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            long netAmount = chunkBalances[chunk];
+            chunkBalances[chunk] = balance;
+            balance += netAmount;
+        }
+
+        Chunk[] results = new Chunk[chunks];
+        pool.invoke(new ChunkAction(0, chunks, chunk -> results[chunk] = this.replayChunk(columns,
+                chunkStart(waveStart, chunk), chunkEnd(waveStart, waveEnd, chunk), chunkBalances[chunk], date)));
+
+        for (Chunk result : results) {
+            this.stitch(userID, result, carried);
+        }
+        return balance;
+    }
+
+    /**
+     * Method used to replay one chunk of Transactions, starting from the balance at the start of the chunk.
+     *
+     * @param columns     The Transactions that will be replayed.
+     * @param from        The index of the first Transaction in the chunk (inclusive).
+     * @param to          The index of the last Transaction in the chunk (exclusive).
+     * @param balance     The balance of the user at the start of the chunk, in cents.
+     * @param initialDate The date of the last Transaction before the first replayed Transaction (NO_DATE if none).
+     * @return The Chunk containing the BalanceCandlesticks and month starts of the chunk.
+     */
+    private Chunk replayChunk(LedgerColumns columns, int from, int to, long balance, long initialDate) {
+        Chunk chunk = new Chunk();
+        BalanceCandlestick[] current = new BalanceCandlestick[INTERVAL_PERIODS.length];
+
+        long previousDate = from == 0 ? initialDate : columns.getDate(from - 1);
+        int previousMonth =
+                previousDate != IntervalHelper.NO_DATE ? IntervalHelper.getMonthIdentifier(previousDate) : 0;
+        for (int i = from; i < to; i++) {
+            long date = columns.getDate(i);
+            int month = IntervalHelper.getMonthIdentifier(date);
+            if (previousDate != IntervalHelper.NO_DATE && previousMonth < month) {
+                chunk.monthStarts.add(this.monthStart(chunk, current,
+                        IntervalHelper.getIntervalStart(IntervalPeriod.MONTH, date), balance, previousDate));
+            }
+
+            long amount = columns.getSignedAmount(i);
+            for (int p = 0; p < INTERVAL_PERIODS.length; p++) {
+                long bucket = IntervalHelper.getIntervalStart(INTERVAL_PERIODS[p], date);
+                if (current[p] == null || current[p].getTimestamp() * 1000 != bucket) {
+                    current[p] = new BalanceCandlestick(balance, bucket / 1000);
+                    chunk.candlesticks.get(INTERVAL_PERIODS[p]).add(current[p]);
+                }
+                current[p].mutation(amount);
+            }
+            balance += amount;
+            previousDate = date;
+            previousMonth = month;
+        }
+        return chunk;
+    }
+
+    /**
+     * Method used to capture the state at the start of a month within a chunk.
+     * For every IntervalPeriod of which the interval containing the start of the month started earlier, the
+     * BalanceCandlestick so far of that interval within the chunk is copied.
+     *
+     * @param chunk      The Chunk that is being replayed.
+     * @param current    The BalanceCandlestick of the most recent interval of every IntervalPeriod within the chunk.
+     * @param monthStart The start of the month.
+     * @param balance    The balance at the start of the month, in cents.
+     * @param date       The date of the last Transaction before the start of the month.
+     * @return The MonthStart containing the captured state.
+     */
+    private MonthStart monthStart(Chunk chunk, BalanceCandlestick[] current, long monthStart, long balance,
+                                  long date) {
+        MonthStart state = new MonthStart(monthStart, balance, date);
+        for (int p = 0; p < INTERVAL_PERIODS.length; p++) {
+            long bucket = IntervalHelper.getIntervalStart(INTERVAL_PERIODS[p], monthStart);
+            if (bucket != monthStart && current[p] != null && current[p].getTimestamp() * 1000 == bucket) {
+                state.partialCandlesticks.put(INTERVAL_PERIODS[p], copy(current[p]));
+                if (chunk.candlesticks.get(INTERVAL_PERIODS[p]).size() == 1) {
+                    // The interval may have started in an earlier chunk
+                    state.startedInChunk.add(INTERVAL_PERIODS[p]);
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Method used to stitch a replayed chunk to the chunks before it, persisting its BalanceCheckpoints and the
+     * BalanceCandlesticks of all intervals that end within the chunk.
+     *
+     * @param userID  The ID of the user whose Transactions are replayed.
+     * @param chunk   The replayed Chunk.
+     * @param carried The BalanceCandlesticks of the most recent interval of every IntervalPeriod before the chunk,
+     *                which are not yet persisted. Updated to the ones after the chunk.
+     */
+    private void stitch(int userID, Chunk chunk, Map<IntervalPeriod, BalanceCandlestick> carried) {
+        for (MonthStart state : chunk.monthStarts) {
+            BalanceCheckpoint checkpoint = new BalanceCheckpoint(state.monthStart, state.balance, state.date);
+            for (IntervalPeriod intervalPeriod : INTERVAL_PERIODS) {
+                long bucket = IntervalHelper.getIntervalStart(intervalPeriod, state.monthStart);
+                BalanceCandlestick before = carried.get(intervalPeriod);
+                boolean continued = before != null && before.getTimestamp() * 1000 == bucket;
+                BalanceCandlestick partial = state.partialCandlesticks.get(intervalPeriod);
+                if (partial != null) {
+                    checkpoint.getRollups().put(intervalPeriod, continued &&
+                            state.startedInChunk.contains(intervalPeriod) ? merge(before, partial) : partial);
+                } else if (continued && bucket != state.monthStart) {
+                    checkpoint.getRollups().put(intervalPeriod, copy(before));
+                }
+            }
+            customORM.createBalanceCheckpoint(userID, checkpoint);
+        }
+
+        for (IntervalPeriod intervalPeriod : INTERVAL_PERIODS) {
+            List<BalanceCandlestick> candlesticks = chunk.candlesticks.get(intervalPeriod);
+            if (candlesticks.isEmpty()) {
+                continue;
+            }
+            BalanceCandlestick before = carried.get(intervalPeriod);
+            if (before != null) {
+                if (before.getTimestamp() == candlesticks.get(0).getTimestamp()) {
+                    candlesticks.set(0, merge(before, candlesticks.get(0)));
+                } else {
+                    customORM.updateBalanceRollup(userID, intervalPeriod, before);
+                }
+            }
+            for (int i = 0; i < candlesticks.size() - 1; i++) {
+                customORM.updateBalanceRollup(userID, intervalPeriod, candlesticks.get(i));
+            }
+            carried.put(intervalPeriod, candlesticks.get(candlesticks.size() - 1));
+        }
+    }
+
+    /**
+     * Method used to retrieve the index of the first Transaction in a certain chunk of a wave.
+     *
+     * @param waveStart The index of the first Transaction in the wave.
+     * @param chunk     The index of the chunk within the wave.
+     * @return The index of the first Transaction in the chunk (inclusive).
+     */
+    private int chunkStart(int waveStart, int chunk) {
+        return waveStart + chunk * chunkSize;
+    }
+
+    /**
+     * Method used to retrieve the index after the last Transaction in a certain chunk of a wave.
+     *
+     * @param waveStart The index of the first Transaction in the wave.
+     * @param waveEnd   The index after the last Transaction in the wave.
+     * @param chunk     The index of the chunk within the wave.
+     * @return The index of the last Transaction in the chunk (exclusive).
+     */
+    private int chunkEnd(int waveStart, int waveEnd, int chunk) {
+        return Math.min(waveEnd, waveStart + (chunk + 1) * chunkSize);
+    }
+
+    /**
+     * Method used to copy a BalanceCandlestick.
+     *
+     * @param candlestick The BalanceCandlestick that will be copied.
+     * @return A new BalanceCandlestick with the same values as candlestick.
+     */
+    private static BalanceCandlestick copy(BalanceCandlestick candlestick) {
+        return new BalanceCandlestick(candlestick.getOpen(), candlestick.getClose(), candlestick.getHigh(),
+                candlestick.getLow(), candlestick.getVolume(), candlestick.getTimestamp());
+    }
+
+    /**
+     * Method used to combine the BalanceCandlesticks of two consecutive parts of the same interval.
+     *
+     * @param first  The BalanceCandlestick of the first part of the interval.
+     * @param second The BalanceCandlestick of the second part of the interval.
+     * @return A new BalanceCandlestick covering both parts of the interval.
+     */
+    private static BalanceCandlestick merge(BalanceCandlestick first, BalanceCandlestick second) {
+        return new BalanceCandlestick(first.getOpen(), second.getClose(), Math.max(first.getHigh(), second.getHigh()),
+                Math.min(first.getLow(), second.getLow()), first.getVolume() + second.getVolume(),
+                first.getTimestamp());
+    }
+
+}
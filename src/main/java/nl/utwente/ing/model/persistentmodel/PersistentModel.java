@@ -1,39 +1,81 @@
 package nl.utwente.ing.model.persistentmodel;
 
+import nl.utwente.ing.exception.IdempotencyKeyReusedException;
 import nl.utwente.ing.exception.InvalidSessionIDException;
 import nl.utwente.ing.exception.ResourceNotFoundException;
+import nl.utwente.ing.exception.UnsuccessfulRequestException;
 import nl.utwente.ing.misc.date.IntervalHelper;
 import nl.utwente.ing.misc.date.IntervalPeriod;
+import nl.utwente.ing.model.IdempotentRequest;
 import nl.utwente.ing.model.Model;
 import nl.utwente.ing.model.bean.*;
 
-import java.sql.Connection;
-import java.sql.SQLException;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The PersistentModel class, an implementation of the Model interface.
  * Implements the methods specified in the Model interface using persistent storage methods, meaning that the data
  * stored using the persistent model will exist over multiple executions of the application.
+ * Expects a database connection to be bound to the current thread, so it should be used through UnitOfWork.wrap.
  *
  * @author Daan Kooij
  */
 public class PersistentModel implements Model {
 
-    private Connection connection;
     private CustomORM customORM;
+    private IDAllocator idAllocator;
+    private SessionCache sessionCache;
+    private LedgerCache ledgerCache;
+    private BalanceTracker balanceTracker;
+    private CategorySpendTracker categorySpendTracker;
     private UserMessageEmitter messageEmitter;
+    private SavingGoalEvaluator savingGoalEvaluator;
+    private TransactionEventOutbox transactionEventOutbox;
+    private IdempotencyStore idempotencyStore;
 
     /**
      * The constructor of PersistentModel.
-     * Retrieves the database connection from the DatabaseConnection class and initializes a CustomORM object.
+     * Initializes a CustomORM object, an IDAllocator object, a SessionCache object, a LedgerCache object, a
+     * UserMessageEmitter object, a SavingGoalEvaluator object, a BalanceTracker object, a CategorySpendTracker
+     * object, a TransactionEventOutbox object and an IdempotencyStore object.
+     * The minimum amount of Transactions for which the BalanceTracker replays the Transactions of a user in parallel
+     * can be configured using the ing.balance.parallelThreshold system property, and the amount of worker threads of
+     * the TransactionEventOutbox using the ing.events.workers system property.
+     * The balances of users that have Transactions but no persisted balance are recomputed before PersistentModel is
+     * used, so that balances can be read without recomputing them. Afterwards, the SavingGoalEvaluator and the
+     * TransactionEventOutbox are started; they keep running until PersistentModel is shut down.
      */
     public PersistentModel() {
-        this.connection = DatabaseConnection.getDatabaseConnection();
-        this.customORM = new CustomORM(connection);
-        this.messageEmitter = new UserMessageEmitter(connection, customORM);
+        this.customORM = new CustomORM();
+        this.idAllocator = new IDAllocator(customORM, IDAllocator.DEFAULT_BLOCK_SIZE);
+        this.sessionCache = new SessionCache();
+        this.ledgerCache = new LedgerCache(customORM);
+        this.messageEmitter = new UserMessageEmitter(customORM, idAllocator);
+        this.savingGoalEvaluator = new SavingGoalEvaluator(customORM, messageEmitter);
+        this.balanceTracker = new BalanceTracker(customORM, ledgerCache, savingGoalEvaluator,
+                new ParallelLedgerReplay(customORM, ForkJoinPool.commonPool(),
+                        Integer.getInteger("ing.balance.parallelThreshold", ParallelLedgerReplay.DEFAULT_THRESHOLD),
+                        ParallelLedgerReplay.DEFAULT_CHUNK_SIZE));
+        this.categorySpendTracker = new CategorySpendTracker(customORM, ledgerCache);
+        this.transactionEventOutbox = new TransactionEventOutbox(customORM, this::handleTransactionEvent,
+                Integer.getInteger("ing.events.workers", TransactionEventOutbox.DEFAULT_WORKERS));
+        this.idempotencyStore = new IdempotencyStore(customORM);
+
+        // Balances are recomputed at write time, so balances missing from earlier versions are recomputed up front
+        balanceTracker.recomputeMissingBalances();
+        savingGoalEvaluator.start();
+        transactionEventOutbox.start();
+    }
+
+    /**
+     * Method used to shut down the background work of PersistentModel, waiting for the TransactionEvents and SavingGoal
+     * evaluations that are being handled to finish, so that the database connections can be closed afterwards.
+     * The TransactionEventOutbox is shut down first, since handling TransactionEvents can schedule evaluations.
+     */
+    public void shutdown() {
+        transactionEventOutbox.shutdown();
+        savingGoalEvaluator.shutdown();
     }
 
     /**
@@ -55,6 +97,10 @@ public class PersistentModel implements Model {
             }
         }
         customORM.createNewUser(sessionID);
+
+        String newSessionID = sessionID;
+        sessionCache.put(newSessionID, customORM.getUserID(newSessionID));
+        DatabaseConnection.registerRollbackAction(() -> sessionCache.invalidate(newSessionID));
         return new Session(sessionID);
     }
 
@@ -67,6 +113,7 @@ public class PersistentModel implements Model {
      * @param offset       The starting index to fetch transactions.
      * @return An ArrayList of Transaction belonging to the user with sessionID.
      */
+    @ReadOnly
     public ArrayList<Transaction> getTransactions(String sessionID, String categoryName, int limit, int offset)
             throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
@@ -84,6 +131,10 @@ public class PersistentModel implements Model {
 
     /**
      * Method used to create a new Transaction for a certain user.
+     * Only the Transaction itself and its Category are stored right away. The derived evaluations (matching
+     * PaymentRequests, emitting the balance events and checking the category limit MessageRules) are stored as a
+     * TransactionEvent in the same unit of work, and are done by the TransactionEventOutbox after it has been
+     * committed, so that the time it takes to post a Transaction does not depend on the size of the ledger.
      *
      * @param sessionID    The sessionID of the user.
      * @param date         The date of the to be created Transaction.
@@ -95,127 +146,376 @@ public class PersistentModel implements Model {
      *                     (0 if no Category).
      * @return The Transaction created by this method.
      */
-    public Transaction postTransaction(String sessionID, String date, float amount, String description,
+    public Transaction postTransaction(String sessionID, long date, long amount, String description,
                                        String externalIBAN, String type, long categoryID)
             throws InvalidSessionIDException, ResourceNotFoundException {
         int userID = this.getUserID(sessionID);
-        Transaction transaction = null;
-        try {
-            float oldBalance = this.getBalance(sessionID);
-            String oldDate = customORM.getCurrentDate(userID);
-
-            connection.setAutoCommit(false);
-            customORM.increaseHighestTransactionID(userID);
-            long transactionID = customORM.getHighestTransactionID(userID);
-            connection.commit();
-            connection.setAutoCommit(true);
-            customORM.createTransaction(userID, transactionID, date, amount, description, externalIBAN, type);
-            transaction = customORM.getTransaction(userID, transactionID);
-            if (categoryID != 0) {
-                this.assignCategoryToTransaction(sessionID, transactionID, categoryID);
-            } else {
-                // Check if there is a CategoryRule that applies to this Transaction
-                ArrayList<CategoryRule> categoryRules = customORM.getCategoryRules(userID);
+        Balance oldBalance = balanceTracker.getPersistedBalance(userID);
+        long oldDate = customORM.getCurrentDate(userID);
+
+        long transactionID = idAllocator.nextID(userID, IDType.TRANSACTION);
+        customORM.createTransaction(userID, transactionID, date, amount, description, externalIBAN, type);
+        ledgerCache.transactionAdded(userID, transactionID, date, amount, type.equals("deposit"));
+        Transaction transaction = customORM.getTransaction(userID, transactionID);
+        balanceTracker.transactionAdded(userID, transaction);
+        if (categoryID != 0) {
+            this.assignCategoryToTransaction(sessionID, transactionID, categoryID);
+        } else {
+            this.applyCategoryRules(userID, transaction);
+        }
+        this.populateCategory(userID, transaction);
+
+        // The derived evaluations are done by the TransactionEventOutbox after the unit of work has been committed
+        Balance newBalance = balanceTracker.getPersistedBalance(userID);
+        transactionEventOutbox.enqueue(userID, new TransactionEvent(0, transactionID,
+                oldBalance != null ? oldBalance.getBalance() : TransactionEvent.UNKNOWN_BALANCE, oldDate,
+                newBalance != null ? newBalance.getBalance() : TransactionEvent.UNKNOWN_BALANCE));
+        return transaction;
+    }
+
+    /**
+     * Method used to create several new Transactions for a certain user at once.
+     * The Transactions are added in chronological order, so their IDs are handed out in order of date. The IDs are
+     * allocated as a single range and the Transactions are inserted as a single batch, after which the CategoryRules,
+     * the matching of PaymentRequests and the MessageRules are each evaluated once for all new Transactions.
+     * <p>
+     * Transactions to which a Category should be assigned that does not exist are not created. Since the balance
+     * events are evaluated once per batch, the below zero and new highest lifetime balance events are emitted at most
+     * once per batch.
+     *
+     * @param sessionID    The sessionID of the user.
+     * @param transactions The to be created Transactions, of which the Category (if any) only needs to have its
+     *                     categoryID set.
+     * @return For every to be created Transaction in the same order, the Transaction created by this method, or null if
+     * the Category that should be assigned to it does not exist.
+     */
+    public ArrayList<Transaction> postTransactions(String sessionID, List<Transaction> transactions)
+            throws InvalidSessionIDException {
+        int userID = this.getUserID(sessionID);
+        // Earlier Transactions are evaluated first, so that the evaluations happen in the order of posting
+        transactionEventOutbox.handlePendingEvents(userID);
+        long oldBalance = balanceTracker.getBalance(userID).getBalance();
+        long oldDate = customORM.getCurrentDate(userID);
+
+        // Skip the Transactions of which the Category does not exist, and sort the others on date
+        Map<Long, Category> categories = new HashMap<>();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            Category category = transactions.get(i).getCategory();
+            if (category == null || category.getID() == 0 ||
+                    this.lookupCategory(userID, category.getID(), categories) != null) {
+                order.add(i);
+            }
+        }
+        order.sort(Comparator.comparingLong(i -> transactions.get(i).getDate()));
+
+        long firstID = order.isEmpty() ? 0 : idAllocator.nextIDs(userID, IDType.TRANSACTION, order.size());
+        Transaction[] created = new Transaction[transactions.size()];
+        List<Transaction> addedTransactions = new ArrayList<>();
+        for (int i = 0; i < order.size(); i++) {
+            Transaction transaction = transactions.get(order.get(i));
+            Transaction addedTransaction = new Transaction(firstID + i, transaction.getDate(),
+                    transaction.getAmount(), transaction.getDescription(), transaction.getExternalIBAN(),
+                    transaction.getType());
+            if (transaction.getCategory() != null && transaction.getCategory().getID() != 0) {
+                addedTransaction.setCategory(categories.get(transaction.getCategory().getID()));
+            }
+            created[order.get(i)] = addedTransaction;
+            addedTransactions.add(addedTransaction);
+        }
 
-                boolean found = false;
-                for (int i = 0; i < categoryRules.size() && !found; i++) {
-                    CategoryRule categoryRule = categoryRules.get(i);
+        // Check which CategoryRule applies to the Transactions without a Category, if any
+        ArrayList<CategoryRule> categoryRules = null;
+        Map<Long, Long> categoryIDs = new LinkedHashMap<>();
+        for (Transaction transaction : addedTransactions) {
+            if (transaction.getCategory() == null) {
+                if (categoryRules == null) {
+                    categoryRules = customORM.getCategoryRules(userID);
+                }
+                for (CategoryRule categoryRule : categoryRules) {
                     if (transaction.getDescription().contains(categoryRule.getDescription()) &&
                             transaction.getExternalIBAN().contains(categoryRule.getiBAN()) &&
                             transaction.getType().contains(categoryRule.getType()) &&
-                            customORM.getCategory(userID, categoryRule.getCategory_id()) != null) {
-                        customORM.linkTransactionToCategory(userID, transactionID, categoryRule.getCategory_id());
-                        found = true;
+                            this.lookupCategory(userID, categoryRule.getCategory_id(), categories) != null) {
+                        transaction.setCategory(categories.get(categoryRule.getCategory_id()));
+                        break;
                     }
                 }
             }
-            this.populateCategory(userID, transaction);
+            if (transaction.getCategory() != null) {
+                categoryIDs.put(transaction.getID(), transaction.getCategory().getID());
+            }
+        }
 
-            List<PaymentRequest> paymentRequests = customORM.getPaymentRequests(userID);
-            if (transaction.getType().equals("deposit")) {
-                // Check if Transaction answers some Payment Request
-                connection.setAutoCommit(false);
-                for (PaymentRequest paymentRequest : paymentRequests) {
-                    if (!paymentRequest.getFilled() && transaction.getAmount() == paymentRequest.getAmount() &&
-                            IntervalHelper.isSmallerThan(transaction.getDate(), paymentRequest.getDue_date())) {
-                        long paymentRequestID = paymentRequest.getID();
-                        customORM.linkTransactionToPaymentRequest(userID, transactionID, paymentRequestID);
-                        long numberAnswered = customORM.getTransactionsByPaymentRequest(userID, paymentRequestID).size();
-                        if (numberAnswered >= paymentRequest.getNumber_of_requests()) {
-                            customORM.setPaymentRequestFilled(userID, paymentRequestID);
-
-                            // User Message Event: Payment Request filled
-                            messageEmitter.eventPaymentRequestFilled(userID,
-                                    paymentRequestID, paymentRequest.getDescription());
-                        }
-                        break;
-                    }
-                }
-                if (!connection.getAutoCommit()) {
-                    connection.commit();
-                    connection.setAutoCommit(true);
-                }
+        customORM.createTransactions(userID, addedTransactions);
+        customORM.linkTransactionsToCategories(userID, categoryIDs);
+        ledgerCache.transactionsAdded(userID, addedTransactions, categoryIDs);
+        long[] balances = balanceTracker.transactionsAdded(userID, addedTransactions);
+
+        if (!addedTransactions.isEmpty()) {
+            long newBalance = balanceTracker.getBalance(userID).getBalance();
+            this.evaluateTransactions(userID, addedTransactions, oldBalance, oldDate, newBalance, balances);
+        }
+        return new ArrayList<>(Arrays.asList(created));
+    }
+
+    /**
+     * Method used to process all pending TransactionEvents of a certain user right away, so that the UserMessages
+     * resulting from the Transactions posted so far can be retrieved.
+     *
+     * @param sessionID The sessionID of the user.
+     */
+    public void processTransactionEvents(String sessionID) throws InvalidSessionIDException {
+        int userID = this.getUserID(sessionID);
+        transactionEventOutbox.handlePendingEvents(userID);
+    }
+
+    /**
+     * Method used to do the derived evaluations of a Transaction posted by postTransaction, as handler of the
+     * TransactionEventOutbox.
+     * Balances that were not persisted when the Transaction was posted are derived from the current balance of the
+     * user, which may already include Transactions posted later.
+     *
+     * @param userID The ID of the user to who the posted Transaction belongs.
+     * @param event  The TransactionEvent of the posted Transaction.
+     */
+    private void handleTransactionEvent(int userID, TransactionEvent event) {
+        Transaction transaction = customORM.getTransaction(userID, event.getTransactionID());
+        if (transaction == null) {
+            // The Transaction has been deleted before its derived evaluations were done
+            return;
+        }
+        long newBalance = event.getNewBalance();
+        if (newBalance == TransactionEvent.UNKNOWN_BALANCE) {
+            newBalance = balanceTracker.getBalance(userID).getBalance();
+        }
+        long oldBalance = event.getOldBalance();
+        if (oldBalance == TransactionEvent.UNKNOWN_BALANCE) {
+            oldBalance = transaction.getType().equals("deposit") ?
+                    newBalance - transaction.getAmount() : newBalance + transaction.getAmount();
+        }
+        this.populateCategory(userID, transaction);
+        this.evaluateTransactions(userID, Collections.singletonList(transaction), oldBalance, event.getOldDate(),
+                newBalance, null);
+    }
+
+    /**
+     * Method used to do the derived evaluations of several new Transactions of a certain user at once: matching
+     * PaymentRequests, emitting the balance events and checking the category limit MessageRules.
+     *
+     * @param userID       The ID of the user to who the new Transactions belong.
+     * @param transactions The new Transactions, sorted on date and ID.
+     * @param oldBalance   The balance of the user before the new Transactions were added, in cents.
+     * @param oldDate      The date of the most recent Transaction of the user before the new Transactions were added.
+     * @param newBalance   The balance of the user after the new Transactions were added, in cents.
+     * @param balances     The balance of the user after every new Transaction in cents, or null if unknown.
+     */
+    private void evaluateTransactions(int userID, List<Transaction> transactions, long oldBalance, long oldDate,
+                                      long newBalance, long[] balances) {
+        this.matchPaymentRequests(userID, transactions);
+
+        boolean belowZero = oldBalance >= 0 && newBalance < 0;
+        long highestBalance = newBalance;
+        if (balances != null) {
+            long previousBalance = oldBalance;
+            for (long balance : balances) {
+                belowZero |= previousBalance >= 0 && balance < 0;
+                highestBalance = Math.max(highestBalance, balance);
+                previousBalance = balance;
             }
+        }
+
+        if (belowZero) {
+            // User Message Event: balance drop below zero
+            messageEmitter.eventBalanceBelowZero(userID);
+        }
+
+        long oldHighestBalance = customORM.getHighestLifetimeBalance(userID);
+        customORM.updateHighestLifetimeBalance(userID, highestBalance);
+        long newHighestBalance = customORM.getHighestLifetimeBalance(userID);
+        if (newHighestBalance > oldHighestBalance) {
+            // User Message Event: new highest lifetime balance
+            messageEmitter.eventBalanceNewHigh(userID);
+        }
+
+        this.checkCategoryLimits(userID, transactions, oldDate);
+    }
 
-            // Check if PaymentRequests are not filled on due-date
-            for (PaymentRequest paymentRequest : paymentRequests) {
-                if (!paymentRequest.getFilled() && IntervalHelper.isSmallerThan(paymentRequest.getDue_date(), date)) {
-                    // User Message Event: Payment Request not filled
-                    messageEmitter.eventPaymentRequestNotFilled(userID,
-                            paymentRequest.getID(), paymentRequest.getDescription());
+    /**
+     * Method used to create a new ImportJob for a certain user, with no lines processed yet.
+     *
+     * @param sessionID The sessionID of the user.
+     * @param format    The format of the file that will be imported ("ndjson" or "csv").
+     * @return The ImportJob created by this method.
+     */
+    public ImportJob createImportJob(String sessionID, String format) throws InvalidSessionIDException {
+        int userID = this.getUserID(sessionID);
+        long importJobID = idAllocator.nextID(userID, IDType.IMPORT_JOB);
+        customORM.createImportJob(userID, importJobID, format);
+        return customORM.getImportJob(userID, importJobID);
+    }
+
+    /**
+     * Method used to retrieve a certain ImportJob of a certain user.
+     *
+     * @param sessionID   The sessionID of the user.
+     * @param importJobID The ID of the ImportJob that will be retrieved.
+     * @return The ImportJob with importJobID belonging to the user with sessionID.
+     */
+    @ReadOnly
+    public ImportJob getImportJob(String sessionID, long importJobID)
+            throws InvalidSessionIDException, ResourceNotFoundException {
+        int userID = this.getUserID(sessionID);
+        ImportJob importJob = customORM.getImportJob(userID, importJobID);
+        if (importJob != null) {
+            return importJob;
+        } else {
+            throw new ResourceNotFoundException();
+        }
+    }
+
+    /**
+     * Method used to create the Transactions read from a chunk of lines of an imported file, and to record the
+     * progress of the ImportJob importing the file, at once.
+     * Since both happen in the same unit of work, the recorded progress always matches the created Transactions, so an
+     * interrupted import can safely be resumed from the recorded amount of processed lines.
+     *
+     * @param sessionID    The sessionID of the user.
+     * @param importJobID  The ID of the ImportJob importing the file.
+     * @param transactions The valid Transactions read from the chunk of lines.
+     * @param lines        The amount of lines in the chunk, including the lines from which no valid Transaction was
+     *                     read.
+     * @param completed    Whether the chunk ends at the end of the imported file.
+     * @return The ImportJob with importJobID, after its progress has been recorded.
+     */
+    public ImportJob importTransactions(String sessionID, long importJobID, List<Transaction> transactions, int lines,
+                                        boolean completed)
+            throws InvalidSessionIDException, ResourceNotFoundException {
+        int userID = this.getUserID(sessionID);
+        ImportJob importJob = customORM.getImportJob(userID, importJobID);
+        if (importJob == null) {
+            throw new ResourceNotFoundException();
+        }
+
+        long imported = 0;
+        for (Transaction transaction : this.postTransactions(sessionID, transactions)) {
+            if (transaction != null) {
+                imported++;
+            }
+        }
+        importJob.setLinesProcessed(importJob.getLinesProcessed() + lines);
+        importJob.setTransactionsImported(importJob.getTransactionsImported() + imported);
+        importJob.setLinesRejected(importJob.getLinesRejected() + lines - imported);
+        importJob.setCompleted(completed);
+        customORM.updateImportJob(userID, importJob);
+        return importJob;
+    }
+
+    /**
+     * Method used to link several new deposits of a certain user to the PaymentRequests they answer, and to emit the
+     * UserMessages about filled and not filled PaymentRequests.
+     * The deposits are matched in chronological order, every deposit using a single lookup of the first unfilled
+     * PaymentRequest it answers on the index of the unfilled PaymentRequests, so the amount of PaymentRequests that are
+     * already filled does not matter.
+     *
+     * @param userID       The ID of the user to who the new Transactions belong.
+     * @param transactions The new Transactions, sorted on date and ID.
+     */
+    private void matchPaymentRequests(int userID, List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            if (!transaction.getType().equals("deposit")) {
+                continue;
+            }
+            PaymentRequest paymentRequest = customORM.getMatchingPaymentRequest(userID, transaction.getAmount(),
+                    transaction.getDate());
+            if (paymentRequest != null) {
+                // Transaction answers this Payment Request
+                long paymentRequestID = paymentRequest.getID();
+                long fillCount = customORM.linkTransactionToPaymentRequest(userID, transaction.getID(),
+                        paymentRequestID);
+                if (fillCount >= paymentRequest.getNumber_of_requests()) {
+                    customORM.setPaymentRequestFilled(userID, paymentRequestID);
+
+                    // User Message Event: Payment Request filled
+                    messageEmitter.eventPaymentRequestFilled(userID,
+                            paymentRequestID, paymentRequest.getDescription());
                 }
             }
+        }
 
-            float newBalance = this.getBalance(sessionID);
+        // Check if PaymentRequests are not filled on due-date
+        long latestDate = transactions.get(transactions.size() - 1).getDate();
+        for (PaymentRequest paymentRequest : customORM.getOverduePaymentRequests(userID, latestDate)) {
+            // User Message Event: Payment Request not filled
+            messageEmitter.eventPaymentRequestNotFilled(userID,
+                    paymentRequest.getID(), paymentRequest.getDescription());
+        }
+    }
 
-            if (oldBalance >= 0 && newBalance < 0) {
-                // User Message Event: balance drop below zero
-                messageEmitter.eventBalanceBelowZero(userID);
-            }
+    /**
+     * Method used to evaluate the category limit MessageRules of a certain user for several new Transactions at once.
+     * A UserMessage is emitted for every new Transaction that would have caused a category limit to be reached if the
+     * new Transactions were posted one by one in chronological order. The amounts spent per Category within the
+     * window of thirty days before a new Transaction are taken from the CategorySpend of the user, which is advanced
+     * with the new Transactions in the order in which they are evaluated.
+     *
+     * @param userID       The ID of the user to who the new Transactions belong.
+     * @param transactions The new Transactions, sorted on date and ID, with their Category (if any) populated.
+     * @param oldDate      The date of the most recent Transaction of the user before the new Transactions were added.
+     */
+    private void checkCategoryLimits(int userID, List<Transaction> transactions, long oldDate) {
+        CategorySpend categorySpend = categorySpendTracker.getCategorySpend(userID, oldDate,
+                transactions.get(0).getID());
+        Map<Long, MessageRule> messageRules = null;
 
-            float oldHighestBalance = customORM.getHighestLifetimeBalance(userID);
-            customORM.updateHighestLifetimeBalance(userID, newBalance);
-            float newHighestBalance = customORM.getHighestLifetimeBalance(userID);
-            if (newHighestBalance > oldHighestBalance) {
-                // User Message Event: new highest lifetime balance
-                messageEmitter.eventBalanceNewHigh(userID);
+        long latestDate = oldDate;
+        long latestID = 0;
+        for (Transaction transaction : transactions) {
+            // Only Transactions in the future of all Transactions posted before them can cause a limit to be reached
+            boolean candidate = latestDate < transaction.getDate();
+            latestDate = Math.max(latestDate, transaction.getDate());
+            latestID = Math.max(latestID, transaction.getID());
+            Category category = transaction.getCategory();
+            if (transaction.getType().equals("deposit") || category == null || category.getID() == 0) {
+                continue;
             }
 
-            // Message Rule: Category limit
-            if (IntervalHelper.isSmallerThan(oldDate, transaction.getDate())) {
-                // Transaction is in the future
-                Map<Long, Float> categoryLimits = new HashMap<>();
-                Map<Long, String> messageRuleTypes = new HashMap<>();
-                ArrayList<MessageRule> messageRules = customORM.getMessageRules(userID);
-                for (MessageRule messageRule : messageRules) {
-                    categoryLimits.put(messageRule.getCategory_id(), messageRule.getValue());
-                    messageRuleTypes.put(messageRule.getCategory_id(), messageRule.getType());
+            long day = IntervalHelper.getIntervalIndex(IntervalPeriod.DAY, transaction.getDate());
+            if (candidate) {
+                if (messageRules == null) {
+                    messageRules = new HashMap<>();
+                    for (MessageRule messageRule : customORM.getMessageRules(userID)) {
+                        messageRules.put(messageRule.getCategory_id(), messageRule);
+                    }
                 }
-
-                ArrayList<Transaction> transactions = customORM.getTransactionsAscending(userID);
-                LocalDateTime thirtyDaysAgo = IntervalHelper.toLocalDateTime(transaction.getDate()).minusDays(30);
-                for (Transaction t : transactions) {
-                    if (t.getType().equals("withdrawal") && IntervalHelper.isSmallerThan(thirtyDaysAgo, t.getDate())) {
-                        populateCategory(userID, t);
-                        Category c = t.getCategory();
-                        if (c != null && categoryLimits.containsKey(c.getID())) {
-                            categoryLimits.put(c.getID(), categoryLimits.get(c.getID()) - t.getAmount());
-                            if (categoryLimits.get(c.getID()) < 0) {
-                                if (transaction.getID() == t.getID()) {
-                                    // Only emit a message if the newly posted Transaction caused the limit to be reached
-                                    messageEmitter.ruleCategoryLimitReached(userID, messageRuleTypes.get(c.getID()), c);
-                                }
-                                categoryLimits.remove(c.getID());
-                            }
-                        }
+                MessageRule messageRule = messageRules.get(category.getID());
+                if (messageRule != null) {
+                    long spentBefore = categorySpend.getSpent(category.getID(), day);
+                    if (spentBefore <= messageRule.getValue() &&
+                            spentBefore + transaction.getAmount() > messageRule.getValue()) {
+                        // Only emit a message if the new Transaction caused the limit to be reached
+                        messageEmitter.ruleCategoryLimitReached(userID, messageRule.getType(), category);
                     }
                 }
             }
+            categorySpend.add(category.getID(), day, transaction.getAmount());
+        }
+        categorySpendTracker.save(userID, categorySpend, latestID);
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Method used to retrieve a certain Category of a certain user, looking it up in the database at most once.
+     *
+     * @param userID     The ID of the user to who the Category belongs.
+     * @param categoryID The categoryID of the Category that will be retrieved.
+     * @param categories The Categories of the user looked up so far, by categoryID, to which the Category is added.
+     * @return The Category with categoryID, or null if it does not exist.
+     */
+    private Category lookupCategory(int userID, long categoryID, Map<Long, Category> categories) {
+        if (!categories.containsKey(categoryID)) {
+            categories.put(categoryID, customORM.getCategory(userID, categoryID));
         }
-        return transaction;
+        return categories.get(categoryID);
     }
 
     /**
@@ -225,6 +525,7 @@ public class PersistentModel implements Model {
      * @param transactionID The transactionID of the Transaction that will be retrieved.
      * @return The Transaction with transactionID belonging to the user with sessionID.
      */
+    @ReadOnly
     public Transaction getTransaction(String sessionID, long transactionID)
             throws InvalidSessionIDException, ResourceNotFoundException {
         int userID = this.getUserID(sessionID);
@@ -239,10 +540,15 @@ public class PersistentModel implements Model {
 
     /**
      * Method used to update a certain Transaction of a certain user.
+     * Only the changed columns are written, using a single statement. The state derived from the Transaction is
+     * updated incrementally: the CategoryRules are applied again if the Transaction has no Category and its
+     * description, external IBAN or type changed, and the cached ledger, the persisted balance and the PaymentRequest
+     * link are updated if its date, amount or type changed.
      *
      * @param sessionID     The sessionID of the user.
      * @param transactionID The transactionID of the Transaction that will be updated.
-     * @param date          The new date of the to be updated Transaction.
+     * @param date          The new date of the to be updated Transaction
+     *                      (IntervalHelper.NO_DATE to keep the current date).
      * @param amount        The new amount of the to be updated Transaction.
      * @param description   The new description of the to be updated Transaction.
      * @param externalIBAN  The new external IBAN of the to be updated Transaction.
@@ -251,33 +557,44 @@ public class PersistentModel implements Model {
      *                      (0 if no Category).
      * @return The Transaction updated by this method.
      */
-    public Transaction putTransaction(String sessionID, long transactionID, String date, float amount,
+    public Transaction putTransaction(String sessionID, long transactionID, long date, long amount,
                                       String description, String externalIBAN, String type, long categoryID)
             throws InvalidSessionIDException, ResourceNotFoundException {
         int userID = this.getUserID(sessionID);
+        // Earlier Transactions are evaluated first, so that their PaymentRequest links are known
+        transactionEventOutbox.handlePendingEvents(userID);
         Transaction transaction = customORM.getTransaction(userID, transactionID);
         if (transaction != null) {
-            if (date != null && !date.equals("")) {
-                customORM.updateTransactionDate(date, userID, transactionID);
-            }
-            if (amount != 0) {
-                customORM.updateTransactionAmount(amount, userID, transactionID);
-            }
-            if (description != null) {
-                customORM.updateTransactionDescription(description, userID, transactionID);
-            }
-            if (externalIBAN != null && !externalIBAN.equals("")) {
-                customORM.updateTransactionExternalIBAN(externalIBAN, userID, transactionID);
-            }
-            if (type != null && !type.equals("")) {
-                customORM.updateTransactionType(type, userID, transactionID);
-            }
+            // The updated Transaction is built in memory, so that it does not have to be read back from the database
+            Transaction updatedTransaction = new Transaction(transactionID,
+                    date != IntervalHelper.NO_DATE ? date : transaction.getDate(),
+                    amount != 0 ? amount : transaction.getAmount(),
+                    description != null ? description : transaction.getDescription(),
+                    externalIBAN != null && !externalIBAN.equals("") ? externalIBAN : transaction.getExternalIBAN(),
+                    type != null && !type.equals("") ? type : transaction.getType());
+            customORM.updateTransaction(userID, transaction, updatedTransaction);
+
             if (categoryID != 0) {
                 this.assignCategoryToTransaction(sessionID, transactionID, categoryID);
+            } else if (!Objects.equals(updatedTransaction.getDescription(), transaction.getDescription()) ||
+                    !Objects.equals(updatedTransaction.getExternalIBAN(), transaction.getExternalIBAN()) ||
+                    !Objects.equals(updatedTransaction.getType(), transaction.getType())) {
+                if (customORM.getCategoryIDByTransactionID(userID, transactionID) == 0) {
+                    this.applyCategoryRules(userID, updatedTransaction);
+                    categorySpendTracker.transactionChanged(userID, transactionID, updatedTransaction.getDate());
+                }
             }
-            transaction = customORM.getTransaction(userID, transactionID);
-            this.populateCategory(userID, transaction);
-            return transaction;
+            if (updatedTransaction.getDate() != transaction.getDate() ||
+                    updatedTransaction.getAmount() != transaction.getAmount() ||
+                    !Objects.equals(updatedTransaction.getType(), transaction.getType())) {
+                ledgerCache.transactionUpdated(userID, updatedTransaction);
+                balanceTracker.transactionUpdated(userID, transaction, updatedTransaction);
+                categorySpendTracker.transactionChanged(userID, transactionID,
+                        Math.max(transaction.getDate(), updatedTransaction.getDate()));
+                this.relinkPaymentRequest(userID, updatedTransaction);
+            }
+            this.populateCategory(userID, updatedTransaction);
+            return updatedTransaction;
         } else {
             throw new ResourceNotFoundException();
         }
@@ -285,6 +602,7 @@ public class PersistentModel implements Model {
 
     /**
      * Method used to delete a certain Transaction of a certain user.
+     * A filled PaymentRequest answered by the Transaction is no longer filled afterwards.
      *
      * @param sessionID     The sessionID of the user.
      * @param transactionID The transactionID of the Transaction that will be deleted.
@@ -295,7 +613,14 @@ public class PersistentModel implements Model {
         Transaction transaction = customORM.getTransaction(userID, transactionID);
         if (transaction != null) {
             customORM.unlinkTransactionFromAllCategories(userID, transactionID);
+            PaymentRequest paymentRequest = customORM.getPaymentRequestByTransaction(userID, transactionID);
+            if (paymentRequest != null) {
+                this.unlinkPaymentRequest(userID, transactionID, paymentRequest);
+            }
             customORM.deleteTransaction(userID, transactionID);
+            ledgerCache.transactionDeleted(userID, transactionID);
+            balanceTracker.transactionChanged(userID, transaction.getDate());
+            categorySpendTracker.transactionChanged(userID, transactionID, transaction.getDate());
         } else {
             throw new ResourceNotFoundException();
         }
@@ -319,6 +644,8 @@ public class PersistentModel implements Model {
             if (category != null) {
                 customORM.unlinkTransactionFromAllCategories(userID, transactionID);
                 customORM.linkTransactionToCategory(userID, transactionID, categoryID);
+                ledgerCache.categoryAssigned(userID, transactionID, categoryID);
+                categorySpendTracker.transactionChanged(userID, transactionID, transaction.getDate());
                 transaction.setCategory(category);
                 return transaction;
             } else {
@@ -337,6 +664,7 @@ public class PersistentModel implements Model {
      * @param offset    The starting index to fetch categories.
      * @return An ArrayList of Category belonging to the user with sessionID.
      */
+    @ReadOnly
     public ArrayList<Category> getCategories(String sessionID, int limit, int offset)
             throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
@@ -352,18 +680,9 @@ public class PersistentModel implements Model {
      */
     public Category postCategory(String sessionID, String name) throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
-        Category category = null;
-        try {
-            connection.setAutoCommit(false);
-            customORM.increaseHighestCategoryID(userID);
-            long categoryID = customORM.getHighestCategoryID(userID);
-            connection.commit();
-            connection.setAutoCommit(true);
-            customORM.createCategory(userID, categoryID, name);
-            category = customORM.getCategory(userID, categoryID);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        long categoryID = idAllocator.nextID(userID, IDType.CATEGORY);
+        customORM.createCategory(userID, categoryID, name);
+        Category category = customORM.getCategory(userID, categoryID);
         return category;
     }
 
@@ -374,6 +693,7 @@ public class PersistentModel implements Model {
      * @param categoryID The categoryID of the Category that will be retrieved.
      * @return The Category with categoryID belonging to the user with sessionID.
      */
+    @ReadOnly
     public Category getCategory(String sessionID, long categoryID)
             throws InvalidSessionIDException, ResourceNotFoundException {
         int userID = this.getUserID(sessionID);
@@ -420,6 +740,8 @@ public class PersistentModel implements Model {
         Category category = customORM.getCategory(userID, categoryID);
         if (category != null) {
             customORM.unlinkCategoryFromAllTransactions(userID, categoryID);
+            ledgerCache.invalidate(userID);
+            categorySpendTracker.invalidate(userID);
             customORM.deleteCategory(userID, categoryID);
         } else {
             throw new ResourceNotFoundException();
@@ -432,6 +754,7 @@ public class PersistentModel implements Model {
      * @param sessionID The sessionID of the user.
      * @return An ArrayList of CategoryRules belonging to the user with sessionID.
      */
+    @ReadOnly
     public ArrayList<CategoryRule> getCategoryRules(String sessionID) throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
         return customORM.getCategoryRules(userID);
@@ -446,33 +769,25 @@ public class PersistentModel implements Model {
      */
     public CategoryRule postCategoryRule(String sessionID, CategoryRule categoryRule) throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
-        CategoryRule createdCategoryRule = null;
-        try {
-            connection.setAutoCommit(false);
-            customORM.increaseHighestCategoryRuleID(userID);
-            long categoryRuleID = customORM.getHighestCategoryRuleID(userID);
-            connection.commit();
-            connection.setAutoCommit(true);
-            categoryRule.setId(categoryRuleID);
-            customORM.createCategoryRule(userID, categoryRule);
-            createdCategoryRule = customORM.getCategoryRule(userID, categoryRule.getId());
-
-            // If applyOnHistory is true and the Category exists, assign Category to all matching Transactions.
-            if (createdCategoryRule != null) {
-                long categoryID = createdCategoryRule.getCategory_id();
-
-                if (createdCategoryRule.getApplyOnHistory() && customORM.getCategory(userID, categoryID) != null) {
-                    ArrayList<Long> matchingTransactionIDs =
-                            customORM.getMatchingTransactionIDs(userID, createdCategoryRule);
-                    for (Long transactionID : matchingTransactionIDs) {
-                        customORM.unlinkTransactionFromAllCategories(userID, transactionID);
-                        customORM.linkTransactionToCategory(userID, transactionID, categoryID);
-                    }
+        long categoryRuleID = idAllocator.nextID(userID, IDType.CATEGORY_RULE);
+        categoryRule.setId(categoryRuleID);
+        customORM.createCategoryRule(userID, categoryRule);
+        CategoryRule createdCategoryRule = customORM.getCategoryRule(userID, categoryRule.getId());
+
+        // If applyOnHistory is true and the Category exists, assign Category to all matching Transactions.
+        if (createdCategoryRule != null) {
+            long categoryID = createdCategoryRule.getCategory_id();
+
+            if (createdCategoryRule.getApplyOnHistory() && customORM.getCategory(userID, categoryID) != null) {
+                ArrayList<Long> matchingTransactionIDs =
+                        customORM.getMatchingTransactionIDs(userID, createdCategoryRule);
+                for (Long transactionID : matchingTransactionIDs) {
+                    customORM.unlinkTransactionFromAllCategories(userID, transactionID);
+                    customORM.linkTransactionToCategory(userID, transactionID, categoryID);
                 }
+                ledgerCache.invalidate(userID);
+                categorySpendTracker.invalidate(userID);
             }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return createdCategoryRule;
     }
@@ -484,6 +799,7 @@ public class PersistentModel implements Model {
      * @param categoryRuleID The categoryRuleID of the CategoryRule that will be retrieved.
      * @return The CategoryRule with categoryRuleID belonging to the user with sessionID.
      */
+    @ReadOnly
     public CategoryRule getCategoryRule(String sessionID, long categoryRuleID)
             throws InvalidSessionIDException, ResourceNotFoundException {
         int userID = this.getUserID(sessionID);
@@ -535,142 +851,70 @@ public class PersistentModel implements Model {
     /**
      * Method used to retrieve balance history information of a certain user in the form of a list of
      * BalanceCandlesticks.
+     * The BalanceCandlesticks are read from the rollups maintained by the BalanceTracker. UserMessages saying that a
+     * SavingGoal has been reached are emitted by the SavingGoalEvaluator, not by this method.
      *
      * @param sessionID      The sessionID of the user.
      * @param intervalPeriod The IntervalPeriod specifying the span of intervals.
      * @param amount         The amount of intervals for which BalanceCandlesticks should be generated.
      * @return The balance history information of a certain user in the form of a list of BalanceCandlesticks.
      */
+    @ReadOnly
     public ArrayList<BalanceCandlestick> getBalanceHistory(String sessionID, IntervalPeriod intervalPeriod, int amount)
             throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
+        return balanceTracker.getBalanceHistory(userID, intervalPeriod, amount);
+    }
 
-        LocalDateTime[] intervals = IntervalHelper.getIntervals(intervalPeriod, amount,
-                IntervalHelper.toLocalDateTime(customORM.getCurrentDate(userID)));
-
-        ArrayList<Transaction> transactions = customORM.getTransactionsAscending(userID);
-        ArrayList<SavingGoal> savingGoals = customORM.getSavingGoals(userID);
-        ArrayList<BalanceCandlestick> candlesticks = new ArrayList<>();
-
-        int previousMonthIdentifier = 0;
-        if (transactions.size() > 0) {
-            previousMonthIdentifier = transactions.get(0).getMonthIdentifier();
-        }
-
-        float balance = 0;
-        int index = 0;
-        for (int i = 1; i <= amount + 1; i++) {
-            LocalDateTime startInterval = intervals[i - 1];
-            LocalDateTime endInterval = intervals[i];
-            long startUnixTime = startInterval.toEpochSecond(ZoneOffset.UTC); // Convert start of interval to UNIX time
-            BalanceCandlestick candlestick = new BalanceCandlestick(balance, startUnixTime);
-
-            while (index < transactions.size() &&
-                    !IntervalHelper.isSmallerThan(endInterval, transactions.get(index).getDate())) {
-                Transaction transaction = transactions.get(index);
-                for (int j = previousMonthIdentifier; j < transaction.getMonthIdentifier(); j++) {
-                    // For every saving goal, check if money should be set apart
-                    ArrayList<SavingGoal> remainingSavingGoals = new ArrayList<>();
-                    for (SavingGoal savingGoal : savingGoals) {
-                        float mutation = 0;
-                        if (savingGoal.getDeletionDate() != null &&
-                                IntervalHelper.isSmallerThan(savingGoal.getDeletionDate(), transaction.getDate())) {
-                            mutation = savingGoal.getBalance();
-                        } else {
-                            if (transaction.getMonthIdentifier() > savingGoal.getMonthIdentifier() &&
-                                    balance >= savingGoal.getMinBalanceRequired()) {
-                                // Set apart money and update balance accordingly
-                                mutation = -savingGoal.setApart();
-                            }
-                            remainingSavingGoals.add(savingGoal);
-                        }
-                        balance += mutation;
-                        candlestick.mutation(mutation);
-                    }
-                    savingGoals = remainingSavingGoals;
-                }
-                previousMonthIdentifier = transaction.getMonthIdentifier();
-
-                ArrayList<SavingGoal> remainingSavingGoals = new ArrayList<>();
-                for (SavingGoal savingGoal : savingGoals) {
-                    if (savingGoal.getDeletionDate() != null &&
-                            IntervalHelper.isSmallerThan(savingGoal.getDeletionDate(),
-                                    IntervalHelper.dateToString(endInterval))) {
-                        float mutation = savingGoal.getBalance();
-                        balance += mutation;
-                        candlestick.mutation(mutation);
-                    } else {
-                        remainingSavingGoals.add(savingGoal);
-                    }
-                }
-                savingGoals = remainingSavingGoals;
-
-                if (transaction.getType().equals("deposit")) {
-                    candlestick.mutation(transaction.getAmount());
-                } else {
-                    candlestick.mutation(transaction.getAmount() * (-1));
-                }
-                balance = candlestick.getClose();
-                index++;
-            }
-            candlesticks.add(candlestick);
-        }
-
-        candlesticks.remove(0);
-
-        for (SavingGoal savingGoal : savingGoals) {
-            if (savingGoal.getDeletionDate() == null &&
-                    savingGoal.getBalance() >= savingGoal.getGoal()) {
-                // User Message Event: Saving Goal reached
-                messageEmitter.eventSavingGoalReached(userID, savingGoal.getId(), savingGoal.getName());
-            }
-        }
+    /**
+     * Method used to retrieve balance history information of a certain user for several IntervalPeriods at once, in
+     * the form of one list of BalanceCandlesticks per IntervalPeriod.
+     * The balance of the user is read only once, after which every list of BalanceCandlesticks is read from the rollups
+     * maintained by the BalanceTracker.
+     *
+     * @param sessionID       The sessionID of the user.
+     * @param intervalPeriods The IntervalPeriods specifying the spans of intervals.
+     * @param amounts         The amounts of intervals for which BalanceCandlesticks should be generated, where the n-th
+     *                        amount belongs to the n-th IntervalPeriod.
+     * @return For every IntervalPeriod in the same order, the balance history information of the user in the form of a
+     * list of BalanceCandlesticks.
+     */
+    @ReadOnly
+    public ArrayList<ArrayList<BalanceCandlestick>> getBalanceHistories(String sessionID,
+                                                                        IntervalPeriod[] intervalPeriods,
+                                                                        int[] amounts)
+            throws InvalidSessionIDException {
+        int userID = this.getUserID(sessionID);
+        return balanceTracker.getBalanceHistories(userID, intervalPeriods, amounts);
+    }
 
-        return candlesticks;
+    /**
+     * Method used to retrieve the current balance of a certain user.
+     * The balance is read as persisted by the BalanceTracker, which keeps it up to date whenever the Transactions of
+     * the user change.
+     *
+     * @param sessionID The sessionID of the user.
+     * @return The current Balance of the user.
+     */
+    @ReadOnly
+    public Balance getBalance(String sessionID) throws InvalidSessionIDException {
+        int userID = this.getUserID(sessionID);
+        return balanceTracker.readBalance(userID);
     }
 
     /**
      * Method used to retrieve the SavingGoals belonging to a certain user.
+     * The money set apart for every SavingGoal is read from the balances maintained by the BalanceTracker.
      *
      * @param sessionID The sessionID of the user.
      * @return An ArrayList of SavingGoals belonging to the user with sessionID.
      */
+    @ReadOnly
     public ArrayList<SavingGoal> getSavingGoals(String sessionID) throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
-        ArrayList<SavingGoal> savingGoals = customORM.getSavingGoals(userID);
-        ArrayList<Transaction> transactions = customORM.getTransactionsAscending(userID);
-
-        if (transactions.size() > 0) {
-            float balance = 0;
-            int previousMonthIdentifier = transactions.get(0).getMonthIdentifier();
-            for (Transaction transaction : transactions) {
-                // For every month elapsed since last transaction, check if money should be set apart
-                for (int i = previousMonthIdentifier; i < transaction.getMonthIdentifier(); i++) {
-                    // For every saving goal, check if money should be set apart
-                    for (SavingGoal savingGoal : savingGoals) {
-                        if (transaction.getMonthIdentifier() > savingGoal.getMonthIdentifier() &&
-                                balance >= savingGoal.getMinBalanceRequired()) {
-                            // Set apart money and update balance accordingly
-                            float mutation = -savingGoal.setApart();
-                            balance += mutation;
-                        }
-                    }
-                }
-                previousMonthIdentifier = transaction.getMonthIdentifier();
-
-                // Update balance according to transaction
-                float amount = transaction.getAmount();
-                if (transaction.getType().equals("deposit")) {
-                    balance += amount;
-                } else {
-                    balance -= amount;
-                }
-            }
-        }
-
         ArrayList<SavingGoal> returnedSavingGoals = new ArrayList<>();
-        for (SavingGoal savingGoal : savingGoals) {
-            if (savingGoal.getDeletionDate() == null) {
+        for (SavingGoal savingGoal : customORM.getSavingGoals(userID)) {
+            if (savingGoal.getDeletionDate() == IntervalHelper.NO_DATE) {
                 returnedSavingGoals.add(savingGoal);
             }
         }
@@ -687,23 +931,14 @@ public class PersistentModel implements Model {
      */
     public SavingGoal postSavingGoal(String sessionID, SavingGoal savingGoal) throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
-        SavingGoal createdSavingGoal = null;
-        try {
-            connection.setAutoCommit(false);
-            customORM.increaseHighestSavingGoalID(userID);
-            long savingGoalID = customORM.getHighestSavingGoalID(userID);
-            connection.commit();
-            connection.setAutoCommit(true);
-            savingGoal.setId(savingGoalID);
+        long savingGoalID = idAllocator.nextID(userID, IDType.SAVING_GOAL);
+        savingGoal.setId(savingGoalID);
 
-            // Set creation date to highest date Transaction if it exists, otherwise set to start of UNIX time
-            savingGoal.setCreationDate(customORM.getCurrentDate(userID));
+        // Set creation date to highest date Transaction if it exists, otherwise set to start of UNIX time
+        savingGoal.setCreationDate(customORM.getCurrentDate(userID));
 
-            customORM.createSavingGoal(userID, savingGoal);
-            createdSavingGoal = customORM.getSavingGoal(userID, savingGoal.getId());
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        customORM.createSavingGoal(userID, savingGoal);
+        SavingGoal createdSavingGoal = customORM.getSavingGoal(userID, savingGoal.getId());
         return createdSavingGoal;
     }
 
@@ -719,8 +954,12 @@ public class PersistentModel implements Model {
         SavingGoal savingGoal = customORM.getSavingGoal(userID, savingGoalID);
         if (savingGoal != null) {
             // Set deletion date to highest date Transaction if it exists, otherwise set to start of UNIX time
-            String deletionDate = customORM.getCurrentDate(userID);
+            long deletionDate = customORM.getCurrentDate(userID);
 
+            if (savingGoal.getDeletionDate() == IntervalHelper.NO_DATE) {
+                // Return the money set apart for the SavingGoal to the balance of the user
+                balanceTracker.savingGoalDeleted(userID, savingGoal, deletionDate);
+            }
             customORM.deleteSavingGoal(deletionDate, userID, savingGoalID);
         } else {
             throw new ResourceNotFoundException();
@@ -733,6 +972,7 @@ public class PersistentModel implements Model {
      * @param sessionID The sessionID of the user.
      * @return An ArrayList of PaymentRequest belonging to the user with sessionID.
      */
+    @ReadOnly
     public ArrayList<PaymentRequest> getPaymentRequests(String sessionID) throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
         ArrayList<PaymentRequest> paymentRequests = customORM.getPaymentRequests(userID);
@@ -757,27 +997,18 @@ public class PersistentModel implements Model {
     public PaymentRequest postPaymentRequest(String sessionID, PaymentRequest paymentRequest)
             throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
-        PaymentRequest createdPaymentRequest = null;
-        try {
-            connection.setAutoCommit(false);
-            customORM.increaseHighestPaymentRequestID(userID);
-            long paymentRequestID = customORM.getHighestPaymentRequestID(userID);
-            connection.commit();
-            connection.setAutoCommit(true);
-            paymentRequest.setID(paymentRequestID);
-
-            // Set filled to true if number_of_request == 0, otherwise false.
-            if (paymentRequest.getNumber_of_requests() == 0) {
-                paymentRequest.setFilled(true);
-            } else {
-                paymentRequest.setFilled(false);
-            }
+        long paymentRequestID = idAllocator.nextID(userID, IDType.PAYMENT_REQUEST);
+        paymentRequest.setID(paymentRequestID);
 
-            customORM.createPaymentRequest(userID, paymentRequest);
-            createdPaymentRequest = customORM.getPaymentRequest(userID, paymentRequest.getID());
-        } catch (SQLException e) {
-            e.printStackTrace();
+        // Set filled to true if number_of_request == 0, otherwise false.
+        if (paymentRequest.getNumber_of_requests() == 0) {
+            paymentRequest.setFilled(true);
+        } else {
+            paymentRequest.setFilled(false);
         }
+
+        customORM.createPaymentRequest(userID, paymentRequest);
+        PaymentRequest createdPaymentRequest = customORM.getPaymentRequest(userID, paymentRequest.getID());
         return createdPaymentRequest;
     }
 
@@ -787,6 +1018,7 @@ public class PersistentModel implements Model {
      * @param sessionID The sessionID of the user.
      * @return An ArrayList of UserMessages belonging to the user with sessionID.
      */
+    @ReadOnly
     public ArrayList<UserMessage> getUnreadUserMessages(String sessionID) throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
         return customORM.getUnreadUserMessages(userID);
@@ -819,36 +1051,120 @@ public class PersistentModel implements Model {
      */
     public MessageRule postMessageRule(String sessionID, MessageRule messageRule) throws InvalidSessionIDException {
         int userID = this.getUserID(sessionID);
-        MessageRule createdMessageRule = null;
-        try {
-            connection.setAutoCommit(false);
-            customORM.increaseHighestMessageRuleID(userID);
-            long messageRuleID = customORM.getHighestMessageRuleID(userID);
-            connection.commit();
-            connection.setAutoCommit(true);
+        long messageRuleID = idAllocator.nextID(userID, IDType.MESSAGE_RULE);
 
-            messageRule.setID(messageRuleID);
-            customORM.createMessageRule(userID, messageRule);
-            createdMessageRule = customORM.getMessageRule(userID, messageRule.getID());
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        messageRule.setID(messageRuleID);
+        customORM.createMessageRule(userID, messageRule);
+        MessageRule createdMessageRule = customORM.getMessageRule(userID, messageRule.getID());
         return createdMessageRule;
     }
 
     /**
-     * Method used to retrieve the current balance of a certain user.
+     * Method used to execute a request of a certain user made with a certain idempotency key at most once.
+     * If a request of the user to the same endpoint with the same idempotency key has been executed before, its
+     * original response is returned without executing the request again, unless the body of the earlier request has a
+     * different hash, in which case the idempotency key is being reused for another request. Otherwise, the request is
+     * executed and its response is stored in the same unit of work, so the request is either executed and remembered
+     * or neither.
      *
-     * @param sessionID The sessionID of the user.
-     * @return The current balance of the user.
+     * @param sessionID      The sessionID of the user.
+     * @param endpoint       The endpoint to which the request is made.
+     * @param idempotencyKey The idempotency key of the request.
+     * @param requestHash    The hash of the body of the request.
+     * @param request        The request that will be executed if it has not been executed before.
+     * @return The response to the request.
      */
-    private float getBalance(String sessionID) {
-        try {
-            return this.getBalanceHistory(sessionID, IntervalPeriod.HOUR, 1).get(0).getClose();
-        } catch (InvalidSessionIDException e) {
-            // This never happens, because this method will never get called with an invalid session ID.
-            e.printStackTrace();
-            return 0;
+    public IdempotentResponse executeIdempotently(String sessionID, String endpoint, String idempotencyKey,
+                                                  String requestHash, IdempotentRequest request)
+            throws InvalidSessionIDException, UnsuccessfulRequestException, IdempotencyKeyReusedException {
+        int userID = this.getUserID(sessionID);
+        IdempotentResponse response = idempotencyStore.get(userID, endpoint, idempotencyKey);
+        if (response != null && response.getRequestHash() != null && !response.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException();
+        } else if (response == null) {
+            response = request.execute();
+            idempotencyStore.put(userID, endpoint, idempotencyKey, response);
+        }
+        return response;
+    }
+
+    /**
+     * Method used to assign the Category of the first CategoryRule that applies to a certain Transaction to that
+     * Transaction, if there is such a CategoryRule.
+     *
+     * @param userID      The ID of the user to who the Transaction belongs.
+     * @param transaction The Transaction to which the CategoryRules will be applied.
+     */
+    private void applyCategoryRules(int userID, Transaction transaction) {
+        ArrayList<CategoryRule> categoryRules = customORM.getCategoryRules(userID);
+
+        boolean found = false;
+        for (int i = 0; i < categoryRules.size() && !found; i++) {
+            CategoryRule categoryRule = categoryRules.get(i);
+            if (transaction.getDescription().contains(categoryRule.getDescription()) &&
+                    transaction.getExternalIBAN().contains(categoryRule.getiBAN()) &&
+                    transaction.getType().contains(categoryRule.getType()) &&
+                    customORM.getCategory(userID, categoryRule.getCategory_id()) != null) {
+                customORM.linkTransactionToCategory(userID, transaction.getID(), categoryRule.getCategory_id());
+                ledgerCache.categoryAssigned(userID, transaction.getID(), categoryRule.getCategory_id());
+                found = true;
+            }
+        }
+    }
+
+    /**
+     * Method used to bring the PaymentRequest link of a certain Transaction up to date after its date, amount or type
+     * has been updated.
+     * If the Transaction no longer answers the PaymentRequest it is linked to, it is unlinked and the PaymentRequest is
+     * no longer filled. If the Transaction is a deposit that is not linked to a PaymentRequest, it is linked to the
+     * first unfilled PaymentRequest it answers, if any.
+     *
+     * @param userID      The ID of the user to who the Transaction belongs.
+     * @param transaction The updated Transaction.
+     */
+    private void relinkPaymentRequest(int userID, Transaction transaction) {
+        boolean deposit = transaction.getType().equals("deposit");
+        PaymentRequest paymentRequest = customORM.getPaymentRequestByTransaction(userID, transaction.getID());
+        if (paymentRequest != null) {
+            if (deposit && paymentRequest.getAmount() == transaction.getAmount() &&
+                    paymentRequest.getDue_date() > transaction.getDate()) {
+                // The Transaction still answers the PaymentRequest
+                return;
+            }
+            this.unlinkPaymentRequest(userID, transaction.getID(), paymentRequest);
+        }
+
+        if (deposit) {
+            PaymentRequest matchingPaymentRequest = customORM.getMatchingPaymentRequest(userID,
+                    transaction.getAmount(), transaction.getDate());
+            if (matchingPaymentRequest != null) {
+                long paymentRequestID = matchingPaymentRequest.getID();
+                if (customORM.linkTransactionToPaymentRequest(userID, transaction.getID(), paymentRequestID) >=
+                        matchingPaymentRequest.getNumber_of_requests()) {
+                    customORM.setPaymentRequestFilled(userID, paymentRequestID);
+
+                    // User Message Event: Payment Request filled
+                    messageEmitter.eventPaymentRequestFilled(userID,
+                            paymentRequestID, matchingPaymentRequest.getDescription());
+                }
+            }
+        }
+    }
+
+    /**
+     * Method used to unlink a certain Transaction from the PaymentRequest it answers, because it was deleted or no
+     * longer answers the PaymentRequest.
+     * A PaymentRequest is filled exactly when the amount of Transactions that answer it reaches its number of requests,
+     * so a filled PaymentRequest is no longer filled once one of its Transactions is unlinked.
+     *
+     * @param userID         The ID of the user to who the Transaction belongs.
+     * @param transactionID  The ID of the Transaction that will be unlinked.
+     * @param paymentRequest The PaymentRequest to which the Transaction is linked.
+     */
+    private void unlinkPaymentRequest(int userID, long transactionID, PaymentRequest paymentRequest) {
+        customORM.unlinkTransactionFromPaymentRequest(userID, transactionID, paymentRequest.getID());
+        if (paymentRequest.getFilled()) {
+            customORM.setPaymentRequestUnfilled(userID, paymentRequest.getID());
         }
     }
 
@@ -867,12 +1183,20 @@ public class PersistentModel implements Model {
 
     /**
      * Method used to retrieve the userID belonging to a certain sessionID.
+     * The SessionCache is consulted first, so that the database is only accessed for sessionIDs it does not know.
      *
      * @param sessionID The sessionID from which the belonging userID will be retrieved.
      * @return The userID belonging to sessionID.
      */
     private int getUserID(String sessionID) throws InvalidSessionIDException {
-        int userID = customORM.getUserID(sessionID);
+        Integer cachedUserID = sessionCache.get(sessionID);
+        int userID;
+        if (cachedUserID != null) {
+            userID = cachedUserID;
+        } else {
+            userID = customORM.getUserID(sessionID);
+            sessionCache.put(sessionID, userID);
+        }
         if (userID == -1) {
             throw new InvalidSessionIDException();
         }
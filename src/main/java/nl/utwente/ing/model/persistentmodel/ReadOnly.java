@@ -0,0 +1,19 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The ReadOnly annotation.
+ * Used to indicate that a method of a Model implementation only reads from the database, so that UnitOfWork can execute
+ * it in a deferred transaction instead of acquiring the write lock of the database.
+ *
+ * @author Daan Kooij
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadOnly {
+
+}
@@ -0,0 +1,233 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.model.bean.SavingGoal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The SavingGoalEngine class.
+ * Used to keep track of the money set apart for the SavingGoals of a user while the Transactions of that user are
+ * replayed, and of which SavingGoals have been released, meaning that the money set apart for them has been returned
+ * to the balance of the user because they were deleted.
+ * <p>
+ * Between two consecutive Transactions, money is set apart for every month that elapsed, for every SavingGoal that was
+ * created before the month of the later Transaction, as long as the balance of the user is at least the minimum balance
+ * required by the SavingGoal and the goal is not yet met. Since setting money apart only ever lowers the balance, the
+ * balance after all months elapsed is the lowest balance at which the minimum balance of a SavingGoal is checked. If
+ * that balance satisfies the minimum balances of all SavingGoals that still set money apart, the amount set apart is
+ * computed in closed form for all remaining months at once. Otherwise, one month is simulated and the check is repeated,
+ * so the cost is at most proportional to the amount of elapsed months times the amount of SavingGoals.
+ *
+ * @author Daan Kooij
+ */
+public class SavingGoalEngine {
+
+    private List<SavingGoal> savingGoals;
+    private long[] setApart;
+    private boolean[] released;
+    private int[] releaseOrder;
+    private int releaseCursor;
+
+    /**
+     * The constructor of SavingGoalEngine.
+     * Initially, no money is set apart for any SavingGoal and no SavingGoal is released.
+     *
+     * @param savingGoals All SavingGoals of the user, including deleted ones.
+     */
+    public SavingGoalEngine(List<SavingGoal> savingGoals) {
+        this.savingGoals = savingGoals;
+        this.setApart = new long[savingGoals.size()];
+        this.released = new boolean[savingGoals.size()];
+
+        // Deleted SavingGoals are released in order of deletion date
+        List<Integer> deletedSavingGoals = new ArrayList<>();
+        for (int i = 0; i < savingGoals.size(); i++) {
+            if (savingGoals.get(i).getDeletionDate() != IntervalHelper.NO_DATE) {
+                deletedSavingGoals.add(i);
+            }
+        }
+        deletedSavingGoals.sort(Comparator.comparingLong(i -> savingGoals.get(i).getDeletionDate()));
+        this.releaseOrder = new int[deletedSavingGoals.size()];
+        for (int i = 0; i < releaseOrder.length; i++) {
+            releaseOrder[i] = deletedSavingGoals.get(i);
+        }
+    }
+
+    /**
+     * Method used to retrieve the amount of SavingGoals tracked by SavingGoalEngine.
+     *
+     * @return The amount of SavingGoals tracked by SavingGoalEngine.
+     */
+    public int size() {
+        return savingGoals.size();
+    }
+
+    /**
+     * Method used to retrieve a certain SavingGoal tracked by SavingGoalEngine.
+     *
+     * @param index The index of the SavingGoal in the list passed to the constructor.
+     * @return The SavingGoal at index.
+     */
+    public SavingGoal getSavingGoal(int index) {
+        return savingGoals.get(index);
+    }
+
+    /**
+     * Method used to retrieve the amount currently set apart for a certain SavingGoal, in cents.
+     *
+     * @param index The index of the SavingGoal in the list passed to the constructor.
+     * @return The amount currently set apart for the SavingGoal at index.
+     */
+    public long getSetApart(int index) {
+        return setApart[index];
+    }
+
+    /**
+     * Method used to retrieve whether a certain SavingGoal has been released.
+     *
+     * @param index The index of the SavingGoal in the list passed to the constructor.
+     * @return Whether the SavingGoal at index has been released.
+     */
+    public boolean isReleased(int index) {
+        return released[index];
+    }
+
+    /**
+     * Method used to restore the state of a certain SavingGoal, as persisted earlier.
+     *
+     * @param index    The index of the SavingGoal in the list passed to the constructor.
+     * @param setApart The amount set apart for the SavingGoal, in cents.
+     * @param released Whether the SavingGoal has been released.
+     */
+    public void restore(int index, long setApart, boolean released) {
+        this.setApart[index] = setApart;
+        this.released[index] = released;
+    }
+
+    /**
+     * Method used to set apart money for the months elapsed between two consecutive Transactions.
+     *
+     * @param balance             The balance of the user after the earlier Transaction, in cents.
+     * @param fromMonthIdentifier The month identifier of the earlier Transaction.
+     * @param toMonthIdentifier   The month identifier of the later Transaction.
+     * @return The total amount set apart for all SavingGoals combined, in cents.
+     */
+    public long accrue(long balance, int fromMonthIdentifier, int toMonthIdentifier) {
+        long total = 0;
+        for (int months = toMonthIdentifier - fromMonthIdentifier; months > 0; months--) {
+            if (this.canAccrueInClosedForm(balance - total, months, toMonthIdentifier)) {
+                return total + this.sumAccrued(months, toMonthIdentifier, true);
+            }
+
+            // The minimum balance of some SavingGoal may bind, so simulate a single month
+            long saved = 0;
+            for (int i = 0; i < setApart.length; i++) {
+                SavingGoal savingGoal = savingGoals.get(i);
+                if (this.isSaving(i, toMonthIdentifier) &&
+                        balance - total - saved >= savingGoal.getMinBalanceRequired()) {
+                    long monthSaved = Math.min(savingGoal.getGoal() - setApart[i], savingGoal.getSavePerMonth());
+                    setApart[i] += monthSaved;
+                    saved += monthSaved;
+                }
+            }
+            if (saved == 0) {
+                // Nothing changed, so the remaining months will not set apart anything either
+                break;
+            }
+            total += saved;
+        }
+        return total;
+    }
+
+    /**
+     * Method used to find the next SavingGoal that should be released because it was deleted before a certain date.
+     *
+     * @param until The date before which a SavingGoal should have been deleted to be released.
+     * @return The index of the SavingGoal with the lowest deletion date before until that is not yet released, or -1 if
+     * there is none.
+     */
+    public int nextRelease(long until) {
+        while (releaseCursor < releaseOrder.length && released[releaseOrder[releaseCursor]]) {
+            releaseCursor++;
+        }
+        if (releaseCursor < releaseOrder.length &&
+                savingGoals.get(releaseOrder[releaseCursor]).getDeletionDate() < until) {
+            return releaseOrder[releaseCursor];
+        }
+        return -1;
+    }
+
+    /**
+     * Method used to release a certain SavingGoal.
+     *
+     * @param index The index of the SavingGoal in the list passed to the constructor.
+     * @return The amount set apart for the SavingGoal, which is returned to the balance of the user, in cents.
+     */
+    public long release(int index) {
+        released[index] = true;
+        return setApart[index];
+    }
+
+    /**
+     * Method used to check whether money can be set apart for a certain number of months in closed form, meaning that
+     * the minimum balance of no SavingGoal that still sets money apart binds during those months.
+     *
+     * @param balance           The balance of the user before the months, in cents.
+     * @param months            The number of months.
+     * @param toMonthIdentifier The month identifier of the Transaction after the months.
+     * @return Whether the amount set apart can be computed in closed form.
+     */
+    private boolean canAccrueInClosedForm(long balance, int months, int toMonthIdentifier) {
+        long lowestBalance = balance - this.sumAccrued(months, toMonthIdentifier, false);
+        for (int i = 0; i < setApart.length; i++) {
+            SavingGoal savingGoal = savingGoals.get(i);
+            if (this.isSaving(i, toMonthIdentifier) && setApart[i] < savingGoal.getGoal() &&
+                    savingGoal.getSavePerMonth() > 0 && lowestBalance < savingGoal.getMinBalanceRequired()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method used to compute the amount set apart for all SavingGoals during a certain number of months, assuming that
+     * no minimum balance binds.
+     *
+     * @param months            The number of months.
+     * @param toMonthIdentifier The month identifier of the Transaction after the months.
+     * @param apply             Whether the computed amounts should actually be set apart.
+     * @return The total amount set apart for all SavingGoals combined, in cents.
+     */
+    private long sumAccrued(int months, int toMonthIdentifier, boolean apply) {
+        long total = 0;
+        for (int i = 0; i < setApart.length; i++) {
+            SavingGoal savingGoal = savingGoals.get(i);
+            if (this.isSaving(i, toMonthIdentifier)) {
+                long leftToSave = savingGoal.getGoal() - setApart[i];
+                long saved = savingGoal.getSavePerMonth() > leftToSave / months ?
+                        leftToSave : savingGoal.getSavePerMonth() * months;
+                if (apply) {
+                    setApart[i] += saved;
+                }
+                total += saved;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Method used to check whether money is set apart for a certain SavingGoal in the months before a Transaction,
+     * not considering its minimum balance.
+     *
+     * @param index             The index of the SavingGoal in the list passed to the constructor.
+     * @param toMonthIdentifier The month identifier of the Transaction.
+     * @return Whether money is set apart for the SavingGoal.
+     */
+    private boolean isSaving(int index, int toMonthIdentifier) {
+        return !released[index] && toMonthIdentifier > savingGoals.get(index).getMonthIdentifier();
+    }
+
+}
@@ -0,0 +1,146 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.model.bean.SavingGoal;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SavingGoalEvaluator class.
+ * Used to emit a UserMessage for every SavingGoal of which the goal has been met, in the background instead of on the
+ * request path of the user.
+ * <p>
+ * Whenever the persisted amount set apart for a SavingGoal reaches its goal, the user to who the SavingGoal belongs is
+ * scheduled for evaluation once the unit of work in which this happened has been committed. Evaluations are executed
+ * one at a time by a single background thread, every evaluation in its own unit of work. A user that is already
+ * scheduled is not scheduled again, so a burst of changes for the same user results in a single evaluation.
+ * <p>
+ * Evaluation is idempotent: every SavingGoal for which a UserMessage is emitted is marked as reached in the same
+ * unit of work, and marked SavingGoals are never evaluated again. When SavingGoalEvaluator is started, all users that
+ * have a SavingGoal of which the goal has been met but that is not yet marked are scheduled, so that evaluations that
+ * were still scheduled when the application stopped are not lost. When SavingGoalEvaluator is shut down, the running
+ * evaluation is finished before the database connections are closed.
+ *
+ * @author Daan Kooij
+ */
+public class SavingGoalEvaluator {
+
+    public static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private final CustomORM customORM;
+    private final UserMessageEmitter messageEmitter;
+    private final ExecutorService executor;
+    private final Set<Integer> scheduledUsers;
+
+    /**
+     * The constructor of SavingGoalEvaluator.
+     * No users are evaluated until SavingGoalEvaluator is started.
+     *
+     * @param customORM      The CustomORM used to read and mark SavingGoals.
+     * @param messageEmitter The UserMessageEmitter used to emit the UserMessages.
+     */
+    public SavingGoalEvaluator(CustomORM customORM, UserMessageEmitter messageEmitter) {
+        this.customORM = customORM;
+        this.messageEmitter = messageEmitter;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "saving-goal-evaluator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduledUsers = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Method used to start SavingGoalEvaluator, scheduling all users of which a SavingGoal still needs to be evaluated.
+     */
+    public void start() {
+        executor.execute(this::scheduleUnnotifiedUsers);
+    }
+
+    /**
+     * Method used to shut down SavingGoalEvaluator, waiting at most SHUTDOWN_TIMEOUT_MILLIS for the scheduled
+     * evaluations to finish.
+     * Users scheduled after SavingGoalEvaluator has been shut down are not evaluated until it is started again.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Method used to indicate that the persisted amount set apart for a SavingGoal of a certain user has reached its
+     * goal in the current unit of work.
+     * The user is scheduled for evaluation once the current unit of work has been committed.
+     *
+     * @param userID The ID of the user to who the SavingGoal belongs.
+     */
+    public void savingGoalReached(int userID) {
+        DatabaseConnection.registerCommitAction(() -> this.schedule(userID));
+    }
+
+    /**
+     * Method used to schedule a certain user for evaluation, unless the user is already scheduled.
+     *
+     * @param userID The ID of the user that will be scheduled.
+     */
+    private void schedule(int userID) {
+        if (scheduledUsers.add(userID)) {
+            try {
+                executor.execute(() -> this.evaluate(userID));
+            } catch (RejectedExecutionException e) {
+                // SavingGoalEvaluator has been shut down, the user is scheduled again once it is started
+                scheduledUsers.remove(userID);
+            }
+        }
+    }
+
+    /**
+     * Method used to emit a UserMessage for every SavingGoal of a certain user of which the goal has been met and that
+     * is not yet marked as reached, and to mark these SavingGoals as reached.
+     *
+     * @param userID The ID of the user whose SavingGoals will be evaluated.
+     */
+    private void evaluate(int userID) {
+        // Changes committed from now on schedule the user again
+        scheduledUsers.remove(userID);
+        try {
+            UnitOfWork.run(() -> {
+                for (SavingGoal savingGoal : customORM.getUnnotifiedReachedSavingGoals(userID)) {
+                    // User Message Event: Saving Goal reached
+                    messageEmitter.eventSavingGoalReached(userID, savingGoal.getId(), savingGoal.getName());
+                    customORM.markSavingGoalReached(userID, savingGoal.getId());
+                }
+            });
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Method used to schedule all users that have a SavingGoal of which the goal has been met but that is not yet
+     * marked as reached.
+     */
+    private void scheduleUnnotifiedUsers() {
+        try {
+            UnitOfWork.run(() -> {
+                for (int userID : customORM.getUsersWithUnnotifiedReachedSavingGoals()) {
+                    DatabaseConnection.registerCommitAction(() -> this.schedule(userID));
+                }
+            });
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+}
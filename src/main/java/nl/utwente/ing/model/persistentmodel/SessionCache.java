@@ -0,0 +1,187 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The SessionCache class.
+ * Used to keep a bounded mapping from sessionIDs to userIDs in memory, so that most API calls can authenticate their
+ * user without accessing the database.
+ * <p>
+ * Valid sessionIDs are kept for a long time, since sessions are never removed from the database. SessionIDs that
+ * turned out to be invalid are kept separately and only for a short time, so that repeated requests with invalid
+ * sessionIDs are rejected cheaply, while they can never push valid sessionIDs out of the cache. Both parts of the
+ * cache evict their least recently used entry once they are full.
+ *
+ * @author Daan Kooij
+ */
+public class SessionCache {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 30 * 60 * 1000;
+    public static final long DEFAULT_INVALID_TIME_TO_LIVE_MILLIS = 60 * 1000;
+
+    private static final int INVALID_USER_ID = -1;
+
+    private final Map<String, CachedUserID> validSessions;
+    private final Map<String, CachedUserID> invalidSessions;
+    private final long timeToLiveMillis;
+    private final long invalidTimeToLiveMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * The CachedUserID class.
+     * Used to store a cached userID together with the moment it expires.
+     */
+    private static class CachedUserID {
+
+        private final int userID;
+        private final long expiresAt;
+
+        /**
+         * The constructor of CachedUserID.
+         *
+         * @param userID    The cached userID.
+         * @param expiresAt The moment (in milliseconds since the epoch) at which the entry expires.
+         */
+        private CachedUserID(int userID, long expiresAt) {
+            this.userID = userID;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+    /**
+     * The constructor of SessionCache, using the default capacity and default times to live.
+     */
+    public SessionCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_TIME_TO_LIVE_MILLIS, DEFAULT_INVALID_TIME_TO_LIVE_MILLIS);
+    }
+
+    /**
+     * The constructor of SessionCache.
+     *
+     * @param capacity                The maximum amount of valid sessionIDs, as well as the maximum amount of invalid
+     *                                sessionIDs, that will be kept in the cache.
+     * @param timeToLiveMillis        The amount of milliseconds a valid sessionID is kept in the cache.
+     * @param invalidTimeToLiveMillis The amount of milliseconds an invalid sessionID is kept in the cache.
+     */
+    public SessionCache(int capacity, long timeToLiveMillis, long invalidTimeToLiveMillis) {
+        this.validSessions = this.createLRUMap(capacity);
+        this.invalidSessions = this.createLRUMap(capacity);
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.invalidTimeToLiveMillis = invalidTimeToLiveMillis;
+    }
+
+    /**
+     * Method used to create a map that keeps its entries in access order and evicts its least recently used entry
+     * once it holds more than a certain amount of entries.
+     *
+     * @param capacity The maximum amount of entries of the map.
+     * @return The created map.
+     */
+    private Map<String, CachedUserID> createLRUMap(int capacity) {
+        return new LinkedHashMap<String, CachedUserID>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedUserID> eldest) {
+                if (size() > capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Method used to look up the userID belonging to a certain sessionID in the cache.
+     *
+     * @param sessionID The sessionID that will be looked up.
+     * @return The userID belonging to sessionID, -1 if sessionID is known to be invalid, or null if the cache does not
+     * know sessionID.
+     */
+    public synchronized Integer get(String sessionID) {
+        long now = System.currentTimeMillis();
+        CachedUserID entry = validSessions.get(sessionID);
+        if (entry == null) {
+            entry = invalidSessions.get(sessionID);
+        }
+        if (entry != null && entry.expiresAt > now) {
+            hits.incrementAndGet();
+            return entry.userID;
+        }
+        if (entry != null) {
+            validSessions.remove(sessionID);
+            invalidSessions.remove(sessionID);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Method used to store the userID belonging to a certain sessionID in the cache.
+     *
+     * @param sessionID The sessionID of which the userID will be stored.
+     * @param userID    The userID belonging to sessionID, or -1 if sessionID is invalid.
+     */
+    public synchronized void put(String sessionID, int userID) {
+        long now = System.currentTimeMillis();
+        if (userID == INVALID_USER_ID) {
+            invalidSessions.put(sessionID, new CachedUserID(userID, now + invalidTimeToLiveMillis));
+        } else {
+            invalidSessions.remove(sessionID);
+            validSessions.put(sessionID, new CachedUserID(userID, now + timeToLiveMillis));
+        }
+    }
+
+    /**
+     * Method used to remove a certain sessionID from the cache.
+     *
+     * @param sessionID The sessionID that will be removed from the cache.
+     */
+    public synchronized void invalidate(String sessionID) {
+        validSessions.remove(sessionID);
+        invalidSessions.remove(sessionID);
+    }
+
+    /**
+     * Method used to retrieve the amount of sessionIDs currently kept in the cache.
+     *
+     * @return The amount of valid and invalid sessionIDs currently kept in the cache.
+     */
+    public synchronized int size() {
+        return validSessions.size() + invalidSessions.size();
+    }
+
+    /**
+     * Method used to retrieve the amount of lookups that were answered by the cache.
+     *
+     * @return The amount of cache hits.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Method used to retrieve the amount of lookups that could not be answered by the cache.
+     *
+     * @return The amount of cache misses.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Method used to retrieve the amount of entries that were evicted because the cache was full.
+     *
+     * @return The amount of cache evictions.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+}
@@ -0,0 +1,89 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The StatementCache class.
+ * Used to keep the compiled PreparedStatements of one database connection, keyed by their SQL, so that every SQL
+ * statement only has to be compiled once per connection.
+ * A StatementCache is confined to the thread to which its connection is bound, so it is not thread-safe by itself.
+ *
+ * @author Daan Kooij
+ */
+public class StatementCache {
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private Connection connection;
+    private Map<String, PreparedStatement> statements;
+
+    /**
+     * The constructor of StatementCache.
+     *
+     * @param connection The database connection on which statements will be prepared.
+     */
+    public StatementCache(Connection connection) {
+        this.connection = connection;
+        this.statements = new HashMap<>();
+    }
+
+    /**
+     * Method used to retrieve a PreparedStatement for a certain SQL statement.
+     * If the SQL statement has been prepared before on this connection, the cached PreparedStatement is returned with
+     * its parameters cleared. Otherwise, the SQL statement is prepared and cached.
+     *
+     * @param sql The SQL statement for which a PreparedStatement will be retrieved.
+     * @return A PreparedStatement for sql.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            hits.incrementAndGet();
+            statement.clearParameters();
+        } else {
+            misses.incrementAndGet();
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Method used to close all PreparedStatements in this StatementCache.
+     */
+    public void close() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        statements.clear();
+    }
+
+    /**
+     * Method used to retrieve the amount of times a PreparedStatement was served from any StatementCache.
+     *
+     * @return The amount of cache hits of all StatementCaches combined.
+     */
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Method used to retrieve the amount of times a statement had to be compiled by any StatementCache.
+     *
+     * @return The amount of cache misses of all StatementCaches combined.
+     */
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+}
@@ -0,0 +1,114 @@
+package nl.utwente.ing.model.persistentmodel;
+
+/**
+ * The TransactionEvent class.
+ * Used to store a Transaction that has been posted but of which the derived evaluations, such as matching
+ * PaymentRequests and checking the MessageRules, have not been done yet, together with the state of the user at the
+ * moment it was posted.
+ * <p>
+ * The balances are only known if they were persisted at the moment the Transaction was posted, since computing them
+ * could require replaying the Transactions of the user. An unknown balance is represented by UNKNOWN_BALANCE.
+ *
+ * @author Daan Kooij
+ */
+public class TransactionEvent {
+
+    public static final long UNKNOWN_BALANCE = Long.MIN_VALUE;
+
+    private long id;
+    private long transactionID;
+    private long oldBalance;
+    private long oldDate;
+    private long newBalance;
+    private int attempts;
+
+    /**
+     * The constructor of TransactionEvent, used for TransactionEvents that have not been attempted to be handled yet.
+     *
+     * @param id            The ID of the TransactionEvent, which orders the TransactionEvents of a user (0 if it has
+     *                      not been persisted yet).
+     * @param transactionID The ID of the posted Transaction.
+     * @param oldBalance    The balance of the user before the Transaction was posted, in cents (or UNKNOWN_BALANCE).
+     * @param oldDate       The date of the most recent Transaction of the user before the Transaction was posted.
+     * @param newBalance    The balance of the user after the Transaction was posted, in cents (or UNKNOWN_BALANCE).
+     */
+    public TransactionEvent(long id, long transactionID, long oldBalance, long oldDate, long newBalance) {
+        this.id = id;
+        this.transactionID = transactionID;
+        this.oldBalance = oldBalance;
+        this.oldDate = oldDate;
+        this.newBalance = newBalance;
+    }
+
+    /**
+     * The constructor of TransactionEvent.
+     *
+     * @param id            The ID of the TransactionEvent, which orders the TransactionEvents of a user.
+     * @param transactionID The ID of the posted Transaction.
+     * @param oldBalance    The balance of the user before the Transaction was posted, in cents (or UNKNOWN_BALANCE).
+     * @param oldDate       The date of the most recent Transaction of the user before the Transaction was posted.
+     * @param newBalance    The balance of the user after the Transaction was posted, in cents (or UNKNOWN_BALANCE).
+     * @param attempts      The amount of failed attempts to handle the TransactionEvent.
+     */
+    public TransactionEvent(long id, long transactionID, long oldBalance, long oldDate, long newBalance,
+                            int attempts) {
+        this(id, transactionID, oldBalance, oldDate, newBalance);
+        this.attempts = attempts;
+    }
+
+    /**
+     * Method used to retrieve the ID of TransactionEvent.
+     *
+     * @return The ID of TransactionEvent.
+     */
+    public long getID() {
+        return id;
+    }
+
+    /**
+     * Method used to retrieve the ID of the Transaction of TransactionEvent.
+     *
+     * @return The ID of the Transaction of TransactionEvent.
+     */
+    public long getTransactionID() {
+        return transactionID;
+    }
+
+    /**
+     * Method used to retrieve the balance of the user before the Transaction of TransactionEvent was posted.
+     *
+     * @return The balance before the Transaction was posted in cents, or UNKNOWN_BALANCE if it is not known.
+     */
+    public long getOldBalance() {
+        return oldBalance;
+    }
+
+    /**
+     * Method used to retrieve the date of the most recent Transaction of the user before the Transaction of
+     * TransactionEvent was posted.
+     *
+     * @return The date of the most recent Transaction before the Transaction was posted.
+     */
+    public long getOldDate() {
+        return oldDate;
+    }
+
+    /**
+     * Method used to retrieve the balance of the user after the Transaction of TransactionEvent was posted.
+     *
+     * @return The balance after the Transaction was posted in cents, or UNKNOWN_BALANCE if it is not known.
+     */
+    public long getNewBalance() {
+        return newBalance;
+    }
+
+    /**
+     * Method used to retrieve the amount of failed attempts to handle TransactionEvent.
+     *
+     * @return The amount of failed attempts to handle TransactionEvent.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+}
@@ -0,0 +1,20 @@
+package nl.utwente.ing.model.persistentmodel;
+
+/**
+ * The TransactionEventHandler interface.
+ * Used by the TransactionEventOutbox to do the derived evaluations of a posted Transaction.
+ *
+ * @author Daan Kooij
+ */
+public interface TransactionEventHandler {
+
+    /**
+     * Method used to do the derived evaluations of a posted Transaction.
+     * Called within the unit of work in which the TransactionEvent is removed from the outbox.
+     *
+     * @param userID The ID of the user to who the posted Transaction belongs.
+     * @param event  The TransactionEvent of the posted Transaction.
+     */
+    void handle(int userID, TransactionEvent event);
+
+}
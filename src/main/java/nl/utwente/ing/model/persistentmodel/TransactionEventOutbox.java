@@ -0,0 +1,236 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TransactionEventOutbox class.
+ * Used to do the derived evaluations of posted Transactions in the background instead of on the request path of the
+ * user, without losing them when the application stops.
+ * <p>
+ * A TransactionEvent is persisted in the same unit of work as the Transaction it belongs to, and the user to who it
+ * belongs is scheduled once that unit of work has been committed. The users are spread over a fixed amount of worker
+ * threads by their ID, so all TransactionEvents of a user are handled by the same worker. A worker handles the pending
+ * TransactionEvents of a user in the order in which the Transactions were posted, in a single unit of work.
+ * <p>
+ * Every TransactionEvent is handled within its own savepoint and removed from the outbox together with the results of
+ * handling it, so a TransactionEvent that was handled successfully is never handled again. If handling a
+ * TransactionEvent fails, only its own changes are rolled back, the failed attempt is recorded, and the later
+ * TransactionEvents of the user are left pending so that their order is kept. The worker then schedules the user again
+ * after a delay that doubles with every consecutive failure, up to MAX_RETRY_DELAY_MILLIS. A TransactionEvent that
+ * failed MAX_ATTEMPTS times is set aside: it stays in the outbox for inspection, but is no longer handled, so that it
+ * cannot hold up the other TransactionEvents of the user.
+ * <p>
+ * The pending TransactionEvents of a user can also be handled on the calling thread, for example before evaluations
+ * that must see the results of earlier TransactionEvents, or for clients that must see the resulting UserMessages right
+ * away. When TransactionEventOutbox is started, all users with pending TransactionEvents are scheduled, so that
+ * TransactionEvents that were still pending when the application stopped are not lost. When TransactionEventOutbox is
+ * shut down, the workers finish the users they are handling and drop the users that are still scheduled, whose
+ * TransactionEvents stay pending in the outbox until it is started again.
+ *
+ * @author Daan Kooij
+ */
+public class TransactionEventOutbox {
+
+    public static final int DEFAULT_WORKERS = 2;
+    public static final int MAX_ATTEMPTS = 5;
+    public static final long INITIAL_RETRY_DELAY_MILLIS = 1000;
+    public static final long MAX_RETRY_DELAY_MILLIS = 60000;
+    public static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private final CustomORM customORM;
+    private final TransactionEventHandler handler;
+    private final ScheduledThreadPoolExecutor[] workers;
+    private final Set<Integer> scheduledUsers;
+    private final Map<Integer, Integer> consecutiveFailures;
+
+    /**
+     * The constructor of TransactionEventOutbox.
+     * No TransactionEvents are handled in the background until TransactionEventOutbox is started.
+     *
+     * @param customORM   The CustomORM used to read and remove TransactionEvents.
+     * @param handler     The TransactionEventHandler that does the derived evaluations of the posted Transactions.
+     * @param workerCount The amount of worker threads.
+     */
+    public TransactionEventOutbox(CustomORM customORM, TransactionEventHandler handler, int workerCount) {
+        this.customORM = customORM;
+        this.handler = handler;
+        this.workers = new ScheduledThreadPoolExecutor[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            String name = "transaction-event-worker-" + i;
+            workers[i] = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            workers[i].setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+        this.scheduledUsers = ConcurrentHashMap.newKeySet();
+        this.consecutiveFailures = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Method used to start TransactionEventOutbox, scheduling all users that have pending TransactionEvents.
+     */
+    public void start() {
+        workers[0].execute(this::scheduleUsersWithPendingEvents);
+    }
+
+    /**
+     * Method used to shut down TransactionEventOutbox, waiting at most SHUTDOWN_TIMEOUT_MILLIS for the workers to
+     * finish the users they are handling.
+     * Users that are still scheduled are dropped; their TransactionEvents stay pending in the outbox.
+     */
+    public void shutdown() {
+        for (ScheduledThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        try {
+            for (ScheduledThreadPoolExecutor worker : workers) {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                if (!worker.awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+                    worker.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            for (ScheduledThreadPoolExecutor worker : workers) {
+                worker.shutdownNow();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Method used to add a TransactionEvent of a certain user to the outbox in the current unit of work.
+     * The user is scheduled once the current unit of work has been committed.
+     *
+     * @param userID The ID of the user to who the TransactionEvent belongs.
+     * @param event  The TransactionEvent that will be added.
+     */
+    public void enqueue(int userID, TransactionEvent event) {
+        customORM.createTransactionEvent(userID, event);
+        DatabaseConnection.registerCommitAction(() -> this.schedule(userID));
+    }
+
+    /**
+     * Method used to handle the pending TransactionEvents of a certain user on the calling thread, in order, and to
+     * remove them from the outbox.
+     * If a unit of work is running on the calling thread, the TransactionEvents are handled within it. A TransactionEvent
+     * that fails to be handled does not make the unit of work fail: its failed attempt is recorded instead, the
+     * TransactionEvents after it are left pending, and the user is scheduled again with a delay once the unit of work
+     * has been committed.
+     *
+     * @param userID The ID of the user whose pending TransactionEvents will be handled.
+     */
+    public void handlePendingEvents(int userID) {
+        UnitOfWork.run(() -> {
+            for (TransactionEvent event : customORM.getTransactionEvents(userID, MAX_ATTEMPTS)) {
+                try {
+                    UnitOfWork.runIsolated(() -> {
+                        handler.handle(userID, event);
+                        customORM.deleteTransactionEvent(userID, event.getID());
+                    });
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    customORM.increaseTransactionEventAttempts(userID, event.getID());
+                    if (event.getAttempts() + 1 < MAX_ATTEMPTS) {
+                        DatabaseConnection.registerCommitAction(() -> this.retry(userID));
+                        return;
+                    }
+                    // The TransactionEvent is set aside, so the TransactionEvents after it can be handled
+                }
+            }
+            DatabaseConnection.registerCommitAction(() -> consecutiveFailures.remove(userID));
+        });
+    }
+
+    /**
+     * Method used to schedule a certain user on its worker, unless the user is already scheduled.
+     *
+     * @param userID The ID of the user that will be scheduled.
+     */
+    private void schedule(int userID) {
+        this.schedule(userID, 0);
+    }
+
+    /**
+     * Method used to schedule a certain user on its worker after a certain delay, unless the user is already scheduled.
+     *
+     * @param userID      The ID of the user that will be scheduled.
+     * @param delayMillis The delay after which the user will be handled, in milliseconds.
+     */
+    private void schedule(int userID, long delayMillis) {
+        if (scheduledUsers.add(userID)) {
+            try {
+                workers[Math.floorMod(userID, workers.length)].schedule(() -> this.work(userID), delayMillis,
+                        TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // TransactionEventOutbox has been shut down, the user is scheduled again once it is started
+                scheduledUsers.remove(userID);
+            }
+        }
+    }
+
+    /**
+     * Method used by a worker to handle all pending TransactionEvents of a certain user.
+     * If the TransactionEvents could not be handled at all, for example because no database connection could be
+     * obtained, the user is scheduled again with a delay.
+     *
+     * @param userID The ID of the user whose pending TransactionEvents will be handled.
+     */
+    private void work(int userID) {
+        // Events committed from now on schedule the user again
+        scheduledUsers.remove(userID);
+        try {
+            this.handlePendingEvents(userID);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            this.retry(userID);
+        }
+    }
+
+    /**
+     * Method used to schedule a certain user again after a failure to handle its pending TransactionEvents, after a
+     * delay that doubles with every consecutive failure.
+     *
+     * @param userID The ID of the user that will be scheduled again.
+     */
+    private void retry(int userID) {
+        int failures = consecutiveFailures.merge(userID, 1, Integer::sum);
+        this.schedule(userID, getRetryDelay(failures));
+    }
+
+    /**
+     * Method used to compute the delay after which a user is scheduled again after a certain amount of consecutive
+     * failures to handle its pending TransactionEvents.
+     *
+     * @param failures The amount of consecutive failures, which is at least 1.
+     * @return The delay in milliseconds, being INITIAL_RETRY_DELAY_MILLIS doubled for every failure after the first,
+     * up to MAX_RETRY_DELAY_MILLIS.
+     */
+    private static long getRetryDelay(int failures) {
+        int doublings = Math.min(failures - 1, 30);
+        return Math.min(MAX_RETRY_DELAY_MILLIS, INITIAL_RETRY_DELAY_MILLIS << doublings);
+    }
+
+    /**
+     * Method used to schedule all users that have pending TransactionEvents.
+     */
+    private void scheduleUsersWithPendingEvents() {
+        try {
+            UnitOfWork.run(() -> {
+                for (int userID : customORM.getUsersWithTransactionEvents(MAX_ATTEMPTS)) {
+                    DatabaseConnection.registerCommitAction(() -> this.schedule(userID));
+                }
+            });
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+}
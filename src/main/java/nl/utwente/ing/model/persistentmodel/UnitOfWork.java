@@ -0,0 +1,249 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.model.Model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The UnitOfWork class.
+ * Used to execute every call of a Model method as one unit of work, which borrows its own database connection from the
+ * pool of DatabaseConnection for the duration of the call and returns it afterwards.
+ * <p>
+ * Every unit of work is executed in exactly one database transaction, which is committed when the method call returns
+ * normally and rolled back when it throws an exception. Methods of the wrapped Model that are annotated with ReadOnly
+ * are executed in a deferred transaction, all other methods acquire the write lock of the database up front using
+ * BEGIN IMMEDIATE, so that they never have to upgrade a read transaction halfway.
+ * Work that does not originate from a Model method call can be executed as a unit of work using the run method, and
+ * work within a unit of work of which a failure should not roll back the whole unit of work can be executed using the
+ * runIsolated method.
+ *
+ * @author Daan Kooij
+ */
+public class UnitOfWork implements InvocationHandler {
+
+    private static final String BEGIN_DEFERRED = "BEGIN DEFERRED;";
+    private static final String BEGIN_IMMEDIATE = "BEGIN IMMEDIATE;";
+    private static final String COMMIT = "COMMIT;";
+    private static final String ROLLBACK = "ROLLBACK;";
+    private static final String SAVEPOINT = "SAVEPOINT isolated;";
+    private static final String ROLLBACK_TO_SAVEPOINT = "ROLLBACK TO isolated;";
+    private static final String RELEASE_SAVEPOINT = "RELEASE isolated;";
+
+    private Model model;
+    private Map<Method, Boolean> readOnlyMethods;
+
+    /**
+     * The constructor of UnitOfWork.
+     *
+     * @param model The Model of which every method call will be executed as one unit of work.
+     */
+    private UnitOfWork(Model model) {
+        this.model = model;
+        this.readOnlyMethods = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Method used to wrap a Model in such a way that every call of one of its methods is executed as one unit of work.
+     *
+     * @param model The Model that will be wrapped.
+     * @return A Model that executes every method call of model as one unit of work.
+     */
+    public static Model wrap(Model model) {
+        return (Model) Proxy.newProxyInstance(Model.class.getClassLoader(), new Class<?>[]{Model.class},
+                new UnitOfWork(model));
+    }
+
+    /**
+     * The Work interface.
+     * Used to specify the work that is executed within one unit of work.
+     *
+     * @param <E> The type of Throwable that the work may throw.
+     */
+    private interface Work<E extends Throwable> {
+
+        /**
+         * Method used to perform the work.
+         *
+         * @return The result of the work.
+         */
+        Object perform() throws E;
+
+    }
+
+    /**
+     * Method used to execute a method call on the wrapped Model as one unit of work.
+     * If a connection is already bound to the current thread, the method call simply joins the running unit of work.
+     *
+     * @param proxy  The proxy instance on which the method is called.
+     * @param method The Method that is called.
+     * @param args   The arguments of the method call.
+     * @return The value returned by the method call on the wrapped Model.
+     */
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (DatabaseConnection.isConnectionBound()) {
+            return this.invokeModel(method, args);
+        }
+        String begin = this.isReadOnly(method) ? BEGIN_DEFERRED : BEGIN_IMMEDIATE;
+        return execute(begin, () -> this.invokeModel(method, args));
+    }
+
+    /**
+     * Method used to execute work that does not originate from a Model method call, such as a background task, as one
+     * unit of work that acquires the write lock of the database up front.
+     * If a connection is already bound to the current thread, the work simply joins the running unit of work.
+     *
+     * @param work The work that will be executed.
+     */
+    public static void run(Runnable work) {
+        if (DatabaseConnection.isConnectionBound()) {
+            work.run();
+            return;
+        }
+        execute(BEGIN_IMMEDIATE, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Method used to execute work within the unit of work that is running on the current thread, in such a way that a
+     * failure of the work only undoes the changes made by the work itself instead of the whole unit of work.
+     * The work is executed within a savepoint. If the work throws, the savepoint is rolled back, the actions the work
+     * registered to be run after a rollback are run, the actions it registered to be run after a commit are forgotten,
+     * and the exception is rethrown, after which the unit of work can still be committed.
+     *
+     * @param work The work that will be executed.
+     */
+    public static void runIsolated(Runnable work) {
+        if (!DatabaseConnection.isConnectionBound()) {
+            throw new IllegalStateException("No unit of work is running on the current thread");
+        }
+        int[] mark = DatabaseConnection.markActions();
+        executeStatement(SAVEPOINT);
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            // If the savepoint cannot be rolled back, the exception rolls back the whole unit of work instead
+            try {
+                executeStatement(ROLLBACK_TO_SAVEPOINT);
+                executeStatement(RELEASE_SAVEPOINT);
+            } catch (RuntimeException rollbackException) {
+                e.addSuppressed(rollbackException);
+                throw e;
+            } finally {
+                DatabaseConnection.runRollbackActionsSince(mark);
+            }
+            throw e;
+        }
+        executeStatement(RELEASE_SAVEPOINT);
+    }
+
+    /**
+     * Method used to execute work in one database transaction on a connection borrowed from the pool.
+     * The transaction is committed when the work completes normally, after which the actions registered to be run
+     * after a commit are run. The transaction is rolled back when the work throws or when it cannot be committed, after
+     * which the actions registered to be run after a rollback are run.
+     *
+     * @param begin The statement that starts the database transaction.
+     * @param work  The work that will be executed.
+     * @param <E>   The type of Throwable that the work may throw.
+     * @return The result of the work.
+     */
+    private static <E extends Throwable> Object execute(String begin, Work<E> work) throws E {
+        try {
+            DatabaseConnection.bindConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not obtain a database connection", e);
+        }
+        try {
+            executeStatement(begin);
+            DatabaseConnection.setTransactionOpen(true);
+            Object result;
+            try {
+                result = work.perform();
+                executeStatement(COMMIT);
+                DatabaseConnection.setTransactionOpen(false);
+            } catch (Throwable t) {
+                rollback(t);
+                throw t;
+            }
+            DatabaseConnection.clearRollbackActions();
+            DatabaseConnection.runCommitActions();
+            return result;
+        } finally {
+            DatabaseConnection.releaseConnection();
+        }
+    }
+
+    /**
+     * Method used to roll back the database transaction on the connection bound to the current thread, after which the
+     * actions registered to be run after a rollback are run.
+     * If the rollback itself fails, the transaction is left open, so that it is rolled back once more when the
+     * connection is released.
+     *
+     * @param cause The Throwable that caused the rollback, to which a failure of the rollback is added as suppressed.
+     */
+    private static void rollback(Throwable cause) {
+        try {
+            executeStatement(ROLLBACK);
+            DatabaseConnection.setTransactionOpen(false);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        } finally {
+            DatabaseConnection.runRollbackActions();
+        }
+    }
+
+    /**
+     * Method used to execute a transaction control statement on the database connection bound to the current thread.
+     *
+     * @param sql The transaction control statement that will be executed.
+     */
+    private static void executeStatement(String sql) {
+        try {
+            DatabaseConnection.getStatementCache().prepare(sql).execute();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not execute " + sql, e);
+        }
+    }
+
+    /**
+     * Method used to check whether the implementation of a certain Model method is annotated with ReadOnly.
+     *
+     * @param method The Model method that will be checked.
+     * @return A boolean indicating whether the implementation of method only reads from the database.
+     */
+    private boolean isReadOnly(Method method) {
+        return readOnlyMethods.computeIfAbsent(method, m -> {
+            try {
+                return model.getClass().getMethod(m.getName(), m.getParameterTypes())
+                        .isAnnotationPresent(ReadOnly.class);
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Method used to call a method on the wrapped Model, rethrowing any exception thrown by that method as is.
+     *
+     * @param method The Method that will be called.
+     * @param args   The arguments of the method call.
+     * @return The value returned by the method call on the wrapped Model.
+     */
+    private Object invokeModel(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(model, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
@@ -2,11 +2,8 @@ package nl.utwente.ing.model.persistentmodel;
 
 import nl.utwente.ing.misc.date.IntervalHelper;
 import nl.utwente.ing.model.bean.Category;
-import nl.utwente.ing.model.bean.Transaction;
 import nl.utwente.ing.model.bean.UserMessage;
 
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 
@@ -18,8 +15,8 @@ import java.util.ArrayList;
  */
 public class UserMessageEmitter {
 
-    private Connection connection;
     private CustomORM customORM;
+    private IDAllocator idAllocator;
 
     private static final String EVENT_BALANCE_DROP_BELOW_ZERO = "Balance drop below zero.";
     private static final String EVENT_BALANCE_REACH_NEW_HIGH = "Balance reach new high.";
@@ -32,12 +29,12 @@ public class UserMessageEmitter {
     /**
      * The constructor of UserMessageEmitter.
      *
-     * @param connection The database connection.
-     * @param customORM  The CustomORM.
+     * @param customORM   The CustomORM.
+     * @param idAllocator The IDAllocator used to hand out the IDs of emitted UserMessages.
      */
-    public UserMessageEmitter(Connection connection, CustomORM customORM) {
-        this.connection = connection;
+    public UserMessageEmitter(CustomORM customORM, IDAllocator idAllocator) {
         this.customORM = customORM;
+        this.idAllocator = idAllocator;
     }
 
     /**
@@ -63,13 +60,12 @@ public class UserMessageEmitter {
                 return;
             }
         }
-        ArrayList<Transaction> transactions = customORM.getTransactionsAscending(userID);
-        if (transactions.size() == 0) {
+        long firstDate = customORM.getFirstDate(userID);
+        if (firstDate == IntervalHelper.NO_DATE) {
             return;
         }
 
-        LocalDateTime firstDatePlusThreeMonths =
-                IntervalHelper.toLocalDateTime(transactions.get(0).getDate()).plusMonths(3);
+        LocalDateTime firstDatePlusThreeMonths = IntervalHelper.toLocalDateTime(firstDate).plusMonths(3);
         LocalDateTime currentDate = IntervalHelper.toLocalDateTime(customORM.getCurrentDate(userID));
         if (firstDatePlusThreeMonths.compareTo(currentDate) <= 0) {
             this.emitUserMessage(userID, "info", EVENT_BALANCE_REACH_NEW_HIGH);
@@ -116,20 +112,15 @@ public class UserMessageEmitter {
 
     /**
      * Method used to emit a UserMessage for a certain user saying that a SavingGoal has been reached.
-     * If such a message is already emitted for the same SavingGoal, nothing will be emitted.
+     * Does not check whether such a message is already emitted for the same SavingGoal, the SavingGoalEvaluator keeps
+     * track of this by marking the SavingGoal as reached.
      *
-     * @param userID         The ID of the user for which the UserMessage may be emitted.
-     * @param savingGoalID   The ID of the SavingGoal for which a UserMessage may be emitted.
-     * @param savingGoalName The name of the SavingGoal for which a UserMessage may be emitted.
+     * @param userID         The ID of the user for which the UserMessage will be emitted.
+     * @param savingGoalID   The ID of the SavingGoal for which the UserMessage will be emitted.
+     * @param savingGoalName The name of the SavingGoal for which the UserMessage will be emitted.
      */
     public void eventSavingGoalReached(int userID, long savingGoalID, String savingGoalName) {
         String message = EVENT_SAVING_GOAL_REACHED + savingGoalName + " (ID = " + savingGoalID + ").";
-        ArrayList<UserMessage> userMessages = customORM.getAllUserMessages(userID);
-        for (UserMessage userMessage : userMessages) {
-            if (userMessage.getMessage().equals(message)) {
-                return;
-            }
-        }
         this.emitUserMessage(userID, "info", message);
     }
 
@@ -156,17 +147,9 @@ public class UserMessageEmitter {
      * @param message The message of the to be emitted UserMessage.
      */
     private void emitUserMessage(int userID, String type, String message) {
-        try {
-            connection.setAutoCommit(false);
-            customORM.increaseHighestUserMessageID(userID);
-            long userMessageID = customORM.getHighestUserMessageID(userID);
-            connection.commit();
-            connection.setAutoCommit(true);
-            String date = customORM.getCurrentDate(userID);
-            customORM.createUserMessage(userID, new UserMessage(userMessageID, message, date, false, type));
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        long userMessageID = idAllocator.nextID(userID, IDType.USER_MESSAGE);
+        long date = customORM.getCurrentDate(userID);
+        customORM.createUserMessage(userID, new UserMessage(userMessageID, message, date, false, type));
     }
 
 }
@@ -0,0 +1,186 @@
+package nl.utwente.ing.misc.date;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The IntervalHelperTest class.
+ * Used to test that bucketing dates with arithmetic and cached month starts gives exactly the same results as bucketing
+ * them with LocalDateTime objects did, for dates inside as well as outside of the cached years.
+ *
+ * @author Daan Kooij
+ */
+public class IntervalHelperTest {
+
+    private static final int DATES = 5000;
+    private static final long YEAR_MILLIS = 365L * 24 * 60 * 60 * 1000;
+
+    private static final String[] SPECIAL_DATES = {
+            "1970-01-01T00:00:00.000Z", "1969-12-31T23:59:59.999Z", "1970-01-01T00:00:00.001Z",
+            "1899-12-31T23:59:59.999Z", "1900-01-01T00:00:00.000Z", "2199-12-31T23:59:59.999Z",
+            "2200-01-01T00:00:00.000Z", "2020-02-29T12:00:00.000Z", "2018-05-13T12:00:00.000Z"
+    };
+
+    /**
+     * Method used to retrieve the start of the interval of a certain size that contains a date using LocalDateTime
+     * objects, as IntervalHelper used to.
+     *
+     * @param intervalPeriod The size of the interval.
+     * @param date           The date in milliseconds since the beginning of UNIX time.
+     * @return The start of the interval of size intervalPeriod containing date.
+     */
+    private static long referenceIntervalStart(IntervalPeriod intervalPeriod, long date) {
+        LocalDateTime start = IntervalHelper.toLocalDateTime(date).truncatedTo(ChronoUnit.HOURS);
+        if (intervalPeriod != IntervalPeriod.HOUR) {
+            start = start.truncatedTo(ChronoUnit.DAYS);
+        }
+        if (intervalPeriod == IntervalPeriod.WEEK) {
+            start = start.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        } else if (intervalPeriod == IntervalPeriod.MONTH) {
+            start = start.withDayOfMonth(1);
+        } else if (intervalPeriod == IntervalPeriod.YEAR) {
+            start = start.withDayOfYear(1);
+        }
+        return IntervalHelper.toEpochMillis(start);
+    }
+
+    /**
+     * Method used to move a date a certain amount of intervals of a certain size using LocalDateTime objects, as
+     * IntervalHelper used to.
+     *
+     * @param intervalPeriod The size of the intervals.
+     * @param date           The date in milliseconds since the beginning of UNIX time.
+     * @param amount         The amount of intervals to move date (negative to move backwards in time).
+     * @return The date moved amount intervals of size intervalPeriod.
+     */
+    private static long referenceAddIntervals(IntervalPeriod intervalPeriod, long date, int amount) {
+        LocalDateTime localDateTime = IntervalHelper.toLocalDateTime(date);
+        if (intervalPeriod == IntervalPeriod.YEAR) {
+            localDateTime = localDateTime.plusYears(amount);
+        } else if (intervalPeriod == IntervalPeriod.MONTH) {
+            localDateTime = localDateTime.plusMonths(amount);
+        } else if (intervalPeriod == IntervalPeriod.WEEK) {
+            localDateTime = localDateTime.plusWeeks(amount);
+        } else if (intervalPeriod == IntervalPeriod.DAY) {
+            localDateTime = localDateTime.plusDays(amount);
+        } else {
+            localDateTime = localDateTime.plusHours(amount);
+        }
+        return IntervalHelper.toEpochMillis(localDateTime);
+    }
+
+    /**
+     * Method used to retrieve the month identifier of a date using LocalDateTime objects, as IntervalHelper used to.
+     *
+     * @param date The date in milliseconds since the beginning of UNIX time.
+     * @return The month identifier of date.
+     */
+    private static int referenceMonthIdentifier(long date) {
+        LocalDateTime localDateTime = IntervalHelper.toLocalDateTime(date);
+        return (localDateTime.getYear() - 1970) * 12 + (localDateTime.getMonthValue() - 1);
+    }
+
+    /**
+     * Method used to generate the intervals ending at a certain date using the reference implementation.
+     *
+     * @param intervalPeriod The size of the intervals to be generated.
+     * @param amount         The amount of intervals to be generated.
+     * @param until          The date contained in the last interval.
+     * @return An array containing dates representing the requested intervals.
+     */
+    private static long[] referenceIntervals(IntervalPeriod intervalPeriod, int amount, long until) {
+        long[] intervals = new long[amount + 2];
+        long edge = referenceIntervalStart(intervalPeriod, until);
+        intervals[amount + 1] = referenceAddIntervals(intervalPeriod, edge, 1);
+        for (int i = amount; i >= 1; i--) {
+            intervals[i] = edge;
+            edge = referenceAddIntervals(intervalPeriod, edge, -1);
+        }
+        return intervals;
+    }
+
+    @Test
+    public void testMatchesLocalDateTimeBucketing() {
+        Random random = new Random(1);
+        IntervalPeriod[] intervalPeriods = IntervalPeriod.values();
+        for (int i = 0; i < DATES; i++) {
+            // Dates within 400 years of 1970, so both cached and uncached years are covered
+            long date = i < SPECIAL_DATES.length ?
+                    IntervalHelper.parseDate(SPECIAL_DATES[i]) : random.nextLong() % (400 * YEAR_MILLIS);
+            if (i % 3 == 0) {
+                // The start of an interval, which is the common case when moving dates by intervals
+                date = referenceIntervalStart(intervalPeriods[i % intervalPeriods.length], date);
+            }
+
+            for (IntervalPeriod intervalPeriod : intervalPeriods) {
+                long start = referenceIntervalStart(intervalPeriod, date);
+                assertMatches("getIntervalStart", intervalPeriod, date, start,
+                        IntervalHelper.getIntervalStart(intervalPeriod, date));
+
+                int amount = random.nextInt(400) - 200;
+                assertMatches("addIntervals " + amount, intervalPeriod, date,
+                        referenceAddIntervals(intervalPeriod, date, amount),
+                        IntervalHelper.addIntervals(intervalPeriod, date, amount));
+
+                long index = IntervalHelper.getIntervalIndex(intervalPeriod, date);
+                long next = referenceAddIntervals(intervalPeriod, start, 1);
+                assertMatches("getIntervalIndex", intervalPeriod, date, index,
+                        IntervalHelper.getIntervalIndex(intervalPeriod, start));
+                assertMatches("getIntervalIndex of next interval", intervalPeriod, date, index + 1,
+                        IntervalHelper.getIntervalIndex(intervalPeriod, next));
+            }
+            assertMatches("getMonthIdentifier", IntervalPeriod.MONTH, date, referenceMonthIdentifier(date),
+                    IntervalHelper.getMonthIdentifier(date));
+
+            IntervalPeriod intervalPeriod = intervalPeriods[i % intervalPeriods.length];
+            int amount = random.nextInt(10) + 1;
+            long[] expected = referenceIntervals(intervalPeriod, amount, date);
+            long[] actual = IntervalHelper.getIntervals(intervalPeriod, amount, date);
+            if (!Arrays.equals(expected, actual)) {
+                assertArrayEquals("getIntervals " + intervalPeriod + " " + IntervalHelper.formatDate(date), expected,
+                        actual);
+            }
+        }
+    }
+
+    /**
+     * Method used to assert that IntervalHelper gives the same result as the reference implementation for a date,
+     * only describing the date if it does not, since formatting every date would dominate the running time.
+     *
+     * @param method         The name of the method of IntervalHelper that is checked.
+     * @param intervalPeriod The size of the intervals that is checked.
+     * @param date           The date that is checked.
+     * @param expected       The result of the reference implementation.
+     * @param actual         The result of IntervalHelper.
+     */
+    private static void assertMatches(String method, IntervalPeriod intervalPeriod, long date, long expected,
+                                      long actual) {
+        if (expected != actual) {
+            assertEquals(method + " " + intervalPeriod + " " + IntervalHelper.formatDate(date), expected, actual);
+        }
+    }
+
+    @Test
+    public void testIntervalsAreAlignedToCalendar() {
+        long until = IntervalHelper.parseDate("2018-05-13T12:00:00.000Z");
+        long[] expected = {0, IntervalHelper.parseDate("2018-05-09T00:00:00.000Z"),
+                IntervalHelper.parseDate("2018-05-10T00:00:00.000Z"),
+                IntervalHelper.parseDate("2018-05-11T00:00:00.000Z"),
+                IntervalHelper.parseDate("2018-05-12T00:00:00.000Z"),
+                IntervalHelper.parseDate("2018-05-13T00:00:00.000Z"),
+                IntervalHelper.parseDate("2018-05-14T00:00:00.000Z")};
+        assertArrayEquals(expected, IntervalHelper.getIntervals(IntervalPeriod.DAY, 5, until));
+        assertEquals(IntervalHelper.parseDate("2018-05-07T00:00:00.000Z"),
+                IntervalHelper.getIntervalStart(IntervalPeriod.WEEK, until));
+    }
+
+}
@@ -0,0 +1,172 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The CategorySpendTest class.
+ * Used to test that the ring buffers of CategorySpend keep exactly the amounts withdrawn per Category within the
+ * rolling window, including after the window moved forward, for past days and after being persisted and restored.
+ *
+ * @author Daan Kooij
+ */
+public class CategorySpendTest {
+
+    private static final long GROCERIES = 1;
+    private static final long RENT = 2;
+
+    @Test
+    public void testGetSpentWithinWindow() {
+        CategorySpend categorySpend = new CategorySpend(0);
+        categorySpend.add(GROCERIES, 100, 500);
+        categorySpend.add(GROCERIES, 110, 250);
+        categorySpend.add(RENT, 110, 70000);
+
+        assertEquals(750, categorySpend.getSpent(GROCERIES, 110));
+        assertEquals(70000, categorySpend.getSpent(RENT, 110));
+        assertEquals(0, categorySpend.getSpent(3, 110));
+    }
+
+    @Test
+    public void testWindowMovesForward() {
+        CategorySpend categorySpend = new CategorySpend(0);
+        categorySpend.add(GROCERIES, 100, 500);
+        categorySpend.add(GROCERIES, 110, 250);
+
+        // Day 100 is the last day within the window ending at day 129
+        assertEquals(750, categorySpend.getSpent(GROCERIES, 129));
+        assertEquals(250, categorySpend.getSpent(GROCERIES, 130));
+        assertEquals(0, categorySpend.getSpent(GROCERIES, 140));
+
+        // Moving the window past every bucket at once clears all of them
+        categorySpend.add(GROCERIES, 1000, 100);
+        assertEquals(100, categorySpend.getSpent(GROCERIES, 1000));
+    }
+
+    @Test
+    public void testGetSpentForPastDay() {
+        CategorySpend categorySpend = new CategorySpend(0);
+        categorySpend.add(GROCERIES, 100, 500);
+        categorySpend.add(GROCERIES, 110, 250);
+        categorySpend.add(GROCERIES, 125, 100);
+
+        // A window ending before the last day only counts the buckets up to its own last day
+        assertEquals(750, categorySpend.getSpent(GROCERIES, 124));
+        assertEquals(500, categorySpend.getSpent(GROCERIES, 105));
+        assertEquals(850, categorySpend.getSpent(GROCERIES, 129));
+
+        // Once the window moved past day 100, a window ending before it no longer contains day 100 either
+        assertEquals(350, categorySpend.getSpent(GROCERIES, 130));
+        assertEquals(350, categorySpend.getSpent(GROCERIES, 125));
+    }
+
+    @Test
+    public void testWithdrawalOutsideWindowIsIgnored() {
+        CategorySpend categorySpend = new CategorySpend(0);
+        categorySpend.add(GROCERIES, 200, 500);
+        categorySpend.add(GROCERIES, 150, 250);
+        categorySpend.add(GROCERIES, 171, 100);
+
+        assertEquals(600, categorySpend.getSpent(GROCERIES, 200));
+        assertEquals(2, categorySpend.takeChangedBuckets().size());
+    }
+
+    @Test
+    public void testNegativeDays() {
+        CategorySpend categorySpend = new CategorySpend(0);
+        categorySpend.add(GROCERIES, -31, 500);
+        categorySpend.add(GROCERIES, -5, 250);
+        assertEquals(750, categorySpend.getSpent(GROCERIES, -2));
+
+        categorySpend.add(GROCERIES, 3, 100);
+        assertEquals(350, categorySpend.getSpent(GROCERIES, 3));
+    }
+
+    @Test
+    public void testMatchesWithdrawalsWithinWindow() {
+        Random random = new Random(1);
+        for (int run = 0; run < 3000; run++) {
+            CategorySpend categorySpend = new CategorySpend(0);
+            List<long[]> withdrawals = new ArrayList<>();
+            Map<String, Long> persistedBuckets = new HashMap<>();
+            long day = random.nextInt(100) - 50;
+
+            for (int step = 0; step < 60; step++) {
+                int operation = random.nextInt(10);
+                long categoryID = 1 + random.nextInt(3);
+                if (operation < 5) {
+                    // A withdrawal around the most recent day, which can be backdated beyond the window
+                    long withdrawalDay = day + (random.nextInt(4) == 0 ? -random.nextInt(45) : random.nextInt(5));
+                    long amount = 1 + random.nextInt(100);
+                    day = Math.max(day, withdrawalDay);
+                    categorySpend.add(categoryID, withdrawalDay, amount);
+                    if (withdrawalDay > categorySpend.getExpiredUntilDay()) {
+                        withdrawals.add(new long[]{categoryID, withdrawalDay, amount});
+                    }
+                } else if (operation < 8) {
+                    // Evaluating a Transaction retrieves the amount spent before adding its own withdrawal
+                    day = Math.max(day, categorySpend.getHeadDay()) + random.nextInt(40);
+                    assertEquals("Run " + run, spentWithinWindow(withdrawals, categoryID, day),
+                            categorySpend.getSpent(categoryID, day));
+                    long amount = 1 + random.nextInt(100);
+                    categorySpend.add(categoryID, day, amount);
+                    withdrawals.add(new long[]{categoryID, day, amount});
+                } else {
+                    categorySpend = persistAndRestore(categorySpend, persistedBuckets);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method used to compute the amount withdrawn in a certain Category within the window ending at a certain day by
+     * summing all withdrawals.
+     *
+     * @param withdrawals The withdrawals as {categoryID, day, amount}.
+     * @param categoryID  The ID of the Category.
+     * @param day         The last day of the window.
+     * @return The amount withdrawn in the Category within the window ending at day.
+     */
+    private static long spentWithinWindow(List<long[]> withdrawals, long categoryID, long day) {
+        long spent = 0;
+        for (long[] withdrawal : withdrawals) {
+            boolean withinWindow = withdrawal[1] <= day && withdrawal[1] > day - CategorySpend.WINDOW_DAYS;
+            if (withdrawal[0] == categoryID && withinWindow) {
+                spent += withdrawal[2];
+            }
+        }
+        return spent;
+    }
+
+    /**
+     * Method used to persist the changed buckets of a CategorySpend and to restore it from the persisted buckets, the
+     * way CustomORM does.
+     *
+     * @param categorySpend    The CategorySpend that will be persisted.
+     * @param persistedBuckets The persisted buckets, from "categoryID,day" to amount.
+     * @return The CategorySpend restored from the persisted buckets.
+     */
+    private static CategorySpend persistAndRestore(CategorySpend categorySpend, Map<String, Long> persistedBuckets) {
+        for (long[] bucket : categorySpend.takeChangedBuckets()) {
+            persistedBuckets.put(bucket[0] + "," + bucket[1], bucket[2]);
+        }
+        long expiredUntilDay = categorySpend.getExpiredUntilDay();
+        persistedBuckets.keySet().removeIf(key -> Long.parseLong(key.split(",")[1]) <= expiredUntilDay);
+
+        CategorySpend restored = new CategorySpend(categorySpend.getHeadDay(), categorySpend.getEvaluatedUntilID());
+        for (Map.Entry<String, Long> bucket : persistedBuckets.entrySet()) {
+            String[] key = bucket.getKey().split(",");
+            restored.add(Long.parseLong(key[0]), Long.parseLong(key[1]), bucket.getValue());
+        }
+        restored.takeChangedBuckets();
+        return restored;
+    }
+
+}
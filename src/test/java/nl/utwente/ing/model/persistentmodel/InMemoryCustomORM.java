@@ -0,0 +1,185 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.misc.date.IntervalPeriod;
+import nl.utwente.ing.model.bean.Balance;
+import nl.utwente.ing.model.bean.BalanceCandlestick;
+import nl.utwente.ing.model.bean.SavingGoal;
+import nl.utwente.ing.model.bean.Transaction;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The InMemoryCustomORM class.
+ * Extends CustomORM.
+ * Used to keep the Transactions, the persisted balance, the rollups and the BalanceCheckpoints of a single user without
+ * SavingGoals in memory, so that the BalanceTracker can be tested without a database.
+ *
+ * @author Daan Kooij
+ */
+class InMemoryCustomORM extends CustomORM {
+
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final Map<IntervalPeriod, TreeMap<Long, BalanceCandlestick>> rollups = new EnumMap<>(IntervalPeriod.class);
+    private final TreeMap<Long, BalanceCheckpoint> checkpoints = new TreeMap<>();
+    private Balance balance;
+
+    /**
+     * The constructor of InMemoryCustomORM.
+     */
+    InMemoryCustomORM() {
+        for (IntervalPeriod intervalPeriod : IntervalPeriod.values()) {
+            rollups.put(intervalPeriod, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Method used to add a Transaction to the ledger of the user.
+     *
+     * @param transaction The Transaction that will be added.
+     */
+    void addTransaction(Transaction transaction) {
+        transactions.add(transaction);
+    }
+
+    /**
+     * Method used to describe the persisted balance, rollups and BalanceCheckpoints of the user, so that the persisted
+     * state of two InMemoryCustomORMs can be compared.
+     *
+     * @return A String describing the persisted state of the user.
+     */
+    String describe() {
+        StringBuilder description = new StringBuilder();
+        description.append("balance ").append(balance.getBalance()).append(" at ").append(balance.getDate());
+        for (Map.Entry<IntervalPeriod, TreeMap<Long, BalanceCandlestick>> entry : rollups.entrySet()) {
+            for (BalanceCandlestick candlestick : entry.getValue().values()) {
+                description.append("\nrollup ").append(entry.getKey()).append(' ').append(describe(candlestick));
+            }
+        }
+        for (BalanceCheckpoint checkpoint : checkpoints.values()) {
+            description.append("\ncheckpoint ").append(checkpoint.getMonthStart()).append(' ')
+                    .append(checkpoint.getBalance()).append(" at ").append(checkpoint.getDate());
+            for (Map.Entry<IntervalPeriod, BalanceCandlestick> entry : checkpoint.getRollups().entrySet()) {
+                description.append(' ').append(entry.getKey()).append(' ').append(describe(entry.getValue()));
+            }
+        }
+        return description.toString();
+    }
+
+    @Override
+    public Balance getBalance(int userID) {
+        return balance;
+    }
+
+    @Override
+    public void updateBalance(int userID, Balance balance) {
+        this.balance = balance;
+    }
+
+    @Override
+    public void invalidateBalance(int userID) {
+        this.balance = null;
+    }
+
+    @Override
+    public ArrayList<SavingGoal> getSavingGoals(int userID) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void streamLedger(int userID, LedgerVisitor visitor) {
+        List<Transaction> ledger = new ArrayList<>(transactions);
+        ledger.sort(Comparator.comparingLong(Transaction::getDate).thenComparingLong(Transaction::getID));
+        LedgerRow row = new LedgerRow();
+        for (Transaction transaction : ledger) {
+            row.set(transaction.getID(), transaction.getDate(), transaction.getAmount(),
+                    transaction.getType().equals("deposit"), 0);
+            visitor.visit(row);
+        }
+    }
+
+    @Override
+    public ArrayList<BalanceCandlestick> getBalanceRollups(int userID, IntervalPeriod intervalPeriod, long from,
+                                                           long to) {
+        ArrayList<BalanceCandlestick> candlesticks = new ArrayList<>();
+        for (BalanceCandlestick candlestick : rollups.get(intervalPeriod).subMap(from, to).values()) {
+            candlesticks.add(copy(candlestick));
+        }
+        return candlesticks;
+    }
+
+    @Override
+    public long getBalanceBeforeRollup(int userID, IntervalPeriod intervalPeriod, long bucket) {
+        Map.Entry<Long, BalanceCandlestick> entry = rollups.get(intervalPeriod).lowerEntry(bucket);
+        return entry != null ? entry.getValue().getClose() : 0;
+    }
+
+    @Override
+    public void updateBalanceRollup(int userID, IntervalPeriod intervalPeriod, BalanceCandlestick candlestick) {
+        rollups.get(intervalPeriod).put(candlestick.getTimestamp() * 1000, copy(candlestick));
+    }
+
+    @Override
+    public void deleteBalanceRollups(int userID) {
+        for (TreeMap<Long, BalanceCandlestick> candlesticks : rollups.values()) {
+            candlesticks.clear();
+        }
+    }
+
+    @Override
+    public void deleteBalanceRollupsFrom(int userID, IntervalPeriod intervalPeriod, long bucket) {
+        rollups.get(intervalPeriod).tailMap(bucket, true).clear();
+    }
+
+    @Override
+    public BalanceCheckpoint getLatestBalanceCheckpoint(int userID) {
+        if (checkpoints.isEmpty()) {
+            return null;
+        }
+        BalanceCheckpoint latest = checkpoints.lastEntry().getValue();
+        BalanceCheckpoint checkpoint = new BalanceCheckpoint(latest.getMonthStart(), latest.getBalance(),
+                latest.getDate());
+        for (Map.Entry<IntervalPeriod, BalanceCandlestick> entry : latest.getRollups().entrySet()) {
+            checkpoint.getRollups().put(entry.getKey(), copy(entry.getValue()));
+        }
+        return checkpoint;
+    }
+
+    @Override
+    public void createBalanceCheckpoint(int userID, BalanceCheckpoint checkpoint) {
+        checkpoints.put(checkpoint.getMonthStart(), checkpoint);
+    }
+
+    @Override
+    public void deleteBalanceCheckpointsAfter(int userID, long date) {
+        checkpoints.tailMap(date, false).clear();
+    }
+
+    /**
+     * Method used to copy a BalanceCandlestick, so that the persisted BalanceCandlesticks are not changed by the
+     * BalanceTracker.
+     *
+     * @param candlestick The BalanceCandlestick that will be copied.
+     * @return A copy of candlestick.
+     */
+    private static BalanceCandlestick copy(BalanceCandlestick candlestick) {
+        return new BalanceCandlestick(candlestick.getOpen(), candlestick.getClose(), candlestick.getHigh(),
+                candlestick.getLow(), candlestick.getVolume(), candlestick.getTimestamp());
+    }
+
+    /**
+     * Method used to describe a BalanceCandlestick.
+     *
+     * @param candlestick The BalanceCandlestick that will be described.
+     * @return A String describing all fields of candlestick.
+     */
+    private static String describe(BalanceCandlestick candlestick) {
+        return candlestick.getTimestamp() + ":" + candlestick.getOpen() + "/" + candlestick.getClose() + "/" +
+                candlestick.getHigh() + "/" + candlestick.getLow() + "/" + candlestick.getVolume();
+    }
+
+}
@@ -0,0 +1,159 @@
+package nl.utwente.ing.model.persistentmodel;
+
+import nl.utwente.ing.misc.date.IntervalHelper;
+import nl.utwente.ing.model.bean.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The ParallelLedgerReplayTest class.
+ * Used to test that replaying the Transactions of a user in parallel persists exactly the same balance, rollups and
+ * BalanceCheckpoints as replaying them one by one, for randomized ledgers and chunk sizes.
+ *
+ * @author Daan Kooij
+ */
+public class ParallelLedgerReplayTest {
+
+    private static final int USER_ID = 1;
+    private static final long HOUR = 3600000L;
+    private static final long DAY = 24 * HOUR;
+
+    private ForkJoinPool pool;
+    private List<SavingGoalEvaluator> evaluators;
+    private InMemoryCustomORM sequentialORM;
+    private InMemoryCustomORM parallelORM;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+        evaluators = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        for (SavingGoalEvaluator evaluator : evaluators) {
+            evaluator.shutdown();
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Method used to create a BalanceTracker that replays Transactions one by one, and one that replays them in
+     * parallel in chunks of a certain size, each on its own InMemoryCustomORM.
+     *
+     * @param chunkSize The amount of Transactions per chunk of the parallel replay.
+     * @return The sequential and the parallel BalanceTracker, in that order.
+     */
+    private BalanceTracker[] createTrackers(int chunkSize) {
+        sequentialORM = new InMemoryCustomORM();
+        parallelORM = new InMemoryCustomORM();
+        return new BalanceTracker[]{
+                this.createTracker(sequentialORM, new ParallelLedgerReplay(sequentialORM, pool, Integer.MAX_VALUE, 16)),
+                this.createTracker(parallelORM, new ParallelLedgerReplay(parallelORM, pool, 1, chunkSize))
+        };
+    }
+
+    /**
+     * Method used to create a BalanceTracker on a certain InMemoryCustomORM.
+     * The SavingGoalEvaluator of the BalanceTracker is not started, since the ledgers have no SavingGoals, and is shut
+     * down after the test.
+     *
+     * @param customORM      The InMemoryCustomORM in which the BalanceTracker persists its state.
+     * @param parallelReplay The ParallelLedgerReplay used by the BalanceTracker.
+     * @return The created BalanceTracker.
+     */
+    private BalanceTracker createTracker(InMemoryCustomORM customORM, ParallelLedgerReplay parallelReplay) {
+        SavingGoalEvaluator evaluator = new SavingGoalEvaluator(customORM, null);
+        evaluators.add(evaluator);
+        return new BalanceTracker(customORM, new LedgerCache(customORM), evaluator, parallelReplay);
+    }
+
+    /**
+     * Method used to add the same randomized ledger to both InMemoryCustomORMs.
+     * The gaps between Transactions vary from minutes to months, so that intervals and months span several chunks as
+     * well as being skipped entirely.
+     *
+     * @param random The Random used to generate the ledger.
+     * @param size   The amount of Transactions in the ledger.
+     */
+    private void addRandomLedger(Random random, int size) {
+        long date = IntervalHelper.parseDate("2014-05-13T12:00:00.000Z") + random.nextInt(2000) * HOUR;
+        for (int i = 1; i <= size; i++) {
+            int gap = random.nextInt(10);
+            if (gap < 5) {
+                date += random.nextInt((int) HOUR);
+            } else if (gap < 8) {
+                date += random.nextInt(72) * HOUR;
+            } else {
+                date += random.nextInt(120) * DAY;
+            }
+            String type = random.nextInt(3) == 0 ? "deposit" : "withdrawal";
+            Transaction transaction = new Transaction(i, date, random.nextInt(5000) + 1, "Transaction " + i,
+                    "NL39RABO0300065264", type);
+            sequentialORM.addTransaction(transaction);
+            parallelORM.addTransaction(transaction);
+        }
+    }
+
+    @Test
+    public void testFullReplayMatchesSequentialReplay() {
+        Random random = new Random(7);
+        for (int run = 0; run < 200; run++) {
+            BalanceTracker[] trackers = this.createTrackers(1 + random.nextInt(40));
+            this.addRandomLedger(random, random.nextInt(run % 10 == 0 ? 5 : 2000));
+
+            trackers[0].getBalance(USER_ID);
+            trackers[1].getBalance(USER_ID);
+            assertEquals("Run " + run, sequentialORM.describe(), parallelORM.describe());
+        }
+    }
+
+    @Test
+    public void testReplayFromCheckpointMatchesSequentialReplay() {
+        Random random = new Random(11);
+        for (int run = 0; run < 100; run++) {
+            BalanceTracker[] trackers = this.createTrackers(1 + random.nextInt(40));
+            int size = 1 + random.nextInt(2000);
+            this.addRandomLedger(random, size);
+            trackers[0].getBalance(USER_ID);
+            trackers[1].getBalance(USER_ID);
+
+            for (int i = 0; i < 3; i++) {
+                // Replaying starts at the most recent BalanceCheckpoint before the changed date
+                long changedDate = IntervalHelper.parseDate("2014-05-13T12:00:00.000Z") +
+                        (long) random.nextInt(size) * 30 * HOUR;
+                trackers[0].transactionChanged(USER_ID, changedDate);
+                trackers[1].transactionChanged(USER_ID, changedDate);
+                assertEquals("Run " + run, sequentialORM.describe(), parallelORM.describe());
+            }
+        }
+    }
+
+    @Test
+    public void testChunksWithinOneMonthMatchSequentialReplay() {
+        // Every interval of a WEEK, MONTH and YEAR is started in one chunk and continued in the chunks after it
+        for (int chunkSize = 1; chunkSize <= 3; chunkSize++) {
+            BalanceTracker[] trackers = this.createTrackers(chunkSize);
+            long date = IntervalHelper.parseDate("2018-05-01T00:00:00.000Z");
+            for (int i = 1; i <= 60; i++) {
+                Transaction transaction = new Transaction(i, date + i * 11 * HOUR, 100 * i, "Transaction " + i,
+                        "NL39RABO0300065264", i % 3 == 0 ? "withdrawal" : "deposit");
+                sequentialORM.addTransaction(transaction);
+                parallelORM.addTransaction(transaction);
+            }
+
+            trackers[0].getBalance(USER_ID);
+            trackers[1].getBalance(USER_ID);
+            assertEquals("Chunk size " + chunkSize, sequentialORM.describe(), parallelORM.describe());
+        }
+    }
+
+}